@@ -17,12 +17,14 @@
  */
 package org.apache.avro;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Deque;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -30,6 +32,7 @@ import java.util.Set;
 import java.util.TreeSet;
 import org.apache.avro.Schema.Field;
 import org.apache.avro.Schema.Type;
+import org.apache.avro.util.WeakIdentityHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -60,7 +63,11 @@ public class SchemaCompatibility {
   public static SchemaPairCompatibility checkReaderWriterCompatibility(final Schema reader, final Schema writer) {
     final SchemaCompatibilityResult compatibility = new ReaderWriterCompatibilityChecker().getCompatibility(reader,
         writer);
+    return pairCompatibility(compatibility, reader, writer);
+  }
 
+  private static SchemaPairCompatibility pairCompatibility(final SchemaCompatibilityResult compatibility,
+      final Schema reader, final Schema writer) {
     final String message;
     switch (compatibility.getCompatibility()) {
     case INCOMPATIBLE: {
@@ -183,6 +190,173 @@ public class SchemaCompatibility {
     }
   }
 
+  /**
+   * Memoizes compatibility checks across calls, for instance to validate each
+   * new version of a schema against all previous ones.
+   *
+   * <p>
+   * Results are keyed by the 64-bit fingerprints of the full JSON of the reader
+   * and writer schemas, so equal schemas parsed separately share them. Besides
+   * the result of each pair checked, it keeps which pairs of named records
+   * nested in them are compatible, so that records left unchanged between
+   * versions are not walked again.
+   * </p>
+   *
+   * <p>
+   * A cache is thread-safe and bounded, dropping the least recently used
+   * results.
+   * </p>
+   */
+  public static final class Cache {
+    /** The default maximum number of results of each kind kept. */
+    public static final int DEFAULT_MAXIMUM_SIZE = 10000;
+
+    private final Map<Schema, Long> fingerprints = Collections.synchronizedMap(new WeakIdentityHashMap<>());
+    private final Map<FingerprintPair, SchemaCompatibilityResult> results;
+    private final Map<FingerprintPair, Boolean> compatibleRecords;
+
+    /** Creates a cache keeping up to {@link #DEFAULT_MAXIMUM_SIZE} results. */
+    public Cache() {
+      this(DEFAULT_MAXIMUM_SIZE);
+    }
+
+    /**
+     * Creates a cache keeping up to {@code maximumSize} results of schema pairs,
+     * and as many of nested records.
+     *
+     * @param maximumSize the maximum number of results of each kind kept.
+     */
+    public Cache(final int maximumSize) {
+      if (maximumSize < 1) {
+        throw new IllegalArgumentException("Invalid maximum size: " + maximumSize);
+      }
+      this.results = lru(maximumSize);
+      this.compatibleRecords = lru(maximumSize);
+    }
+
+    /**
+     * Validates that the provided reader schema can be used to decode avro data
+     * written with the provided writer schema, reusing earlier results.
+     *
+     * @param reader schema to check.
+     * @param writer schema to check.
+     * @return a result object identifying any compatibility errors.
+     * @see SchemaCompatibility#checkReaderWriterCompatibility(Schema, Schema)
+     */
+    public SchemaPairCompatibility check(final Schema reader, final Schema writer) {
+      final FingerprintPair key = new FingerprintPair(fingerprint(reader), fingerprint(writer));
+      SchemaCompatibilityResult result = results.get(key);
+      if (result == null) {
+        result = new ReaderWriterCompatibilityChecker(this).getCompatibility(reader, writer);
+        results.put(key, result);
+      }
+      return pairCompatibility(result, reader, writer);
+    }
+
+    /**
+     * Validates that a reader schema can decode data written with each of the
+     * writer schemas. The reader is fingerprinted once, and nested records found
+     * compatible against one writer are not compared again for the next.
+     *
+     * @param reader  schema to check.
+     * @param writers schemas to check the reader against.
+     * @return the results, in the order of the writers.
+     */
+    public List<SchemaPairCompatibility> checkReader(final Schema reader, final Iterable<Schema> writers) {
+      final List<SchemaPairCompatibility> pairs = new ArrayList<>();
+      for (final Schema writer : writers) {
+        pairs.add(check(reader, writer));
+      }
+      return pairs;
+    }
+
+    /**
+     * Validates that data written with a writer schema can be decoded with each
+     * of the reader schemas. The writer is fingerprinted once, and nested records
+     * found compatible against one reader are not compared again for the next.
+     *
+     * @param writer  schema to check.
+     * @param readers schemas to check the writer against.
+     * @return the results, in the order of the readers.
+     */
+    public List<SchemaPairCompatibility> checkWriter(final Schema writer, final Iterable<Schema> readers) {
+      final List<SchemaPairCompatibility> pairs = new ArrayList<>();
+      for (final Schema reader : readers) {
+        pairs.add(check(reader, writer));
+      }
+      return pairs;
+    }
+
+    /** Returns the number of schema pairs whose result is kept. */
+    public int size() {
+      return results.size();
+    }
+
+    /** Drops all results. */
+    public void clear() {
+      results.clear();
+      compatibleRecords.clear();
+    }
+
+    boolean isCompatibleRecord(final Schema reader, final Schema writer) {
+      return isRecords(reader, writer)
+          && compatibleRecords.containsKey(new FingerprintPair(fingerprint(reader), fingerprint(writer)));
+    }
+
+    void putRecord(final Schema reader, final Schema writer, final SchemaCompatibilityResult result) {
+      if (isRecords(reader, writer) && result.getCompatibility() == SchemaCompatibilityType.COMPATIBLE) {
+        compatibleRecords.put(new FingerprintPair(fingerprint(reader), fingerprint(writer)), Boolean.TRUE);
+      }
+    }
+
+    private static boolean isRecords(final Schema reader, final Schema writer) {
+      return reader.getType() == Type.RECORD && writer.getType() == Type.RECORD;
+    }
+
+    private long fingerprint(final Schema schema) {
+      Long fingerprint = fingerprints.get(schema);
+      if (fingerprint == null) {
+        fingerprint = SchemaNormalization.fingerprint64(schema.toString().getBytes(StandardCharsets.UTF_8));
+        fingerprints.put(schema, fingerprint);
+      }
+      return fingerprint;
+    }
+
+    private static <K, V> Map<K, V> lru(final int maximumSize) {
+      return Collections.synchronizedMap(new LinkedHashMap<K, V>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<K, V> eldest) {
+          return size() > maximumSize;
+        }
+      });
+    }
+  }
+
+  /** Fingerprints of a reader/writer schema pair. */
+  private static final class FingerprintPair {
+    private final long mReader;
+    private final long mWriter;
+
+    FingerprintPair(final long reader, final long writer) {
+      mReader = reader;
+      mWriter = writer;
+    }
+
+    @Override
+    public int hashCode() {
+      return Long.hashCode(mReader) * 31 + Long.hashCode(mWriter);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof FingerprintPair)) {
+        return false;
+      }
+      final FingerprintPair that = (FingerprintPair) obj;
+      return mReader == that.mReader && mWriter == that.mWriter;
+    }
+  }
+
   /**
    * Determines the compatibility of a reader/writer schema pair.
    *
@@ -193,6 +367,28 @@ public class SchemaCompatibility {
   private static final class ReaderWriterCompatibilityChecker {
     private static final String ROOT_REFERENCE_TOKEN = "";
     private final Map<ReaderWriter, SchemaCompatibilityResult> mMemoizeMap = new HashMap<>();
+    /** Depth of each pair in progress. */
+    private final Map<ReaderWriter, Integer> mDepths = new HashMap<>();
+    /**
+     * Smallest depth of an enclosing pair assumed compatible by each settled pair
+     * whose result rests on such an assumption.
+     */
+    private final Map<ReaderWriter, Integer> mAssumedDepths = new HashMap<>();
+    /** Results shared with other checks, or null. */
+    private final Cache mCache;
+    /**
+     * Smallest depth of a pair in progress assumed compatible while calculating
+     * the current pair.
+     */
+    private int mAssumedDepth = Integer.MAX_VALUE;
+
+    ReaderWriterCompatibilityChecker() {
+      this(null);
+    }
+
+    ReaderWriterCompatibilityChecker(final Cache cache) {
+      mCache = cache;
+    }
 
     /**
      * Reports the compatibility of a reader/writer schema pair.
@@ -235,12 +431,38 @@ public class SchemaCompatibility {
           // Break the recursion here.
           // schemas are compatible unless proven incompatible:
           result = SchemaCompatibilityResult.compatible();
+          mAssumedDepth = Math.min(mAssumedDepth, mDepths.get(pair));
+        } else {
+          // A settled result carries the assumptions it was calculated under:
+          final Integer assumed = mAssumedDepths.get(pair);
+          if (assumed != null) {
+            mAssumedDepth = Math.min(mAssumedDepth, assumed);
+          }
         }
+      } else if (mCache != null && mCache.isCompatibleRecord(reader, writer)) {
+        result = SchemaCompatibilityResult.compatible();
+        mMemoizeMap.put(pair, result);
       } else {
         // Mark this reader/writer pair as "in progress":
         mMemoizeMap.put(pair, SchemaCompatibilityResult.recursionInProgress());
+        final int depth = mDepths.size();
+        mDepths.put(pair, depth);
+        final int assumedDepth = mAssumedDepth;
+        mAssumedDepth = Integer.MAX_VALUE;
         result = calculateCompatibility(reader, writer, location);
         mMemoizeMap.put(pair, result);
+        mDepths.remove(pair);
+        if (mAssumedDepth >= depth) {
+          // Only this pair and its descendants, all settled now, were assumed
+          // compatible, so the result holds wherever the pair appears:
+          if (mCache != null) {
+            mCache.putRecord(reader, writer, result);
+          }
+          mAssumedDepth = assumedDepth;
+        } else {
+          mAssumedDepths.put(pair, mAssumedDepth);
+          mAssumedDepth = Math.min(mAssumedDepth, assumedDepth);
+        }
       }
       location.removeFirst();
       return result;
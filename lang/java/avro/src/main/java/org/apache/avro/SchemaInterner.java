@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Returns a canonical instance for each distinct schema, so that a schema
+ * parsed many times, for example from message headers, file headers and a
+ * registry, is represented by a single instance. Caches keyed by schema
+ * identity, such as the resolvers of
+ * {@link org.apache.avro.generic.GenericDatumReader}, then apply to all of
+ * them.
+ * <p/>
+ * Schemas are looked up by their
+ * {@link SchemaNormalization#parsingFingerprint64(Schema) parsing fingerprint}.
+ * Two schemas with the same fingerprint share an instance only if they are
+ * {@link Schema#equals(Object) equal}, properties included, and their JSON is
+ * identical, so that documentation, aliases and defaults are kept too.
+ * <p/>
+ * Canonical instances are weakly referenced: they are forgotten once no longer
+ * used. As interned schemas are shared, they must not be modified, for example
+ * by adding properties.
+ * <p/>
+ * Interning is opt-in: see {@link SchemaParser#setInterner(SchemaInterner)},
+ * {@link org.apache.avro.message.SchemaStore.Cache#Cache(SchemaInterner)}
+ * and, for the schemas of data file headers,
+ * {@link #setGlobalEnabled(boolean)}.
+ * <p/>
+ * This class is thread-safe.
+ */
+public class SchemaInterner {
+  /**
+   * The system property that enables the {@link #global() global interner} for
+   * schemas read by {@link org.apache.avro.file.DataFileStream}, {@value}.
+   */
+  public static final String INTERN_PROP = "org.apache.avro.schema.intern";
+
+  private static final SchemaInterner GLOBAL = new SchemaInterner();
+  private static volatile boolean globalEnabled = Boolean.getBoolean(INTERN_PROP);
+
+  /** A canonical schema, with the JSON it is compared by. */
+  private static final class Canonical extends WeakReference<Schema> {
+    final long fingerprint;
+    final String json;
+
+    Canonical(Schema schema, long fingerprint, String json, ReferenceQueue<Schema> queue) {
+      super(schema, queue);
+      this.fingerprint = fingerprint;
+      this.json = json;
+    }
+  }
+
+  // copy-on-write lists, so that lookups need no lock
+  private final Map<Long, List<Canonical>> canonical = new ConcurrentHashMap<>();
+  private final ReferenceQueue<Schema> queue = new ReferenceQueue<>();
+
+  /** Returns the process-wide interner. */
+  public static SchemaInterner global() {
+    return GLOBAL;
+  }
+
+  /**
+   * Returns whether schemas read by {@link org.apache.avro.file.DataFileStream}
+   * are interned with the global interner. Defaults to the value of the system property
+   * {@link #INTERN_PROP}.
+   */
+  public static boolean isGlobalEnabled() {
+    return globalEnabled;
+  }
+
+  /**
+   * Sets whether schemas read by {@link org.apache.avro.file.DataFileStream} are
+   * interned.
+   */
+  public static void setGlobalEnabled(boolean enabled) {
+    globalEnabled = enabled;
+  }
+
+  /**
+   * Returns the canonical instance of a schema: a schema interned before that
+   * is the same, or else the given schema, which becomes canonical.
+   */
+  public Schema intern(Schema schema) {
+    expunge();
+    long fingerprint = SchemaNormalization.parsingFingerprint64(schema);
+    List<Canonical> candidates = canonical.getOrDefault(fingerprint, Collections.emptyList());
+    String json = null;
+    for (Canonical candidate : candidates) {
+      Schema known = candidate.get();
+      if (known == schema) {
+        return known;
+      }
+      if (known != null && known.equals(schema)) {
+        json = json != null ? json : schema.toString();
+        if (candidate.json.equals(json)) {
+          return known;
+        }
+      }
+    }
+
+    // add it, unless another thread added the same schema meanwhile
+    String schemaJson = json != null ? json : schema.toString();
+    Schema[] result = { schema };
+    canonical.compute(fingerprint, (fp, known) -> {
+      List<Canonical> updated = new ArrayList<>();
+      if (known != null) {
+        for (Canonical candidate : known) {
+          Schema other = candidate.get();
+          if (other != null && candidate.json.equals(schemaJson) && other.equals(schema)) {
+            result[0] = other;
+            return known;
+          }
+          if (other != null) {
+            updated.add(candidate);
+          }
+        }
+      }
+      updated.add(new Canonical(schema, fp, schemaJson, queue));
+      return updated;
+    });
+    return result[0];
+  }
+
+  /** Returns the number of canonical schemas held. */
+  public int size() {
+    expunge();
+    int size = 0;
+    for (List<Canonical> list : canonical.values()) {
+      for (Canonical candidate : list) {
+        size += candidate.get() != null ? 1 : 0;
+      }
+    }
+    return size;
+  }
+
+  // forget schemas that were garbage collected
+  private void expunge() {
+    for (Object cleared = queue.poll(); cleared != null; cleared = queue.poll()) {
+      Canonical stale = (Canonical) cleared;
+      canonical.computeIfPresent(stale.fingerprint, (fp, known) -> {
+        List<Canonical> updated = new ArrayList<>(known);
+        updated.remove(stale);
+        return updated.isEmpty() ? null : updated;
+      });
+    }
+  }
+}
@@ -55,6 +55,7 @@ import java.util.ServiceLoader;
 public class SchemaParser {
   private final ParseContext parseContext;
   private final Collection<FormattedSchemaParser> formattedSchemaParsers;
+  private SchemaInterner interner;
 
   /**
    * Create a schema parser. Initially, the list of known (named) schemata is
@@ -72,6 +73,18 @@ public class SchemaParser {
     formattedSchemaParsers.add(new JsonSchemaParser());
   }
 
+  /**
+   * Sets the interner that main schemas parsed from now on are replaced by the
+   * canonical instances of, or null to return them as parsed.
+   *
+   * @param interner the interner to use, or null
+   * @return this parser
+   */
+  public SchemaParser setInterner(SchemaInterner interner) {
+    this.interner = interner;
+    return this;
+  }
+
   /**
    * Parse an Avro schema from a file. The file content is assumed to be UTF-8
    * text.
@@ -245,7 +258,8 @@ public class SchemaParser {
         Schema schema = formattedSchemaParser.parse(parseContext, baseUri, formattedSchema);
         if (parseContext.hasNewSchemas() || schema != null) {
           // Parsing succeeded: return the result.
-          return parseContext.commit(schema);
+          ParseResult result = parseContext.commit(schema);
+          return interner == null || schema == null ? result : interned(result);
         }
       } catch (SchemaParseException e) {
         parseContext.rollback();
@@ -264,6 +278,22 @@ public class SchemaParser {
     throw parseException;
   }
 
+  private ParseResult interned(ParseResult result) {
+    Schema mainSchema = interner.intern(result.mainSchema());
+    List<Schema> parsedNamedSchemas = result.parsedNamedSchemas();
+    return new ParseResult() {
+      @Override
+      public Schema mainSchema() {
+        return mainSchema;
+      }
+
+      @Override
+      public List<Schema> parsedNamedSchemas() {
+        return parsedNamedSchemas;
+      }
+    };
+  }
+
   /**
    * Get all parsed schemata.
    *
@@ -18,6 +18,8 @@
 
 package org.apache.avro;
 
+import java.util.function.Function;
+
 /**
  * <p>
  * A Builder for creating SchemaValidators.
@@ -25,9 +27,23 @@ package org.apache.avro;
  */
 public final class SchemaValidatorBuilder {
   private SchemaValidationStrategy strategy;
+  private Function<SchemaCompatibility.Cache, SchemaValidationStrategy> defaultStrategy;
+  private SchemaCompatibility.Cache cache;
 
   public SchemaValidatorBuilder strategy(SchemaValidationStrategy strategy) {
     this.strategy = strategy;
+    this.defaultStrategy = null;
+    return this;
+  }
+
+  /**
+   * Check the default strategies with {@link SchemaCompatibility}, memoizing
+   * results in a cache that may be shared by validators. Validating each new
+   * version of a schema against all previous ones then reuses the results of
+   * pairs and nested records seen before instead of comparing them again.
+   */
+  public SchemaValidatorBuilder compatibilityCache(SchemaCompatibility.Cache cache) {
+    this.cache = cache;
     return this;
   }
 
@@ -36,7 +52,8 @@ public final class SchemaValidatorBuilder {
    * schema(s) according to the Avro default schema resolution.
    */
   public SchemaValidatorBuilder canReadStrategy() {
-    this.strategy = new ValidateCanRead();
+    this.strategy = null;
+    this.defaultStrategy = ValidateCanRead::new;
     return this;
   }
 
@@ -45,7 +62,8 @@ public final class SchemaValidatorBuilder {
    * according to the Avro default schema resolution.
    */
   public SchemaValidatorBuilder canBeReadStrategy() {
-    this.strategy = new ValidateCanBeRead();
+    this.strategy = null;
+    this.defaultStrategy = ValidateCanBeRead::new;
     return this;
   }
 
@@ -54,24 +72,27 @@ public final class SchemaValidatorBuilder {
    * vice-versa, according to the Avro default schema resolution.
    */
   public SchemaValidatorBuilder mutualReadStrategy() {
-    this.strategy = new ValidateMutualRead();
+    this.strategy = null;
+    this.defaultStrategy = ValidateMutualRead::new;
     return this;
   }
 
   public SchemaValidator validateLatest() {
-    valid();
-    return new ValidateLatest(strategy);
+    return new ValidateLatest(valid());
   }
 
   public SchemaValidator validateAll() {
-    valid();
-    return new ValidateAll(strategy);
+    return new ValidateAll(valid());
   }
 
-  private void valid() {
+  private SchemaValidationStrategy valid() {
+    if (null != defaultStrategy) {
+      return defaultStrategy.apply(cache);
+    }
     if (null == strategy) {
       throw new AvroRuntimeException("SchemaValidationStrategy not specified in builder");
     }
+    return strategy;
   }
 
 }
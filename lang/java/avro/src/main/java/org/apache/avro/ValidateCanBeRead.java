@@ -25,6 +25,19 @@ package org.apache.avro;
  *
  */
 class ValidateCanBeRead implements SchemaValidationStrategy {
+  private final SchemaCompatibility.Cache cache;
+
+  ValidateCanBeRead() {
+    this(null);
+  }
+
+  /**
+   * @param cache memoizes checks by {@link SchemaCompatibility}, or null to check
+   *              with the resolving grammar each time.
+   */
+  ValidateCanBeRead(SchemaCompatibility.Cache cache) {
+    this.cache = cache;
+  }
 
   /**
    * Validate that data written with first schema provided can be read using the
@@ -35,7 +48,7 @@ class ValidateCanBeRead implements SchemaValidationStrategy {
    */
   @Override
   public void validate(Schema toValidate, Schema existing) throws SchemaValidationException {
-    ValidateMutualRead.canRead(toValidate, existing);
+    ValidateMutualRead.canRead(toValidate, existing, cache);
   }
 
 }
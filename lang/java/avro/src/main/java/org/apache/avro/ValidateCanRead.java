@@ -25,6 +25,19 @@ package org.apache.avro;
  *
  */
 class ValidateCanRead implements SchemaValidationStrategy {
+  private final SchemaCompatibility.Cache cache;
+
+  ValidateCanRead() {
+    this(null);
+  }
+
+  /**
+   * @param cache memoizes checks by {@link SchemaCompatibility}, or null to check
+   *              with the resolving grammar each time.
+   */
+  ValidateCanRead(SchemaCompatibility.Cache cache) {
+    this.cache = cache;
+  }
 
   /**
    * Validate that the first schema provided can be used to read data written with
@@ -35,7 +48,7 @@ class ValidateCanRead implements SchemaValidationStrategy {
    */
   @Override
   public void validate(Schema toValidate, Schema existing) throws SchemaValidationException {
-    ValidateMutualRead.canRead(existing, toValidate);
+    ValidateMutualRead.canRead(existing, toValidate, cache);
   }
 
 }
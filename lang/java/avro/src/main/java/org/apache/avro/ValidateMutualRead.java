@@ -30,6 +30,19 @@ import org.apache.avro.io.parsing.Symbol;
  *
  */
 class ValidateMutualRead implements SchemaValidationStrategy {
+  private final SchemaCompatibility.Cache cache;
+
+  ValidateMutualRead() {
+    this(null);
+  }
+
+  /**
+   * @param cache memoizes checks by {@link SchemaCompatibility}, or null to check
+   *              with the resolving grammar each time.
+   */
+  ValidateMutualRead(SchemaCompatibility.Cache cache) {
+    this.cache = cache;
+  }
 
   /**
    * Validate that the schemas provided can mutually read data written by each
@@ -39,8 +52,8 @@ class ValidateMutualRead implements SchemaValidationStrategy {
    */
   @Override
   public void validate(Schema toValidate, Schema existing) throws SchemaValidationException {
-    canRead(toValidate, existing);
-    canRead(existing, toValidate);
+    canRead(toValidate, existing, cache);
+    canRead(existing, toValidate, cache);
   }
 
   /**
@@ -66,4 +79,19 @@ class ValidateMutualRead implements SchemaValidationStrategy {
     }
   }
 
+  /**
+   * Validates that data written with one schema can be read using another, with
+   * the checks of {@link SchemaCompatibility} memoized by a cache, or as
+   * {@link #canRead(Schema, Schema)} if the cache is null.
+   */
+  static void canRead(Schema writtenWith, Schema readUsing, SchemaCompatibility.Cache cache)
+      throws SchemaValidationException {
+    if (cache == null) {
+      canRead(writtenWith, readUsing);
+    } else if (cache.check(readUsing, writtenWith)
+        .getType() == SchemaCompatibility.SchemaCompatibilityType.INCOMPATIBLE) {
+      throw new SchemaValidationException(readUsing, writtenWith);
+    }
+  }
+
 }
@@ -19,6 +19,7 @@ package org.apache.avro.file;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
 
 import org.apache.avro.util.NonCopyingByteArrayOutputStream;
@@ -46,30 +47,48 @@ public class BZip2Codec extends Codec {
   @Override
   public ByteBuffer compress(ByteBuffer uncompressedData) throws IOException {
     NonCopyingByteArrayOutputStream baos = new NonCopyingByteArrayOutputStream(DEFAULT_BUFFER_SIZE);
+    compressTo(uncompressedData, baos);
+    return baos.asByteBuffer();
+  }
 
-    try (BZip2CompressorOutputStream outputStream = new BZip2CompressorOutputStream(baos)) {
-      outputStream.write(uncompressedData.array(), computeOffset(uncompressedData), uncompressedData.remaining());
-    }
+  @Override
+  public ByteBuffer compress(ByteBuffer uncompressedData, BlockBufferPool pool) throws IOException {
+    BlockBufferPool.BufferOutputStream out = pool.outputStream(DEFAULT_BUFFER_SIZE);
+    compressTo(uncompressedData, out);
+    return out.toByteBuffer();
+  }
 
+  @Override
+  public ByteBuffer decompress(ByteBuffer compressedData) throws IOException {
+    @SuppressWarnings("resource")
+    NonCopyingByteArrayOutputStream baos = new NonCopyingByteArrayOutputStream(DEFAULT_BUFFER_SIZE);
+    decompressTo(compressedData, baos);
     return baos.asByteBuffer();
   }
 
   @Override
-  public ByteBuffer decompress(ByteBuffer compressedData) throws IOException {
+  public ByteBuffer decompress(ByteBuffer compressedData, BlockBufferPool pool) throws IOException {
+    BlockBufferPool.BufferOutputStream out = pool.outputStream(DEFAULT_BUFFER_SIZE);
+    decompressTo(compressedData, out);
+    return out.toByteBuffer();
+  }
+
+  private void compressTo(ByteBuffer uncompressedData, OutputStream out) throws IOException {
+    try (BZip2CompressorOutputStream outputStream = new BZip2CompressorOutputStream(out)) {
+      outputStream.write(uncompressedData.array(), computeOffset(uncompressedData), uncompressedData.remaining());
+    }
+  }
+
+  private void decompressTo(ByteBuffer compressedData, OutputStream out) throws IOException {
     ByteArrayInputStream bais = new ByteArrayInputStream(compressedData.array(), computeOffset(compressedData),
         compressedData.remaining());
 
-    @SuppressWarnings("resource")
-    NonCopyingByteArrayOutputStream baos = new NonCopyingByteArrayOutputStream(DEFAULT_BUFFER_SIZE);
-
     try (BZip2CompressorInputStream inputStream = new BZip2CompressorInputStream(bais)) {
 
       int readCount = -1;
       while ((readCount = inputStream.read(buffer, compressedData.position(), buffer.length)) > 0) {
-        baos.write(buffer, 0, readCount);
+        out.write(buffer, 0, readCount);
       }
-
-      return baos.asByteBuffer();
     }
   }
 
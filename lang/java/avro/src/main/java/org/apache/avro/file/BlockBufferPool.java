@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A pool of buffers for data file blocks. Codecs compress and decompress into
+ * buffers taken from a pool (see {@link Codec#compress(ByteBuffer, BlockBufferPool)}),
+ * and {@link DataFileWriter} and {@link DataFileStream} give them back once a
+ * block has been written or read, so that steady-state file I/O allocates
+ * little per block.
+ * <p/>
+ * A pool hands out either heap or direct buffers. It may be shared by several
+ * readers and writers, and used from several threads. At most
+ * <i>maxBuffers</i> idle buffers are kept; when more are released, the smallest
+ * ones are left to the garbage collector.
+ */
+public class BlockBufferPool {
+  /** The number of idle buffers kept by {@link #BlockBufferPool()}. */
+  public static final int DEFAULT_MAX_BUFFERS = 8;
+
+  private final boolean direct;
+  private final int maxBuffers;
+  private final List<ByteBuffer> idle = new ArrayList<>();
+
+  /** Create a pool of heap buffers keeping up to 8 idle buffers. */
+  public BlockBufferPool() {
+    this(false, DEFAULT_MAX_BUFFERS);
+  }
+
+  /**
+   * Create a pool.
+   *
+   * @param direct     whether to hand out direct buffers rather than heap ones
+   * @param maxBuffers the maximum number of idle buffers kept
+   */
+  public BlockBufferPool(boolean direct, int maxBuffers) {
+    if (maxBuffers < 0) {
+      throw new IllegalArgumentException("Invalid maxBuffers value: " + maxBuffers);
+    }
+    this.direct = direct;
+    this.maxBuffers = maxBuffers;
+  }
+
+  /** True if this pool hands out direct buffers. */
+  public boolean isDirect() {
+    return direct;
+  }
+
+  /**
+   * Return an empty buffer of at least <i>minCapacity</i> bytes, positioned at
+   * zero with its limit at its capacity. The largest idle buffer is reused if
+   * it is big enough.
+   */
+  public ByteBuffer acquire(int minCapacity) {
+    ByteBuffer buffer = null;
+    synchronized (idle) {
+      int largest = -1;
+      for (int i = 0; i < idle.size(); i++) {
+        if (largest < 0 || idle.get(i).capacity() > idle.get(largest).capacity()) {
+          largest = i;
+        }
+      }
+      if (largest >= 0 && idle.get(largest).capacity() >= minCapacity) {
+        buffer = idle.remove(largest);
+      }
+    }
+    if (buffer == null) {
+      buffer = direct ? ByteBuffer.allocateDirect(minCapacity) : ByteBuffer.allocate(minCapacity);
+    }
+    buffer.clear();
+    return buffer;
+  }
+
+  /**
+   * Give a buffer back to this pool. It must not be used by the caller
+   * afterwards. Buffers of the wrong kind and read-only buffers are ignored.
+   */
+  public void release(ByteBuffer buffer) {
+    if (buffer == null || buffer.isReadOnly() || buffer.isDirect() != direct || maxBuffers == 0) {
+      return;
+    }
+    synchronized (idle) {
+      if (idle.size() < maxBuffers) {
+        idle.add(buffer);
+        return;
+      }
+      int smallest = 0;
+      for (int i = 1; i < idle.size(); i++) {
+        if (idle.get(i).capacity() < idle.get(smallest).capacity()) {
+          smallest = i;
+        }
+      }
+      if (idle.get(smallest).capacity() < buffer.capacity()) {
+        idle.set(smallest, buffer);
+      }
+    }
+  }
+
+  /**
+   * Return a stream writing to buffers from this pool, starting with one of at
+   * least <i>initialCapacity</i> bytes.
+   */
+  public BufferOutputStream outputStream(int initialCapacity) {
+    return new BufferOutputStream(acquire(initialCapacity));
+  }
+
+  /**
+   * An {@link OutputStream} that collects its bytes in a buffer from the pool,
+   * replacing it with a larger one as needed. Closing it has no effect.
+   */
+  public class BufferOutputStream extends OutputStream {
+    private ByteBuffer buffer;
+
+    private BufferOutputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public void write(int b) {
+      ensureRemaining(1);
+      buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      ensureRemaining(len);
+      buffer.put(b, off, len);
+    }
+
+    private void ensureRemaining(int len) {
+      if (buffer.remaining() < len) {
+        int capacity = Math.max(buffer.position() + len, (int) Math.min(Integer.MAX_VALUE - 8, buffer.capacity() * 2L));
+        ByteBuffer larger = acquire(capacity);
+        buffer.flip();
+        larger.put(buffer);
+        release(buffer);
+        buffer = larger;
+      }
+    }
+
+    /**
+     * Return the bytes written, from position zero to the limit. The stream may
+     * not be written afterwards.
+     */
+    public ByteBuffer toByteBuffer() {
+      ByteBuffer result = buffer;
+      buffer = null;
+      result.flip();
+      return result;
+    }
+  }
+}
@@ -17,6 +17,7 @@
  */
 package org.apache.avro.file;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 
@@ -36,6 +37,25 @@ public abstract class Codec {
   /** Decompress the data */
   public abstract ByteBuffer decompress(ByteBuffer compressedData) throws IOException;
 
+  /**
+   * Compresses the input data into a buffer taken from <i>pool</i>. The caller
+   * owns the result and may give it back to the pool once it is no longer
+   * needed, unless it is the input itself. The default implementation ignores
+   * the pool.
+   */
+  public ByteBuffer compress(ByteBuffer uncompressedData, BlockBufferPool pool) throws IOException {
+    return compress(uncompressedData);
+  }
+
+  /**
+   * Decompress the data into a buffer taken from <i>pool</i>. The caller owns
+   * the result and may give it back to the pool once it is no longer needed,
+   * unless it is the input itself. The default implementation ignores the pool.
+   */
+  public ByteBuffer decompress(ByteBuffer compressedData, BlockBufferPool pool) throws IOException {
+    return decompress(compressedData);
+  }
+
   /**
    * Codecs must implement an equals() method. Two codecs, A and B are equal if:
    * the result of A and B decompressing content compressed by A is the same AND
@@ -55,6 +75,16 @@ public abstract class Codec {
     return getName();
   }
 
+  /**
+   * Free any native resources held by a codec that is {@link Closeable}, such as
+   * {@link ZstandardCodec}.
+   */
+  static void close(Codec codec) throws IOException {
+    if (codec instanceof Closeable) {
+      ((Closeable) codec).close();
+    }
+  }
+
   // Codecs often reference the array inside a ByteBuffer. Compute the offset
   // to the start of data correctly in the case that our ByteBuffer
   // is a slice() of another.
@@ -17,6 +17,7 @@
  */
 package org.apache.avro.file;
 
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.zip.Deflater;
@@ -28,7 +29,7 @@ import org.slf4j.LoggerFactory;
 /**
  * Encapsulates the ability to specify and configure a compression codec.
  *
- * Currently there are five codecs registered by default:
+ * Currently there are seven codecs registered by default:
  * <ul>
  * <li>{@code null}</li>
  * <li>{@code deflate}</li>
@@ -36,6 +37,7 @@ import org.slf4j.LoggerFactory;
  * <li>{@code bzip2}</li>
  * <li>{@code xz}</li>
  * <li>{@code zstandard}</li>
+ * <li>{@code lz4}</li>
  * </ul>
  *
  * New and custom codecs can be registered using
@@ -119,6 +121,38 @@ public abstract class CodecFactory {
     return new ZstandardCodec.Option(level, useChecksum, useBufferPool);
   }
 
+  /**
+   * zstandard codec, with specific compression level, checksum, and dictionary.
+   * A {@link DataFileWriter} using it stores the dictionary in the file's
+   * metadata, from which readers take it.
+   *
+   * @param level       The compression level should be between -5 and 22,
+   *                    inclusive.
+   * @param useChecksum if true, will include a checksum with each data block
+   * @param dictionary  a dictionary, as returned by
+   *                    {@link ZstandardCodec#trainDictionary(Iterable, int)}, or
+   *                    null
+   */
+  public static CodecFactory zstandardCodec(int level, boolean useChecksum, byte[] dictionary) {
+    return new ZstandardCodec.Option(level, useChecksum, DEFAULT_ZSTANDARD_BUFFERPOOL, dictionary);
+  }
+
+  /**
+   * LZ4 codec, with specific compression level.
+   *
+   * @param level The compression level should be between 0 and 17, inclusive.
+   *              Level 0 uses the fast compressor, higher levels use LZ4 HC,
+   *              which is slower to compress but no slower to decompress.
+   */
+  public static CodecFactory lz4Codec(int level) {
+    try {
+      return new Lz4Codec.Option(level);
+    } catch (Throwable t) {
+      LOG.debug("LZ4 was not available", t);
+      return null;
+    }
+  }
+
   /** Creates internal Codec. */
   protected abstract Codec createInstance();
 
@@ -132,6 +166,7 @@ public abstract class CodecFactory {
   public static final int DEFAULT_XZ_LEVEL = XZCodec.DEFAULT_COMPRESSION;
   public static final int DEFAULT_ZSTANDARD_LEVEL = ZstandardCodec.DEFAULT_COMPRESSION;
   public static final boolean DEFAULT_ZSTANDARD_BUFFERPOOL = ZstandardCodec.DEFAULT_USE_BUFFERPOOL;
+  public static final int DEFAULT_LZ4_LEVEL = Lz4Codec.DEFAULT_COMPRESSION;
 
   static {
     addCodec(DataFileConstants.NULL_CODEC, nullCodec());
@@ -140,12 +175,13 @@ public abstract class CodecFactory {
     addCodec(DataFileConstants.XZ_CODEC, xzCodec(DEFAULT_XZ_LEVEL));
     addCodec(DataFileConstants.ZSTANDARD_CODEC, zstandardCodec(DEFAULT_ZSTANDARD_LEVEL, DEFAULT_ZSTANDARD_BUFFERPOOL));
     addCodec(DataFileConstants.SNAPPY_CODEC, snappyCodec());
+    addCodec(DataFileConstants.LZ4_CODEC, lz4Codec(DEFAULT_LZ4_LEVEL));
   }
 
   /**
    * Maps a codec name into a CodecFactory.
    *
-   * Currently there are six codecs registered by default:
+   * Currently there are seven codecs registered by default:
    * <ul>
    * <li>{@code null}</li>
    * <li>{@code deflate}</li>
@@ -153,6 +189,7 @@ public abstract class CodecFactory {
    * <li>{@code bzip2}</li>
    * <li>{@code xz}</li>
    * <li>{@code zstandard}</li>
+   * <li>{@code lz4}</li>
    * </ul>
    */
   public static CodecFactory fromString(String s) {
@@ -163,6 +200,23 @@ public abstract class CodecFactory {
     return o;
   }
 
+  /**
+   * Maps the metadata of a data file into a CodecFactory, using the zstandard
+   * dictionary it holds, if any.
+   */
+  static CodecFactory fromMeta(Map<String, byte[]> meta) {
+    byte[] codec = meta.get(DataFileConstants.CODEC);
+    if (codec == null) {
+      return nullCodec();
+    }
+    String name = new String(codec, StandardCharsets.UTF_8);
+    byte[] dictionary = meta.get(DataFileConstants.ZSTANDARD_DICTIONARY);
+    if (dictionary != null && DataFileConstants.ZSTANDARD_CODEC.equals(name)) {
+      return zstandardCodec(DEFAULT_ZSTANDARD_LEVEL, false, dictionary);
+    }
+    return fromString(name);
+  }
+
   /**
    * Adds a new codec implementation. If name already had a codec associated with
    * it, returns the previous codec.
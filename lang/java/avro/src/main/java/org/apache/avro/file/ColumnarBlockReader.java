@@ -0,0 +1,435 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.SystemLimitException;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.SkipPlan;
+
+/**
+ * Decodes whole blocks of a data file into primitive arrays, one per projected
+ * field, without materializing records or boxing values. Fields that are not
+ * projected are skipped.
+ * <p/>
+ * Fields are named by their path from the top-level record, with the names of
+ * nested records separated by dots, e.g. <tt>"order.total"</tt>. A projected
+ * field may be of any primitive type, an enum, a fixed or a union of null and
+ * one of those. Values are stored as follows:
+ * <ul>
+ * <li>boolean in {@link Column#getBooleans()};</li>
+ * <li>int and enum, as the ordinal of the symbol, in
+ * {@link Column#getInts()};</li>
+ * <li>long in {@link Column#getLongs()};</li>
+ * <li>float in {@link Column#getFloats()};</li>
+ * <li>double in {@link Column#getDoubles()};</li>
+ * <li>string, bytes and fixed as one array of bytes,
+ * {@link Column#getBytes()}, with value <i>i</i> lying between
+ * {@link Column#getOffsets() offsets} <i>i</i> and <i>i + 1</i>.</li>
+ * </ul>
+ * Null values of nullable fields are flagged in {@link Column#getNulls()} and
+ * stored as zero or empty.
+ * <p/>
+ * The arrays of a column are reused from block to block: they are only valid
+ * until the next call to {@link #nextBlock()}, and may be longer than the
+ * number of rows in the block.
+ *
+ * <pre>
+ * try (ColumnarBlockReader columns = new ColumnarBlockReader(stream, "id", "price")) {
+ *   ColumnarBlockReader.Column price = columns.getColumn("price");
+ *   while (columns.nextBlock()) {
+ *     double[] prices = price.getDoubles();
+ *     for (int i = 0; i &lt; columns.getRowCount(); i++) {
+ *       total += prices[i];
+ *     }
+ *   }
+ * }
+ * </pre>
+ */
+public class ColumnarBlockReader implements Closeable {
+  private final DataFileStream<?> stream;
+  private final Map<String, Column> columns = new LinkedHashMap<>();
+  private final Step[] steps;
+  private BinaryDecoder decoder;
+  private int rowCount;
+
+  /**
+   * Construct a reader of the named fields of the records in a data file. The
+   * stream must be at the start of a block.
+   *
+   * @throws IllegalArgumentException if a field does not exist or is of a type
+   *                                  that cannot be stored in a primitive array
+   */
+  public ColumnarBlockReader(DataFileStream<?> stream, String... fields) {
+    this(stream, Arrays.asList(fields));
+  }
+
+  /**
+   * Construct a reader of the named fields of the records in a data file. The
+   * stream must be at the start of a block.
+   *
+   * @throws IllegalArgumentException if a field does not exist or is of a type
+   *                                  that cannot be stored in a primitive array
+   */
+  public ColumnarBlockReader(DataFileStream<?> stream, List<String> fields) {
+    this.stream = stream;
+    Schema schema = stream.getSchema();
+    if (schema.getType() != Schema.Type.RECORD) {
+      throw new IllegalArgumentException("Not a record schema: " + schema);
+    }
+    for (String field : fields) {
+      columns.put(field, null);
+    }
+    this.steps = plan(schema, "");
+    for (Map.Entry<String, Column> entry : columns.entrySet()) {
+      if (entry.getValue() == null) {
+        throw new IllegalArgumentException("No field " + entry.getKey() + " in " + schema.getFullName());
+      }
+    }
+  }
+
+  // the steps that read or skip the fields of a record
+  private Step[] plan(Schema record, String prefix) {
+    List<Step> result = new ArrayList<>();
+    List<Schema> skipped = new ArrayList<>();
+    for (Field field : record.getFields()) {
+      String path = prefix + field.name();
+      Schema schema = field.schema();
+      if (columns.containsKey(path)) {
+        addSkipStep(result, skipped);
+        Column column = new Column(path, schema);
+        columns.put(path, column);
+        result.add(column);
+      } else if (schema.getType() == Schema.Type.RECORD && isPrefix(path + ".")) {
+        addSkipStep(result, skipped);
+        Step[] nested = plan(schema, path + ".");
+        result.add(in -> {
+          for (Step s : nested) {
+            s.read(in);
+          }
+        });
+      } else {
+        skipped.add(schema);
+      }
+    }
+    addSkipStep(result, skipped);
+    return result.toArray(new Step[0]);
+  }
+
+  // adjacent fields that are not projected are skipped by a single plan
+  private static void addSkipStep(List<Step> steps, List<Schema> skipped) {
+    if (!skipped.isEmpty()) {
+      SkipPlan plan = SkipPlan.of(skipped);
+      steps.add(plan::skip);
+      skipped.clear();
+    }
+  }
+
+  private boolean isPrefix(String prefix) {
+    for (String name : columns.keySet()) {
+      if (name.startsWith(prefix)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Decode the next block of the file into the columns. Returns false at the
+   * end of the file.
+   */
+  public boolean nextBlock() throws IOException {
+    if (!stream.hasNext()) {
+      rowCount = 0;
+      return false;
+    }
+    int count = SystemLimitException.checkMaxCollectionLength(0L, stream.getBlockCount());
+    ByteBuffer block = stream.nextBlock();
+    if (block.hasArray()) {
+      decoder = DecoderFactory.get().binaryDecoder(block.array(), block.arrayOffset() + block.position(),
+          block.remaining(), decoder);
+    } else {
+      decoder = DecoderFactory.get().binaryDecoder(block, decoder);
+    }
+    rowCount = count;
+    for (Column column : columns.values()) {
+      column.start(rowCount);
+    }
+    for (int row = 0; row < rowCount; row++) {
+      for (Step step : steps) {
+        step.read(decoder);
+      }
+    }
+    if (!decoder.isEnd()) {
+      throw new IOException("Block read partially, the data may be corrupt");
+    }
+    return true;
+  }
+
+  /** Returns the number of rows in the current block. */
+  public int getRowCount() {
+    return rowCount;
+  }
+
+  /** Returns the column of a projected field. */
+  public Column getColumn(String field) {
+    Column column = columns.get(field);
+    if (column == null) {
+      throw new IllegalArgumentException("Field " + field + " is not projected");
+    }
+    return column;
+  }
+
+  /** Returns the columns of the projected fields, in the order given. */
+  public List<Column> getColumns() {
+    return Collections.unmodifiableList(new ArrayList<>(columns.values()));
+  }
+
+  /** Closes the underlying stream. */
+  @Override
+  public void close() throws IOException {
+    stream.close();
+  }
+
+  @FunctionalInterface
+  private interface Step {
+    void read(BinaryDecoder in) throws IOException;
+  }
+
+  /** The values of one projected field in the current block. */
+  public static final class Column implements Step {
+    private final String name;
+    private final Schema schema;
+    private final Schema.Type type;
+    private final int nullIndex;
+    private final int fixedSize;
+
+    private int row;
+    private boolean[] nulls = new boolean[0];
+    private boolean[] booleans;
+    private int[] ints;
+    private long[] longs;
+    private float[] floats;
+    private double[] doubles;
+    private int[] offsets;
+    private byte[] bytes;
+
+    Column(String name, Schema schema) {
+      this.name = name;
+      Schema value = schema;
+      int nullIndex = -1;
+      if (schema.getType() == Schema.Type.UNION) {
+        List<Schema> types = schema.getTypes();
+        nullIndex = types.indexOf(Schema.create(Schema.Type.NULL));
+        if (types.size() != 2 || nullIndex < 0) {
+          throw new IllegalArgumentException("Field " + name + " is a union other than of null and one type");
+        }
+        value = types.get(1 - nullIndex);
+      }
+      this.schema = value;
+      this.type = value.getType();
+      this.nullIndex = nullIndex;
+      this.fixedSize = type == Schema.Type.FIXED ? value.getFixedSize() : 0;
+      switch (type) {
+      case BOOLEAN:
+        booleans = new boolean[0];
+        break;
+      case INT:
+      case ENUM:
+        ints = new int[0];
+        break;
+      case LONG:
+        longs = new long[0];
+        break;
+      case FLOAT:
+        floats = new float[0];
+        break;
+      case DOUBLE:
+        doubles = new double[0];
+        break;
+      case STRING:
+      case BYTES:
+      case FIXED:
+        offsets = new int[1];
+        bytes = new byte[0];
+        break;
+      default:
+        throw new IllegalArgumentException("Field " + name + " of type " + type + " has no primitive column");
+      }
+    }
+
+    void start(int rows) {
+      row = 0;
+      if (nulls.length < rows) {
+        nulls = new boolean[rows];
+      }
+      switch (type) {
+      case BOOLEAN:
+        booleans = booleans.length < rows ? new boolean[rows] : booleans;
+        break;
+      case INT:
+      case ENUM:
+        ints = ints.length < rows ? new int[rows] : ints;
+        break;
+      case LONG:
+        longs = longs.length < rows ? new long[rows] : longs;
+        break;
+      case FLOAT:
+        floats = floats.length < rows ? new float[rows] : floats;
+        break;
+      case DOUBLE:
+        doubles = doubles.length < rows ? new double[rows] : doubles;
+        break;
+      default:
+        offsets = offsets.length < rows + 1 ? new int[rows + 1] : offsets;
+        offsets[0] = 0;
+      }
+    }
+
+    @Override
+    public void read(BinaryDecoder in) throws IOException {
+      int r = row++;
+      boolean isNull = nullIndex >= 0 && in.readIndex() == nullIndex;
+      nulls[r] = isNull;
+      switch (type) {
+      case BOOLEAN:
+        booleans[r] = !isNull && in.readBoolean();
+        break;
+      case INT:
+        ints[r] = isNull ? 0 : in.readInt();
+        break;
+      case ENUM:
+        ints[r] = isNull ? 0 : in.readEnum();
+        break;
+      case LONG:
+        longs[r] = isNull ? 0 : in.readLong();
+        break;
+      case FLOAT:
+        floats[r] = isNull ? 0 : in.readFloat();
+        break;
+      case DOUBLE:
+        doubles[r] = isNull ? 0 : in.readDouble();
+        break;
+      default:
+        int length = 0;
+        if (!isNull) {
+          length = type == Schema.Type.FIXED ? fixedSize : SystemLimitException.checkMaxBytesLength(in.readLong());
+        }
+        int start = offsets[r];
+        int end = start + length;
+        if (end < 0) {
+          throw new SystemLimitException("Column " + name + " holds more than 2GB in one block");
+        }
+        if (end > bytes.length) {
+          bytes = Arrays.copyOf(bytes, Math.max(end, (int) Math.min(2L * bytes.length, Integer.MAX_VALUE - 8)));
+        }
+        in.readFixed(bytes, start, length);
+        offsets[r + 1] = end;
+      }
+    }
+
+    /** Returns the name, or dotted path, of the field. */
+    public String getName() {
+      return name;
+    }
+
+    /** Returns the schema of the values, without any null branch. */
+    public Schema getSchema() {
+      return schema;
+    }
+
+    /** Returns whether the field is a union with null. */
+    public boolean isNullable() {
+      return nullIndex >= 0;
+    }
+
+    /** Returns whether each value is null. */
+    public boolean[] getNulls() {
+      return nulls;
+    }
+
+    /** Returns the values of a boolean field. */
+    public boolean[] getBooleans() {
+      return check(booleans, "boolean");
+    }
+
+    /** Returns the values of an int field, or the ordinals of an enum. */
+    public int[] getInts() {
+      return check(ints, "int");
+    }
+
+    /** Returns the values of a long field. */
+    public long[] getLongs() {
+      return check(longs, "long");
+    }
+
+    /** Returns the values of a float field. */
+    public float[] getFloats() {
+      return check(floats, "float");
+    }
+
+    /** Returns the values of a double field. */
+    public double[] getDoubles() {
+      return check(doubles, "double");
+    }
+
+    /**
+     * Returns the offsets into {@link #getBytes()} of the values of a string,
+     * bytes or fixed field. Value <i>i</i> starts at offset <i>i</i> and ends at
+     * offset <i>i + 1</i>.
+     */
+    public int[] getOffsets() {
+      return check(offsets, "string, bytes or fixed");
+    }
+
+    /** Returns the concatenated values of a string, bytes or fixed field. */
+    public byte[] getBytes() {
+      return check(bytes, "string, bytes or fixed");
+    }
+
+    /** Returns a value of a string field, or null if the value is null. */
+    public String getString(int row) {
+      if (nulls[row]) {
+        return null;
+      }
+      int[] o = getOffsets();
+      return new String(bytes, o[row], o[row + 1] - o[row], StandardCharsets.UTF_8);
+    }
+
+    private <T> T check(T values, String expected) {
+      if (values == null) {
+        throw new AvroRuntimeException("Field " + name + " of type " + type + " is not " + expected);
+      }
+      return values;
+    }
+  }
+}
@@ -39,5 +39,12 @@ public class DataFileConstants {
   public static final String BZIP2_CODEC = "bzip2";
   public static final String XZ_CODEC = "xz";
   public static final String ZSTANDARD_CODEC = "zstandard";
+  public static final String LZ4_CODEC = "lz4";
+  /**
+   * Metadata holding the dictionary of a zstandard codec, if it has one. This is
+   * not part of the specification, so other implementations cannot read such
+   * files.
+   */
+  public static final String ZSTANDARD_DICTIONARY = "org.apache.avro.zstandard.dictionary";
 
 }
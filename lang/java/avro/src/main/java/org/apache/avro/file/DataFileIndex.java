@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+
+/**
+ * An index of the blocks of a data file: for each block, its position in the
+ * file, the ordinal of its first record, its record count and its uncompressed
+ * size. With an index, {@link DataFileReader#seekToRecord(long)} goes straight
+ * to the block holding a record, and {@link DataFileReader#getRecordCount()}
+ * needs no scan.
+ * <p/>
+ * An index is written next to a data file by a {@link DataFileWriter} (see
+ * {@link DataFileWriter#setBlockIndexOutput(OutputStream)}), read back with
+ * {@link #read(InputStream)} and given to a reader with
+ * {@link DataFileReader#setBlockIndex(DataFileIndex)}. It is stored as an Avro
+ * data file of {@link #ENTRY_SCHEMA} records.
+ */
+public class DataFileIndex {
+  /** The schema of the records of a stored index, one per block. */
+  public static final Schema ENTRY_SCHEMA = SchemaBuilder.record("BlockIndexEntry").namespace("org.apache.avro.file")
+      .fields().requiredLong("offset").requiredLong("firstRecord").requiredLong("recordCount")
+      .requiredLong("uncompressedSize").endRecord();
+
+  /** Metadata key of a stored index holding the sync marker of its data file. */
+  public static final String SYNC_META = "index.sync";
+
+  private long[] offsets = new long[16];
+  private long[] firstRecords = new long[16];
+  private long[] uncompressedSizes = new long[16];
+  private int blockCount;
+  private long recordCount;
+  private byte[] sync;
+
+  DataFileIndex(byte[] sync) {
+    this.sync = sync;
+  }
+
+  /**
+   * Record a block, which must follow the blocks added so far.
+   *
+   * @param uncompressedSize the size of the block before compression, or -1 if
+   *                         not known
+   */
+  void add(long offset, long numEntries, long uncompressedSize) {
+    if (blockCount == offsets.length) {
+      offsets = Arrays.copyOf(offsets, blockCount * 2);
+      firstRecords = Arrays.copyOf(firstRecords, blockCount * 2);
+      uncompressedSizes = Arrays.copyOf(uncompressedSizes, blockCount * 2);
+    }
+    offsets[blockCount] = offset;
+    firstRecords[blockCount] = recordCount;
+    uncompressedSizes[blockCount] = uncompressedSize;
+    blockCount++;
+    recordCount += numEntries;
+  }
+
+  /** Return the sync marker of the indexed file, or null if not known. */
+  byte[] getSync() {
+    return sync;
+  }
+
+  /** Return the number of blocks in the indexed file. */
+  public int getBlockCount() {
+    return blockCount;
+  }
+
+  /** Return the number of records in the indexed file. */
+  public long getRecordCount() {
+    return recordCount;
+  }
+
+  /**
+   * Return the position of a block, a value that may be passed to
+   * {@link DataFileReader#seek(long)}.
+   */
+  public long getBlockOffset(int block) {
+    checkBlock(block);
+    return offsets[block];
+  }
+
+  /** Return the ordinal, within the file, of the first record of a block. */
+  public long getFirstRecord(int block) {
+    checkBlock(block);
+    return firstRecords[block];
+  }
+
+  /** Return the number of records in a block. */
+  public long getRecordCount(int block) {
+    checkBlock(block);
+    return (block + 1 < blockCount ? firstRecords[block + 1] : recordCount) - firstRecords[block];
+  }
+
+  /**
+   * Return the size of a block before compression, or -1 if it was not recorded.
+   */
+  public long getUncompressedSize(int block) {
+    checkBlock(block);
+    return uncompressedSizes[block];
+  }
+
+  /**
+   * Return the block holding a record.
+   *
+   * @throws IndexOutOfBoundsException if there is no such record
+   */
+  public int findBlock(long record) {
+    if (record < 0 || record >= recordCount) {
+      throw new IndexOutOfBoundsException("Record " + record + " not in file of " + recordCount + " records");
+    }
+    int found = Arrays.binarySearch(firstRecords, 0, blockCount, record);
+    if (found < 0) {
+      found = -found - 2; // the block before the insertion point
+    }
+    // skip back over empty blocks sharing the first record
+    while (found > 0 && firstRecords[found] == firstRecords[found - 1]) {
+      found--;
+    }
+    while (getRecordCount(found) == 0) {
+      found++;
+    }
+    return found;
+  }
+
+  private void checkBlock(int block) {
+    if (block < 0 || block >= blockCount) {
+      throw new IndexOutOfBoundsException("Block " + block + " not in file of " + blockCount + " blocks");
+    }
+  }
+
+  /** Write this index to a stream, closing it. */
+  public void write(OutputStream out) throws IOException {
+    try (DataFileWriter<GenericRecord> writer = new DataFileWriter<>(new GenericDatumWriter<>(ENTRY_SCHEMA))) {
+      if (sync != null) {
+        writer.setMeta(SYNC_META, sync);
+      }
+      writer.setCodec(CodecFactory.deflateCodec(CodecFactory.DEFAULT_DEFLATE_LEVEL));
+      writer.create(ENTRY_SCHEMA, out);
+      GenericRecord entry = new GenericData.Record(ENTRY_SCHEMA);
+      for (int i = 0; i < blockCount; i++) {
+        entry.put(0, offsets[i]);
+        entry.put(1, firstRecords[i]);
+        entry.put(2, getRecordCount(i));
+        entry.put(3, uncompressedSizes[i]);
+        writer.append(entry);
+      }
+    }
+  }
+
+  /** Read an index written by {@link #write(OutputStream)}, closing the stream. */
+  public static DataFileIndex read(InputStream in) throws IOException {
+    try (DataFileStream<GenericRecord> reader = new DataFileStream<>(in, new GenericDatumReader<>(ENTRY_SCHEMA))) {
+      DataFileIndex index = new DataFileIndex(reader.getMeta(SYNC_META));
+      GenericRecord entry = null;
+      while (reader.hasNext()) {
+        entry = reader.next(entry);
+        index.add((Long) entry.get(0), (Long) entry.get(2), (Long) entry.get(3));
+      }
+      return index;
+    }
+  }
+}
@@ -18,6 +18,8 @@
 package org.apache.avro.file;
 
 import org.apache.avro.InvalidAvroMagicException;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.io.BinaryDecoder;
 import org.apache.avro.io.DatumReader;
 import org.apache.avro.io.DecoderFactory;
 import org.apache.commons.io.IOUtils;
@@ -26,6 +28,7 @@ import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import static org.apache.avro.file.DataFileConstants.MAGIC;
@@ -40,6 +43,7 @@ public class DataFileReader<D> extends DataFileStream<D> implements FileReader<D
   private final SeekableInputStream sin;
   private long blockStart;
   private int[] partialMatchTable;
+  private DataFileIndex blockIndex;
 
   /** Open a reader for a file. */
   public static <D> FileReader<D> openReader(File file, DatumReader<D> reader) throws IOException {
@@ -167,6 +171,7 @@ public class DataFileReader<D> extends DataFileStream<D> implements FileReader<D
    * not saved while writing a file, use {@link #sync(long)} instead.
    */
   public void seek(long position) throws IOException {
+    discardPrefetchedBlocks();
     sin.seek(position);
     vin = DecoderFactory.get().binaryDecoder(this.sin, vin);
     datumIn = null;
@@ -241,9 +246,109 @@ public class DataFileReader<D> extends DataFileStream<D> implements FileReader<D
     return pm;
   }
 
+  /**
+   * Use an index of the blocks of this file, as written alongside it by
+   * {@link DataFileWriter#setBlockIndexOutput(java.io.OutputStream)}, for
+   * {@link #seekToRecord(long)} and {@link #getRecordCount()}.
+   *
+   * @throws IllegalArgumentException if the index was written for another file
+   */
+  public void setBlockIndex(DataFileIndex index) {
+    if (index.getSync() != null && !Arrays.equals(index.getSync(), getHeader().sync)) {
+      throw new IllegalArgumentException("Block index does not belong to this file");
+    }
+    this.blockIndex = index;
+  }
+
+  /**
+   * Return the index of the blocks of this file. If none was set with
+   * {@link #setBlockIndex(DataFileIndex)}, the first call builds one by reading
+   * every block header, skipping over block contents. The records this reader
+   * returns next are unchanged.
+   */
+  public DataFileIndex getBlockIndex() throws IOException {
+    if (blockIndex == null) {
+      blockIndex = scanBlockIndex();
+    }
+    return blockIndex;
+  }
+
+  // scan with a decoder of its own, then put the input back where it was
+  private DataFileIndex scanBlockIndex() throws IOException {
+    final long resume = sin.tell();
+    try {
+      final byte[] sync = getHeader().sync;
+      final byte[] found = new byte[SYNC_SIZE];
+      final DataFileIndex index = new DataFileIndex(sync);
+      sin.seek(0);
+      final BinaryDecoder in = DecoderFactory.get().binaryDecoder(sin, null);
+      in.skipFixed(MAGIC.length);
+      for (long l = in.readMapStart(); l != 0; l = in.mapNext()) {
+        for (long i = 0; i < l; i++) {
+          in.skipString();
+          in.skipBytes();
+        }
+      }
+      in.skipFixed(SYNC_SIZE);
+      while (!in.isEnd()) {
+        final long offset = sin.tell() - in.inputStream().available();
+        final long count = in.readLong();
+        in.skipFixed((int) in.readLong());
+        in.readFixed(found);
+        if (!Arrays.equals(found, sync)) {
+          throw new IOException("Invalid sync!");
+        }
+        index.add(offset, count, -1);
+      }
+      return index;
+    } finally {
+      sin.seek(resume);
+    }
+  }
+
+  /** Return the number of records in this file, using its block index. */
+  public long getRecordCount() throws IOException {
+    return getBlockIndex().getRecordCount();
+  }
+
+  /**
+   * Move to a record, counting from zero at the start of the file, so that the
+   * next call to {@link #next()} returns it. Uses the block index to go to the
+   * record's block, then skips the records before it in that block.
+   *
+   * @throws IndexOutOfBoundsException if the file has no such record
+   */
+  public void seekToRecord(long record) throws IOException {
+    DataFileIndex index = getBlockIndex();
+    int block = index.findBlock(record);
+    seek(index.getBlockOffset(block));
+    if (!hasNext()) {
+      throw new IOException("Block index does not match file at block " + block);
+    }
+    for (long skip = record - index.getFirstRecord(block); skip > 0; skip--) {
+      GenericDatumReader.skip(getSchema(), datumIn);
+      blockRemaining--;
+    }
+  }
+
   @Override
   protected void blockFinished() throws IOException {
-    blockStart = sin.tell() - vin.inputStream().available();
+    blockStart = prefetchedBlockEnd >= 0 ? prefetchedBlockEnd : rawPosition();
+  }
+
+  @Override
+  long rawPosition() throws IOException {
+    return sin.tell() - vin.inputStream().available();
+  }
+
+  @Override
+  ByteBuffer sliceInput(int length) throws IOException {
+    if (!(sin.in instanceof MappedSeekableInput)) {
+      return null;
+    }
+    ByteBuffer slice = ((MappedSeekableInput) sin.in).slice(rawPosition(), length);
+    vin.skipFixed(length);
+    return slice;
   }
 
   /** Return the last synchronization point before our current position. */
@@ -21,6 +21,7 @@ import org.apache.avro.AvroRuntimeException;
 import org.apache.avro.InvalidAvroMagicException;
 import org.apache.avro.NameValidator;
 import org.apache.avro.Schema;
+import org.apache.avro.SchemaInterner;
 import org.apache.avro.io.BinaryDecoder;
 import org.apache.avro.io.BinaryEncoder;
 import org.apache.avro.io.DatumReader;
@@ -30,16 +31,26 @@ import java.io.Closeable;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 /**
  * Streaming access to files written by {@link DataFileWriter}. Use
@@ -81,6 +92,17 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
   byte[] syncBuffer = new byte[DataFileConstants.SYNC_SIZE];
   private Codec codec;
 
+  private Executor decompressionExecutor;
+  private int prefetchBlocks;
+  private final Deque<PrefetchedBlock> prefetched = new ArrayDeque<>();
+  private final Queue<Codec> idleCodecs = new ConcurrentLinkedQueue<>();
+  private BlockBufferPool bufferPool;
+  /**
+   * Input position just past the sync marker of the current block when it was
+   * read ahead, or -1 when the current block was read directly from the input.
+   */
+  long prefetchedBlockEnd = -1;
+
   /**
    * Construct a reader for an input stream. For file-based input, use
    * {@link DataFileReader}. This will buffer, wrapping with a
@@ -142,6 +164,9 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
     header.metaKeyList = Collections.unmodifiableList(header.metaKeyList);
     header.schema = new Schema.Parser(NameValidator.NO_VALIDATION).setValidateDefaults(false)
         .parse(getMetaString(DataFileConstants.SCHEMA));
+    if (SchemaInterner.isGlobalEnabled()) {
+      header.schema = SchemaInterner.global().intern(header.schema);
+    }
     this.codec = resolveCodec();
     reader.setSchema(header.schema);
   }
@@ -154,12 +179,49 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
   }
 
   Codec resolveCodec() {
-    String codecStr = getMetaString(DataFileConstants.CODEC);
-    if (codecStr != null) {
-      return CodecFactory.fromString(codecStr).createInstance();
-    } else {
-      return CodecFactory.nullCodec().createInstance();
+    return CodecFactory.fromMeta(header.meta).createInstance();
+  }
+
+  /**
+   * Decompress blocks ahead of the reader using the given executor. Up to
+   * <i>prefetchBlocks</i> raw blocks are read from the input and decompressed
+   * concurrently; they are handed back to the reader in file order. Datums are
+   * still decoded on the calling thread. Pass a null executor to go back to
+   * reading one block at a time.
+   * <p/>
+   * While blocks are read ahead, {@link #tell()} on a {@link DataFileReader}
+   * reports the position of the input rather than that of the current block.
+   *
+   * @param executor       the executor running decompression tasks, or null
+   * @param prefetchBlocks the maximum number of blocks read ahead, at least 1
+   * @return this stream
+   */
+  public DataFileStream<D> setDecompressionExecutor(Executor executor, int prefetchBlocks) {
+    if (executor != null && prefetchBlocks < 1) {
+      throw new IllegalArgumentException("Invalid prefetchBlocks value: " + prefetchBlocks);
     }
+    this.decompressionExecutor = executor;
+    this.prefetchBlocks = prefetchBlocks;
+    return this;
+  }
+
+  /**
+   * Read and decompress blocks into buffers from the given pool, giving each
+   * back when the reader moves on to the next block, rather than allocating new
+   * buffers for each block. Pass null to stop using a pool.
+   * <p/>
+   * The buffer returned by {@link #nextBlock()} is then only valid until the
+   * next block is read. With a pool of direct buffers, which suits
+   * {@link MappedSeekableInput}, bytes values that a {@link DatumReader} reads
+   * without a buffer to reuse share the block's memory, so they are only valid
+   * until the next block is read too.
+   *
+   * @param pool the pool to take buffers from, or null
+   * @return this stream
+   */
+  public DataFileStream<D> setBufferPool(BlockBufferPool pool) {
+    this.bufferPool = pool;
+    return this;
   }
 
   /**
@@ -222,12 +284,15 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
             throw new IOException("Block read partially, the data may be corrupt");
           }
         }
-        if (hasNextBlock()) {
-          block = nextRawBlock(block);
-          block.decompressUsing(codec);
-          blockBuffer = block.getAsByteBuffer();
-          datumIn = DecoderFactory.get().binaryDecoder(blockBuffer.array(),
-              blockBuffer.arrayOffset() + blockBuffer.position(), blockBuffer.remaining(), datumIn);
+        if (decompressionExecutor != null || !prefetched.isEmpty()) {
+          if (nextPrefetchedBlock()) {
+            startBlock();
+          }
+        } else if (hasNextBlock()) {
+          prefetchedBlockEnd = -1;
+          block = nextRawBlock(block, bufferPool);
+          block.decompressUsing(codec, bufferPool);
+          startBlock();
         }
       }
       return blockRemaining != 0;
@@ -238,6 +303,78 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
     }
   }
 
+  private void startBlock() {
+    blockBuffer = block.getAsByteBuffer();
+    if (blockBuffer.hasArray()) {
+      datumIn = DecoderFactory.get().binaryDecoder(blockBuffer.array(),
+          blockBuffer.arrayOffset() + blockBuffer.position(), blockBuffer.remaining(), datumIn);
+    } else {
+      datumIn = DecoderFactory.get().binaryDecoder(blockBuffer, datumIn);
+    }
+  }
+
+  /**
+   * Fill the read-ahead queue, then make its head the current block. Returns
+   * false if no blocks remain.
+   */
+  private boolean nextPrefetchedBlock() throws IOException {
+    while (decompressionExecutor != null && prefetched.size() < prefetchBlocks && hasNextBlock()) {
+      long size = blockSize;
+      DataBlock raw = nextRawBlock(null, bufferPool);
+      FutureTask<DataBlock> task = new FutureTask<>(() -> decompress(raw));
+      prefetched.add(new PrefetchedBlock(raw, size, rawPosition(), task));
+      decompressionExecutor.execute(task);
+    }
+    PrefetchedBlock next = prefetched.poll();
+    if (next == null) {
+      blockRemaining = 0;
+      return false;
+    }
+    if (block != null) {
+      block.release(bufferPool);
+    }
+    block = next.await();
+    blockRemaining = blockCount = next.numEntries;
+    blockSize = next.blockSize;
+    prefetchedBlockEnd = next.end;
+    return true;
+  }
+
+  // runs on the decompression executor, each task with a codec of its own
+  private DataBlock decompress(DataBlock raw) throws IOException {
+    Codec c = idleCodecs.poll();
+    if (c == null) {
+      c = resolveCodec();
+    }
+    try {
+      raw.decompressUsing(c, bufferPool);
+    } finally {
+      idleCodecs.offer(c);
+    }
+    return raw;
+  }
+
+  /**
+   * Drop any blocks read ahead of the current position, giving their buffers
+   * back to the pool. Blocks being decompressed are waited for, so that no
+   * buffer or codec is still in use afterwards.
+   */
+  void discardPrefetchedBlocks() {
+    for (PrefetchedBlock pending : prefetched) {
+      pending.discard(bufferPool);
+    }
+    prefetched.clear();
+    prefetchedBlockEnd = -1;
+  }
+
+  /**
+   * Position in the input just after the last block read, or -1 if the input
+   * does not track its position.
+   */
+  long rawPosition() throws IOException {
+    return -1;
+  }
+
   /**
    * Read the next datum in the file.
    *
@@ -316,17 +453,43 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
   }
 
   DataBlock nextRawBlock(DataBlock reuse) throws IOException {
+    return nextRawBlock(reuse, null);
+  }
+
+  /**
+   * Read the next raw block, into a buffer from <i>pool</i> if it is not null
+   * and hands out heap buffers. Any pooled buffer held by <i>reuse</i> is given
+   * back to the pool.
+   */
+  DataBlock nextRawBlock(DataBlock reuse, BlockBufferPool pool) throws IOException {
     if (!hasNextBlock()) {
       throw new NoSuchElementException();
     }
-    if (reuse == null || reuse.data.length < (int) blockSize) {
-      reuse = new DataBlock(blockRemaining, (int) blockSize);
+    if (reuse != null) {
+      reuse.release(pool);
+    }
+    ByteBuffer mapped = sliceInput((int) blockSize);
+    if (mapped != null) {
+      reuse = new DataBlock(mapped, blockRemaining);
+    } else if (pool != null && !pool.isDirect()) {
+      ByteBuffer raw = pool.acquire((int) blockSize);
+      raw.limit((int) blockSize);
+      if (reuse == null) {
+        reuse = new DataBlock(raw, blockRemaining);
+      }
+      reuse.resetPooled(raw, blockRemaining, pool);
+      vin.readFixed(raw.array(), raw.arrayOffset(), (int) blockSize);
     } else {
-      reuse.numEntries = blockRemaining;
-      reuse.blockSize = (int) blockSize;
+      if (reuse == null || reuse.data == null || reuse.data.length < (int) blockSize) {
+        reuse = new DataBlock(blockRemaining, (int) blockSize);
+      } else {
+        reuse.numEntries = blockRemaining;
+        reuse.blockSize = (int) blockSize;
+        reuse.offset = 0;
+      }
+      // throws if it can't read the size requested
+      vin.readFixed(reuse.data, 0, reuse.blockSize);
     }
-    // throws if it can't read the size requested
-    vin.readFixed(reuse.data, 0, reuse.blockSize);
     vin.readFixed(syncBuffer);
     availableBlock = false;
     if (!Arrays.equals(syncBuffer, header.sync))
@@ -334,6 +497,14 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
     return reuse;
   }
 
+  /**
+   * Return the next <i>length</i> bytes of input without copying them, skipping
+   * past them, or null if the input cannot do so.
+   */
+  ByteBuffer sliceInput(int length) throws IOException {
+    return null;
+  }
+
   /** Not supported. */
   @Override
   public void remove() {
@@ -343,13 +514,71 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
   /** Close this reader. */
   @Override
   public void close() throws IOException {
+    discardPrefetchedBlocks();
+    if (block != null) {
+      block.release(bufferPool);
+    }
+    Codec.close(codec);
+    for (Codec c = idleCodecs.poll(); c != null; c = idleCodecs.poll()) {
+      Codec.close(c);
+    }
     vin.inputStream().close();
   }
 
+  private static final class PrefetchedBlock {
+    // decompressed in place, so it holds the block's buffers either way
+    private final DataBlock raw;
+    private final long numEntries;
+    private final long blockSize;
+    private final long end;
+    private final Future<DataBlock> decompressed;
+
+    private PrefetchedBlock(DataBlock raw, long blockSize, long end, Future<DataBlock> decompressed) {
+      this.raw = raw;
+      this.numEntries = raw.getNumEntries();
+      this.blockSize = blockSize;
+      this.end = end;
+      this.decompressed = decompressed;
+    }
+
+    private void discard(BlockBufferPool pool) {
+      if (!decompressed.cancel(false)) {
+        try {
+          decompressed.get();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return; // may still be in use, so leave it to the garbage collector
+        } catch (ExecutionException | CancellationException e) {
+          // dropped anyway
+        }
+      }
+      raw.release(pool);
+    }
+
+    private DataBlock await() throws IOException {
+      try {
+        return decompressed.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while waiting for block decompression");
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof IOException) {
+          throw (IOException) e.getCause();
+        }
+        throw new AvroRuntimeException(e.getCause());
+      }
+    }
+  }
+
   static class DataBlock {
     private byte[] data;
+    // holds the block instead of data when it is not backed by an array
+    private ByteBuffer buffer;
+    // a buffer from a BlockBufferPool holding this block's data or raw input
+    private ByteBuffer pooled;
     private long numEntries;
     private int blockSize;
+    private int uncompressedSize = -1;
     private int offset = 0;
     private boolean flushOnWrite = true;
 
@@ -360,10 +589,46 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
     }
 
     DataBlock(ByteBuffer block, long numEntries) {
-      this.data = block.array();
-      this.blockSize = block.remaining();
-      this.offset = block.arrayOffset() + block.position();
+      setData(block);
+      this.numEntries = numEntries;
+    }
+
+    /** Make this block hold new data, keeping any pooled buffer it holds. */
+    void reset(ByteBuffer block, long numEntries) {
+      setData(block);
       this.numEntries = numEntries;
+      this.uncompressedSize = -1;
+    }
+
+    /**
+     * Make this block hold data in a buffer from a pool; the buffer is given
+     * back by {@link #release(BlockBufferPool)}.
+     */
+    void resetPooled(ByteBuffer block, long numEntries, BlockBufferPool pool) {
+      release(pool);
+      reset(block, numEntries);
+      this.pooled = block;
+    }
+
+    /** Give the pooled buffer held by this block, if any, back to the pool. */
+    void release(BlockBufferPool pool) {
+      if (pooled != null && pool != null) {
+        pool.release(pooled);
+      }
+      pooled = null;
+    }
+
+    private void setData(ByteBuffer block) {
+      if (block.hasArray()) {
+        this.data = block.array();
+        this.offset = block.arrayOffset() + block.position();
+        this.buffer = null;
+      } else {
+        this.data = null;
+        this.offset = 0;
+        this.buffer = block;
+      }
+      this.blockSize = block.remaining();
     }
 
     byte[] getData() {
@@ -378,6 +643,11 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
       return blockSize;
     }
 
+    /** The size of this block before compression, or -1 if not known. */
+    int getUncompressedSize() {
+      return uncompressedSize;
+    }
+
     boolean isFlushOnWrite() {
       return flushOnWrite;
     }
@@ -387,25 +657,69 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
     }
 
     ByteBuffer getAsByteBuffer() {
+      if (buffer != null) {
+        return buffer.duplicate();
+      }
       return ByteBuffer.wrap(data, offset, blockSize);
     }
 
     void decompressUsing(Codec c) throws IOException {
-      ByteBuffer result = c.decompress(getAsByteBuffer());
-      data = result.array();
-      blockSize = result.remaining();
+      decompressUsing(c, null);
+    }
+
+    /**
+     * Decompress with the given codec into a buffer from <i>pool</i>, if not
+     * null. The buffer previously held is given back to the pool.
+     */
+    void decompressUsing(Codec c, BlockBufferPool pool) throws IOException {
+      ByteBuffer input = getArrayBacked(c, pool);
+      setResult(input, pool == null ? c.decompress(input) : c.decompress(input, pool), pool);
+      uncompressedSize = blockSize;
     }
 
     void compressUsing(Codec c) throws IOException {
-      ByteBuffer result = c.compress(getAsByteBuffer());
-      data = result.array();
-      blockSize = result.remaining();
+      compressUsing(c, null);
+    }
+
+    /**
+     * Compress with the given codec into a buffer from <i>pool</i>, if not null.
+     * The buffer previously held is given back to the pool.
+     */
+    void compressUsing(Codec c, BlockBufferPool pool) throws IOException {
+      uncompressedSize = blockSize;
+      ByteBuffer input = getArrayBacked(c, pool);
+      setResult(input, pool == null ? c.compress(input) : c.compress(input, pool), pool);
+    }
+
+    private void setResult(ByteBuffer input, ByteBuffer result, BlockBufferPool pool) {
+      if (result != input && pool != null) {
+        release(pool);
+        pooled = result;
+      }
+      setData(result);
+    }
+
+    // codecs other than null and lz4 work on arrays, so copy blocks that are
+    // not, except for zstandard when decompressing into direct buffers
+    private ByteBuffer getArrayBacked(Codec c, BlockBufferPool pool) {
+      ByteBuffer block = getAsByteBuffer();
+      if (block.hasArray() || c instanceof NullCodec || c instanceof Lz4Codec
+          || (c instanceof ZstandardCodec && pool != null && pool.isDirect() && block.isDirect())) {
+        return block;
+      }
+      ByteBuffer copy = ByteBuffer.allocate(blockSize);
+      copy.put(block).flip();
+      return copy;
     }
 
     void writeBlockTo(BinaryEncoder e, byte[] sync) throws IOException {
       e.writeLong(this.numEntries);
       e.writeLong(this.blockSize);
-      e.writeFixed(this.data, offset, this.blockSize);
+      if (buffer != null) {
+        e.writeFixed(buffer.duplicate());
+      } else {
+        e.writeFixed(this.data, offset, this.blockSize);
+      }
       e.writeFixed(sync);
       if (flushOnWrite) {
         e.flush();
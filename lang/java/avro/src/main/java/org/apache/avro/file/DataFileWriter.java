@@ -34,12 +34,20 @@ import java.io.FileOutputStream;
 import java.io.FilterOutputStream;
 import java.io.Flushable;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
-import java.nio.charset.StandardCharsets;
 import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.function.Function;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
@@ -77,6 +85,18 @@ public class DataFileWriter<D> implements Closeable, Flushable {
 
   private boolean isOpen;
   private Codec codec;
+  private CodecFactory codecFactory;
+
+  private Executor compressionExecutor;
+  private int maxPendingBlocks;
+  private OutputStream blockIndexOutput;
+  private DataFileIndex blockIndex;
+  private long blockIndexBase; // file position of the start of out
+
+  private final Deque<Future<DataBlock>> pendingBlocks = new ArrayDeque<>();
+  private final Queue<Codec> idleCodecs = new ConcurrentLinkedQueue<>();
+  private BlockBufferPool bufferPool = new BlockBufferPool();
+  private DataBlock currentBlock; // reused for blocks compressed by append()
 
   private boolean flushOnEveryBlock = true;
 
@@ -101,8 +121,15 @@ public class DataFileWriter<D> implements Closeable, Flushable {
    */
   public DataFileWriter<D> setCodec(CodecFactory c) {
     assertNotOpen();
+    this.codecFactory = c;
     this.codec = c.createInstance();
     setMetaInternal(DataFileConstants.CODEC, codec.getName());
+    byte[] dictionary = codec instanceof ZstandardCodec ? ((ZstandardCodec) codec).getDictionary() : null;
+    if (dictionary != null) {
+      setMetaInternal(DataFileConstants.ZSTANDARD_DICTIONARY, dictionary);
+    } else {
+      meta.remove(DataFileConstants.ZSTANDARD_DICTIONARY);
+    }
     return this;
   }
 
@@ -131,6 +158,56 @@ public class DataFileWriter<D> implements Closeable, Flushable {
     return this;
   }
 
+  /**
+   * Compress full blocks on the given executor instead of in
+   * {@link #append(Object)}. Compressed blocks are written in order; at most
+   * <i>maxPendingBlocks</i> blocks are compressed concurrently, after which
+   * appending waits for the oldest one. {@link #sync()}, {@link #flush()},
+   * {@link #fSync()} and {@link #close()} wait for all pending blocks. Pass a
+   * null executor to compress on the calling thread again.
+   *
+   * @param executor         the executor running compression tasks, or null
+   * @param maxPendingBlocks the maximum number of blocks being compressed, at
+   *                         least 1
+   * @return this DataFileWriter
+   */
+  public DataFileWriter<D> setCompressionExecutor(Executor executor, int maxPendingBlocks) {
+    if (executor != null && maxPendingBlocks < 1) {
+      throw new IllegalArgumentException("Invalid maxPendingBlocks value: " + maxPendingBlocks);
+    }
+    this.compressionExecutor = executor;
+    this.maxPendingBlocks = maxPendingBlocks;
+    return this;
+  }
+
+  /**
+   * Write an index of the blocks of this file to the given stream when this
+   * writer is closed. The stream is closed too. When appending, the existing
+   * blocks are found by reading their headers. May not be set after writes have
+   * begun.
+   *
+   * @see DataFileIndex
+   * @see DataFileReader#setBlockIndex(DataFileIndex)
+   */
+  public DataFileWriter<D> setBlockIndexOutput(OutputStream indexOut) {
+    assertNotOpen();
+    this.blockIndexOutput = indexOut;
+    return this;
+  }
+
+  /**
+   * Compress blocks into buffers from the given pool, giving each back once its
+   * block has been written. By default each writer has a small pool of heap
+   * buffers of its own. Pass null to allocate new buffers for each block.
+   *
+   * @param pool the pool to take buffers from, or null
+   * @return this DataFileWriter
+   */
+  public DataFileWriter<D> setBufferPool(BlockBufferPool pool) {
+    this.bufferPool = pool;
+    return this;
+  }
+
   /**
    * Allows setting a different encoder than the default DirectBinaryEncoder.
    *
@@ -173,6 +250,9 @@ public class DataFileWriter<D> implements Closeable, Flushable {
     }
 
     init(outs);
+    if (blockIndexOutput != null) {
+      blockIndex = new DataFileIndex(this.sync);
+    }
 
     vout.writeFixed(DataFileConstants.MAGIC); // write magic
 
@@ -234,12 +314,11 @@ public class DataFileWriter<D> implements Closeable, Flushable {
     this.schema = reader.getSchema();
     this.sync = reader.getHeader().sync;
     this.meta.putAll(reader.getHeader().meta);
-    byte[] codecBytes = this.meta.get(DataFileConstants.CODEC);
-    if (codecBytes != null) {
-      String strCodec = new String(codecBytes, StandardCharsets.UTF_8);
-      this.codec = CodecFactory.fromString(strCodec).createInstance();
-    } else {
-      this.codec = CodecFactory.nullCodec().createInstance();
+    this.codecFactory = CodecFactory.fromMeta(meta);
+    this.codec = codecFactory.createInstance();
+    if (blockIndexOutput != null) {
+      blockIndex = reader.getBlockIndex();
+      blockIndexBase = in.length();
     }
 
     init(out);
@@ -256,7 +335,8 @@ public class DataFileWriter<D> implements Closeable, Flushable {
     buffer = new NonCopyingByteArrayOutputStream(Math.min((int) (syncInterval * 1.25), Integer.MAX_VALUE / 2 - 1));
     this.bufOut = this.initEncoder.apply(buffer);
     if (this.codec == null) {
-      this.codec = CodecFactory.nullCodec().createInstance();
+      this.codecFactory = CodecFactory.nullCodec();
+      this.codec = codecFactory.createInstance();
     }
     this.isOpen = true;
   }
@@ -389,33 +469,51 @@ public class DataFileWriter<D> implements Closeable, Flushable {
     }
     // flush anything written so far
     writeBlock();
+    writePendingBlocks(0);
     Codec otherCodec = otherFile.resolveCodec();
     DataBlock nextBlockRaw = null;
     if (codec.equals(otherCodec) && !recompress) {
       // copy raw bytes
       while (otherFile.hasNextBlock()) {
-        nextBlockRaw = otherFile.nextRawBlock(nextBlockRaw);
-        nextBlockRaw.writeBlockTo(vout, sync);
+        nextBlockRaw = otherFile.nextRawBlock(nextBlockRaw, bufferPool);
+        writeBlockTo(nextBlockRaw);
       }
     } else {
       while (otherFile.hasNextBlock()) {
-        nextBlockRaw = otherFile.nextRawBlock(nextBlockRaw);
-        nextBlockRaw.decompressUsing(otherCodec);
-        nextBlockRaw.compressUsing(codec);
-        nextBlockRaw.writeBlockTo(vout, sync);
+        nextBlockRaw = otherFile.nextRawBlock(nextBlockRaw, bufferPool);
+        nextBlockRaw.decompressUsing(otherCodec, bufferPool);
+        nextBlockRaw.compressUsing(codec, bufferPool);
+        writeBlockTo(nextBlockRaw);
       }
     }
+    if (nextBlockRaw != null) {
+      nextBlockRaw.release(bufferPool);
+    }
   }
 
   private void writeBlock() throws IOException {
     if (blockCount > 0) {
       try {
         bufOut.flush();
-        ByteBuffer uncompressed = buffer.asByteBuffer();
-        DataBlock block = new DataBlock(uncompressed, blockCount);
-        block.setFlushOnWrite(flushOnEveryBlock);
-        block.compressUsing(codec);
-        block.writeBlockTo(vout, sync);
+        if (compressionExecutor == null) {
+          writePendingBlocks(0);
+          ByteBuffer uncompressed = buffer.asByteBuffer();
+          if (currentBlock == null) {
+            currentBlock = new DataBlock(uncompressed, blockCount);
+          } else {
+            currentBlock.reset(uncompressed, blockCount);
+          }
+          currentBlock.setFlushOnWrite(flushOnEveryBlock);
+          currentBlock.compressUsing(codec, bufferPool);
+          writeBlockTo(currentBlock);
+        } else {
+          DataBlock block = copyBlock();
+          block.setFlushOnWrite(flushOnEveryBlock);
+          FutureTask<DataBlock> task = new FutureTask<>(() -> compress(block));
+          pendingBlocks.add(task);
+          compressionExecutor.execute(task);
+          writePendingBlocks(maxPendingBlocks);
+        }
       } finally {
         buffer.reset();
         blockCount = 0;
@@ -423,6 +521,64 @@ public class DataFileWriter<D> implements Closeable, Flushable {
     }
   }
 
+  // the buffer is reused for the next block, so compress a copy
+  private DataBlock copyBlock() {
+    if (bufferPool == null || bufferPool.isDirect()) {
+      return new DataBlock(ByteBuffer.wrap(buffer.toByteArray()), blockCount);
+    }
+    ByteBuffer copy = bufferPool.acquire(buffer.size());
+    copy.put(buffer.asByteBuffer()).flip();
+    DataBlock block = new DataBlock(copy, blockCount);
+    block.resetPooled(copy, blockCount, bufferPool);
+    return block;
+  }
+
+  private void writeBlockTo(DataBlock block) throws IOException {
+    if (blockIndex != null) {
+      blockIndex.add(blockIndexBase + out.tell(), block.getNumEntries(), block.getUncompressedSize());
+    }
+    block.writeBlockTo(vout, sync);
+  }
+
+  // runs on the compression executor, each task with a codec of its own
+  private DataBlock compress(DataBlock block) throws IOException {
+    Codec c = idleCodecs.poll();
+    if (c == null) {
+      c = codecFactory.createInstance();
+    }
+    try {
+      block.compressUsing(c, bufferPool);
+    } finally {
+      idleCodecs.offer(c);
+    }
+    return block;
+  }
+
+  /**
+   * Write compressed blocks in order: those already done, and then as many as
+   * needed to leave no more than maxPending in flight. A block that failed to
+   * compress stays queued so that later calls fail too rather than skip it.
+   */
+  private void writePendingBlocks(int maxPending) throws IOException {
+    while (!pendingBlocks.isEmpty() && (pendingBlocks.size() > maxPending || pendingBlocks.peek().isDone())) {
+      DataBlock block;
+      try {
+        block = pendingBlocks.peek().get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while waiting for block compression");
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof IOException) {
+          throw (IOException) e.getCause();
+        }
+        throw new AvroRuntimeException(e.getCause());
+      }
+      pendingBlocks.poll();
+      writeBlockTo(block);
+      block.release(bufferPool);
+    }
+  }
+
   /**
    * Return the current position as a value that may be passed to
    * {@link DataFileReader#seek(long)}. Forces the end of the current block,
@@ -436,6 +592,7 @@ public class DataFileWriter<D> implements Closeable, Flushable {
   public long sync() throws IOException {
     assertOpen();
     writeBlock();
+    writePendingBlocks(0);
     return out.tell();
   }
 
@@ -472,6 +629,17 @@ public class DataFileWriter<D> implements Closeable, Flushable {
       flush();
       out.close();
       isOpen = false;
+      Codec.close(codec);
+      for (Codec c = idleCodecs.poll(); c != null; c = idleCodecs.poll()) {
+        Codec.close(c);
+      }
+      if (currentBlock != null) {
+        currentBlock.release(bufferPool);
+        currentBlock = null;
+      }
+      if (blockIndex != null) {
+        blockIndex.write(blockIndexOutput);
+      }
     }
   }
 
@@ -70,19 +70,41 @@ public class DeflateCodec extends Codec {
   @Override
   public ByteBuffer compress(ByteBuffer data) throws IOException {
     NonCopyingByteArrayOutputStream baos = new NonCopyingByteArrayOutputStream(DEFAULT_BUFFER_SIZE);
-    try (OutputStream outputStream = new DeflaterOutputStream(baos, getDeflater())) {
-      outputStream.write(data.array(), computeOffset(data), data.remaining());
-    }
+    deflate(data, baos);
     return baos.asByteBuffer();
   }
 
+  @Override
+  public ByteBuffer compress(ByteBuffer data, BlockBufferPool pool) throws IOException {
+    BlockBufferPool.BufferOutputStream out = pool.outputStream(DEFAULT_BUFFER_SIZE);
+    deflate(data, out);
+    return out.toByteBuffer();
+  }
+
   @Override
   public ByteBuffer decompress(ByteBuffer data) throws IOException {
     NonCopyingByteArrayOutputStream baos = new NonCopyingByteArrayOutputStream(DEFAULT_BUFFER_SIZE);
-    try (OutputStream outputStream = new InflaterOutputStream(baos, getInflater())) {
+    inflate(data, baos);
+    return baos.asByteBuffer();
+  }
+
+  @Override
+  public ByteBuffer decompress(ByteBuffer data, BlockBufferPool pool) throws IOException {
+    BlockBufferPool.BufferOutputStream out = pool.outputStream(DEFAULT_BUFFER_SIZE);
+    inflate(data, out);
+    return out.toByteBuffer();
+  }
+
+  private void deflate(ByteBuffer data, OutputStream out) throws IOException {
+    try (OutputStream outputStream = new DeflaterOutputStream(out, getDeflater())) {
+      outputStream.write(data.array(), computeOffset(data), data.remaining());
+    }
+  }
+
+  private void inflate(ByteBuffer data, OutputStream out) throws IOException {
+    try (OutputStream outputStream = new InflaterOutputStream(out, getInflater())) {
       outputStream.write(data.array(), computeOffset(data), data.remaining());
     }
-    return baos.asByteBuffer();
   }
 
   // get and initialize the inflater for use.
@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.apache.avro.SystemLimitException;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+
+/**
+ * Implements LZ4 compression and decompression. Each compressed block starts
+ * with the 4-byte, big-endian length of the uncompressed data, followed by the
+ * data compressed as a single LZ4 block.
+ * <p/>
+ * Level 0 uses the fast LZ4 compressor; levels 1 to 17 use LZ4 HC, which
+ * compresses more slowly for a better ratio. Decompression is equally fast
+ * whatever the level. Heap and direct buffers are both supported.
+ */
+public class Lz4Codec extends Codec {
+  public final static int DEFAULT_COMPRESSION = 0;
+  public final static int MAX_COMPRESSION = 17;
+  private final static long MAX_RATIO = 255;
+
+  static class Option extends CodecFactory {
+    static {
+      // if lz4 isn't available, this will throw an exception which we
+      // can catch so we can avoid registering this codec
+      LZ4Factory.fastestInstance();
+    }
+
+    private final int compressionLevel;
+
+    Option(int compressionLevel) {
+      this.compressionLevel = compressionLevel;
+    }
+
+    @Override
+    protected Codec createInstance() {
+      return new Lz4Codec(compressionLevel);
+    }
+  }
+
+  private final int compressionLevel;
+  private LZ4Compressor compressor;
+  private LZ4SafeDecompressor decompressor;
+
+  public Lz4Codec(int compressionLevel) {
+    this.compressionLevel = Math.max(DEFAULT_COMPRESSION, Math.min(compressionLevel, MAX_COMPRESSION));
+  }
+
+  @Override
+  public String getName() {
+    return DataFileConstants.LZ4_CODEC;
+  }
+
+  @Override
+  public ByteBuffer compress(ByteBuffer data) throws IOException {
+    return compressTo(data, ByteBuffer.allocate(getCompressor().maxCompressedLength(data.remaining()) + 4));
+  }
+
+  @Override
+  public ByteBuffer compress(ByteBuffer data, BlockBufferPool pool) throws IOException {
+    return compressTo(data, pool.acquire(getCompressor().maxCompressedLength(data.remaining()) + 4));
+  }
+
+  @Override
+  public ByteBuffer decompress(ByteBuffer data) throws IOException {
+    return decompressTo(data, ByteBuffer.allocate(uncompressedLength(data)));
+  }
+
+  @Override
+  public ByteBuffer decompress(ByteBuffer data, BlockBufferPool pool) throws IOException {
+    return decompressTo(data, pool.acquire(uncompressedLength(data)));
+  }
+
+  private ByteBuffer compressTo(ByteBuffer data, ByteBuffer out) throws IOException {
+    int length = data.remaining();
+    int size = getCompressor().compress(data, data.position(), length, out, 4, out.capacity() - 4);
+    out.duplicate().order(ByteOrder.BIG_ENDIAN).putInt(0, length);
+    ((Buffer) out).limit(size + 4);
+    return out;
+  }
+
+  private ByteBuffer decompressTo(ByteBuffer data, ByteBuffer out) throws IOException {
+    int length = uncompressedLength(data);
+    if (decompressor == null) {
+      decompressor = LZ4Factory.fastestInstance().safeDecompressor();
+    }
+    int size;
+    try {
+      size = decompressor.decompress(data, data.position() + 4, data.remaining() - 4, out, 0, length);
+    } catch (LZ4Exception e) {
+      throw new IOException("Invalid LZ4 block", e);
+    }
+    if (size != length) {
+      throw new IOException("Invalid LZ4 block: expected " + length + " bytes, got " + size);
+    }
+    ((Buffer) out).limit(size);
+    return out;
+  }
+
+  private static int uncompressedLength(ByteBuffer data) throws IOException {
+    if (data.remaining() < 4) {
+      throw new IOException("Invalid LZ4 block: too short");
+    }
+    int length = data.duplicate().order(ByteOrder.BIG_ENDIAN).getInt(data.position());
+    if (length < 0) {
+      throw new IOException("Invalid LZ4 block: negative length " + length);
+    }
+    // each compressed byte expands to at most MAX_RATIO bytes, so a forged
+    // length cannot allocate more than the block could hold
+    if (length > MAX_RATIO * (data.remaining() - 4L)) {
+      throw new IOException("Invalid LZ4 block: length " + length + " of " + (data.remaining() - 4) + " bytes");
+    }
+    return SystemLimitException.checkMaxBytesLength(length);
+  }
+
+  private LZ4Compressor getCompressor() {
+    if (compressor == null) {
+      LZ4Factory factory = LZ4Factory.fastestInstance();
+      compressor = compressionLevel == 0 ? factory.fastCompressor() : factory.highCompressor(compressionLevel);
+    }
+    return compressor;
+  }
+
+  @Override
+  public int hashCode() {
+    return getName().hashCode();
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return (this == obj) || (obj != null && obj.getClass() == this.getClass());
+  }
+
+  @Override
+  public String toString() {
+    return getName() + "[" + compressionLevel + "]";
+  }
+}
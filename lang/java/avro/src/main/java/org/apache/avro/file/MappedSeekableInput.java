@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A {@link SeekableInput} that memory-maps a file. Besides the usual
+ * {@link #read(byte[], int, int) read()}, it can hand out regions of the file
+ * as buffers without copying them (see {@link #slice(long, int)}), which
+ * {@link DataFileReader} uses to read uncompressed blocks in place.
+ * <p/>
+ * The file is mapped read-only when the input is opened, so it must not be
+ * truncated while it is read. Mapped memory is released when the buffers are
+ * garbage collected, not when this input is closed.
+ */
+public class MappedSeekableInput implements SeekableInput {
+  /** Files larger than this are mapped as several regions. */
+  static final int REGION_SIZE = 1 << 30;
+
+  private final ByteBuffer[] regions;
+  private final long length;
+  private long position;
+
+  public MappedSeekableInput(File file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      this.length = channel.size();
+      this.regions = new ByteBuffer[(int) ((length + REGION_SIZE - 1) / REGION_SIZE)];
+      for (int i = 0; i < regions.length; i++) {
+        long start = (long) i * REGION_SIZE;
+        MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, start,
+            Math.min(REGION_SIZE, length - start));
+        regions[i] = region;
+      }
+    }
+  }
+
+  @Override
+  public void seek(long p) throws IOException {
+    if (p < 0 || p > length) {
+      throw new EOFException("Illegal seek: " + p);
+    }
+    this.position = p;
+  }
+
+  @Override
+  public long tell() throws IOException {
+    return position;
+  }
+
+  @Override
+  public long length() throws IOException {
+    return length;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    if (position >= length) {
+      return -1;
+    }
+    ByteBuffer region = regions[(int) (position / REGION_SIZE)].duplicate();
+    region.position((int) (position % REGION_SIZE));
+    int n = Math.min(len, region.remaining());
+    region.get(b, off, n);
+    position += n;
+    return n;
+  }
+
+  /**
+   * Return <i>len</i> bytes of the file starting at <i>position</i>, without
+   * moving the position of this input. The result is a read-only view of the
+   * mapped file unless the range crosses a region boundary, in which case it is
+   * copied.
+   *
+   * @throws EOFException if the range extends past the end of the file
+   */
+  public ByteBuffer slice(long position, int len) throws IOException {
+    if (position < 0 || len < 0 || position + len > length) {
+      throw new EOFException("Cannot read " + len + " bytes at position " + position);
+    }
+    if (len == 0) { // position may be the end of the last region
+      return ByteBuffer.allocate(0).asReadOnlyBuffer();
+    }
+    int index = (int) (position / REGION_SIZE);
+    int start = (int) (position % REGION_SIZE);
+    ByteBuffer region = regions[index].duplicate();
+    if (start + len <= region.limit()) {
+      region.limit(start + len).position(start);
+      return region.slice().asReadOnlyBuffer();
+    }
+    ByteBuffer copy = ByteBuffer.allocate(len);
+    for (long p = position; copy.hasRemaining(); p += region.remaining()) {
+      region = regions[(int) (p / REGION_SIZE)].duplicate();
+      region.position((int) (p % REGION_SIZE));
+      region.limit(Math.min(region.limit(), region.position() + copy.remaining()));
+      copy.put(region.duplicate());
+    }
+    copy.flip();
+    return copy;
+  }
+
+  @Override
+  public void close() throws IOException {
+    // the channel is closed once mapped, nothing left to release
+  }
+}
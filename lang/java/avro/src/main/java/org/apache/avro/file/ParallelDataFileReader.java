@@ -0,0 +1,224 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.apache.avro.io.DatumReader;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Reads a single data file with several threads. The file is cut into byte
+ * ranges; each range is read by its own {@link DataFileReader} over its own
+ * input, from the first synchronization point after its start to the first one
+ * after its end, as {@link DataFileReader#sync(long)} and
+ * {@link DataFileReader#pastSync(long)} allow. Every record is read by exactly
+ * one range.
+ * <p/>
+ * Records can be consumed through a {@link Stream}, which splits the file
+ * further as a parallel stream needs, or with a caller-supplied
+ * {@link Executor}. Either way, each range needs a {@link DatumReader} of its
+ * own, so this reader is given a supplier of them.
+ */
+public class ParallelDataFileReader<D> {
+  /** The default size of the byte ranges read by one reader. */
+  public static final long DEFAULT_SPLIT_SIZE = 32L * 1024 * 1024;
+
+  /** Opens a new, independent input on the file being read. */
+  @FunctionalInterface
+  public interface InputFactory {
+    SeekableInput open() throws IOException;
+  }
+
+  private final InputFactory inputs;
+  private final Supplier<? extends DatumReader<D>> datumReaders;
+  private final long length;
+  private final DataFileStream.Header header;
+  private long splitSize = DEFAULT_SPLIT_SIZE;
+
+  /** Construct a reader for a file. */
+  public ParallelDataFileReader(File file, Supplier<? extends DatumReader<D>> datumReaders) throws IOException {
+    this(() -> new SeekableFileInput(file), datumReaders);
+  }
+
+  /**
+   * Construct a reader for a file, opening an input for each range with
+   * <i>inputs</i>.
+   */
+  public ParallelDataFileReader(InputFactory inputs, Supplier<? extends DatumReader<D>> datumReaders)
+      throws IOException {
+    this.inputs = inputs;
+    this.datumReaders = datumReaders;
+    SeekableInput in = inputs.open();
+    try (DataFileReader<D> reader = new DataFileReader<>(in, datumReaders.get())) {
+      this.length = in.length();
+      this.header = reader.getHeader();
+    } catch (IOException | RuntimeException e) {
+      IOUtils.closeQuietly(in);
+      throw e;
+    }
+  }
+
+  /**
+   * Set the size in bytes of the ranges read by
+   * {@link #forEach(Executor, Consumer)}, and the smallest range a parallel
+   * {@link #stream()} splits off.
+   */
+  public ParallelDataFileReader<D> setSplitSize(long splitSize) {
+    if (splitSize < 1) {
+      throw new IllegalArgumentException("Invalid splitSize value: " + splitSize);
+    }
+    this.splitSize = splitSize;
+    return this;
+  }
+
+  /** Return the header of the file. */
+  public DataFileStream.Header getHeader() {
+    return header;
+  }
+
+  /**
+   * Return a stream of the records of the file, in file order when sequential.
+   * Close the stream to release the inputs of ranges that were not read to the
+   * end.
+   */
+  public Stream<D> stream() {
+    Queue<RangeSpliterator> opened = new ConcurrentLinkedQueue<>();
+    return StreamSupport.stream(new RangeSpliterator(0, length, opened), false).onClose(() -> {
+      for (RangeSpliterator range : opened) {
+        range.close();
+      }
+    });
+  }
+
+  /**
+   * Read all records, passing them to <i>action</i> from tasks run on
+   * <i>executor</i>, one task per range of {@link #setSplitSize(long) split size}
+   * bytes. <i>action</i> must be safe to call from several threads at once.
+   *
+   * @return a future completed once all ranges have been read, or completed
+   *         exceptionally with the first failure
+   */
+  public CompletableFuture<Void> forEach(Executor executor, Consumer<? super D> action) {
+    List<CompletableFuture<Void>> tasks = new ArrayList<>();
+    for (long start = 0; start < length; start += splitSize) {
+      RangeSpliterator range = new RangeSpliterator(start, Math.min(length, start + splitSize), null);
+      tasks.add(CompletableFuture.runAsync(() -> {
+        try {
+          range.forEachRemaining(action);
+        } finally {
+          range.close();
+        }
+      }, executor));
+    }
+    return CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0]));
+  }
+
+  /** Reads the records of the blocks that start within a byte range. */
+  private class RangeSpliterator implements Spliterator<D> {
+    private long start;
+    private final long end;
+    private final Queue<RangeSpliterator> opened;
+    private DataFileReader<D> reader;
+    private boolean done;
+
+    private RangeSpliterator(long start, long end, Queue<RangeSpliterator> opened) {
+      this.start = start;
+      this.end = end;
+      this.opened = opened;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super D> action) {
+      if (done) {
+        return false;
+      }
+      try {
+        if (reader == null) {
+          open();
+        }
+        if (reader.pastSync(end) || !reader.hasNext()) {
+          close();
+          return false;
+        }
+        action.accept(reader.next());
+        return true;
+      } catch (IOException e) {
+        close();
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    private void open() throws IOException {
+      SeekableInput in = inputs.open();
+      try {
+        in.seek(start);
+        reader = DataFileReader.openReader(in, datumReaders.get(), header, true);
+      } catch (IOException | RuntimeException e) {
+        IOUtils.closeQuietly(in);
+        throw e;
+      }
+      if (opened != null) {
+        opened.add(this);
+      }
+    }
+
+    private void close() {
+      done = true;
+      if (reader != null) {
+        IOUtils.closeQuietly(reader);
+        reader = null;
+      }
+    }
+
+    @Override
+    public Spliterator<D> trySplit() {
+      if (reader != null || done || end - start < 2 * splitSize) {
+        return null;
+      }
+      long middle = start + (end - start) / 2;
+      RangeSpliterator prefix = new RangeSpliterator(start, middle, opened);
+      this.start = middle;
+      return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+      // the number of records is not known, the number of bytes is a proxy
+      return end - start;
+    }
+
+    @Override
+    public int characteristics() {
+      return ORDERED;
+    }
+  }
+}
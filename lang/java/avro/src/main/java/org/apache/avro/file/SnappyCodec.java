@@ -51,9 +51,35 @@ public class SnappyCodec extends Codec {
 
   @Override
   public ByteBuffer compress(ByteBuffer in) throws IOException {
+    return compressTo(in, ByteBuffer.allocate(Snappy.maxCompressedLength(in.remaining()) + 4));
+  }
+
+  @Override
+  public ByteBuffer compress(ByteBuffer in, BlockBufferPool pool) throws IOException {
+    if (pool.isDirect()) {
+      return compress(in);
+    }
+    return compressTo(in, pool.acquire(Snappy.maxCompressedLength(in.remaining()) + 4));
+  }
+
+  @Override
+  public ByteBuffer decompress(ByteBuffer in) throws IOException {
+    int offset = computeOffset(in);
+    return decompressTo(in, ByteBuffer.allocate(Snappy.uncompressedLength(in.array(), offset, in.remaining() - 4)));
+  }
+
+  @Override
+  public ByteBuffer decompress(ByteBuffer in, BlockBufferPool pool) throws IOException {
+    if (pool.isDirect()) {
+      return decompress(in);
+    }
     int offset = computeOffset(in);
-    ByteBuffer out = ByteBuffer.allocate(Snappy.maxCompressedLength(in.remaining()) + 4);
-    int size = Snappy.compress(in.array(), offset, in.remaining(), out.array(), 0);
+    return decompressTo(in, pool.acquire(Snappy.uncompressedLength(in.array(), offset, in.remaining() - 4)));
+  }
+
+  private ByteBuffer compressTo(ByteBuffer in, ByteBuffer out) throws IOException {
+    int offset = computeOffset(in);
+    int size = Snappy.compress(in.array(), offset, in.remaining(), out.array(), out.arrayOffset());
     crc32.reset();
     crc32.update(in.array(), offset, in.remaining());
     out.putInt(size, (int) crc32.getValue());
@@ -63,15 +89,13 @@ public class SnappyCodec extends Codec {
     return out;
   }
 
-  @Override
-  public ByteBuffer decompress(ByteBuffer in) throws IOException {
+  private ByteBuffer decompressTo(ByteBuffer in, ByteBuffer out) throws IOException {
     int offset = computeOffset(in);
-    ByteBuffer out = ByteBuffer.allocate(Snappy.uncompressedLength(in.array(), offset, in.remaining() - 4));
-    int size = Snappy.uncompress(in.array(), offset, in.remaining() - 4, out.array(), 0);
+    int size = Snappy.uncompress(in.array(), offset, in.remaining() - 4, out.array(), out.arrayOffset());
     ((Buffer) out).limit(size);
 
     crc32.reset();
-    crc32.update(out.array(), 0, size);
+    crc32.update(out.array(), out.arrayOffset(), size);
     if (in.getInt(((Buffer) in).limit() - 4) != (int) crc32.getValue())
       throw new IOException("Checksum failure");
 
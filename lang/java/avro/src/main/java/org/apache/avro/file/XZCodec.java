@@ -60,21 +60,42 @@ public class XZCodec extends Codec {
   @Override
   public ByteBuffer compress(ByteBuffer data) throws IOException {
     NonCopyingByteArrayOutputStream baos = new NonCopyingByteArrayOutputStream(DEFAULT_BUFFER_SIZE);
-    try (OutputStream outputStream = new XZCompressorOutputStream(baos, compressionLevel)) {
-      outputStream.write(data.array(), computeOffset(data), data.remaining());
-    }
+    compressTo(data, baos);
     return baos.asByteBuffer();
   }
 
+  @Override
+  public ByteBuffer compress(ByteBuffer data, BlockBufferPool pool) throws IOException {
+    BlockBufferPool.BufferOutputStream out = pool.outputStream(DEFAULT_BUFFER_SIZE);
+    compressTo(data, out);
+    return out.toByteBuffer();
+  }
+
   @Override
   public ByteBuffer decompress(ByteBuffer data) throws IOException {
     NonCopyingByteArrayOutputStream baos = new NonCopyingByteArrayOutputStream(DEFAULT_BUFFER_SIZE);
-    InputStream bytesIn = new ByteArrayInputStream(data.array(), computeOffset(data), data.remaining());
+    decompressTo(data, baos);
+    return baos.asByteBuffer();
+  }
 
+  @Override
+  public ByteBuffer decompress(ByteBuffer data, BlockBufferPool pool) throws IOException {
+    BlockBufferPool.BufferOutputStream out = pool.outputStream(DEFAULT_BUFFER_SIZE);
+    decompressTo(data, out);
+    return out.toByteBuffer();
+  }
+
+  private void compressTo(ByteBuffer data, OutputStream out) throws IOException {
+    try (OutputStream outputStream = new XZCompressorOutputStream(out, compressionLevel)) {
+      outputStream.write(data.array(), computeOffset(data), data.remaining());
+    }
+  }
+
+  private void decompressTo(ByteBuffer data, OutputStream out) throws IOException {
+    InputStream bytesIn = new ByteArrayInputStream(data.array(), computeOffset(data), data.remaining());
     try (InputStream ios = new XZCompressorInputStream(bytesIn)) {
-      IOUtils.copy(ios, baos);
+      IOUtils.copy(ios, out);
     }
-    return baos.asByteBuffer();
   }
 
   @Override
@@ -18,15 +18,20 @@
 package org.apache.avro.file;
 
 import java.io.ByteArrayInputStream;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
 
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.util.ByteBufferInputStream;
 import org.apache.avro.util.NonCopyingByteArrayOutputStream;
 import org.apache.commons.compress.utils.IOUtils;
 
-public class ZstandardCodec extends Codec {
+public class ZstandardCodec extends Codec implements Closeable {
   public final static int DEFAULT_COMPRESSION = 3;
   public final static boolean DEFAULT_USE_BUFFERPOOL = false;
   private static final int DEFAULT_BUFFER_SIZE = 8192;
@@ -35,31 +40,76 @@ public class ZstandardCodec extends Codec {
     private final int compressionLevel;
     private final boolean useChecksum;
     private final boolean useBufferPool;
+    private final byte[] dictionary;
 
     Option(int compressionLevel, boolean useChecksum, boolean useBufferPool) {
+      this(compressionLevel, useChecksum, useBufferPool, null);
+    }
+
+    Option(int compressionLevel, boolean useChecksum, boolean useBufferPool, byte[] dictionary) {
       this.compressionLevel = compressionLevel;
       this.useChecksum = useChecksum;
       this.useBufferPool = useBufferPool;
+      this.dictionary = dictionary;
     }
 
     @Override
     protected Codec createInstance() {
-      return new ZstandardCodec(compressionLevel, useChecksum, useBufferPool);
+      return new ZstandardCodec(compressionLevel, useChecksum, useBufferPool, dictionary);
     }
   }
 
   private final int compressionLevel;
   private final boolean useChecksum;
   private final boolean useBufferPool;
+  private final byte[] dictionary;
+  private ZstandardLoader.Contexts contexts;
 
   /**
    * Create a ZstandardCodec instance with the given compressionLevel, checksum,
    * and bufferPool option
    **/
   public ZstandardCodec(int compressionLevel, boolean useChecksum, boolean useBufferPool) {
+    this(compressionLevel, useChecksum, useBufferPool, null);
+  }
+
+  /**
+   * Create a ZstandardCodec instance with the given compressionLevel, checksum,
+   * bufferPool option and dictionary. Data compressed with a dictionary can only
+   * be decompressed with the same dictionary.
+   *
+   * @param dictionary a dictionary, as returned by
+   *                   {@link #trainDictionary(Iterable, int)}, or null
+   **/
+  public ZstandardCodec(int compressionLevel, boolean useChecksum, boolean useBufferPool, byte[] dictionary) {
     this.compressionLevel = compressionLevel;
     this.useChecksum = useChecksum;
     this.useBufferPool = useBufferPool;
+    this.dictionary = dictionary;
+  }
+
+  /**
+   * Train a dictionary from samples of the data to be compressed, such as
+   * encoded records or small blocks. Dictionaries help most with small blocks,
+   * which otherwise each start compressing without any history. Around a
+   * hundred times the dictionary size in samples is a good start.
+   *
+   * @param samples        the samples to train with
+   * @param dictionarySize the maximum size of the dictionary in bytes
+   * @return the dictionary
+   * @throws AvroRuntimeException if there are too few samples
+   */
+  public static byte[] trainDictionary(Iterable<byte[]> samples, int dictionarySize) {
+    try {
+      return ZstandardLoader.trainDictionary(samples, dictionarySize);
+    } catch (RuntimeException e) {
+      throw new AvroRuntimeException("Could not train a zstandard dictionary: " + e.getMessage(), e);
+    }
+  }
+
+  /** The dictionary used by this codec, or null. */
+  public byte[] getDictionary() {
+    return dictionary;
   }
 
   @Override
@@ -70,23 +120,76 @@ public class ZstandardCodec extends Codec {
   @Override
   public ByteBuffer compress(ByteBuffer data) throws IOException {
     NonCopyingByteArrayOutputStream baos = new NonCopyingByteArrayOutputStream(DEFAULT_BUFFER_SIZE);
-    try (OutputStream outputStream = ZstandardLoader.output(baos, compressionLevel, useChecksum, useBufferPool)) {
-      outputStream.write(data.array(), computeOffset(data), data.remaining());
-    }
+    compressTo(data, baos);
     return baos.asByteBuffer();
   }
 
+  @Override
+  public ByteBuffer compress(ByteBuffer data, BlockBufferPool pool) throws IOException {
+    ByteBuffer result = getContexts().compress(data, pool);
+    if (result == null) {
+      BlockBufferPool.BufferOutputStream out = pool.outputStream(DEFAULT_BUFFER_SIZE);
+      compressTo(data, out);
+      result = out.toByteBuffer();
+    }
+    return result;
+  }
+
   @Override
   public ByteBuffer decompress(ByteBuffer compressedData) throws IOException {
     NonCopyingByteArrayOutputStream baos = new NonCopyingByteArrayOutputStream(DEFAULT_BUFFER_SIZE);
-    InputStream bytesIn = new ByteArrayInputStream(compressedData.array(), computeOffset(compressedData),
-        compressedData.remaining());
-    try (InputStream ios = ZstandardLoader.input(bytesIn, useBufferPool)) {
-      IOUtils.copy(ios, baos);
-    }
+    decompressTo(compressedData, baos);
     return baos.asByteBuffer();
   }
 
+  @Override
+  public ByteBuffer decompress(ByteBuffer compressedData, BlockBufferPool pool) throws IOException {
+    ByteBuffer result = getContexts().decompress(compressedData, pool);
+    if (result == null) {
+      BlockBufferPool.BufferOutputStream out = pool.outputStream(DEFAULT_BUFFER_SIZE);
+      decompressTo(compressedData, out);
+      result = out.toByteBuffer();
+    }
+    return result;
+  }
+
+  private ZstandardLoader.Contexts getContexts() {
+    if (contexts == null) {
+      contexts = new ZstandardLoader.Contexts(compressionLevel, useChecksum, dictionary);
+    }
+    return contexts;
+  }
+
+  /**
+   * Free the native contexts kept between blocks compressed into or
+   * decompressed from a {@link BlockBufferPool}. Data file readers and writers
+   * call this when closed. The codec remains usable and creates them again if
+   * needed.
+   */
+  @Override
+  public void close() {
+    if (contexts != null) {
+      contexts.close();
+      contexts = null;
+    }
+  }
+
+  private void compressTo(ByteBuffer data, OutputStream out) throws IOException {
+    try (OutputStream outputStream = ZstandardLoader.output(out, compressionLevel, useChecksum, useBufferPool,
+        dictionary)) {
+      outputStream.write(data.array(), computeOffset(data), data.remaining());
+    }
+  }
+
+  private void decompressTo(ByteBuffer compressedData, OutputStream out) throws IOException {
+    InputStream bytesIn = compressedData.hasArray()
+        ? new ByteArrayInputStream(compressedData.array(), computeOffset(compressedData), compressedData.remaining())
+        : new ByteBufferInputStream(Collections.singletonList(compressedData.duplicate()));
+    try (InputStream ios = ZstandardLoader.input(bytesIn, useBufferPool, dictionary)) {
+      IOUtils.copy(ios, out);
+    }
+  }
+
   @Override
   public int hashCode() {
     return getName().hashCode();
@@ -94,7 +197,12 @@ public class ZstandardCodec extends Codec {
 
   @Override
   public boolean equals(Object obj) {
-    return (this == obj) || (obj != null && obj.getClass() == this.getClass());
+    if (this == obj)
+      return true;
+    if (obj == null || obj.getClass() != getClass())
+      return false;
+    // a dictionary changes the compressed data
+    return Arrays.equals(dictionary, ((ZstandardCodec) obj).dictionary);
   }
 
   @Override
@@ -20,11 +20,15 @@ package org.apache.avro.file;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 import com.github.luben.zstd.BufferPool;
 import com.github.luben.zstd.NoPool;
 import com.github.luben.zstd.RecyclingBufferPool;
 import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdCompressCtx;
+import com.github.luben.zstd.ZstdDecompressCtx;
+import com.github.luben.zstd.ZstdDictTrainer;
 import com.github.luben.zstd.ZstdInputStreamNoFinalizer;
 import com.github.luben.zstd.ZstdOutputStreamNoFinalizer;
 
@@ -34,17 +38,143 @@ import com.github.luben.zstd.ZstdOutputStreamNoFinalizer;
 final class ZstandardLoader {
 
   static InputStream input(InputStream compressed, boolean useBufferPool) throws IOException {
+    return input(compressed, useBufferPool, null);
+  }
+
+  static InputStream input(InputStream compressed, boolean useBufferPool, byte[] dictionary) throws IOException {
     BufferPool pool = useBufferPool ? RecyclingBufferPool.INSTANCE : NoPool.INSTANCE;
-    return new ZstdInputStreamNoFinalizer(compressed, pool);
+    ZstdInputStreamNoFinalizer zstdInputStream = new ZstdInputStreamNoFinalizer(compressed, pool);
+    if (dictionary != null) {
+      zstdInputStream.setDict(dictionary);
+    }
+    return zstdInputStream;
   }
 
   static OutputStream output(OutputStream compressed, int level, boolean checksum, boolean useBufferPool)
       throws IOException {
+    return output(compressed, level, checksum, useBufferPool, null);
+  }
+
+  static OutputStream output(OutputStream compressed, int level, boolean checksum, boolean useBufferPool,
+      byte[] dictionary) throws IOException {
     int bounded = Math.max(Math.min(level, Zstd.maxCompressionLevel()), Zstd.minCompressionLevel());
     BufferPool pool = useBufferPool ? RecyclingBufferPool.INSTANCE : NoPool.INSTANCE;
     ZstdOutputStreamNoFinalizer zstdOutputStream = new ZstdOutputStreamNoFinalizer(compressed, pool).setLevel(bounded);
     zstdOutputStream.setCloseFrameOnFlush(false);
     zstdOutputStream.setChecksum(checksum);
+    if (dictionary != null) {
+      zstdOutputStream.setDict(dictionary);
+    }
     return zstdOutputStream;
   }
+
+  static byte[] trainDictionary(Iterable<byte[]> samples, int dictionarySize) {
+    long total = 0;
+    for (byte[] sample : samples) {
+      total += sample.length;
+    }
+    ZstdDictTrainer trainer = new ZstdDictTrainer((int) Math.min(total, Integer.MAX_VALUE), dictionarySize);
+    for (byte[] sample : samples) {
+      if (!trainer.addSample(sample)) {
+        break;
+      }
+    }
+    return trainer.trainSamples();
+  }
+
+  /**
+   * Compression and decompression contexts kept by a codec between blocks.
+   * Blocks are compressed as single frames that record their content size, so
+   * that they can be decompressed straight into a buffer of the right size.
+   */
+  static final class Contexts implements AutoCloseable {
+    private final int level;
+    private final boolean checksum;
+    private final byte[] dictionary;
+    private ZstdCompressCtx compressCtx;
+    private ZstdDecompressCtx decompressCtx;
+
+    Contexts(int level, boolean checksum, byte[] dictionary) {
+      this.level = Math.max(Math.min(level, Zstd.maxCompressionLevel()), Zstd.minCompressionLevel());
+      this.checksum = checksum;
+      this.dictionary = dictionary;
+    }
+
+    /**
+     * Compress into a buffer from the pool, or return null if the data is not of
+     * the same kind (heap or direct) as the pool's buffers.
+     */
+    ByteBuffer compress(ByteBuffer data, BlockBufferPool pool) {
+      if (!sameKind(data, pool)) {
+        return null;
+      }
+      if (compressCtx == null) {
+        compressCtx = new ZstdCompressCtx().setLevel(level).setChecksum(checksum);
+        if (dictionary != null) {
+          compressCtx.loadDict(dictionary);
+        }
+      }
+      ByteBuffer out = pool.acquire((int) Zstd.compressBound(data.remaining()));
+      int size;
+      if (out.hasArray()) {
+        size = compressCtx.compressByteArray(out.array(), out.arrayOffset(), out.capacity(), data.array(),
+            data.arrayOffset() + data.position(), data.remaining());
+      } else {
+        size = compressCtx.compressDirectByteBuffer(out, 0, out.capacity(), data, data.position(), data.remaining());
+      }
+      out.limit(size);
+      return out;
+    }
+
+    /**
+     * Decompress into a buffer from the pool, or return null if the data is not
+     * of the same kind as the pool's buffers or its frame does not record its
+     * content size.
+     */
+    ByteBuffer decompress(ByteBuffer data, BlockBufferPool pool) {
+      if (!sameKind(data, pool)) {
+        return null;
+      }
+      long size = data.hasArray()
+          ? Zstd.getFrameContentSize(data.array(), data.arrayOffset() + data.position(), data.remaining())
+          : Zstd.getDirectByteBufferFrameContentSize(data, data.position(), data.remaining());
+      if (size < 0 || size > Integer.MAX_VALUE) {
+        return null;
+      }
+      if (decompressCtx == null) {
+        decompressCtx = new ZstdDecompressCtx();
+        if (dictionary != null) {
+          decompressCtx.loadDict(dictionary);
+        }
+      }
+      ByteBuffer out = pool.acquire((int) size);
+      int length;
+      if (out.hasArray()) {
+        length = decompressCtx.decompressByteArray(out.array(), out.arrayOffset(), (int) size, data.array(),
+            data.arrayOffset() + data.position(), data.remaining());
+      } else {
+        length = decompressCtx.decompressDirectByteBuffer(out, 0, (int) size, data, data.position(),
+            data.remaining());
+      }
+      out.limit(length);
+      return out;
+    }
+
+    /** Free the native contexts. They are created again if needed. */
+    @Override
+    public void close() {
+      if (compressCtx != null) {
+        compressCtx.close();
+        compressCtx = null;
+      }
+      if (decompressCtx != null) {
+        decompressCtx.close();
+        decompressCtx = null;
+      }
+    }
+
+    private static boolean sameKind(ByteBuffer data, BlockBufferPool pool) {
+      return pool.isDirect() ? data.isDirect() : data.hasArray();
+    }
+  }
 }
@@ -21,6 +21,7 @@ import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.nio.ByteBuffer;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -36,9 +37,10 @@ import org.apache.avro.io.DatumReader;
 import org.apache.avro.io.Decoder;
 import org.apache.avro.io.DecoderFactory;
 import org.apache.avro.io.ResolvingDecoder;
+import org.apache.avro.util.ScratchProvider;
+import org.apache.avro.util.ScratchProvider.Scratch;
 import org.apache.avro.util.Utf8;
 import org.apache.avro.util.WeakIdentityHashMap;
-import org.apache.avro.util.internal.ThreadLocalWithInitial;
 
 /** {@link DatumReader} for generic Java objects. */
 public class GenericDatumReader<D> implements DatumReader<D> {
@@ -106,37 +108,60 @@ public class GenericDatumReader<D> implements DatumReader<D> {
     creatorResolver = null;
   }
 
-  private static final ThreadLocal<Map<Schema, Map<Schema, ResolvingDecoder>>> RESOLVER_CACHE = ThreadLocalWithInitial
-      .of(WeakIdentityHashMap::new);
+  private static final Scratch<Map<Schema, Map<Schema, ResolvingDecoder>>> RESOLVER_CACHE = ScratchProvider
+      .getDefault().scratch(WeakIdentityHashMap::new);
+
+  /**
+   * Resolving grammars by actual and expected schema. They are immutable, so
+   * all threads share them, and each only keeps its own decoder state.
+   */
+  private static final Map<Schema, Map<Schema, Object>> GRAMMAR_CACHE = Collections
+      .synchronizedMap(new WeakIdentityHashMap<>());
 
   /**
    * Gets a resolving decoder for use by this GenericDatumReader. Unstable API.
-   * Currently uses a thread local cache to prevent constructing the resolvers too
-   * often, because that is very expensive.
+   * The caller keeps the decoder, so it is only reused by later calls from the
+   * thread that created this reader. The expensive part, the resolving grammar,
+   * is built once and shared by all threads.
    */
   protected final ResolvingDecoder getResolver(Schema actual, Schema expected) throws IOException {
     Thread currThread = Thread.currentThread();
-    ResolvingDecoder resolver;
     if (currThread == creator && creatorResolver != null) {
       return creatorResolver;
     }
+    ResolvingDecoder resolver = DecoderFactory.get().resolvingDecoder(getGrammar(actual, expected), null);
+    if (currThread == creator) {
+      creatorResolver = resolver;
+    }
+    return resolver;
+  }
 
-    Map<Schema, ResolvingDecoder> cache = RESOLVER_CACHE.get().get(actual);
+  private static ResolvingDecoder getResolver(Map<Schema, Map<Schema, ResolvingDecoder>> resolvers, Schema actual,
+      Schema expected) throws IOException {
+    Map<Schema, ResolvingDecoder> cache = resolvers.get(actual);
     if (cache == null) {
       cache = new WeakIdentityHashMap<>();
-      RESOLVER_CACHE.get().put(actual, cache);
+      resolvers.put(actual, cache);
     }
-    resolver = cache.get(expected);
+    ResolvingDecoder resolver = cache.get(expected);
     if (resolver == null) {
-      resolver = DecoderFactory.get().resolvingDecoder(Schema.applyAliases(actual, expected), expected, null);
+      resolver = DecoderFactory.get().resolvingDecoder(getGrammar(actual, expected), null);
       cache.put(expected, resolver);
     }
+    return resolver;
+  }
 
-    if (currThread == creator) {
-      creatorResolver = resolver;
+  private static Object getGrammar(Schema actual, Schema expected) throws IOException {
+    Map<Schema, Object> grammars = GRAMMAR_CACHE.computeIfAbsent(actual,
+        k -> Collections.synchronizedMap(new WeakIdentityHashMap<>()));
+    Object grammar = grammars.get(expected);
+    if (grammar == null) {
+      // built without a lock, so another thread may build the same meanwhile
+      grammar = ResolvingDecoder.resolve(Schema.applyAliases(actual, expected), expected);
+      Object known = grammars.putIfAbsent(expected, grammar);
+      grammar = known != null ? known : grammar;
     }
-
-    return resolver;
+    return grammar;
   }
 
   @Override
@@ -149,7 +174,19 @@ public class GenericDatumReader<D> implements DatumReader<D> {
       return fastDatumReader.read(reuse, in);
     }
 
-    ResolvingDecoder resolver = getResolver(actual, expected);
+    if (Thread.currentThread() == creator) {
+      return read(reuse, in, getResolver(actual, expected));
+    }
+    Map<Schema, Map<Schema, ResolvingDecoder>> resolvers = RESOLVER_CACHE.acquire();
+    try {
+      return read(reuse, in, getResolver(resolvers, actual, expected));
+    } finally {
+      RESOLVER_CACHE.release(resolvers);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private D read(D reuse, Decoder in, ResolvingDecoder resolver) throws IOException {
     resolver.configure(in);
     D result = (D) read(reuse, expected, resolver);
     resolver.drain();
@@ -0,0 +1,725 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import java.io.EOFException;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.InvalidNumberEncodingException;
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.util.ScratchProvider;
+import org.apache.avro.util.ScratchProvider.Scratch;
+import org.apache.avro.util.springframework.ConcurrentReferenceHashMap;
+
+import static org.apache.avro.util.springframework.ConcurrentReferenceHashMap.ReferenceType.WEAK;
+
+/**
+ * Compares and hashes binary-encoded data of a schema without decoding it.
+ * <p/>
+ * The schema is compiled once into a tree of routines, one per schema node,
+ * that read varints, lengths and fixed-width values straight from the byte
+ * arrays, with no decoder and no allocation per comparison. Results are those
+ * of {@link BinaryData#compare(byte[], int, int, byte[], int, int, Schema)} and
+ * {@link BinaryData#hashCode(byte[], int, int, Schema)}, which use it, and so
+ * are consistent with
+ * {@link org.apache.avro.generic.GenericData#compare(Object, Object, Schema)}.
+ * <p/>
+ * {@link #prefix(byte[], int, int)} extracts a normalized sort key of 8 bytes
+ * from the leading value, so that sorters may order most values by comparing
+ * longs and only compare the full values when their prefixes are equal.
+ * <p/>
+ * Comparators are immutable and thread-safe.
+ */
+public final class BinaryComparator {
+  // Comparators never reference their schema, so that entries are cleared once
+  // the schema is no longer used. Lookups take no lock.
+  private static final ConcurrentMap<Schema, BinaryComparator> COMPARATORS = new ConcurrentReferenceHashMap<>(16, WEAK);
+
+  private static final Scratch<Cursors> CURSORS = ScratchProvider.getDefault().scratch(Cursors::new);
+
+  private final Node root;
+
+  private BinaryComparator(Node root) {
+    this.root = root;
+  }
+
+  /** Returns the comparator for a schema, compiling it on first use. */
+  public static BinaryComparator of(Schema schema) {
+    BinaryComparator comparator = COMPARATORS.get(schema);
+    if (comparator == null) {
+      comparator = new BinaryComparator(new Compiler().compile(schema));
+      BinaryComparator previous = COMPARATORS.putIfAbsent(schema, comparator);
+      if (previous != null) {
+        comparator = previous;
+      }
+    }
+    return comparator;
+  }
+
+  /**
+   * Compare binary encoded data. If equal, return zero. If greater-than, return
+   * a positive value, if less than return a negative value.
+   */
+  public int compare(byte[] b1, int s1, int l1, byte[] b2, int s2, int l2) {
+    Cursors cursors = CURSORS.acquire();
+    try {
+      return root.compare(cursors.c1.set(b1, s1, l1), cursors.c2.set(b2, s2, l2));
+    } finally {
+      cursors.c1.clear();
+      cursors.c2.clear();
+      CURSORS.release(cursors);
+    }
+  }
+
+  /**
+   * Hash binary encoded data. Consistent with
+   * {@link org.apache.avro.generic.GenericData#hashCode(Object, Schema)}.
+   */
+  public int hashCode(byte[] bytes, int start, int length) {
+    Cursors cursors = CURSORS.acquire();
+    try {
+      return root.hash(cursors.c1.set(bytes, start, length));
+    } finally {
+      cursors.c1.clear();
+      CURSORS.release(cursors);
+    }
+  }
+
+  /**
+   * Returns a sort key for binary encoded data, made of the first 8 bytes of its
+   * leading value normalized so that they order as unsigned bytes: numbers with
+   * their sign flipped, strings, bytes and fixed padded with zeros, and
+   * descending fields inverted. Where the prefixes of two values differ, as
+   * compared by {@link #comparePrefixes(long, long)}, they order the values as
+   * {@link #compare(byte[], int, int, byte[], int, int)} does. Where they are
+   * equal, the full values must be compared.
+   */
+  public long prefix(byte[] bytes, int start, int length) {
+    Cursors cursors = CURSORS.acquire();
+    try {
+      return root.prefix(cursors.c1.set(bytes, start, length));
+    } finally {
+      cursors.c1.clear();
+      CURSORS.release(cursors);
+    }
+  }
+
+  /** Compares two prefixes returned by {@link #prefix(byte[], int, int)}. */
+  public static int comparePrefixes(long p1, long p2) {
+    return Long.compareUnsigned(p1, p2);
+  }
+
+  /** A position in a byte array, up to a limit. */
+  private static final class Cursor {
+    private byte[] buf;
+    private int pos;
+    private int limit;
+
+    Cursor set(byte[] buf, int start, int length) {
+      this.buf = buf;
+      this.pos = start;
+      this.limit = start + length;
+      return this;
+    }
+
+    void clear() {
+      this.buf = null;
+    }
+
+    private static AvroRuntimeException eof() {
+      return new AvroRuntimeException(new EOFException());
+    }
+
+    int readByte() {
+      if (pos >= limit) {
+        throw eof();
+      }
+      return buf[pos++] & 0xff;
+    }
+
+    int readInt() {
+      int n = 0;
+      for (int shift = 0; shift < 32; shift += 7) {
+        int b = readByte();
+        n |= (b & 0x7F) << shift;
+        if ((b & 0x80) == 0) {
+          return (n >>> 1) ^ -(n & 1); // back to two's-complement
+        }
+      }
+      throw new AvroRuntimeException(new InvalidNumberEncodingException("Invalid int encoding"));
+    }
+
+    long readLong() {
+      long n = 0;
+      for (int shift = 0; shift < 64; shift += 7) {
+        int b = readByte();
+        n |= (b & 0x7FL) << shift;
+        if ((b & 0x80) == 0) {
+          return (n >>> 1) ^ -(n & 1); // back to two's-complement
+        }
+      }
+      throw new AvroRuntimeException(new InvalidNumberEncodingException("Invalid long encoding"));
+    }
+
+    int readFixedInt() {
+      require(4);
+      int n = (buf[pos] & 0xff) | ((buf[pos + 1] & 0xff) << 8) | ((buf[pos + 2] & 0xff) << 16)
+          | ((buf[pos + 3] & 0xff) << 24);
+      pos += 4;
+      return n;
+    }
+
+    long readFixedLong() {
+      long low = readFixedInt() & 0xffffffffL;
+      return low | ((long) readFixedInt() << 32);
+    }
+
+    /** Reads the length of a string or bytes, checking its content is there. */
+    int readLength() {
+      int length = readInt();
+      if (length < 0) {
+        throw new AvroRuntimeException("Malformed data. Length is negative: " + length);
+      }
+      require(length);
+      return length;
+    }
+
+    void require(long length) {
+      if (limit - pos < length) {
+        throw eof();
+      }
+    }
+
+    void skip(long length) {
+      require(length);
+      pos += (int) length;
+    }
+
+    /** Returns up to 8 bytes from the position, big-endian and padded with zeros. */
+    long bytesPrefix(int length) {
+      long prefix = 0;
+      int n = Math.min(length, 8);
+      for (int i = 0; i < n; i++) {
+        prefix |= (buf[pos + i] & 0xffL) << (56 - 8 * i);
+      }
+      return prefix;
+    }
+  }
+
+  private static final class Cursors {
+    final Cursor c1 = new Cursor();
+    final Cursor c2 = new Cursor();
+  }
+
+  /** The routines compiled for a schema. */
+  private abstract static class Node {
+    /**
+     * Compares the values at both cursors. If equal, returns zero with both
+     * cursors after the values.
+     */
+    abstract int compare(Cursor c1, Cursor c2);
+
+    /** Moves the cursor after the value. */
+    abstract void skip(Cursor c);
+
+    abstract int hash(Cursor c);
+
+    /** Returns the sort key of the value, 0 if there is none. */
+    long prefix(Cursor c) {
+      return 0;
+    }
+  }
+
+  private static class Compiler {
+    private final Map<Schema, RecordNode> records = new IdentityHashMap<>();
+
+    Node compile(Schema schema) {
+      switch (schema.getType()) {
+      case RECORD: {
+        RecordNode node = records.get(schema);
+        if (node == null) {
+          // registered before its fields, which may refer to it
+          node = new RecordNode();
+          records.put(schema, node);
+          List<Field> fields = schema.getFields();
+          Node[] nodes = new Node[fields.size()];
+          Field.Order[] orders = new Field.Order[nodes.length];
+          for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = compile(fields.get(i).schema());
+            orders[i] = fields.get(i).order();
+          }
+          node.fields = nodes;
+          node.orders = orders;
+        }
+        return node;
+      }
+      case ENUM:
+      case INT:
+        return INT;
+      case LONG:
+        return LONG;
+      case FLOAT:
+        return FLOAT;
+      case DOUBLE:
+        return DOUBLE;
+      case BOOLEAN:
+        return BOOLEAN;
+      case NULL:
+        return NULL;
+      case STRING:
+        return STRING;
+      case BYTES:
+        return BYTES;
+      case FIXED:
+        return new FixedNode(schema.getFixedSize());
+      case ARRAY:
+        return new ArrayNode(compile(schema.getElementType()));
+      case MAP:
+        return new MapNode(compile(schema.getValueType()));
+      case UNION: {
+        List<Schema> types = schema.getTypes();
+        Node[] branches = new Node[types.size()];
+        for (int i = 0; i < branches.length; i++) {
+          branches[i] = compile(types.get(i));
+        }
+        return new UnionNode(branches);
+      }
+      default:
+        throw new AvroRuntimeException("Unexpected schema to compare!");
+      }
+    }
+  }
+
+  private static final class RecordNode extends Node {
+    Node[] fields;
+    Field.Order[] orders;
+
+    @Override
+    int compare(Cursor c1, Cursor c2) {
+      for (int i = 0; i < fields.length; i++) {
+        if (orders[i] == Field.Order.IGNORE) {
+          fields[i].skip(c1);
+          fields[i].skip(c2);
+          continue;
+        }
+        int c = fields[i].compare(c1, c2);
+        if (c != 0) {
+          return (orders[i] != Field.Order.DESCENDING) ? c : -c;
+        }
+      }
+      return 0;
+    }
+
+    @Override
+    void skip(Cursor c) {
+      for (Node field : fields) {
+        field.skip(c);
+      }
+    }
+
+    @Override
+    int hash(Cursor c) {
+      int hashCode = 1;
+      for (int i = 0; i < fields.length; i++) {
+        if (orders[i] == Field.Order.IGNORE) {
+          fields[i].skip(c);
+          continue;
+        }
+        hashCode = hashCode * 31 + fields[i].hash(c);
+      }
+      return hashCode;
+    }
+
+    @Override
+    long prefix(Cursor c) {
+      for (int i = 0; i < fields.length; i++) {
+        if (orders[i] == Field.Order.IGNORE) {
+          fields[i].skip(c);
+          continue;
+        }
+        long prefix = fields[i].prefix(c);
+        return (orders[i] != Field.Order.DESCENDING) ? prefix : ~prefix;
+      }
+      return 0;
+    }
+  }
+
+  private static final Node NULL = new Node() {
+    @Override
+    int compare(Cursor c1, Cursor c2) {
+      return 0;
+    }
+
+    @Override
+    void skip(Cursor c) {
+    }
+
+    @Override
+    int hash(Cursor c) {
+      return 0;
+    }
+  };
+
+  private static final Node BOOLEAN = new Node() {
+    @Override
+    int compare(Cursor c1, Cursor c2) {
+      return Boolean.compare(c1.readByte() == 1, c2.readByte() == 1);
+    }
+
+    @Override
+    void skip(Cursor c) {
+      c.skip(1);
+    }
+
+    @Override
+    int hash(Cursor c) {
+      return Boolean.hashCode(c.readByte() == 1);
+    }
+
+    @Override
+    long prefix(Cursor c) {
+      return c.readByte() == 1 ? 1 : 0;
+    }
+  };
+
+  private static final Node INT = new Node() {
+    @Override
+    int compare(Cursor c1, Cursor c2) {
+      return Integer.compare(c1.readInt(), c2.readInt());
+    }
+
+    @Override
+    void skip(Cursor c) {
+      c.readLong();
+    }
+
+    @Override
+    int hash(Cursor c) {
+      return c.readInt();
+    }
+
+    @Override
+    long prefix(Cursor c) {
+      return c.readInt() ^ Long.MIN_VALUE;
+    }
+  };
+
+  private static final Node LONG = new Node() {
+    @Override
+    int compare(Cursor c1, Cursor c2) {
+      return Long.compare(c1.readLong(), c2.readLong());
+    }
+
+    @Override
+    void skip(Cursor c) {
+      c.readLong();
+    }
+
+    @Override
+    int hash(Cursor c) {
+      return Long.hashCode(c.readLong());
+    }
+
+    @Override
+    long prefix(Cursor c) {
+      return c.readLong() ^ Long.MIN_VALUE;
+    }
+  };
+
+  private static final Node FLOAT = new Node() {
+    @Override
+    int compare(Cursor c1, Cursor c2) {
+      return Float.compare(Float.intBitsToFloat(c1.readFixedInt()), Float.intBitsToFloat(c2.readFixedInt()));
+    }
+
+    @Override
+    void skip(Cursor c) {
+      c.skip(4);
+    }
+
+    @Override
+    int hash(Cursor c) {
+      return Float.hashCode(Float.intBitsToFloat(c.readFixedInt()));
+    }
+
+    @Override
+    long prefix(Cursor c) {
+      // canonical NaN, and negative values flipped so that they order as unsigned
+      int bits = Float.floatToIntBits(Float.intBitsToFloat(c.readFixedInt()));
+      return ((bits ^ ((bits >> 31) | Integer.MIN_VALUE)) & 0xffffffffL) << 32;
+    }
+  };
+
+  private static final Node DOUBLE = new Node() {
+    @Override
+    int compare(Cursor c1, Cursor c2) {
+      return Double.compare(Double.longBitsToDouble(c1.readFixedLong()), Double.longBitsToDouble(c2.readFixedLong()));
+    }
+
+    @Override
+    void skip(Cursor c) {
+      c.skip(8);
+    }
+
+    @Override
+    int hash(Cursor c) {
+      return Double.hashCode(Double.longBitsToDouble(c.readFixedLong()));
+    }
+
+    @Override
+    long prefix(Cursor c) {
+      long bits = Double.doubleToLongBits(Double.longBitsToDouble(c.readFixedLong()));
+      return bits ^ ((bits >> 63) | Long.MIN_VALUE);
+    }
+  };
+
+  private static final Node STRING = new BytesNode(0, false);
+
+  private static final Node BYTES = new BytesNode(1, true);
+
+  private static int hashBytes(int init, Cursor c, int length, boolean rev) {
+    int hashCode = init;
+    byte[] bytes = c.buf;
+    int start = c.pos;
+    int end = start + length;
+    if (rev) {
+      for (int i = end - 1; i >= start; i--) {
+        hashCode = hashCode * 31 + bytes[i];
+      }
+    } else {
+      for (int i = start; i < end; i++) {
+        hashCode = hashCode * 31 + bytes[i];
+      }
+    }
+    c.pos = end;
+    return hashCode;
+  }
+
+  /** Strings and bytes, whose hashes differ as those of their datum classes do. */
+  private static final class BytesNode extends Node {
+    private final int hashInit;
+    private final boolean hashReversed;
+
+    BytesNode(int hashInit, boolean hashReversed) {
+      this.hashInit = hashInit;
+      this.hashReversed = hashReversed;
+    }
+
+    @Override
+    int compare(Cursor c1, Cursor c2) {
+      int l1 = c1.readLength();
+      int l2 = c2.readLength();
+      int c = BinaryData.compareBytes(c1.buf, c1.pos, l1, c2.buf, c2.pos, l2);
+      c1.pos += l1;
+      c2.pos += l2;
+      return c;
+    }
+
+    @Override
+    void skip(Cursor c) {
+      c.skip(c.readLength());
+    }
+
+    @Override
+    int hash(Cursor c) {
+      return hashBytes(hashInit, c, c.readLength(), hashReversed);
+    }
+
+    @Override
+    long prefix(Cursor c) {
+      return c.bytesPrefix(c.readLength());
+    }
+  }
+
+  private static final class FixedNode extends Node {
+    private final int size;
+
+    FixedNode(int size) {
+      this.size = size;
+    }
+
+    @Override
+    int compare(Cursor c1, Cursor c2) {
+      c1.require(size);
+      c2.require(size);
+      int c = BinaryData.compareBytes(c1.buf, c1.pos, size, c2.buf, c2.pos, size);
+      c1.pos += size;
+      c2.pos += size;
+      return c;
+    }
+
+    @Override
+    void skip(Cursor c) {
+      c.skip(size);
+    }
+
+    @Override
+    int hash(Cursor c) {
+      c.require(size);
+      return hashBytes(1, c, size, false);
+    }
+
+    @Override
+    long prefix(Cursor c) {
+      c.require(size);
+      return c.bytesPrefix(size);
+    }
+  }
+
+  private static final class ArrayNode extends Node {
+    private final Node element;
+
+    ArrayNode(Node element) {
+      this.element = element;
+    }
+
+    // reads the count of a block, skipping its byte size if written
+    private static long readBlockCount(Cursor c) {
+      long count = c.readLong();
+      if (count < 0) {
+        count = -count;
+        c.readLong();
+      }
+      return count;
+    }
+
+    @Override
+    int compare(Cursor c1, Cursor c2) {
+      long i = 0; // position in array
+      long r1 = 0, r2 = 0; // remaining in current block
+      long l1 = 0, l2 = 0; // total array length
+      while (true) {
+        if (r1 == 0) { // refill blocks(s)
+          r1 = readBlockCount(c1);
+          l1 += r1;
+        }
+        if (r2 == 0) {
+          r2 = readBlockCount(c2);
+          l2 += r2;
+        }
+        if (r1 == 0 || r2 == 0) { // empty block: done
+          return Long.compare(l1, l2);
+        }
+        long l = Math.min(l1, l2);
+        while (i < l) { // compare to end of block
+          int c = element.compare(c1, c2);
+          if (c != 0) {
+            return c;
+          }
+          i++;
+          r1--;
+          r2--;
+        }
+      }
+    }
+
+    @Override
+    void skip(Cursor c) {
+      for (long count = c.readLong(); count != 0; count = c.readLong()) {
+        if (count < 0) {
+          c.skip(c.readLong());
+        } else {
+          for (long i = 0; i < count; i++) {
+            element.skip(c);
+          }
+        }
+      }
+    }
+
+    @Override
+    int hash(Cursor c) {
+      int hashCode = 1;
+      for (long count = readBlockCount(c); count != 0; count = readBlockCount(c)) {
+        for (long i = 0; i < count; i++) {
+          hashCode = hashCode * 31 + element.hash(c);
+        }
+      }
+      return hashCode;
+    }
+  }
+
+  private static final class MapNode extends Node {
+    private final Node value;
+
+    MapNode(Node value) {
+      this.value = value;
+    }
+
+    @Override
+    int compare(Cursor c1, Cursor c2) {
+      throw new AvroRuntimeException("Can't compare maps!");
+    }
+
+    @Override
+    void skip(Cursor c) {
+      for (long count = c.readLong(); count != 0; count = c.readLong()) {
+        if (count < 0) {
+          c.skip(c.readLong());
+        } else {
+          for (long i = 0; i < count; i++) {
+            STRING.skip(c);
+            value.skip(c);
+          }
+        }
+      }
+    }
+
+    @Override
+    int hash(Cursor c) {
+      throw new AvroRuntimeException("Can't hashCode maps!");
+    }
+  }
+
+  private static final class UnionNode extends Node {
+    private final Node[] branches;
+
+    UnionNode(Node[] branches) {
+      this.branches = branches;
+    }
+
+    @Override
+    int compare(Cursor c1, Cursor c2) {
+      int i1 = c1.readInt();
+      int i2 = c2.readInt();
+      int c = Integer.compare(i1, i2);
+      return c == 0 ? branches[i1].compare(c1, c2) : c;
+    }
+
+    @Override
+    void skip(Cursor c) {
+      branches[c.readInt()].skip(c);
+    }
+
+    @Override
+    int hash(Cursor c) {
+      return branches[c.readInt()].hash(c);
+    }
+
+    @Override
+    long prefix(Cursor c) {
+      // the index, then the first half of the branch's prefix
+      int index = c.readInt();
+      return ((long) index << 32) | (branches[index].prefix(c) >>> 32);
+    }
+  }
+}
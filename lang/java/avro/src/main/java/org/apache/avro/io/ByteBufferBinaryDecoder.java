@@ -0,0 +1,244 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.InvalidNumberEncodingException;
+import org.apache.avro.SystemLimitException;
+
+/**
+ * A {@link BinaryDecoder} that reads straight from one or more
+ * {@link ByteBuffer}s, heap or direct, without copying them into a buffer of
+ * its own.
+ * <p/>
+ * {@link #readBytes(ByteBuffer)} with a null argument returns a slice of the
+ * source when the value lies within a single buffer, so the result shares its
+ * content with the source and may be read-only or direct. So does passing a
+ * buffer that is read-only or direct, as it cannot be filled in place.
+ * <p/>
+ * The source buffers are never modified; their positions are left unchanged.
+ *
+ * @see DecoderFactory#binaryDecoder(ByteBuffer, BinaryDecoder)
+ * @see DecoderFactory#binaryDecoder(List, BinaryDecoder)
+ */
+class ByteBufferBinaryDecoder extends BinaryDecoder {
+  private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+  private List<ByteBuffer> buffers;
+  private int next; // index of the buffer after current
+  private ByteBuffer current;
+  private final byte[] scratch = new byte[8];
+
+  ByteBufferBinaryDecoder(List<ByteBuffer> buffers) {
+    super();
+    configure(buffers);
+  }
+
+  ByteBufferBinaryDecoder configure(List<ByteBuffer> buffers) {
+    this.buffers = buffers;
+    this.next = 0;
+    this.current = EMPTY;
+    return this;
+  }
+
+  // advance to the next buffer with remaining bytes, or return false
+  private boolean nextBuffer() {
+    while (next < buffers.size()) {
+      ByteBuffer buffer = buffers.get(next++);
+      if (buffer.hasRemaining()) {
+        current = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        return true;
+      }
+    }
+    current = EMPTY;
+    return false;
+  }
+
+  private int read() throws IOException {
+    if (!current.hasRemaining() && !nextBuffer()) {
+      throw new EOFException();
+    }
+    return current.get() & 0xff;
+  }
+
+  @Override
+  public boolean readBoolean() throws IOException {
+    return read() == 1;
+  }
+
+  @Override
+  public int readInt() throws IOException {
+    int n = 0;
+    int shift = 0;
+    do {
+      int b = read();
+      n |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return (n >>> 1) ^ -(n & 1); // back to two's-complement
+      }
+      shift += 7;
+    } while (shift < 32);
+    throw new InvalidNumberEncodingException("Invalid int encoding");
+  }
+
+  @Override
+  public long readLong() throws IOException {
+    long n = 0;
+    int shift = 0;
+    do {
+      int b = read();
+      n |= (b & 0x7FL) << shift;
+      if ((b & 0x80) == 0) {
+        return (n >>> 1) ^ -(n & 1); // back to two's-complement
+      }
+      shift += 7;
+    } while (shift < 64);
+    throw new InvalidNumberEncodingException("Invalid long encoding");
+  }
+
+  @Override
+  public float readFloat() throws IOException {
+    if (current.remaining() >= 4) {
+      return current.getFloat();
+    }
+    doReadBytes(scratch, 0, 4);
+    return ByteBuffer.wrap(scratch).order(ByteOrder.LITTLE_ENDIAN).getFloat(0);
+  }
+
+  @Override
+  public double readDouble() throws IOException {
+    if (current.remaining() >= 8) {
+      return current.getDouble();
+    }
+    doReadBytes(scratch, 0, 8);
+    return ByteBuffer.wrap(scratch).order(ByteOrder.LITTLE_ENDIAN).getDouble(0);
+  }
+
+  @Override
+  public ByteBuffer readBytes(ByteBuffer old) throws IOException {
+    int length = SystemLimitException.checkMaxBytesLength(readLong());
+    if (!current.hasRemaining()) {
+      nextBuffer();
+    }
+    // only writable heap buffers are filled, others are treated as null
+    boolean reusable = old != null && old.hasArray();
+    if (!reusable && current.remaining() >= length) {
+      ByteBuffer result = current.slice();
+      result.limit(length);
+      current.position(current.position() + length);
+      return result;
+    }
+    final ByteBuffer result;
+    if (reusable && length <= old.capacity()) {
+      result = old;
+      result.clear();
+    } else {
+      result = ByteBuffer.allocate(length);
+    }
+    doReadBytes(result.array(), result.arrayOffset() + result.position(), length);
+    result.limit(length);
+    return result;
+  }
+
+  @Override
+  protected void doSkipBytes(long length) throws IOException {
+    while (length > 0) {
+      if (!current.hasRemaining() && !nextBuffer()) {
+        throw new EOFException();
+      }
+      int n = (int) Math.min(length, current.remaining());
+      current.position(current.position() + n);
+      length -= n;
+    }
+  }
+
+  @Override
+  protected void doReadBytes(byte[] bytes, int start, int length) throws IOException {
+    if (length < 0) {
+      throw new AvroRuntimeException("Malformed data. Length is negative: " + length);
+    }
+    while (length > 0) {
+      if (!current.hasRemaining() && !nextBuffer()) {
+        throw new EOFException();
+      }
+      int n = Math.min(length, current.remaining());
+      current.get(bytes, start, n);
+      start += n;
+      length -= n;
+    }
+  }
+
+  @Override
+  public boolean isEnd() throws IOException {
+    return !current.hasRemaining() && !nextBuffer();
+  }
+
+  /**
+   * Returns an {@link InputStream} over the bytes not yet read by this decoder.
+   * Reading from it advances this decoder too.
+   */
+  @Override
+  public InputStream inputStream() {
+    return new InputStream() {
+      @Override
+      public int read() throws IOException {
+        return isEnd() ? -1 : ByteBufferBinaryDecoder.this.read();
+      }
+
+      @Override
+      public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+          return 0;
+        }
+        if (isEnd()) {
+          return -1;
+        }
+        int n = Math.min(len, current.remaining());
+        current.get(b, off, n);
+        return n;
+      }
+
+      @Override
+      public long skip(long n) throws IOException {
+        long skipped = 0;
+        while (skipped < n && !isEnd()) {
+          int step = (int) Math.min(n - skipped, current.remaining());
+          current.position(current.position() + step);
+          skipped += step;
+        }
+        return skipped;
+      }
+
+      @Override
+      public int available() throws IOException {
+        long available = current.remaining();
+        for (int i = next; i < buffers.size(); i++) {
+          available += buffers.get(i).remaining();
+        }
+        return (int) Math.min(available, Integer.MAX_VALUE);
+      }
+    };
+  }
+}
@@ -0,0 +1,912 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.MutableCallSite;
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.AvroTypeException;
+import org.apache.avro.Conversion;
+import org.apache.avro.Conversions;
+import org.apache.avro.LogicalType;
+import org.apache.avro.Resolver;
+import org.apache.avro.Resolver.Action;
+import org.apache.avro.Resolver.Container;
+import org.apache.avro.Resolver.EnumAdjust;
+import org.apache.avro.Resolver.ReaderUnion;
+import org.apache.avro.Resolver.RecordAdjust;
+import org.apache.avro.Resolver.Skip;
+import org.apache.avro.Resolver.WriterUnion;
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.UnresolvedUnionException;
+import org.apache.avro.generic.GenericArray;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericData.InstanceSupplier;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericEnumSymbol;
+import org.apache.avro.generic.GenericFixed;
+import org.apache.avro.generic.IndexedRecord;
+import org.apache.avro.io.FastReaderBuilder.ExecutionStep;
+import org.apache.avro.io.FastReaderBuilder.FieldReader;
+import org.apache.avro.specific.SpecificData;
+import org.apache.avro.specific.SpecificRecordBase;
+import org.apache.avro.util.SchemaUtil;
+import org.apache.avro.util.Utf8;
+import org.apache.avro.util.WeakIdentityHashMap;
+
+/**
+ * Compiles the reading and writing of a schema into a tree of
+ * {@link MethodHandle}s, one per schema node, bound to the constants of that
+ * node: field positions, element handles, enum adjustments and so on.
+ * <p/>
+ * Once a compiled handle gets hot the JVM customizes its lambda forms for that
+ * handle instance, which turns the bound constants into compile-time constants
+ * and inlines the whole tree. The result is straight-line code for each
+ * schema, without the per-datum schema walk of {@link GenericDatumReader} or
+ * the megamorphic calls through the {@link FieldReader}s of
+ * {@link FastReaderBuilder}. Record fields are sequenced as a balanced tree so
+ * wide records stay within the inlining depth.
+ * <p/>
+ * Readers follow the semantics of {@link FastReaderBuilder}, which also serves
+ * as the fallback for the rare nodes that are not compiled, such as field
+ * defaults and string classes. Writers follow
+ * {@link org.apache.avro.generic.GenericDatumWriter} and
+ * {@link org.apache.avro.specific.SpecificDatumWriter}.
+ * <p/>
+ * Compiled handles are cached per data model, weakly keyed by schema identity.
+ * They are held softly, so that they survive collections while memory allows.
+ *
+ * @see SpecializedDatumReader
+ * @see SpecializedDatumWriter
+ */
+final class DatumSpecializer {
+  /** (Object reuse, Decoder in) to Object */
+  static final MethodType READ = MethodType.methodType(Object.class, Object.class, Decoder.class);
+  /** (Object record, Decoder in) to void */
+  private static final MethodType STEP = MethodType.methodType(void.class, Object.class, Decoder.class);
+  /** (Object datum, Encoder out) to void */
+  static final MethodType WRITE = MethodType.methodType(void.class, Object.class, Encoder.class);
+
+  private static final Map<GenericData, SoftReference<DatumSpecializer>> SPECIALIZERS = Collections
+      .synchronizedMap(new WeakIdentityHashMap<>());
+
+  private static final MethodHandle READ_NULL;
+  private static final MethodHandle READ_BOOLEAN;
+  private static final MethodHandle READ_INT;
+  private static final MethodHandle READ_LONG;
+  private static final MethodHandle READ_FLOAT;
+  private static final MethodHandle READ_DOUBLE;
+  private static final MethodHandle READ_STRING;
+  private static final MethodHandle READ_UTF8;
+  private static final MethodHandle READ_BYTES;
+  private static final MethodHandle READ_FIXED;
+  private static final MethodHandle READ_ENUM;
+  private static final MethodHandle READ_INT_AS_LONG;
+  private static final MethodHandle READ_INT_AS_FLOAT;
+  private static final MethodHandle READ_INT_AS_DOUBLE;
+  private static final MethodHandle READ_LONG_AS_FLOAT;
+  private static final MethodHandle READ_LONG_AS_DOUBLE;
+  private static final MethodHandle READ_FLOAT_AS_DOUBLE;
+  private static final MethodHandle READ_ARRAY;
+  private static final MethodHandle READ_MAP;
+  private static final MethodHandle READ_RECORD;
+  private static final MethodHandle READ_INDEX;
+  private static final MethodHandle BAD_INDEX;
+  private static final MethodHandle READ_ERROR;
+  private static final MethodHandle TO_LOGICAL;
+  private static final MethodHandle SET_FIELD;
+  private static final MethodHandle SET_FIELD_REUSING;
+  private static final MethodHandle SKIP_FIELD;
+  private static final MethodHandle FIELD_READER;
+  private static final MethodHandle EXECUTION_STEP;
+
+  private static final MethodHandle WRITE_NULL;
+  private static final MethodHandle WRITE_BOOLEAN;
+  private static final MethodHandle WRITE_INT;
+  private static final MethodHandle WRITE_LONG;
+  private static final MethodHandle WRITE_FLOAT;
+  private static final MethodHandle WRITE_DOUBLE;
+  private static final MethodHandle WRITE_STRING;
+  private static final MethodHandle WRITE_SPECIFIC_STRING;
+  private static final MethodHandle WRITE_BYTES;
+  private static final MethodHandle WRITE_FIXED;
+  private static final MethodHandle WRITE_ENUM;
+  private static final MethodHandle WRITE_SPECIFIC_ENUM;
+  private static final MethodHandle WRITE_ARRAY;
+  private static final MethodHandle WRITE_MAP;
+  private static final MethodHandle WRITE_FIELD;
+  private static final MethodHandle WRITE_SPECIFIC_RECORD;
+  private static final MethodHandle WRITE_INDEX;
+  private static final MethodHandle WRITE_CONVERTED;
+  private static final MethodHandle TO_RAW;
+
+  private static final MethodHandle IS_INDEX;
+
+  static {
+    try {
+      MethodHandles.Lookup lookup = MethodHandles.lookup();
+      Class<?> c = DatumSpecializer.class;
+      READ_NULL = lookup.findStatic(c, "readNull", READ);
+      READ_BOOLEAN = lookup.findStatic(c, "readBoolean", READ);
+      READ_INT = lookup.findStatic(c, "readInt", READ);
+      READ_LONG = lookup.findStatic(c, "readLong", READ);
+      READ_FLOAT = lookup.findStatic(c, "readFloat", READ);
+      READ_DOUBLE = lookup.findStatic(c, "readDouble", READ);
+      READ_STRING = lookup.findStatic(c, "readString", READ);
+      READ_UTF8 = lookup.findStatic(c, "readUtf8", READ);
+      READ_BYTES = lookup.findStatic(c, "readBytes", READ);
+      READ_FIXED = lookup.findStatic(c, "readFixed",
+          READ.insertParameterTypes(0, GenericData.class, Schema.class));
+      READ_ENUM = lookup.findStatic(c, "readEnum", READ.insertParameterTypes(0, EnumAdjust.class));
+      READ_INT_AS_LONG = lookup.findStatic(c, "readIntAsLong", READ);
+      READ_INT_AS_FLOAT = lookup.findStatic(c, "readIntAsFloat", READ);
+      READ_INT_AS_DOUBLE = lookup.findStatic(c, "readIntAsDouble", READ);
+      READ_LONG_AS_FLOAT = lookup.findStatic(c, "readLongAsFloat", READ);
+      READ_LONG_AS_DOUBLE = lookup.findStatic(c, "readLongAsDouble", READ);
+      READ_FLOAT_AS_DOUBLE = lookup.findStatic(c, "readFloatAsDouble", READ);
+      READ_ARRAY = lookup.findStatic(c, "readArray", READ.insertParameterTypes(0, Schema.class, MethodHandle.class));
+      READ_MAP = lookup.findStatic(c, "readMap",
+          READ.insertParameterTypes(0, MethodHandle.class, MethodHandle.class));
+      READ_RECORD = lookup.findStatic(c, "readRecord",
+          READ.insertParameterTypes(0, InstanceSupplier.class, Schema.class, MethodHandle.class));
+      READ_INDEX = lookup.findStatic(c, "readIndex", MethodType.methodType(int.class, Object.class, Decoder.class));
+      BAD_INDEX = lookup.findStatic(c, "badIndex", READ.insertParameterTypes(0, int.class));
+      READ_ERROR = lookup.findStatic(c, "readError", READ.insertParameterTypes(0, String.class));
+      TO_LOGICAL = lookup.findStatic(c, "toLogical",
+          MethodType.methodType(Object.class, Object.class, Schema.class, LogicalType.class, Conversion.class));
+      SET_FIELD = lookup.findStatic(c, "setField", STEP.insertParameterTypes(0, MethodHandle.class, int.class));
+      SET_FIELD_REUSING = lookup.findStatic(c, "setFieldReusing",
+          STEP.insertParameterTypes(0, MethodHandle.class, int.class));
+      SKIP_FIELD = lookup.findStatic(c, "skipField", STEP.insertParameterTypes(0, SkipPlan.class));
+      FIELD_READER = lookup.findVirtual(FieldReader.class, "read", READ);
+      EXECUTION_STEP = lookup.findVirtual(ExecutionStep.class, "execute", STEP);
+
+      WRITE_NULL = lookup.findStatic(c, "writeNull", WRITE);
+      WRITE_BOOLEAN = lookup.findStatic(c, "writeBoolean", WRITE);
+      WRITE_INT = lookup.findStatic(c, "writeInt", WRITE);
+      WRITE_LONG = lookup.findStatic(c, "writeLong", WRITE);
+      WRITE_FLOAT = lookup.findStatic(c, "writeFloat", WRITE);
+      WRITE_DOUBLE = lookup.findStatic(c, "writeDouble", WRITE);
+      WRITE_STRING = lookup.findStatic(c, "writeString", WRITE);
+      WRITE_SPECIFIC_STRING = lookup.findStatic(c, "writeSpecificString",
+          WRITE.insertParameterTypes(0, DatumWriter.class));
+      WRITE_BYTES = lookup.findStatic(c, "writeBytes", WRITE);
+      WRITE_FIXED = lookup.findStatic(c, "writeFixed", WRITE.insertParameterTypes(0, int.class));
+      WRITE_ENUM = lookup.findStatic(c, "writeEnum", WRITE.insertParameterTypes(0, Schema.class));
+      WRITE_SPECIFIC_ENUM = lookup.findStatic(c, "writeSpecificEnum", WRITE.insertParameterTypes(0, Schema.class));
+      WRITE_ARRAY = lookup.findStatic(c, "writeArray", WRITE.insertParameterTypes(0, MethodHandle.class));
+      WRITE_MAP = lookup.findStatic(c, "writeMap", WRITE.insertParameterTypes(0, MethodHandle.class));
+      WRITE_FIELD = lookup.findStatic(c, "writeField", WRITE.insertParameterTypes(0, MethodHandle.class, Field.class));
+      WRITE_SPECIFIC_RECORD = lookup.findStatic(c, "writeSpecificRecord",
+          WRITE.insertParameterTypes(0, SpecificData.class, DatumWriter.class, MethodHandle.class));
+      WRITE_INDEX = lookup.findStatic(c, "writeIndex",
+          MethodType.methodType(int.class, GenericData.class, Schema.class, Object.class, Encoder.class));
+      WRITE_CONVERTED = lookup.findStatic(c, "writeConverted",
+          WRITE.insertParameterTypes(0, GenericData.class, Schema.class, LogicalType.class, MethodHandle.class));
+      TO_RAW = lookup.findStatic(c, "toRaw",
+          MethodType.methodType(Object.class, Object.class, Schema.class, LogicalType.class, Conversion.class));
+
+      IS_INDEX = lookup.findStatic(c, "isIndex", MethodType.methodType(boolean.class, int.class, int.class));
+    } catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  /** Returns the specializer for a data model. */
+  static DatumSpecializer get(GenericData data) {
+    synchronized (SPECIALIZERS) {
+      SoftReference<DatumSpecializer> ref = SPECIALIZERS.get(data);
+      DatumSpecializer specializer = ref == null ? null : ref.get();
+      if (specializer == null) {
+        specializer = new DatumSpecializer(data);
+        SPECIALIZERS.put(data, new SoftReference<>(specializer));
+      }
+      return specializer;
+    }
+  }
+
+  private final GenericData data;
+
+  /**
+   * first schema is reader schema, second is writer schema. Handles are bound to
+   * the schemas they were compiled for, so they are held softly: a strong value
+   * would keep its key, and so the entry, alive forever, while a weak one would
+   * be lost on the next collection.
+   */
+  private final Map<Schema, Map<Schema, SoftReference<MethodHandle>>> readers = Collections
+      .synchronizedMap(new WeakIdentityHashMap<>());
+  private final Map<Schema, SoftReference<MethodHandle>> writers = Collections
+      .synchronizedMap(new WeakIdentityHashMap<>());
+
+  private DatumSpecializer(GenericData data) {
+    this.data = data;
+  }
+
+  /**
+   * Returns a handle of type <tt>(Object reuse, Decoder in)Object</tt> that
+   * reads data written with <i>writer</i> as data of <i>reader</i>.
+   */
+  MethodHandle reader(Schema writer, Schema reader) {
+    Map<Schema, SoftReference<MethodHandle>> byWriter = readers.computeIfAbsent(reader,
+        k -> new WeakIdentityHashMap<>());
+    synchronized (byWriter) {
+      MethodHandle handle = get(byWriter, writer);
+      if (handle == null) {
+        Schema resolvedWriter = Schema.applyAliases(writer, reader);
+        handle = new ReaderCompiler().compile(Resolver.resolve(resolvedWriter, reader, data), null).handle;
+        byWriter.put(writer, new SoftReference<>(handle));
+      }
+      return handle;
+    }
+  }
+
+  /**
+   * Returns a handle of type <tt>(Object datum, Encoder out)void</tt> that writes
+   * data of <i>schema</i>.
+   */
+  MethodHandle writer(Schema schema) {
+    synchronized (writers) {
+      MethodHandle handle = get(writers, schema);
+      if (handle == null) {
+        handle = new WriterCompiler().compile(schema);
+        writers.put(schema, new SoftReference<>(handle));
+      }
+      return handle;
+    }
+  }
+
+  private static MethodHandle get(Map<Schema, SoftReference<MethodHandle>> handles, Schema schema) {
+    SoftReference<MethodHandle> ref = handles.get(schema);
+    return ref == null ? null : ref.get();
+  }
+
+  /** A compiled reader and whether it makes use of the datum to reuse. */
+  private static class Compiled {
+    final MethodHandle handle;
+    final boolean reuse;
+
+    Compiled(MethodHandle handle, boolean reuse) {
+      this.handle = handle;
+      this.reuse = reuse;
+    }
+  }
+
+  private class ReaderCompiler {
+    /** records compiled so far, or being compiled, in this pass */
+    private final Map<RecordAdjust, MethodHandle> records = new IdentityHashMap<>();
+
+    Compiled compile(Action action, Conversion<?> explicitConversion) {
+      Compiled compiled = compileWithoutConversion(action);
+      if (compiled == null) {
+        return fallback(action, explicitConversion);
+      }
+      Conversion<?> conversion = explicitConversion;
+      if (conversion == null && action.reader.getLogicalType() != null) {
+        conversion = data.getConversionFor(action.reader.getLogicalType());
+      }
+      if (conversion == null) {
+        return compiled;
+      }
+      MethodHandle toLogical = MethodHandles.insertArguments(TO_LOGICAL, 1, action.reader,
+          action.reader.getLogicalType(), conversion);
+      return new Compiled(MethodHandles.filterReturnValue(compiled.handle, toLogical), false);
+    }
+
+    /** Returns null for actions that are left to {@link FastReaderBuilder}. */
+    private Compiled compileWithoutConversion(Action action) {
+      switch (action.type) {
+      case CONTAINER:
+        if (action.reader.getType() == Schema.Type.ARRAY) {
+          MethodHandle element = compile(((Container) action).elementAction, null).handle;
+          return new Compiled(MethodHandles.insertArguments(READ_ARRAY, 0, action.reader, element), true);
+        }
+        if (action.reader.getProp(SpecificData.KEY_CLASS_PROP) != null) {
+          return null;
+        }
+        MethodHandle value = compile(((Container) action).elementAction, null).handle;
+        return new Compiled(MethodHandles.insertArguments(READ_MAP, 0, stringReader(action.reader), value), false);
+      case DO_NOTHING:
+        return compileBaseType(action.reader);
+      case RECORD:
+        return new Compiled(compileRecord((RecordAdjust) action), true);
+      case ENUM:
+        return new Compiled(MethodHandles.insertArguments(READ_ENUM, 0, action), true);
+      case PROMOTE:
+        return compilePromotion(action.writer.getType(), action.reader.getType());
+      case WRITER_UNION:
+        return compileUnion((WriterUnion) action);
+      case READER_UNION:
+        return compile(((ReaderUnion) action).actualAction, null);
+      case ERROR:
+        return new Compiled(MethodHandles.insertArguments(READ_ERROR, 0, action.toString()), false);
+      default:
+        return null;
+      }
+    }
+
+    private Compiled compileBaseType(Schema reader) {
+      switch (reader.getType()) {
+      case NULL:
+        return new Compiled(READ_NULL, false);
+      case BOOLEAN:
+        return new Compiled(READ_BOOLEAN, false);
+      case INT:
+        return new Compiled(READ_INT, false);
+      case LONG:
+        return new Compiled(READ_LONG, false);
+      case FLOAT:
+        return new Compiled(READ_FLOAT, false);
+      case DOUBLE:
+        return new Compiled(READ_DOUBLE, false);
+      case STRING:
+        if (reader.getProp(SpecificData.CLASS_PROP) != null) {
+          return null;
+        }
+        return new Compiled(stringReader(reader), false);
+      case BYTES:
+        return new Compiled(READ_BYTES, true);
+      case FIXED:
+        return new Compiled(MethodHandles.insertArguments(READ_FIXED, 0, data, reader), true);
+      default:
+        return null;
+      }
+    }
+
+    private MethodHandle stringReader(Schema reader) {
+      String stringProperty = reader.getProp(GenericData.STRING_PROP);
+      return GenericData.StringType.String.name().equals(stringProperty) ? READ_STRING : READ_UTF8;
+    }
+
+    private Compiled compilePromotion(Schema.Type writer, Schema.Type reader) {
+      switch (reader) {
+      case LONG:
+        return new Compiled(READ_INT_AS_LONG, false);
+      case FLOAT:
+        return new Compiled(writer == Schema.Type.INT ? READ_INT_AS_FLOAT : READ_LONG_AS_FLOAT, false);
+      case DOUBLE:
+        switch (writer) {
+        case INT:
+          return new Compiled(READ_INT_AS_DOUBLE, false);
+        case LONG:
+          return new Compiled(READ_LONG_AS_DOUBLE, false);
+        default:
+          return new Compiled(READ_FLOAT_AS_DOUBLE, false);
+        }
+      default:
+        // between strings and bytes
+        return null;
+      }
+    }
+
+    private Compiled compileUnion(WriterUnion action) {
+      MethodHandle[] branches = new MethodHandle[action.actions.length];
+      for (int i = 0; i < branches.length; i++) {
+        // as in FastReaderBuilder, branches do not reuse
+        MethodHandle branch = MethodHandles.insertArguments(compile(action.actions[i], null).handle, 0,
+            (Object) null);
+        branches[i] = MethodHandles.dropArguments(branch, 0, int.class, Object.class);
+      }
+      MethodHandle select = select(branches, BAD_INDEX);
+      return new Compiled(MethodHandles.foldArguments(select, READ_INDEX), true);
+    }
+
+    private MethodHandle compileRecord(RecordAdjust action) {
+      MethodHandle known = records.get(action);
+      if (known != null) {
+        return known;
+      }
+      // recursive references go through a call site set once compiled
+      MutableCallSite site = new MutableCallSite(READ);
+      records.put(action, site.dynamicInvoker());
+
+      Object testInstance = action.instanceSupplier.newInstance(null, action.reader);
+      List<MethodHandle> steps = new ArrayList<>();
+      List<Schema> skipped = new ArrayList<>();
+      int fieldCounter = 0;
+      for (Action fieldAction : action.fieldActions) {
+        if (fieldAction instanceof Skip) {
+          skipped.add(fieldAction.writer);
+        } else {
+          addSkipStep(steps, skipped);
+          Field readerField = action.readerOrder[fieldCounter++];
+          Conversion<?> conversion = testInstance instanceof SpecificRecordBase
+              ? ((SpecificRecordBase) testInstance).getConversion(readerField.pos())
+              : null;
+          Compiled field = compile(fieldAction, conversion);
+          steps.add(MethodHandles.insertArguments(field.reuse ? SET_FIELD_REUSING : SET_FIELD, 0, field.handle,
+              readerField.pos()));
+        }
+      }
+      addSkipStep(steps, skipped);
+      for (; fieldCounter < action.readerOrder.length; fieldCounter++) {
+        try {
+          ExecutionStep step = data.getFastReaderBuilder().getDefaultingStep(action.readerOrder[fieldCounter]);
+          steps.add(EXECUTION_STEP.bindTo(step));
+        } catch (IOException e) {
+          throw new AvroRuntimeException(e);
+        }
+      }
+
+      MethodHandle record = MethodHandles.insertArguments(READ_RECORD, 0, action.instanceSupplier, action.reader,
+          sequence(steps, 0, steps.size(), STEP));
+      site.setTarget(record);
+      records.put(action, record);
+      return record;
+    }
+
+    private Compiled fallback(Action action, Conversion<?> conversion) {
+      FieldReader reader;
+      try {
+        reader = data.getFastReaderBuilder().getReaderFor(action, conversion);
+      } catch (IOException e) {
+        throw new AvroRuntimeException(e);
+      }
+      return new Compiled(FIELD_READER.bindTo(reader), reader.canReuse());
+    }
+  }
+
+  private class WriterCompiler {
+    /** records compiled so far, or being compiled, in this pass */
+    private final Map<Schema, MethodHandle> records = new IdentityHashMap<>();
+
+    MethodHandle compile(Schema schema) {
+      MethodHandle raw = compileWithoutConversion(schema);
+      LogicalType logicalType = schema.getLogicalType();
+      if (logicalType == null) {
+        return raw;
+      }
+      return MethodHandles.insertArguments(WRITE_CONVERTED, 0, data, schema, logicalType, raw);
+    }
+
+    private MethodHandle compileWithoutConversion(Schema schema) {
+      switch (schema.getType()) {
+      case RECORD:
+        return compileRecord(schema);
+      case ENUM:
+        return MethodHandles.insertArguments(data instanceof SpecificData ? WRITE_SPECIFIC_ENUM : WRITE_ENUM, 0,
+            schema);
+      case ARRAY:
+        return MethodHandles.insertArguments(WRITE_ARRAY, 0, compile(schema.getElementType()));
+      case MAP:
+        return MethodHandles.insertArguments(WRITE_MAP, 0, compile(schema.getValueType()));
+      case UNION:
+        List<Schema> types = schema.getTypes();
+        MethodHandle[] branches = new MethodHandle[types.size()];
+        for (int i = 0; i < branches.length; i++) {
+          branches[i] = MethodHandles.dropArguments(compile(types.get(i)), 0, int.class);
+        }
+        // the index was resolved from the union, so the last branch needs no test
+        MethodHandle select = select(branches, branches[branches.length - 1]);
+        return MethodHandles.foldArguments(select, MethodHandles.insertArguments(WRITE_INDEX, 0, data, schema));
+      case FIXED:
+        return MethodHandles.insertArguments(WRITE_FIXED, 0, schema.getFixedSize());
+      case STRING:
+        if (data instanceof SpecificData) {
+          return WRITE_SPECIFIC_STRING.bindTo(data.createDatumWriter(schema));
+        }
+        return WRITE_STRING;
+      case BYTES:
+        return WRITE_BYTES;
+      case INT:
+        return WRITE_INT;
+      case LONG:
+        return WRITE_LONG;
+      case FLOAT:
+        return WRITE_FLOAT;
+      case DOUBLE:
+        return WRITE_DOUBLE;
+      case BOOLEAN:
+        return WRITE_BOOLEAN;
+      case NULL:
+        return WRITE_NULL;
+      default:
+        throw new AvroRuntimeException("Unexpected schema type " + schema.getType());
+      }
+    }
+
+    private MethodHandle compileRecord(Schema schema) {
+      MethodHandle known = records.get(schema);
+      if (known != null) {
+        return known;
+      }
+      MutableCallSite site = new MutableCallSite(WRITE);
+      records.put(schema, site.dynamicInvoker());
+
+      Object testInstance = data instanceof SpecificData ? data.newRecord(null, schema) : null;
+      List<MethodHandle> steps = new ArrayList<>();
+      for (Field field : schema.getFields()) {
+        MethodHandle value;
+        if (testInstance instanceof SpecificRecordBase) {
+          // as in SpecificDatumWriter, only the conversions of the record apply
+          value = compileWithoutConversion(field.schema());
+          Conversion<?> conversion = ((SpecificRecordBase) testInstance).getConversion(field.pos());
+          LogicalType logicalType = field.schema().getLogicalType();
+          if (conversion != null && logicalType != null) {
+            value = MethodHandles.filterArguments(value, 0,
+                MethodHandles.insertArguments(TO_RAW, 1, field.schema(), logicalType, conversion));
+          }
+        } else {
+          value = compile(field.schema());
+        }
+        steps.add(MethodHandles.insertArguments(WRITE_FIELD, 0, value, field));
+      }
+      MethodHandle record = sequence(steps, 0, steps.size(), WRITE);
+      if (data instanceof SpecificData) {
+        record = MethodHandles.insertArguments(WRITE_SPECIFIC_RECORD, 0, data, data.createDatumWriter(schema), record);
+      }
+      site.setTarget(record);
+      records.put(schema, record);
+      return record;
+    }
+  }
+
+  /**
+   * Combines handles that return void into one that calls them in order, as a
+   * balanced tree so that the depth of inlining grows with the logarithm of
+   * their number.
+   */
+  private static MethodHandle sequence(List<MethodHandle> steps, int from, int to, MethodType type) {
+    if (from == to) {
+      return MethodHandles.empty(type);
+    }
+    if (to - from == 1) {
+      return steps.get(from);
+    }
+    int middle = (from + to) >>> 1;
+    return MethodHandles.foldArguments(sequence(steps, middle, to, type), sequence(steps, from, middle, type));
+  }
+
+  /**
+   * Combines branches, each taking a leading int index, into one handle that
+   * calls the branch of the index, or <i>otherwise</i> if there is none.
+   */
+  private static MethodHandle select(MethodHandle[] branches, MethodHandle otherwise) {
+    MethodHandle result = otherwise.asType(branches[0].type());
+    for (int i = branches.length - 1; i >= 0; i--) {
+      if (branches[i] != otherwise) {
+        result = MethodHandles.guardWithTest(MethodHandles.insertArguments(IS_INDEX, 1, i), branches[i], result);
+      }
+    }
+    return result;
+  }
+
+  private static boolean isIndex(int index, int expected) {
+    return index == expected;
+  }
+
+  private static Object readNull(Object reuse, Decoder in) throws IOException {
+    in.readNull();
+    return null;
+  }
+
+  private static Object readBoolean(Object reuse, Decoder in) throws IOException {
+    return in.readBoolean();
+  }
+
+  private static Object readInt(Object reuse, Decoder in) throws IOException {
+    return in.readInt();
+  }
+
+  private static Object readLong(Object reuse, Decoder in) throws IOException {
+    return in.readLong();
+  }
+
+  private static Object readFloat(Object reuse, Decoder in) throws IOException {
+    return in.readFloat();
+  }
+
+  private static Object readDouble(Object reuse, Decoder in) throws IOException {
+    return in.readDouble();
+  }
+
+  private static Object readString(Object reuse, Decoder in) throws IOException {
+    return in.readString();
+  }
+
+  private static Object readUtf8(Object reuse, Decoder in) throws IOException {
+    return in.readString(reuse instanceof Utf8 ? (Utf8) reuse : null);
+  }
+
+  private static Object readBytes(Object reuse, Decoder in) throws IOException {
+    return in.readBytes(reuse instanceof ByteBuffer ? (ByteBuffer) reuse : null);
+  }
+
+  private static Object readFixed(GenericData data, Schema schema, Object reuse, Decoder in) throws IOException {
+    GenericFixed fixed = (GenericFixed) data.createFixed(reuse, schema);
+    in.readFixed(fixed.bytes(), 0, schema.getFixedSize());
+    return fixed;
+  }
+
+  private static Object readEnum(EnumAdjust action, Object reuse, Decoder in) throws IOException {
+    int index = in.readEnum();
+    Object result = action.values[index];
+    if (result == null) {
+      throw new AvroTypeException("No match for " + action.writer.getEnumSymbols().get(index));
+    }
+    return result;
+  }
+
+  private static Object readIntAsLong(Object reuse, Decoder in) throws IOException {
+    return (long) in.readInt();
+  }
+
+  private static Object readIntAsFloat(Object reuse, Decoder in) throws IOException {
+    return (float) in.readInt();
+  }
+
+  private static Object readIntAsDouble(Object reuse, Decoder in) throws IOException {
+    return (double) in.readInt();
+  }
+
+  private static Object readLongAsFloat(Object reuse, Decoder in) throws IOException {
+    return (float) in.readLong();
+  }
+
+  private static Object readLongAsDouble(Object reuse, Decoder in) throws IOException {
+    return (double) in.readLong();
+  }
+
+  private static Object readFloatAsDouble(Object reuse, Decoder in) throws IOException {
+    return (double) in.readFloat();
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Object readArray(Schema schema, MethodHandle element, Object reuse, Decoder in) throws Throwable {
+    long l = in.readArrayStart();
+    if (reuse instanceof GenericArray) {
+      GenericArray<Object> array = (GenericArray<Object>) reuse;
+      array.clear();
+      for (; l > 0; l = in.arrayNext()) {
+        for (long i = 0; i < l; i++) {
+          array.add((Object) element.invokeExact(array.peek(), in));
+        }
+      }
+      return array;
+    }
+    List<Object> array = reuse instanceof List ? (List<Object>) reuse : new GenericData.Array<>((int) l, schema);
+    array.clear();
+    for (; l > 0; l = in.arrayNext()) {
+      for (long i = 0; i < l; i++) {
+        array.add((Object) element.invokeExact((Object) null, in));
+      }
+    }
+    return array;
+  }
+
+  private static Object readMap(MethodHandle key, MethodHandle value, Object reuse, Decoder in) throws Throwable {
+    Map<Object, Object> map = new HashMap<>();
+    for (long l = in.readMapStart(); l > 0; l = in.mapNext()) {
+      for (long i = 0; i < l; i++) {
+        Object k = (Object) key.invokeExact((Object) null, in);
+        map.put(k, (Object) value.invokeExact((Object) null, in));
+      }
+    }
+    return map;
+  }
+
+  private static Object readRecord(InstanceSupplier supplier, Schema schema, MethodHandle steps, Object reuse,
+      Decoder in) throws Throwable {
+    Object record = supplier.newInstance(reuse, schema);
+    steps.invokeExact(record, in);
+    return record;
+  }
+
+  private static int readIndex(Object reuse, Decoder in) throws IOException {
+    return in.readIndex();
+  }
+
+  private static Object badIndex(int index, Object reuse, Decoder in) {
+    throw new AvroTypeException("Unknown union branch " + index);
+  }
+
+  private static Object readError(String message, Object reuse, Decoder in) {
+    throw new AvroTypeException(message);
+  }
+
+  private static Object toLogical(Object value, Schema schema, LogicalType type, Conversion<?> conversion) {
+    return Conversions.convertToLogicalType(value, schema, type, conversion);
+  }
+
+  private static void setField(MethodHandle reader, int pos, Object record, Decoder in) throws Throwable {
+    ((IndexedRecord) record).put(pos, (Object) reader.invokeExact((Object) null, in));
+  }
+
+  private static void setFieldReusing(MethodHandle reader, int pos, Object record, Decoder in) throws Throwable {
+    IndexedRecord indexed = (IndexedRecord) record;
+    indexed.put(pos, (Object) reader.invokeExact(indexed.get(pos), in));
+  }
+
+  // skip adjacent fields the reader ignores with a single plan
+  private static void addSkipStep(List<MethodHandle> steps, List<Schema> skipped) {
+    if (!skipped.isEmpty()) {
+      steps.add(MethodHandles.insertArguments(SKIP_FIELD, 0, SkipPlan.of(skipped)));
+      skipped.clear();
+    }
+  }
+
+  private static void skipField(SkipPlan plan, Object record, Decoder in) throws IOException {
+    plan.skip(in);
+  }
+
+  private static void writeNull(Object datum, Encoder out) throws IOException {
+    out.writeNull();
+  }
+
+  private static void writeBoolean(Object datum, Encoder out) throws IOException {
+    out.writeBoolean((Boolean) datum);
+  }
+
+  private static void writeInt(Object datum, Encoder out) throws IOException {
+    out.writeInt(((Number) datum).intValue());
+  }
+
+  private static void writeLong(Object datum, Encoder out) throws IOException {
+    out.writeLong(((Number) datum).longValue());
+  }
+
+  private static void writeFloat(Object datum, Encoder out) throws IOException {
+    out.writeFloat(((Number) datum).floatValue());
+  }
+
+  private static void writeDouble(Object datum, Encoder out) throws IOException {
+    out.writeDouble(((Number) datum).doubleValue());
+  }
+
+  private static void writeString(Object datum, Encoder out) throws IOException {
+    out.writeString((CharSequence) datum);
+  }
+
+  private static void writeSpecificString(DatumWriter<Object> stringable, Object datum, Encoder out)
+      throws IOException {
+    if (datum instanceof CharSequence) {
+      out.writeString((CharSequence) datum);
+    } else {
+      stringable.write(datum, out);
+    }
+  }
+
+  private static void writeBytes(Object datum, Encoder out) throws IOException {
+    out.writeBytes((ByteBuffer) datum);
+  }
+
+  private static void writeFixed(int size, Object datum, Encoder out) throws IOException {
+    out.writeFixed(((GenericFixed) datum).bytes(), 0, size);
+  }
+
+  private static void writeEnum(Schema schema, Object datum, Encoder out) throws IOException {
+    if (!(datum instanceof GenericEnumSymbol)) {
+      throw new AvroTypeException("value " + SchemaUtil.describe(datum) + " is not a " + SchemaUtil.describe(schema));
+    }
+    out.writeEnum(schema.getEnumOrdinal(datum.toString()));
+  }
+
+  private static void writeSpecificEnum(Schema schema, Object datum, Encoder out) throws IOException {
+    if (datum instanceof Enum) {
+      out.writeEnum(((Enum<?>) datum).ordinal());
+    } else {
+      writeEnum(schema, datum, out);
+    }
+  }
+
+  private static void writeArray(MethodHandle element, Object datum, Encoder out) throws Throwable {
+    Collection<?> array = (Collection<?>) datum;
+    long size = array.size();
+    long actualSize = 0;
+    out.writeArrayStart();
+    out.setItemCount(size);
+    for (Iterator<?> it = array.iterator(); it.hasNext();) {
+      out.startItem();
+      element.invokeExact(it.next(), out);
+      actualSize++;
+    }
+    out.writeArrayEnd();
+    if (actualSize != size) {
+      throw new ConcurrentModificationException(
+          "Size of array written was " + size + ", but number of elements written was " + actualSize + ". ");
+    }
+  }
+
+  private static void writeMap(MethodHandle value, Object datum, Encoder out) throws Throwable {
+    Map<?, ?> map = (Map<?, ?>) datum;
+    int size = map.size();
+    int actualSize = 0;
+    out.writeMapStart();
+    out.setItemCount(size);
+    for (Map.Entry<?, ?> entry : map.entrySet()) {
+      out.startItem();
+      out.writeString(entry.getKey().toString());
+      value.invokeExact(entry.getValue(), out);
+      actualSize++;
+    }
+    out.writeMapEnd();
+    if (actualSize != size) {
+      throw new ConcurrentModificationException(
+          "Size of map written was " + size + ", but number of entries written was " + actualSize + ". ");
+    }
+  }
+
+  private static void writeField(MethodHandle writer, Field field, Object datum, Encoder out) throws Throwable {
+    Object value = ((IndexedRecord) datum).get(field.pos());
+    try {
+      writer.invokeExact(value, out);
+    } catch (UnresolvedUnionException e) { // recreate it with the right field info
+      UnresolvedUnionException unresolved = new UnresolvedUnionException(field.schema(), field, value);
+      unresolved.addSuppressed(e);
+      throw unresolved;
+    } catch (NullPointerException e) {
+      NullPointerException result = new NullPointerException(e.getMessage() + " in field " + field.name());
+      result.initCause(e.getCause() == null ? e : e.getCause());
+      throw result;
+    } catch (ClassCastException e) {
+      ClassCastException result = new ClassCastException(e.getMessage() + " in field " + field.name());
+      result.initCause(e.getCause() == null ? e : e.getCause());
+      throw result;
+    } catch (AvroTypeException e) {
+      AvroTypeException result = new AvroTypeException(e.getMessage() + " in field " + field.name());
+      result.initCause(e.getCause() == null ? e : e.getCause());
+      throw result;
+    }
+  }
+
+  private static void writeSpecificRecord(SpecificData data, DatumWriter<Object> custom, MethodHandle fields,
+      Object datum, Encoder out) throws Throwable {
+    if (datum instanceof SpecificRecordBase && data.useCustomCoders()) {
+      // the flag can change at any time, so leave records to SpecificDatumWriter
+      custom.write(datum, out);
+    } else {
+      fields.invokeExact(datum, out);
+    }
+  }
+
+  private static int writeIndex(GenericData data, Schema union, Object datum, Encoder out) throws IOException {
+    int index = data.resolveUnion(union, datum);
+    out.writeIndex(index);
+    return index;
+  }
+
+  private static void writeConverted(GenericData data, Schema schema, LogicalType logicalType, MethodHandle raw,
+      Object datum, Encoder out) throws Throwable {
+    if (datum != null) {
+      Conversion<?> conversion = data.getConversionByClass(datum.getClass(), logicalType);
+      if (conversion != null) {
+        datum = toRaw(datum, schema, logicalType, conversion);
+      }
+    }
+    raw.invokeExact(datum, out);
+  }
+
+  private static Object toRaw(Object datum, Schema schema, LogicalType logicalType, Conversion<?> conversion) {
+    return datum == null ? null : Conversions.convertToRawType(datum, schema, logicalType, conversion);
+  }
+}
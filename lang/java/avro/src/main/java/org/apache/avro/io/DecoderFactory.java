@@ -19,6 +19,9 @@ package org.apache.avro.io;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
 
 import org.apache.avro.Schema;
 
@@ -219,6 +222,46 @@ public class DecoderFactory {
     }
   }
 
+  /**
+   * Creates or reinitializes a {@link BinaryDecoder} that reads from the
+   * remaining bytes of a {@link ByteBuffer}, which may be a direct buffer. The
+   * buffer is read in place: its content is not copied and its position is not
+   * changed. Calling {@link BinaryDecoder#readBytes(ByteBuffer)} with a null
+   * argument returns a slice of <i>buffer</i>.
+   *
+   * @param buffer The buffer to read from
+   * @param reuse  The BinaryDecoder to attempt to reinitialize. if null a new
+   *               BinaryDecoder is created.
+   * @return A BinaryDecoder that uses <i>buffer</i> as its source of data.
+   *         <i>reuse</i> may be reinitialized if appropriate, otherwise a new
+   *         instance is returned.
+   */
+  public BinaryDecoder binaryDecoder(ByteBuffer buffer, BinaryDecoder reuse) {
+    return binaryDecoder(Collections.singletonList(buffer), reuse);
+  }
+
+  /**
+   * Creates or reinitializes a {@link BinaryDecoder} that reads from the
+   * remaining bytes of a list of {@link ByteBuffer}s in turn, as produced for
+   * example by {@link org.apache.avro.util.ByteBufferOutputStream}. Values may
+   * span buffers.
+   *
+   * @param buffers The buffers to read from
+   * @param reuse   The BinaryDecoder to attempt to reinitialize. if null a new
+   *                BinaryDecoder is created.
+   * @return A BinaryDecoder that uses <i>buffers</i> as its source of data.
+   *         <i>reuse</i> may be reinitialized if appropriate, otherwise a new
+   *         instance is returned.
+   * @see #binaryDecoder(ByteBuffer, BinaryDecoder)
+   */
+  public BinaryDecoder binaryDecoder(List<ByteBuffer> buffers, BinaryDecoder reuse) {
+    if (null == reuse || !reuse.getClass().equals(ByteBufferBinaryDecoder.class)) {
+      return new ByteBufferBinaryDecoder(buffers);
+    } else {
+      return ((ByteBufferBinaryDecoder) reuse).configure(buffers);
+    }
+  }
+
   /** @deprecated use {@link #binaryDecoder(byte[], BinaryDecoder)} instead */
   @Deprecated
   public BinaryDecoder createBinaryDecoder(byte[] bytes, BinaryDecoder reuse) {
@@ -297,6 +340,21 @@ public class DecoderFactory {
     return new ResolvingDecoder(writer, reader, wrapped);
   }
 
+  /**
+   * Creates a {@link ResolvingDecoder} from a resolver returned by
+   * {@link ResolvingDecoder#resolve(Schema, Schema)}. Resolvers are immutable, so
+   * one may be shared by the decoders of many threads, which saves resolving
+   * the same schemas again for each.
+   *
+   * @param resolver The resolver to use.
+   * @param wrapped  The decoder to wrap.
+   * @return A resolving decoder
+   * @throws IOException
+   */
+  public ResolvingDecoder resolvingDecoder(Object resolver, Decoder wrapped) throws IOException {
+    return new ResolvingDecoder(resolver, wrapped);
+  }
+
   private static class DefaultDecoderFactory extends DecoderFactory {
     @Override
     public DecoderFactory configureDecoderBufferSize(int bufferSize) {
@@ -16,8 +16,10 @@ package org.apache.avro.io;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.lang.ref.SoftReference;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -43,7 +45,6 @@ import org.apache.avro.Schema.Field;
 import org.apache.avro.generic.GenericArray;
 import org.apache.avro.generic.GenericData;
 import org.apache.avro.generic.GenericData.InstanceSupplier;
-import org.apache.avro.generic.GenericDatumReader;
 import org.apache.avro.generic.GenericEnumSymbol;
 import org.apache.avro.generic.GenericFixed;
 import org.apache.avro.generic.IndexedRecord;
@@ -64,8 +65,21 @@ public class FastReaderBuilder {
    */
   private final GenericData data;
 
-  /** first schema is reader schema, second is writer schema */
-  private final Map<Schema, Map<Schema, RecordReader>> readerCache = Collections
+  /**
+   * first schema is reader schema, second is writer schema. Readers reference
+   * the schemas they resolve, so they are held softly: a strong value would keep
+   * its key, and so the entry, alive forever, while a weak one would be lost on
+   * the next collection.
+   */
+  private final Map<Schema, Map<Schema, SoftReference<RecordReader>>> readerCache = Collections
+      .synchronizedMap(new WeakIdentityHashMap<>());
+
+  /**
+   * first schema is reader schema, second is writer schema. Readers are
+   * immutable, so one is shared by all the threads and datum readers that
+   * resolve the same schemas, for as long as any of them uses it.
+   */
+  private final Map<Schema, Map<Schema, SoftReference<DatumReader<?>>>> datumReaderCache = Collections
       .synchronizedMap(new WeakIdentityHashMap<>());
 
   private boolean keyClassEnabled = true;
@@ -90,6 +104,7 @@ public class FastReaderBuilder {
 
   public FastReaderBuilder withKeyClassEnabled(boolean enabled) {
     this.keyClassEnabled = enabled;
+    datumReaderCache.clear();
     return this;
   }
 
@@ -99,6 +114,7 @@ public class FastReaderBuilder {
 
   public FastReaderBuilder withClassPropEnabled(boolean enabled) {
     this.classPropEnabled = enabled;
+    datumReaderCache.clear();
     return this;
   }
 
@@ -112,8 +128,22 @@ public class FastReaderBuilder {
 
   @SuppressWarnings("unchecked")
   public <D> DatumReader<D> createDatumReader(Schema writerSchema, Schema readerSchema) throws IOException {
-    Schema resolvedWriterSchema = Schema.applyAliases(writerSchema, readerSchema);
-    return (DatumReader<D>) getReaderFor(readerSchema, resolvedWriterSchema);
+    Map<Schema, SoftReference<DatumReader<?>>> readers = datumReaderCache.computeIfAbsent(readerSchema,
+        k -> Collections.synchronizedMap(new WeakIdentityHashMap<>()));
+    DatumReader<?> reader = get(readers, writerSchema);
+    if (reader == null) {
+      Schema resolvedWriterSchema = Schema.applyAliases(writerSchema, readerSchema);
+      reader = getReaderFor(readerSchema, resolvedWriterSchema);
+      synchronized (readers) {
+        DatumReader<?> known = get(readers, writerSchema);
+        if (known != null) {
+          reader = known;
+        } else {
+          readers.put(writerSchema, new SoftReference<>(reader));
+        }
+      }
+    }
+    return (DatumReader<D>) reader;
   }
 
   private FieldReader getReaderFor(Schema readerSchema, Schema writerSchema) throws IOException {
@@ -121,7 +151,7 @@ public class FastReaderBuilder {
     return getReaderFor(resolvedAction, null);
   }
 
-  private FieldReader getReaderFor(Action action, Conversion<?> explicitConversion) throws IOException {
+  FieldReader getReaderFor(Action action, Conversion<?> explicitConversion) throws IOException {
     final FieldReader baseReader = getNonConvertedReader(action);
     return applyConversions(action.reader, baseReader, explicitConversion);
   }
@@ -147,33 +177,43 @@ public class FastReaderBuilder {
     Object testInstance = action.instanceSupplier.newInstance(null, action.reader);
     IntFunction<Conversion<?>> conversionSupplier = getConversionSupplier(testInstance);
 
-    ExecutionStep[] readSteps = new ExecutionStep[action.fieldActions.length + action.readerOrder.length
-        - action.firstDefault];
+    List<ExecutionStep> readSteps = new ArrayList<>(action.fieldActions.length + action.readerOrder.length
+        - action.firstDefault);
+    List<Schema> skipped = new ArrayList<>();
 
-    int i = 0;
     int fieldCounter = 0;
     // compute what to do with writer's fields
-    for (; i < action.fieldActions.length; i++) {
-      Action fieldAction = action.fieldActions[i];
+    for (Action fieldAction : action.fieldActions) {
       if (fieldAction instanceof Skip) {
-        readSteps[i] = (r, decoder) -> GenericDatumReader.skip(fieldAction.writer, decoder);
-      } else {
-        Field readerField = action.readerOrder[fieldCounter++];
-        Conversion<?> conversion = conversionSupplier.apply(readerField.pos());
-        FieldReader reader = getReaderFor(fieldAction, conversion);
-        readSteps[i] = createFieldSetter(readerField, reader);
+        // adjacent skipped fields are skipped by a single plan
+        skipped.add(fieldAction.writer);
+        continue;
       }
+      addSkipStep(readSteps, skipped);
+      Field readerField = action.readerOrder[fieldCounter++];
+      Conversion<?> conversion = conversionSupplier.apply(readerField.pos());
+      FieldReader reader = getReaderFor(fieldAction, conversion);
+      readSteps.add(createFieldSetter(readerField, reader));
     }
+    addSkipStep(readSteps, skipped);
 
     // add defaulting if required
-    for (; i < readSteps.length; i++) {
-      readSteps[i] = getDefaultingStep(action.readerOrder[fieldCounter++]);
+    while (fieldCounter < action.readerOrder.length) {
+      readSteps.add(getDefaultingStep(action.readerOrder[fieldCounter++]));
     }
 
-    recordReader.finishInitialization(readSteps, action.reader, action.instanceSupplier);
+    recordReader.finishInitialization(readSteps.toArray(new ExecutionStep[0]), action.reader, action.instanceSupplier);
     return recordReader;
   }
 
+  private static void addSkipStep(List<ExecutionStep> readSteps, List<Schema> skipped) {
+    if (!skipped.isEmpty()) {
+      SkipPlan plan = SkipPlan.of(skipped);
+      readSteps.add((r, decoder) -> plan.skip(decoder));
+      skipped.clear();
+    }
+  }
+
   private ExecutionStep createFieldSetter(Field field, FieldReader reader) {
     int pos = field.pos();
     if (reader.canReuse()) {
@@ -189,7 +229,7 @@ public class FastReaderBuilder {
     }
   }
 
-  private ExecutionStep getDefaultingStep(Schema.Field field) throws IOException {
+  ExecutionStep getDefaultingStep(Schema.Field field) throws IOException {
     Object defaultValue = data.getDefaultValue(field);
 
     if (isObjectImmutable(defaultValue)) {
@@ -243,8 +283,21 @@ public class FastReaderBuilder {
   }
 
   private RecordReader getRecordReaderFromCache(Schema readerSchema, Schema writerSchema) {
-    return readerCache.computeIfAbsent(readerSchema, k -> new WeakIdentityHashMap<>()).computeIfAbsent(writerSchema,
-        k -> new RecordReader());
+    Map<Schema, SoftReference<RecordReader>> readers = readerCache.computeIfAbsent(readerSchema,
+        k -> Collections.synchronizedMap(new WeakIdentityHashMap<>()));
+    synchronized (readers) {
+      RecordReader reader = get(readers, writerSchema);
+      if (reader == null) {
+        reader = new RecordReader();
+        readers.put(writerSchema, new SoftReference<>(reader));
+      }
+      return reader;
+    }
+  }
+
+  private static <T> T get(Map<Schema, SoftReference<T>> cache, Schema schema) {
+    SoftReference<T> ref = cache.get(schema);
+    return ref == null ? null : ref.get();
   }
 
   private FieldReader applyConversions(Schema readerSchema, FieldReader reader, Conversion<?> explicitConversion) {
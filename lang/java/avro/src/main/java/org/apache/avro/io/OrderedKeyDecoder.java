@@ -0,0 +1,220 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Conversion;
+import org.apache.avro.Conversions;
+import org.apache.avro.LogicalType;
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.util.Utf8;
+
+/**
+ * Decodes keys written by {@link OrderedKeyEncoder}.
+ * <p/>
+ * Fields ordered {@link Field.Order#IGNORE} are not part of keys, so are set to
+ * their default value, or null if they have none. Strings are decoded as
+ * {@link Utf8}, unless their schema has the property
+ * {@value GenericData#STRING_PROP} set to <tt>String</tt>.
+ * <p/>
+ * Decoders are thread-safe.
+ *
+ * @param <D> a datum class
+ */
+public class OrderedKeyDecoder<D> {
+  private final GenericData model;
+  private final Schema schema;
+
+  /** Creates a decoder of generic data of a schema. */
+  public OrderedKeyDecoder(Schema schema) {
+    this(GenericData.get(), schema);
+  }
+
+  /** Creates a decoder of data of a schema in a data model. */
+  public OrderedKeyDecoder(GenericData model, Schema schema) {
+    this.model = model;
+    this.schema = schema;
+  }
+
+  /** Returns the schema of the data this decodes. */
+  public Schema getSchema() {
+    return schema;
+  }
+
+  /** Returns the datum of a key. */
+  public D decode(byte[] key) {
+    return decode(key, 0, key.length);
+  }
+
+  /** Returns the datum of a key in part of an array. */
+  @SuppressWarnings("unchecked")
+  public D decode(byte[] key, int offset, int length) {
+    KeyInput in = new KeyInput(key, offset, offset + length);
+    D datum = (D) read(schema, in);
+    if (in.pos != in.limit) {
+      throw new AvroRuntimeException("Trailing bytes after key: " + (in.limit - in.pos));
+    }
+    return datum;
+  }
+
+  private Object read(Schema schema, KeyInput in) {
+    Object datum = readRaw(schema, in);
+    LogicalType logicalType = schema.getLogicalType();
+    if (logicalType != null) {
+      Conversion<?> conversion = model.getConversionFor(logicalType);
+      if (conversion != null) {
+        return Conversions.convertToLogicalType(datum, schema, logicalType, conversion);
+      }
+    }
+    return datum;
+  }
+
+  private Object readRaw(Schema schema, KeyInput in) {
+    switch (schema.getType()) {
+    case RECORD:
+      Object record = model.newRecord(null, schema);
+      for (Field field : schema.getFields()) {
+        Object value;
+        if (field.order() == Field.Order.IGNORE) {
+          value = field.hasDefaultValue() ? model.deepCopy(field.schema(), model.getDefaultValue(field)) : null;
+        } else if (field.order() == Field.Order.DESCENDING) {
+          in.mask ^= 0xff;
+          value = read(field.schema(), in);
+          in.mask ^= 0xff;
+        } else {
+          value = read(field.schema(), in);
+        }
+        model.setField(record, field.name(), field.pos(), value);
+      }
+      return record;
+    case ENUM:
+      return model.createEnum(schema.getEnumSymbols().get(in.readInt()), schema);
+    case ARRAY:
+      List<Object> elements = new ArrayList<>();
+      while (in.read() != 0) {
+        elements.add(read(schema.getElementType(), in));
+      }
+      Object array = model.newArray(null, elements.size(), schema);
+      if (array instanceof Collection) {
+        @SuppressWarnings("unchecked")
+        Collection<Object> collection = (Collection<Object>) array;
+        collection.addAll(elements);
+        return collection;
+      }
+      return new GenericData.Array<>(schema, elements);
+    case MAP:
+      throw new AvroRuntimeException("Can't decode maps from ordered keys: " + schema);
+    case UNION:
+      int index = OrderedKeyEncoder.unionIndexSize(schema) == 1 ? in.read() : in.readInt();
+      return read(schema.getTypes().get(index), in);
+    case FIXED:
+      return model.createFixed(null, in.readFixed(schema.getFixedSize()), schema);
+    case STRING:
+      byte[] utf8 = in.readEscaped(0);
+      return "String".equals(schema.getProp(GenericData.STRING_PROP)) ? new String(utf8, StandardCharsets.UTF_8)
+          : new Utf8(utf8);
+    case BYTES:
+      return ByteBuffer.wrap(in.readEscaped(0x80));
+    case INT:
+      return in.readInt();
+    case LONG:
+      return in.readLong();
+    case FLOAT:
+      int intBits = in.readInt();
+      return Float.intBitsToFloat(intBits ^ ((intBits >> 31) & Integer.MAX_VALUE));
+    case DOUBLE:
+      long longBits = in.readLong();
+      return Double.longBitsToDouble(longBits ^ ((longBits >> 63) & Long.MAX_VALUE));
+    case BOOLEAN:
+      return in.read() != 0;
+    case NULL:
+      return null;
+    default:
+      throw new AvroRuntimeException("Unknown type: " + schema);
+    }
+  }
+
+  /** Reads bytes, inverting each while reading descending fields. */
+  private static final class KeyInput {
+    private final byte[] buf;
+    private final int limit;
+    private int pos;
+    private int mask;
+
+    KeyInput(byte[] buf, int pos, int limit) {
+      this.buf = buf;
+      this.pos = pos;
+      this.limit = limit;
+    }
+
+    int read() {
+      if (pos >= limit) {
+        throw new AvroRuntimeException("Truncated key");
+      }
+      return (buf[pos++] ^ mask) & 0xff;
+    }
+
+    byte[] readFixed(int length) {
+      byte[] bytes = new byte[length];
+      for (int i = 0; i < length; i++) {
+        bytes[i] = (byte) read();
+      }
+      return bytes;
+    }
+
+    byte[] readEscaped(int flip) {
+      byte[] bytes = new byte[16];
+      int count = 0;
+      for (;;) {
+        int b = read();
+        if (b == 0) {
+          int escape = read();
+          if (escape == 0) {
+            return Arrays.copyOf(bytes, count);
+          } else if (escape != 0xff) {
+            throw new AvroRuntimeException("Invalid escape in key: " + escape);
+          }
+        }
+        if (count == bytes.length) {
+          bytes = Arrays.copyOf(bytes, count * 2);
+        }
+        bytes[count++] = (byte) (b ^ flip);
+      }
+    }
+
+    int readInt() {
+      int n = (read() << 24) | (read() << 16) | (read() << 8) | read();
+      return n ^ Integer.MIN_VALUE;
+    }
+
+    long readLong() {
+      long high = readInt();
+      long low = readInt() ^ Integer.MIN_VALUE;
+      return (high << 32) | (low & 0xffffffffL);
+    }
+  }
+}
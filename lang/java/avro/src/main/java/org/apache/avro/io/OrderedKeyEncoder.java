@@ -0,0 +1,282 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Conversion;
+import org.apache.avro.Conversions;
+import org.apache.avro.LogicalType;
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericFixed;
+import org.apache.avro.util.Utf8;
+
+/**
+ * Encodes data into keys whose unsigned lexicographic byte order, as compared
+ * by {@link BinaryData#compareBytes(byte[], int, int, byte[], int, int)} or a
+ * plain memcmp, is the order of
+ * {@link GenericData#compare(Object, Object, Schema)}, so that Avro keys may be
+ * stored in sorted key-value stores and indexes without their schema.
+ * <p/>
+ * The encoding is:
+ * <ul>
+ * <li>null: nothing;</li>
+ * <li>boolean: one byte, 0 or 1;</li>
+ * <li>int and long: 4 or 8 bytes, big-endian, with the sign bit flipped;</li>
+ * <li>float and double: 4 or 8 bytes, big-endian, with the sign bit flipped for
+ * positive values and all bits flipped for negative ones, NaN being
+ * canonical;</li>
+ * <li>enum: the ordinal, as an int;</li>
+ * <li>string: the UTF-8 bytes, with each 0x00 escaped as 0x00 0xFF, ended by
+ * 0x00 0x00;</li>
+ * <li>bytes: as a string, with the high bit of each byte flipped, since
+ * {@link ByteBuffer}s compare signed bytes;</li>
+ * <li>fixed: the bytes;</li>
+ * <li>array: each element preceded by 0x01, ended by 0x00;</li>
+ * <li>union: the branch index, in one byte, or 4 for unions of more than 256
+ * branches, then the value;</li>
+ * <li>record: the fields in order, leaving out those ordered
+ * {@link Field.Order#IGNORE}, with every byte of
+ * {@link Field.Order#DESCENDING} fields inverted.</li>
+ * </ul>
+ * Maps cannot be compared and so cannot be encoded. Values of logical types
+ * are encoded as their underlying type. Keys are decoded by
+ * {@link OrderedKeyDecoder}.
+ * <p/>
+ * Encoders are thread-safe.
+ *
+ * @param <D> a datum class
+ */
+public class OrderedKeyEncoder<D> {
+  private final GenericData model;
+  private final Schema schema;
+
+  /** Creates an encoder of generic data of a schema. */
+  public OrderedKeyEncoder(Schema schema) {
+    this(GenericData.get(), schema);
+  }
+
+  /** Creates an encoder of data of a schema in a data model. */
+  public OrderedKeyEncoder(GenericData model, Schema schema) {
+    this.model = model;
+    this.schema = schema;
+  }
+
+  /** Returns the schema of the data this encodes. */
+  public Schema getSchema() {
+    return schema;
+  }
+
+  /** Returns the key of a datum. */
+  public byte[] encode(D datum) {
+    KeyBuffer out = new KeyBuffer();
+    write(datum, schema, out);
+    return out.toByteArray();
+  }
+
+  /** Writes the key of a datum to a stream. */
+  public void encode(D datum, OutputStream stream) throws IOException {
+    KeyBuffer out = new KeyBuffer();
+    write(datum, schema, out);
+    stream.write(out.buf, 0, out.count);
+  }
+
+  /** Returns the number of bytes used by the branch index of a union. */
+  static int unionIndexSize(Schema union) {
+    return union.getTypes().size() <= 256 ? 1 : 4;
+  }
+
+  private void write(Object datum, Schema schema, KeyBuffer out) {
+    LogicalType logicalType = schema.getLogicalType();
+    if (logicalType != null && datum != null) {
+      Conversion<?> conversion = model.getConversionByClass(datum.getClass(), logicalType);
+      if (conversion != null) {
+        datum = Conversions.convertToRawType(datum, schema, logicalType, conversion);
+      }
+    }
+    switch (schema.getType()) {
+    case RECORD:
+      for (Field field : schema.getFields()) {
+        if (field.order() == Field.Order.IGNORE) {
+          continue;
+        }
+        Object value = model.getField(datum, field.name(), field.pos());
+        if (field.order() == Field.Order.DESCENDING) {
+          out.mask ^= 0xff;
+          write(value, field.schema(), out);
+          out.mask ^= 0xff;
+        } else {
+          write(value, field.schema(), out);
+        }
+      }
+      break;
+    case ENUM:
+      out.writeInt((datum instanceof Enum) ? ((Enum<?>) datum).ordinal() : schema.getEnumOrdinal(datum.toString()));
+      break;
+    case ARRAY:
+      writeArray(datum, schema.getElementType(), out);
+      break;
+    case MAP:
+      throw new AvroRuntimeException("Can't encode maps as ordered keys: " + schema);
+    case UNION:
+      int index = model.resolveUnion(schema, datum);
+      if (unionIndexSize(schema) == 1) {
+        out.write(index);
+      } else {
+        out.writeInt(index);
+      }
+      write(datum, schema.getTypes().get(index), out);
+      break;
+    case FIXED:
+      byte[] fixed = (datum instanceof GenericFixed) ? ((GenericFixed) datum).bytes() : (byte[]) datum;
+      out.write(fixed, 0, schema.getFixedSize(), 0);
+      break;
+    case STRING:
+      writeString(datum, out);
+      break;
+    case BYTES:
+      if (datum instanceof ByteBuffer) {
+        ByteBuffer buffer = (ByteBuffer) datum;
+        if (buffer.hasArray()) {
+          out.writeEscaped(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining(), 0x80);
+        } else {
+          byte[] bytes = new byte[buffer.remaining()];
+          buffer.duplicate().get(bytes);
+          out.writeEscaped(bytes, 0, bytes.length, 0x80);
+        }
+      } else {
+        byte[] bytes = (byte[]) datum;
+        out.writeEscaped(bytes, 0, bytes.length, 0x80);
+      }
+      break;
+    case INT:
+      out.writeInt((datum instanceof Character) ? (Character) datum : ((Number) datum).intValue());
+      break;
+    case LONG:
+      out.writeLong(((Number) datum).longValue());
+      break;
+    case FLOAT:
+      int intBits = Float.floatToIntBits((Float) datum);
+      out.writeInt(intBits ^ ((intBits >> 31) & Integer.MAX_VALUE));
+      break;
+    case DOUBLE:
+      long longBits = Double.doubleToLongBits((Double) datum);
+      out.writeLong(longBits ^ ((longBits >> 63) & Long.MAX_VALUE));
+      break;
+    case BOOLEAN:
+      out.write((Boolean) datum ? 1 : 0);
+      break;
+    case NULL:
+      break;
+    default:
+      throw new AvroRuntimeException("Unknown type: " + schema);
+    }
+  }
+
+  private void writeArray(Object datum, Schema elementType, KeyBuffer out) {
+    if (datum instanceof Collection) {
+      for (Object element : (Collection<?>) datum) {
+        out.write(1);
+        write(element, elementType, out);
+      }
+    } else {
+      // arrays of the reflect data model
+      int length = Array.getLength(datum);
+      for (int i = 0; i < length; i++) {
+        out.write(1);
+        write(Array.get(datum, i), elementType, out);
+      }
+    }
+    out.write(0);
+  }
+
+  private static void writeString(Object datum, KeyBuffer out) {
+    if (datum instanceof Utf8) {
+      Utf8 utf8 = (Utf8) datum;
+      out.writeEscaped(utf8.getBytes(), 0, utf8.getByteLength(), 0);
+    } else {
+      byte[] bytes = datum.toString().getBytes(StandardCharsets.UTF_8);
+      out.writeEscaped(bytes, 0, bytes.length, 0);
+    }
+  }
+
+  /** A growing array of bytes, each inverted while writing descending fields. */
+  private static final class KeyBuffer {
+    private byte[] buf = new byte[32];
+    private int count;
+    private int mask;
+
+    private void ensure(int length) {
+      if (count + length > buf.length) {
+        buf = Arrays.copyOf(buf, Math.max(buf.length * 2, count + length));
+      }
+    }
+
+    void write(int b) {
+      ensure(1);
+      buf[count++] = (byte) (b ^ mask);
+    }
+
+    void write(byte[] bytes, int start, int length, int flip) {
+      ensure(length);
+      int xor = flip ^ mask;
+      for (int i = 0; i < length; i++) {
+        buf[count++] = (byte) (bytes[start + i] ^ xor);
+      }
+    }
+
+    // 0x00 bytes escaped as 0x00 0xFF, then 0x00 0x00 to end
+    void writeEscaped(byte[] bytes, int start, int length, int flip) {
+      for (int i = 0; i < length; i++) {
+        int b = (bytes[start + i] ^ flip) & 0xff;
+        write(b);
+        if (b == 0) {
+          write(0xff);
+        }
+      }
+      write(0);
+      write(0);
+    }
+
+    void writeInt(int n) {
+      n ^= Integer.MIN_VALUE;
+      write(n >>> 24);
+      write(n >>> 16);
+      write(n >>> 8);
+      write(n);
+    }
+
+    void writeLong(long n) {
+      writeInt((int) (n >>> 32));
+      writeInt((int) n ^ Integer.MIN_VALUE); // leaving the low word unflipped
+    }
+
+    byte[] toByteArray() {
+      return Arrays.copyOf(buf, count);
+    }
+  }
+}
@@ -0,0 +1,266 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.generic.GenericDatumReader;
+
+/**
+ * A precompiled program that skips values of a sequence of schemas, typically
+ * the fields of a writer's record that a reader's schema does not read.
+ * <p/>
+ * Where {@link GenericDatumReader#skip(Schema, Decoder)} walks the schema for
+ * every value, a plan flattens nested records and merges runs of fixed-width
+ * values (booleans, floats, doubles and fixed) into a single
+ * {@link Decoder#skipFixed(int)}. Arrays and maps are skipped a block at a
+ * time, jumping over blocks whose byte size was written, as
+ * {@link BlockingBinaryEncoder} does, and over arrays of fixed-width elements
+ * in a single step too.
+ * <p/>
+ * The compiled program applies to {@link BinaryDecoder}s. Other decoders skip
+ * each schema with {@link GenericDatumReader#skip(Schema, Decoder)}. Plans are
+ * immutable and thread-safe.
+ */
+public final class SkipPlan {
+  private final List<Schema> schemas;
+  private Step[] steps;
+  private int fixedSize = -1;
+
+  private SkipPlan(List<Schema> schemas) {
+    this.schemas = schemas;
+  }
+
+  /** Returns a plan that skips a value of a schema. */
+  public static SkipPlan of(Schema schema) {
+    return of(Collections.singletonList(schema));
+  }
+
+  /** Returns a plan that skips consecutive values of the given schemas. */
+  public static SkipPlan of(List<Schema> schemas) {
+    SkipPlan plan = new SkipPlan(Collections.unmodifiableList(new ArrayList<>(schemas)));
+    new Compiler().compile(plan);
+    return plan;
+  }
+
+  /** Returns the schemas whose values this skips. */
+  public List<Schema> getSchemas() {
+    return schemas;
+  }
+
+  /**
+   * Returns the size in bytes of the binary encoding of the values skipped, or
+   * -1 if it depends on the values.
+   */
+  public int getFixedSize() {
+    return fixedSize;
+  }
+
+  /** Skip values of the schemas of this plan. */
+  public void skip(Decoder in) throws IOException {
+    if (in instanceof BinaryDecoder) {
+      BinaryDecoder binary = (BinaryDecoder) in;
+      for (Step step : steps) {
+        step.skip(binary);
+      }
+    } else {
+      for (Schema schema : schemas) {
+        GenericDatumReader.skip(schema, in);
+      }
+    }
+  }
+
+  @FunctionalInterface
+  private interface Step {
+    void skip(BinaryDecoder in) throws IOException;
+  }
+
+  private static class Compiler {
+    /** plans for the elements, values and branches compiled so far */
+    private final Map<Schema, SkipPlan> plans = new IdentityHashMap<>();
+
+    // set the steps of a plan, which may be referenced before they are set
+    void compile(SkipPlan plan) {
+      Builder builder = new Builder();
+      for (Schema schema : plan.schemas) {
+        add(builder, schema);
+      }
+      builder.flush();
+      plan.steps = builder.steps.toArray(new Step[0]);
+      plan.fixedSize = builder.variable || builder.totalBytes > Integer.MAX_VALUE ? -1 : (int) builder.totalBytes;
+    }
+
+    private SkipPlan planFor(Schema schema) {
+      SkipPlan plan = plans.get(schema);
+      if (plan == null) {
+        plan = new SkipPlan(Collections.singletonList(schema));
+        plans.put(schema, plan);
+        compile(plan);
+      }
+      return plan;
+    }
+
+    private void add(Builder builder, Schema schema) {
+      switch (schema.getType()) {
+      case RECORD:
+        for (Field field : schema.getFields()) {
+          add(builder, field.schema());
+        }
+        break;
+      case NULL:
+        break;
+      case BOOLEAN:
+        builder.addFixed(1);
+        break;
+      case FLOAT:
+        builder.addFixed(4);
+        break;
+      case DOUBLE:
+        builder.addFixed(8);
+        break;
+      case FIXED:
+        builder.addFixed(schema.getFixedSize());
+        break;
+      case INT:
+      case LONG:
+      case ENUM:
+        builder.addVarint();
+        break;
+      case STRING:
+      case BYTES:
+        builder.add(BinaryDecoder::skipBytes);
+        break;
+      case ARRAY:
+        builder.add(arraySkipper(planFor(schema.getElementType())));
+        break;
+      case MAP:
+        builder.add(mapSkipper(planFor(schema.getValueType())));
+        break;
+      case UNION:
+        List<Schema> types = schema.getTypes();
+        SkipPlan[] branches = new SkipPlan[types.size()];
+        for (int i = 0; i < branches.length; i++) {
+          branches[i] = planFor(types.get(i));
+        }
+        builder.add(in -> branches[in.readIndex()].skip(in));
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown type: " + schema);
+      }
+    }
+  }
+
+  /** Collects the steps of a plan, merging runs of fixed-width values and varints. */
+  private static class Builder {
+    final List<Step> steps = new ArrayList<>();
+    long totalBytes;
+    boolean variable;
+    private long pendingBytes;
+    private int pendingVarints;
+
+    void addFixed(int size) {
+      if (pendingVarints > 0) {
+        flush();
+      }
+      pendingBytes += size;
+      totalBytes += size;
+    }
+
+    void addVarint() {
+      if (pendingBytes > 0) {
+        flush();
+      }
+      pendingVarints++;
+      variable = true;
+    }
+
+    void add(Step step) {
+      flush();
+      steps.add(step);
+      variable = true;
+    }
+
+    void flush() {
+      if (pendingBytes > 0) {
+        long bytes = pendingBytes;
+        steps.add(in -> skipBytes(in, bytes));
+        pendingBytes = 0;
+      }
+      if (pendingVarints > 0) {
+        int count = pendingVarints;
+        steps.add(count == 1 ? BinaryDecoder::readLong : in -> {
+          for (int i = 0; i < count; i++) {
+            in.readLong();
+          }
+        });
+        pendingVarints = 0;
+      }
+    }
+  }
+
+  private static void skipBytes(BinaryDecoder in, long length) throws IOException {
+    while (length > Integer.MAX_VALUE) {
+      in.skipFixed(Integer.MAX_VALUE);
+      length -= Integer.MAX_VALUE;
+    }
+    in.skipFixed((int) length);
+  }
+
+  private static Step arraySkipper(SkipPlan element) {
+    int size = element.fixedSize;
+    if (size == 0) {
+      return in -> {
+        while (in.skipArray() > 0) {
+          // nothing to skip for each element
+        }
+      };
+    }
+    if (size > 0) {
+      return in -> {
+        for (long l = in.skipArray(); l > 0; l = in.skipArray()) {
+          skipBytes(in, l * size);
+        }
+      };
+    }
+    return in -> {
+      for (long l = in.skipArray(); l > 0; l = in.skipArray()) {
+        for (long i = 0; i < l; i++) {
+          element.skip(in);
+        }
+      }
+    };
+  }
+
+  private static Step mapSkipper(SkipPlan value) {
+    return in -> {
+      for (long l = in.skipMap(); l > 0; l = in.skipMap()) {
+        for (long i = 0; i < l; i++) {
+          in.skipString();
+          value.skip(in);
+        }
+      }
+    };
+  }
+}
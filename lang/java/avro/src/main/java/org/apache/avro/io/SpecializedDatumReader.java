@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+
+/**
+ * A {@link DatumReader} that compiles each pair of writer and reader schemas
+ * into code specialized for that pair, rather than interpreting the schemas
+ * for every datum.
+ * <p/>
+ * Reading follows the semantics of the fast reader of
+ * {@link GenericData#setFastReaderEnabled(boolean)}, for the generic and the
+ * specific data models. Compiling takes place once per pair of schemas and
+ * data model, when the schemas are set; the compiled code is shared by all
+ * readers of the pair and is thread-safe.
+ *
+ * @see SpecializedDatumWriter
+ */
+public class SpecializedDatumReader<D> implements DatumReader<D> {
+  private final DatumSpecializer specializer;
+  private final Schema expected;
+  private Schema actual;
+  private MethodHandle reader;
+
+  /**
+   * Construct a reader of generic data whose schema is set later, as by
+   * {@link org.apache.avro.file.DataFileStream}, and used as both the writer's
+   * and the reader's schema.
+   */
+  public SpecializedDatumReader() {
+    this(null, null, GenericData.get());
+  }
+
+  /** Construct a reader of generic data written and read with the same schema. */
+  public SpecializedDatumReader(Schema schema) {
+    this(schema, schema, GenericData.get());
+  }
+
+  /**
+   * Construct a reader of data written with <i>writer</i>, read as data of
+   * <i>reader</i>, for a data model. The writer's schema may be null if it is
+   * set later.
+   *
+   * @throws IllegalArgumentException if the data model is neither the generic
+   *                                  nor the specific one
+   */
+  public SpecializedDatumReader(Schema writer, Schema reader, GenericData data) {
+    if (!isSupportedData(data)) {
+      throw new IllegalArgumentException("Unsupported data model: " + data.getClass().getName());
+    }
+    this.specializer = DatumSpecializer.get(data);
+    this.expected = reader;
+    if (writer != null) {
+      setSchema(writer);
+    }
+  }
+
+  /** Returns true if readers and writers can be specialized for a data model. */
+  public static boolean isSupportedData(GenericData data) {
+    return FastReaderBuilder.isSupportedData(data);
+  }
+
+  /** Sets the writer's schema, keeping the reader's. */
+  @Override
+  public void setSchema(Schema writer) {
+    this.actual = writer;
+    this.reader = specializer.reader(writer, expected == null ? writer : expected);
+  }
+
+  /** Returns the writer's schema. */
+  public Schema getSchema() {
+    return actual;
+  }
+
+  /** Returns the reader's schema. */
+  public Schema getExpected() {
+    return expected == null ? actual : expected;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public D read(D reuse, Decoder in) throws IOException {
+    try {
+      return (D) (Object) reader.invokeExact((Object) reuse, in);
+    } catch (IOException | RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable t) {
+      throw new AvroRuntimeException(t);
+    }
+  }
+}
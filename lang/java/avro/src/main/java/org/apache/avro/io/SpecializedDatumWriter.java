@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.util.Objects;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+
+/**
+ * A {@link DatumWriter} that compiles each schema into code specialized for
+ * it, rather than walking the schema for every datum.
+ * <p/>
+ * Writing follows the semantics of
+ * {@link org.apache.avro.generic.GenericDatumWriter} and
+ * {@link org.apache.avro.specific.SpecificDatumWriter}, for the generic and the
+ * specific data models. Compiling takes place once per schema and data model,
+ * when the schema is set; the compiled code is shared by all writers of the
+ * schema and is thread-safe.
+ *
+ * @see SpecializedDatumReader
+ */
+public class SpecializedDatumWriter<D> implements DatumWriter<D> {
+  private final DatumSpecializer specializer;
+  private Schema root;
+  private MethodHandle writer;
+
+  /** Construct a writer of generic data of a schema. */
+  public SpecializedDatumWriter(Schema root) {
+    this(root, GenericData.get());
+  }
+
+  /**
+   * Construct a writer of data of a schema, for a data model.
+   *
+   * @throws IllegalArgumentException if the data model is neither the generic
+   *                                  nor the specific one
+   */
+  public SpecializedDatumWriter(Schema root, GenericData data) {
+    if (!SpecializedDatumReader.isSupportedData(data)) {
+      throw new IllegalArgumentException("Unsupported data model: " + data.getClass().getName());
+    }
+    this.specializer = DatumSpecializer.get(data);
+    setSchema(root);
+  }
+
+  @Override
+  public void setSchema(Schema root) {
+    this.root = root;
+    this.writer = specializer.writer(root);
+  }
+
+  /** Returns the schema written. */
+  public Schema getSchema() {
+    return root;
+  }
+
+  @Override
+  public void write(D datum, Encoder out) throws IOException {
+    Objects.requireNonNull(out, "Encoder cannot be null");
+    try {
+      writer.invokeExact((Object) datum, out);
+    } catch (IOException | RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable t) {
+      throw new AvroRuntimeException(t);
+    }
+  }
+}
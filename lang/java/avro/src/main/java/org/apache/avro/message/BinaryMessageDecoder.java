@@ -20,15 +20,25 @@ package org.apache.avro.message;
 
 import org.apache.avro.Schema;
 import org.apache.avro.SchemaNormalization;
+import org.apache.avro.file.Codec;
 import org.apache.avro.generic.GenericData;
-import org.apache.avro.util.internal.ThreadLocalWithInitial;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.util.ByteBufferInputStream;
+import org.apache.avro.util.NonCopyingByteArrayOutputStream;
+import org.apache.avro.util.ScratchProvider;
+import org.apache.avro.util.ScratchProvider.Scratch;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 /**
  * A {@link MessageDecoder} that reads a binary-encoded datum. This checks for
@@ -48,18 +58,17 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public class BinaryMessageDecoder<D> extends MessageDecoder.BaseDecoder<D> {
 
-  private static final ThreadLocal<byte[]> HEADER_BUFFER = ThreadLocalWithInitial.of(() -> new byte[10]);
-
-  private static final ThreadLocal<ByteBuffer> FP_BUFFER = ThreadLocalWithInitial.of(() -> {
-    byte[] header = HEADER_BUFFER.get();
-    return ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN);
-  });
+  private static final Scratch<ByteBuffer> HEADER = ScratchProvider.getDefault()
+      .scratch(() -> ByteBuffer.wrap(new byte[10]).order(ByteOrder.LITTLE_ENDIAN));
 
   private final GenericData model;
   private final Schema readSchema;
   private final SchemaStore resolver;
+  private final Scratch<Codec> codecs;
 
   private final Map<Long, RawMessageDecoder<D>> codecByFingerprint = new ConcurrentHashMap<>();
+  // decoders for schemas found by the resolver, bounded as the resolver is
+  private final FingerprintCache<RawMessageDecoder<D>> resolved;
 
   /**
    * Creates a new {@link BinaryMessageEncoder} that uses the given
@@ -100,15 +109,42 @@ public class BinaryMessageDecoder<D> extends MessageDecoder.BaseDecoder<D> {
    * that were encoded using the {@code readSchema} (if any), other schemas that
    * are added using {@link #addSchema(Schema)}, or schemas returned by the
    * {@code resolver}.
+   * <p>
+   * If the {@code resolver} is a {@link CachingSchemaStore}, decoders for the
+   * schemas it returns are kept within the same size and age limits.
    *
    * @param model      the {@link GenericData data model} for datum instances
    * @param readSchema the {@link Schema} used to construct datum instances
    * @param resolver   a {@link SchemaStore} used to find schemas by fingerprint
    */
   public BinaryMessageDecoder(GenericData model, Schema readSchema, SchemaStore resolver) {
+    this(model, readSchema, resolver, null);
+  }
+
+  /**
+   * Creates a new {@link BinaryMessageDecoder} for messages whose payloads were
+   * compressed by a {@link BinaryMessageEncoder} created with an equivalent
+   * codec.
+   * <p>
+   * As compressed payloads do not record their length,
+   * {@link #decode(InputStream, Object)} reads the stream to its end.
+   *
+   * @param model      the {@link GenericData data model} for datum instances
+   * @param readSchema the {@link Schema} used to construct datum instances
+   * @param resolver   a {@link SchemaStore} used to find schemas by fingerprint
+   * @param codecs     supplies codecs as they are needed, as codecs are not
+   *                   thread-safe, or null if payloads are not compressed
+   */
+  public BinaryMessageDecoder(GenericData model, Schema readSchema, SchemaStore resolver,
+      Supplier<? extends Codec> codecs) {
     this.model = model;
     this.readSchema = readSchema;
     this.resolver = resolver;
+    this.codecs = codecs == null ? null : ScratchProvider.getDefault().scratch(codecs);
+    this.resolved = resolver == null ? null
+        : new FingerprintCache<>(resolver instanceof CachingSchemaStore
+            ? ((CachingSchemaStore) resolver).getPolicy().withoutRefresh()
+            : FingerprintCache.Policy.UNBOUNDED, this::resolve);
     if (readSchema != null) {
       addSchema(readSchema);
     }
@@ -121,8 +157,17 @@ public class BinaryMessageDecoder<D> extends MessageDecoder.BaseDecoder<D> {
    */
   public void addSchema(Schema writeSchema) {
     long fp = SchemaNormalization.parsingFingerprint64(writeSchema);
+    codecByFingerprint.put(fp, newDecoder(writeSchema));
+  }
+
+  private RawMessageDecoder<D> newDecoder(Schema writeSchema) {
     final Schema actualReadSchema = this.readSchema != null ? this.readSchema : writeSchema;
-    codecByFingerprint.put(fp, new RawMessageDecoder<D>(model, writeSchema, actualReadSchema));
+    return new RawMessageDecoder<D>(model, writeSchema, actualReadSchema);
+  }
+
+  private RawMessageDecoder<D> resolve(long fp) {
+    Schema writeSchema = resolver.findByFingerprint(fp);
+    return writeSchema != null ? newDecoder(writeSchema) : null;
   }
 
   private RawMessageDecoder<D> getDecoder(long fp) {
@@ -131,11 +176,10 @@ public class BinaryMessageDecoder<D> extends MessageDecoder.BaseDecoder<D> {
       return decoder;
     }
 
-    if (resolver != null) {
-      Schema writeSchema = resolver.findByFingerprint(fp);
-      if (writeSchema != null) {
-        addSchema(writeSchema);
-        return codecByFingerprint.get(fp);
+    if (resolved != null) {
+      decoder = resolved.get(fp);
+      if (decoder != null) {
+        return decoder;
       }
     }
 
@@ -144,22 +188,115 @@ public class BinaryMessageDecoder<D> extends MessageDecoder.BaseDecoder<D> {
 
   @Override
   public D decode(InputStream stream, D reuse) throws IOException {
-    byte[] header = HEADER_BUFFER.get();
+    RawMessageDecoder<D> decoder = getDecoder(readFingerprint(stream));
+    if (codecs == null) {
+      return decoder.decode(stream, reuse);
+    }
+    Codec codec = codecs.acquire();
     try {
-      if (!readFully(stream, header)) {
-        throw new BadHeaderException("Not enough header bytes");
+      return decoder.decode(decompress(codec, stream), reuse);
+    } finally {
+      codecs.release(codec);
+    }
+  }
+
+  // reads and checks the header, returning the fingerprint it holds
+  private long readFingerprint(InputStream stream) throws IOException {
+    ByteBuffer buffer = HEADER.acquire();
+    try {
+      byte[] header = buffer.array();
+      try {
+        if (!readFully(stream, header)) {
+          throw new BadHeaderException("Not enough header bytes");
+        }
+      } catch (IOException e) {
+        throw new IOException("Failed to read header and fingerprint bytes", e);
       }
-    } catch (IOException e) {
-      throw new IOException("Failed to read header and fingerprint bytes", e);
+
+      if (BinaryMessageEncoder.V1_HEADER[0] != header[0] || BinaryMessageEncoder.V1_HEADER[1] != header[1]) {
+        throw new BadHeaderException(
+            String.format("Unrecognized header bytes: 0x%02X 0x%02X", header[0], header[1]));
+      }
+      return buffer.getLong(2);
+    } finally {
+      HEADER.release(buffer);
     }
+  }
 
-    if (BinaryMessageEncoder.V1_HEADER[0] != header[0] || BinaryMessageEncoder.V1_HEADER[1] != header[1]) {
-      throw new BadHeaderException(String.format("Unrecognized header bytes: 0x%02X 0x%02X", header[0], header[1]));
+  /**
+   * Deserialize a batch of single datums from ByteBuffers, each holding one
+   * message.
+   * <p>
+   * This decodes the messages as {@link #decode(ByteBuffer, Object)} would, but
+   * sets up a decoder only once for the batch and looks a schema fingerprint
+   * up again only when it changes from one message to the next.
+   *
+   * @param encoded the serialized messages
+   * @param reuse   datums to reuse, the one at index {@code i} for message
+   *                {@code i}, or null
+   * @return the datums, in the order of the messages
+   * @throws BadHeaderException     if a message has an invalid header
+   * @throws MissingSchemaException if a message was written with an unknown
+   *                                schema
+   * @throws IOException
+   */
+  public List<D> decodeAll(List<ByteBuffer> encoded, List<D> reuse) throws IOException {
+    Codec codec = codecs != null ? codecs.acquire() : null;
+    try {
+      return decodeAll(encoded, reuse, codec);
+    } finally {
+      if (codec != null) {
+        codecs.release(codec);
+      }
     }
+  }
+
+  private List<D> decodeAll(List<ByteBuffer> encoded, List<D> reuse, Codec codec) throws IOException {
+    List<D> result = new ArrayList<>(encoded.size());
+    BinaryDecoder arrayDecoder = null;
+    BinaryDecoder bufferDecoder = null;
+    long lastFingerprint = 0;
+    RawMessageDecoder<D> decoder = null;
+    for (int i = 0; i < encoded.size(); i++) {
+      ByteBuffer message = encoded.get(i);
+      int start = message.position();
+      if (message.remaining() < BinaryMessageEncoder.V1_HEADER.length + 8) {
+        throw new BadHeaderException("Not enough header bytes");
+      }
+      if (BinaryMessageEncoder.V1_HEADER[0] != message.get(start)
+          || BinaryMessageEncoder.V1_HEADER[1] != message.get(start + 1)) {
+        throw new BadHeaderException(
+            String.format("Unrecognized header bytes: 0x%02X 0x%02X", message.get(start), message.get(start + 1)));
+      }
+      long fingerprint = message.duplicate().order(ByteOrder.LITTLE_ENDIAN).getLong(start + 2);
+      if (decoder == null || fingerprint != lastFingerprint) {
+        decoder = getDecoder(fingerprint);
+        lastFingerprint = fingerprint;
+      }
 
-    RawMessageDecoder<D> decoder = getDecoder(FP_BUFFER.get().getLong(2));
+      ByteBuffer payload = message.duplicate();
+      payload.position(start + BinaryMessageEncoder.V1_HEADER.length + 8);
+      if (codec != null) {
+        payload = codec.decompress(payload.slice());
+      }
+      BinaryDecoder in;
+      if (payload.hasArray()) {
+        in = arrayDecoder = DecoderFactory.get().binaryDecoder(payload.array(),
+            payload.arrayOffset() + payload.position(), payload.remaining(), arrayDecoder);
+      } else {
+        in = bufferDecoder = DecoderFactory.get().binaryDecoder(payload, bufferDecoder);
+      }
+      D old = reuse != null && i < reuse.size() ? reuse.get(i) : null;
+      result.add(decoder.read(in, old));
+    }
+    return result;
+  }
 
-    return decoder.decode(stream, reuse);
+  private static InputStream decompress(Codec codec, InputStream stream) throws IOException {
+    NonCopyingByteArrayOutputStream compressed = new NonCopyingByteArrayOutputStream(256);
+    stream.transferTo(compressed);
+    ByteBuffer payload = codec.decompress(compressed.asByteBuffer());
+    return new ByteBufferInputStream(Collections.singletonList(payload));
   }
 
   /**
@@ -22,11 +22,22 @@ package org.apache.avro.message;
 import org.apache.avro.AvroRuntimeException;
 import org.apache.avro.Schema;
 import org.apache.avro.SchemaNormalization;
+import org.apache.avro.file.Codec;
+import org.apache.avro.file.ZstandardCodec;
 import org.apache.avro.generic.GenericData;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.util.NonCopyingByteArrayOutputStream;
+import org.apache.avro.util.ScratchProvider;
+import org.apache.avro.util.ScratchProvider.Scratch;
+
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.Supplier;
 
 /**
  * A {@link MessageEncoder} that adds a header and 8-byte schema fingerprint to
@@ -38,7 +49,7 @@ public class BinaryMessageEncoder<D> implements MessageEncoder<D> {
 
   static final byte[] V1_HEADER = new byte[] { (byte) 0xC3, (byte) 0x01 };
 
-  private final RawMessageEncoder<D> writeCodec;
+  private final V1MessageEncoder<D> writeCodec;
 
   /**
    * Creates a new {@link BinaryMessageEncoder} that uses the given
@@ -75,7 +86,28 @@ public class BinaryMessageEncoder<D> implements MessageEncoder<D> {
    * @param shouldCopy whether to copy buffers before returning encoded results
    */
   public BinaryMessageEncoder(GenericData model, Schema schema, boolean shouldCopy) {
-    this.writeCodec = new V1MessageEncoder<>(model, schema, shouldCopy);
+    this(model, schema, shouldCopy, null);
+  }
+
+  /**
+   * Creates a new {@link BinaryMessageEncoder} that also compresses the payload
+   * that follows the header of each message.
+   * <p>
+   * Compression is not part of the single-object encoding in the specification:
+   * compressed messages keep the usual header and can only be decoded by a
+   * {@link BinaryMessageDecoder} created with an equivalent codec. A
+   * {@link ZstandardCodec} with a
+   * dictionary trained on sample messages compresses even small messages well.
+   *
+   * @param model      the {@link GenericData data model} for datum instances
+   * @param schema     the {@link Schema} for datum instances
+   * @param shouldCopy whether to copy buffers before returning encoded results
+   * @param codecs     supplies codecs as they are needed, as codecs are not
+   *                   thread-safe, or null to leave payloads uncompressed
+   */
+  public BinaryMessageEncoder(GenericData model, Schema schema, boolean shouldCopy,
+      Supplier<? extends Codec> codecs) {
+    this.writeCodec = new V1MessageEncoder<>(model, schema, shouldCopy, codecs);
   }
 
   @Override
@@ -88,6 +120,66 @@ public class BinaryMessageEncoder<D> implements MessageEncoder<D> {
     writeCodec.encode(datum, stream);
   }
 
+  /**
+   * Serialize a batch of datums to an OutputStream, one message after another,
+   * with a single write.
+   * <p>
+   * The returned offsets locate each message in the bytes written: message
+   * {@code i} starts at {@code offsets[i]} and ends at {@code offsets[i + 1]}.
+   * There is one more offset than there are datums, the last being the number
+   * of bytes written.
+   *
+   * @param data   the datums to encode
+   * @param stream an OutputStream to serialize the messages to
+   * @return the offsets of the messages in the bytes written
+   * @throws IOException
+   */
+  public int[] encodeAll(Iterable<? extends D> data, OutputStream stream) throws IOException {
+    NonCopyingByteArrayOutputStream batch = V1MessageEncoder.BATCH.acquire();
+    try {
+      batch.reset();
+      int[] offsets = writeCodec.encodeAll(data, batch);
+      batch.writeTo(stream);
+      return offsets;
+    } finally {
+      V1MessageEncoder.BATCH.release(batch);
+    }
+  }
+
+  /**
+   * Serialize a batch of datums into a ByteBuffer, one message after another,
+   * starting at its position. The position of the buffer is advanced past the
+   * last message.
+   * <p>
+   * The returned offsets are positions in the buffer: message {@code i} starts
+   * at {@code offsets[i]} and ends at {@code offsets[i + 1]}. There is one more
+   * offset than there are datums, the last being the new position of the
+   * buffer.
+   *
+   * @param data   the datums to encode
+   * @param buffer a ByteBuffer to serialize the messages to
+   * @return the positions of the messages in the buffer
+   * @throws IOException
+   * @throws java.nio.BufferOverflowException if the messages do not fit in the
+   *                                          remaining bytes of the buffer, in
+   *                                          which case it is left unchanged
+   */
+  public int[] encodeAll(Iterable<? extends D> data, ByteBuffer buffer) throws IOException {
+    NonCopyingByteArrayOutputStream batch = V1MessageEncoder.BATCH.acquire();
+    try {
+      batch.reset();
+      int[] offsets = writeCodec.encodeAll(data, batch);
+      int start = buffer.position();
+      buffer.put(batch.asByteBuffer());
+      for (int i = 0; i < offsets.length; i++) {
+        offsets[i] += start;
+      }
+      return offsets;
+    } finally {
+      V1MessageEncoder.BATCH.release(batch);
+    }
+  }
+
   /**
    * This is a RawDatumEncoder that adds the V1 header to the outgoing buffer.
    * BinaryDatumEncoder wraps this class to avoid confusion over what it does. It
@@ -95,17 +187,77 @@ public class BinaryMessageEncoder<D> implements MessageEncoder<D> {
    * the extra bytes.
    */
   private static class V1MessageEncoder<D> extends RawMessageEncoder<D> {
+    private static final Scratch<NonCopyingByteArrayOutputStream> PAYLOAD = ScratchProvider.getDefault()
+        .scratch(() -> new NonCopyingByteArrayOutputStream(256));
+    static final Scratch<NonCopyingByteArrayOutputStream> BATCH = ScratchProvider.getDefault()
+        .scratch(() -> new NonCopyingByteArrayOutputStream(4096));
+
     private final byte[] headerBytes;
+    private final Scratch<Codec> codecs;
 
-    V1MessageEncoder(GenericData model, Schema schema, boolean shouldCopy) {
+    V1MessageEncoder(GenericData model, Schema schema, boolean shouldCopy, Supplier<? extends Codec> codecs) {
       super(model, schema, shouldCopy);
       this.headerBytes = getWriteHeader(schema);
+      this.codecs = codecs == null ? null : ScratchProvider.getDefault().scratch(codecs);
     }
 
     @Override
     public void encode(D datum, OutputStream stream) throws IOException {
       stream.write(headerBytes);
-      super.encode(datum, stream);
+      if (codecs == null) {
+        super.encode(datum, stream);
+        return;
+      }
+      NonCopyingByteArrayOutputStream payload = PAYLOAD.acquire();
+      Codec codec = codecs.acquire();
+      try {
+        payload.reset();
+        super.encode(datum, payload);
+        ByteBuffer compressed = codec.compress(payload.asByteBuffer());
+        stream.write(compressed.array(), compressed.arrayOffset() + compressed.position(), compressed.remaining());
+      } finally {
+        codecs.release(codec);
+        PAYLOAD.release(payload);
+      }
+    }
+
+    // encode messages into a batch, with one encoder for all of them
+    int[] encodeAll(Iterable<? extends D> data, NonCopyingByteArrayOutputStream batch) throws IOException {
+      if (codecs == null) {
+        return encodeAll(data, batch, batch, null);
+      }
+      NonCopyingByteArrayOutputStream payload = PAYLOAD.acquire();
+      Codec codec = codecs.acquire();
+      try {
+        return encodeAll(data, batch, payload, codec);
+      } finally {
+        codecs.release(codec);
+        PAYLOAD.release(payload);
+      }
+    }
+
+    private int[] encodeAll(Iterable<? extends D> data, NonCopyingByteArrayOutputStream batch,
+        NonCopyingByteArrayOutputStream payload, Codec codec) throws IOException {
+      BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(payload, null);
+      int[] offsets = new int[data instanceof Collection ? ((Collection<?>) data).size() + 1 : 16];
+      int count = 0;
+      for (D datum : data) {
+        if (count + 1 == offsets.length) {
+          offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        }
+        offsets[count++] = batch.size();
+        batch.write(headerBytes);
+        if (codec == null) {
+          write(datum, encoder);
+        } else {
+          payload.reset();
+          write(datum, encoder);
+          ByteBuffer compressed = codec.compress(payload.asByteBuffer());
+          batch.write(compressed.array(), compressed.arrayOffset() + compressed.position(), compressed.remaining());
+        }
+      }
+      offsets[count] = batch.size();
+      return count + 1 == offsets.length ? offsets : Arrays.copyOf(offsets, count + 1);
     }
 
     private static byte[] getWriteHeader(Schema schema) {
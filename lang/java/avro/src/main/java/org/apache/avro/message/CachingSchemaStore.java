@@ -0,0 +1,221 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.message;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.LongSupplier;
+
+import org.apache.avro.Schema;
+
+/**
+ * A {@link SchemaStore} that caches the schemas found by another store, such
+ * as one backed by a schema registry.
+ * <p/>
+ * Unlike {@link SchemaStore.Cache}, the cache can be bounded: it holds at most
+ * {@link Builder#maximumSize(long) a number of schemas}, evicting the least
+ * recently used ones, and each schema for
+ * {@link Builder#expireAfterWrite(Duration) a time}. Schemas may be
+ * {@link Builder#refreshAfterWrite(Duration) refreshed} in the background
+ * before they expire, so that lookups on the hot path do not wait for the
+ * store. Fingerprints the store does not know may be cached for
+ * {@link Builder#cacheMissing(Duration) a time} too.
+ * <p/>
+ * Concurrent lookups of a fingerprint that is not cached query the store once.
+ * <p/>
+ * A {@link BinaryMessageDecoder} created with a caching store applies the same
+ * limits to the decoders it keeps for the schemas found.
+ * <p/>
+ * This class is thread-safe.
+ */
+public class CachingSchemaStore implements SchemaStore {
+
+  private final FingerprintCache.Policy policy;
+  private final FingerprintCache<Schema> schemas;
+
+  private CachingSchemaStore(SchemaStore store, FingerprintCache.Policy policy) {
+    this.policy = policy;
+    this.schemas = new FingerprintCache<>(policy, store::findByFingerprint);
+  }
+
+  /** Returns a builder for a cache of the schemas of a store. */
+  public static Builder builder(SchemaStore store) {
+    return new Builder(store);
+  }
+
+  @Override
+  public Schema findByFingerprint(long fingerprint) {
+    return schemas.get(fingerprint);
+  }
+
+  /** Discards the cached schema, or missing schema, for a fingerprint. */
+  public void invalidate(long fingerprint) {
+    schemas.invalidate(fingerprint);
+  }
+
+  /** Discards all cached schemas. */
+  public void invalidateAll() {
+    schemas.invalidateAll();
+  }
+
+  /** Returns the number of fingerprints cached, including missing schemas. */
+  public long size() {
+    return schemas.size();
+  }
+
+  /** Returns the counters of this cache. */
+  public Stats getStats() {
+    return new Stats(schemas);
+  }
+
+  FingerprintCache.Policy getPolicy() {
+    return policy;
+  }
+
+  /** A snapshot of the counters of a {@link CachingSchemaStore}. */
+  public static final class Stats {
+    private final long hitCount;
+    private final long missCount;
+    private final long loadCount;
+    private final long loadFailureCount;
+    private final long totalLoadTime;
+    private final long evictionCount;
+
+    private Stats(FingerprintCache<?> cache) {
+      this.hitCount = cache.hits.sum();
+      this.missCount = cache.misses.sum();
+      this.loadCount = cache.loads.sum();
+      this.loadFailureCount = cache.loadFailures.sum();
+      this.totalLoadTime = cache.loadNanos.sum();
+      this.evictionCount = cache.evictions.sum();
+    }
+
+    /** Returns the number of lookups answered from the cache. */
+    public long getHitCount() {
+      return hitCount;
+    }
+
+    /** Returns the number of lookups that were not cached or had expired. */
+    public long getMissCount() {
+      return missCount;
+    }
+
+    /**
+     * Returns the number of times the store was queried successfully, including
+     * refreshes.
+     */
+    public long getLoadCount() {
+      return loadCount;
+    }
+
+    /** Returns the number of times the store threw an exception. */
+    public long getLoadFailureCount() {
+      return loadFailureCount;
+    }
+
+    /** Returns the total time spent querying the store, in nanoseconds. */
+    public long getTotalLoadTime() {
+      return totalLoadTime;
+    }
+
+    /** Returns the number of schemas evicted because of size or age. */
+    public long getEvictionCount() {
+      return evictionCount;
+    }
+
+    @Override
+    public String toString() {
+      return "hits=" + hitCount + ", misses=" + missCount + ", loads=" + loadCount + ", loadFailures="
+          + loadFailureCount + ", totalLoadTime=" + totalLoadTime + "ns, evictions=" + evictionCount;
+    }
+  }
+
+  /**
+   * Configures a {@link CachingSchemaStore}. By default the cache is unbounded,
+   * schemas never expire and missing schemas are not cached.
+   */
+  public static final class Builder {
+    private final SchemaStore store;
+    private long maximumSize = Long.MAX_VALUE;
+    private Duration expireAfterWrite = Duration.ZERO;
+    private Duration refreshAfterWrite = Duration.ZERO;
+    private Duration cacheMissing = Duration.ZERO;
+    private Executor executor = ForkJoinPool.commonPool();
+    private LongSupplier ticker = System::nanoTime;
+
+    private Builder(SchemaStore store) {
+      this.store = Objects.requireNonNull(store, "store");
+    }
+
+    /** Sets the maximum number of fingerprints cached. */
+    public Builder maximumSize(long maximumSize) {
+      if (maximumSize < 1) {
+        throw new IllegalArgumentException("Invalid maximum size: " + maximumSize);
+      }
+      this.maximumSize = maximumSize;
+      return this;
+    }
+
+    /** Sets how long a schema is cached after it was found. */
+    public Builder expireAfterWrite(Duration duration) {
+      this.expireAfterWrite = checkDuration(duration);
+      return this;
+    }
+
+    /**
+     * Sets how long after it was found a schema is looked up again in the
+     * background, on its next use. Until then, the cached schema is used.
+     */
+    public Builder refreshAfterWrite(Duration duration) {
+      this.refreshAfterWrite = checkDuration(duration);
+      return this;
+    }
+
+    /** Sets how long the store is not queried again for an unknown fingerprint. */
+    public Builder cacheMissing(Duration duration) {
+      this.cacheMissing = checkDuration(duration);
+      return this;
+    }
+
+    /** Sets the executor that refreshes schemas, the common pool by default. */
+    public Builder executor(Executor executor) {
+      this.executor = Objects.requireNonNull(executor, "executor");
+      return this;
+    }
+
+    // for tests
+    Builder ticker(LongSupplier ticker) {
+      this.ticker = ticker;
+      return this;
+    }
+
+    private static Duration checkDuration(Duration duration) {
+      if (duration.isNegative()) {
+        throw new IllegalArgumentException("Invalid duration: " + duration);
+      }
+      return duration;
+    }
+
+    public CachingSchemaStore build() {
+      return new CachingSchemaStore(store, new FingerprintCache.Policy(maximumSize, expireAfterWrite.toNanos(),
+          refreshAfterWrite.toNanos(), cacheMissing.toNanos(), executor, ticker));
+    }
+  }
+}
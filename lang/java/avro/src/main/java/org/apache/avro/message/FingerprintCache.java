@@ -0,0 +1,270 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.message;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongFunction;
+import java.util.function.LongSupplier;
+
+/**
+ * A cache of values by schema fingerprint, bounded in size and age, shared by
+ * {@link CachingSchemaStore} and {@link BinaryMessageDecoder}.
+ * <p/>
+ * Concurrent misses for the same fingerprint load it once. Missing values may
+ * be cached for a while too, so that unknown fingerprints do not hit the loader
+ * for every message. When full, the least recently used entries are evicted,
+ * in batches so that lookups never wait for eviction.
+ * <p/>
+ * This class is thread-safe.
+ */
+class FingerprintCache<V> {
+
+  /** The limits of a cache. Immutable. */
+  static final class Policy {
+    static final Policy UNBOUNDED = new Policy(Long.MAX_VALUE, 0, 0, 0, null, System::nanoTime);
+
+    final long maximumSize;
+    final long expireAfterWriteNanos; // 0 if values do not expire
+    final long refreshAfterWriteNanos; // 0 if values are not refreshed
+    final long missingNanos; // 0 if missing values are not cached
+    final Executor executor;
+    final LongSupplier ticker;
+
+    Policy(long maximumSize, long expireAfterWriteNanos, long refreshAfterWriteNanos, long missingNanos,
+        Executor executor, LongSupplier ticker) {
+      this.maximumSize = maximumSize;
+      this.expireAfterWriteNanos = expireAfterWriteNanos;
+      this.refreshAfterWriteNanos = refreshAfterWriteNanos;
+      this.missingNanos = missingNanos;
+      this.executor = executor;
+      this.ticker = ticker;
+    }
+
+    /** Returns this policy without refreshing. */
+    Policy withoutRefresh() {
+      return new Policy(maximumSize, expireAfterWriteNanos, 0, missingNanos, null, ticker);
+    }
+  }
+
+  private static final class Entry<V> {
+    final V value; // null if missing
+    final long loaded;
+    final AtomicBoolean refreshing = new AtomicBoolean();
+    volatile long accessed;
+
+    Entry(V value, long now) {
+      this.value = value;
+      this.loaded = now;
+      this.accessed = now;
+    }
+  }
+
+  private final Policy policy;
+  private final LongFunction<V> loader;
+  private final Map<Long, Entry<V>> entries = new ConcurrentHashMap<>();
+  private final Object evicting = new Object();
+
+  private final Map<Long, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+
+  final LongAdder hits = new LongAdder();
+  final LongAdder misses = new LongAdder();
+  final LongAdder loads = new LongAdder();
+  final LongAdder loadFailures = new LongAdder();
+  final LongAdder loadNanos = new LongAdder();
+  final LongAdder evictions = new LongAdder();
+
+  FingerprintCache(Policy policy, LongFunction<V> loader) {
+    this.policy = policy;
+    this.loader = loader;
+  }
+
+  /**
+   * Returns the value for a fingerprint, loading it if it is not cached or has
+   * expired. Returns null if the loader does not know the fingerprint.
+   */
+  V get(long fingerprint) {
+    long now = policy.ticker.getAsLong();
+    Entry<V> entry = entries.get(fingerprint);
+    if (entry != null && !isExpired(entry, now)) {
+      hits.increment();
+      entry.accessed = now;
+      if (policy.refreshAfterWriteNanos > 0 && entry.value != null
+          && now - entry.loaded >= policy.refreshAfterWriteNanos) {
+        refresh(fingerprint, entry);
+      }
+      return entry.value;
+    }
+    if (entry != null && entries.remove(fingerprint, entry)) {
+      evictions.increment(); // expired
+    }
+    misses.increment();
+    return load(fingerprint);
+  }
+
+  /** Adds a value that is not loaded, replacing any cached value. */
+  void put(long fingerprint, V value) {
+    store(fingerprint, new Entry<>(value, policy.ticker.getAsLong()));
+  }
+
+  void invalidate(long fingerprint) {
+    entries.remove(fingerprint);
+  }
+
+  void invalidateAll() {
+    entries.clear();
+  }
+
+  long size() {
+    return entries.size();
+  }
+
+  private boolean isExpired(Entry<V> entry, long now) {
+    long ttl = entry.value == null ? policy.missingNanos : policy.expireAfterWriteNanos;
+    return ttl > 0 && now - entry.loaded >= ttl;
+  }
+
+  private V load(long fingerprint) {
+    CompletableFuture<V> future = new CompletableFuture<>();
+    CompletableFuture<V> inFlight = loading.putIfAbsent(fingerprint, future);
+    if (inFlight != null) {
+      // another thread is loading the same fingerprint
+      try {
+        return inFlight.join();
+      } catch (CompletionException e) {
+        throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+      }
+    }
+    try {
+      V value = timedLoad(fingerprint);
+      if (value != null || policy.missingNanos > 0) {
+        store(fingerprint, new Entry<>(value, policy.ticker.getAsLong()));
+      } else {
+        invalidate(fingerprint);
+      }
+      future.complete(value);
+      return value;
+    } catch (RuntimeException | Error e) {
+      future.completeExceptionally(e);
+      throw e;
+    } finally {
+      loading.remove(fingerprint, future);
+    }
+  }
+
+  private V timedLoad(long fingerprint) {
+    long start = System.nanoTime();
+    try {
+      V value = loader.apply(fingerprint);
+      loads.increment();
+      return value;
+    } catch (RuntimeException | Error e) {
+      loadFailures.increment();
+      throw e;
+    } finally {
+      loadNanos.add(System.nanoTime() - start);
+    }
+  }
+
+  // reload in the background, the current value is used until it completes
+  private void refresh(long fingerprint, Entry<V> entry) {
+    if (!entry.refreshing.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      policy.executor.execute(() -> {
+        try {
+          V value = timedLoad(fingerprint);
+          if (value != null) {
+            Entry<V> refreshed = new Entry<>(value, policy.ticker.getAsLong());
+            refreshed.accessed = entry.accessed;
+            entries.replace(fingerprint, entry, refreshed);
+          }
+        } catch (RuntimeException e) {
+          // keep the current value, it is retried on a later access
+        } finally {
+          entry.refreshing.set(false);
+        }
+      });
+    } catch (RuntimeException e) {
+      // the executor rejected the task
+      entry.refreshing.set(false);
+    }
+  }
+
+  // evicts entries if the cache is full
+  private void store(long fingerprint, Entry<V> entry) {
+    entries.put(fingerprint, entry);
+    if (entries.size() > policy.maximumSize) {
+      evict(policy.ticker.getAsLong());
+    }
+  }
+
+  // removes expired entries, then the least recently used, until an eighth of
+  // the cache is free, so that a full cache is not scanned on every store
+  private void evict(long now) {
+    synchronized (evicting) {
+      if (entries.size() <= policy.maximumSize) {
+        return; // another thread evicted first
+      }
+      List<Candidate<V>> live = new ArrayList<>(entries.size());
+      for (Map.Entry<Long, Entry<V>> e : entries.entrySet()) {
+        Candidate<V> candidate = new Candidate<>(e.getKey(), e.getValue());
+        if (isExpired(candidate.entry, now)) {
+          remove(candidate);
+        } else {
+          live.add(candidate);
+        }
+      }
+      long target = policy.maximumSize - policy.maximumSize / 8;
+      if (entries.size() > target) {
+        live.sort(Comparator.comparingLong(c -> c.accessed));
+        for (int i = 0; i < live.size() && entries.size() > target; i++) {
+          remove(live.get(i));
+        }
+      }
+    }
+  }
+
+  private void remove(Candidate<V> candidate) {
+    if (entries.remove(candidate.fingerprint, candidate.entry)) {
+      evictions.increment();
+    }
+  }
+
+  // an entry with its access time when eviction started, as it may change
+  private static final class Candidate<V> {
+    final long fingerprint;
+    final Entry<V> entry;
+    final long accessed;
+
+    Candidate(long fingerprint, Entry<V> entry) {
+      this.fingerprint = fingerprint;
+      this.entry = entry;
+      this.accessed = entry.accessed;
+    }
+  }
+}
@@ -25,6 +25,8 @@ import org.apache.avro.generic.GenericData;
 import org.apache.avro.io.BinaryDecoder;
 import org.apache.avro.io.DatumReader;
 import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.util.ScratchProvider;
+import org.apache.avro.util.ScratchProvider.Scratch;
 import java.io.IOException;
 import java.io.InputStream;
 
@@ -43,7 +45,8 @@ import java.io.InputStream;
  */
 public class RawMessageDecoder<D> extends MessageDecoder.BaseDecoder<D> {
 
-  private static final ThreadLocal<BinaryDecoder> DECODER = new ThreadLocal<>();
+  private static final Scratch<BinaryDecoder> DECODER = ScratchProvider.getDefault()
+      .scratch(() -> DecoderFactory.get().directBinaryDecoder(InputStream.nullInputStream(), null));
 
   private final DatumReader<D> reader;
 
@@ -83,14 +86,21 @@ public class RawMessageDecoder<D> extends MessageDecoder.BaseDecoder<D> {
     this.reader = model.createDatumReader(writeSchema1, readSchema1);
   }
 
+  // reads a datum with a decoder set up by the caller
+  D read(BinaryDecoder decoder, D reuse) throws IOException {
+    return reader.read(reuse, decoder);
+  }
+
   @Override
   public D decode(InputStream stream, D reuse) {
-    BinaryDecoder decoder = DecoderFactory.get().directBinaryDecoder(stream, DECODER.get());
-    DECODER.set(decoder);
+    BinaryDecoder decoder = DECODER.acquire();
     try {
+      decoder = DecoderFactory.get().directBinaryDecoder(stream, decoder);
       return reader.read(reuse, decoder);
     } catch (IOException e) {
       throw new AvroRuntimeException("Decoding datum failed", e);
+    } finally {
+      DECODER.release(decoder);
     }
   }
 }
@@ -24,6 +24,8 @@ import org.apache.avro.generic.GenericData;
 import org.apache.avro.io.BinaryEncoder;
 import org.apache.avro.io.DatumWriter;
 import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.util.ScratchProvider;
+import org.apache.avro.util.ScratchProvider.Scratch;
 import org.apache.avro.util.internal.ThreadLocalWithInitial;
 
 import java.io.ByteArrayOutputStream;
@@ -39,9 +41,15 @@ import java.nio.ByteBuffer;
  */
 public class RawMessageEncoder<D> implements MessageEncoder<D> {
 
-  private static final ThreadLocal<BufferOutputStream> TEMP = ThreadLocalWithInitial.of(BufferOutputStream::new);
+  private static final Scratch<BufferOutputStream> TEMP = ScratchProvider.getDefault()
+      .scratch(BufferOutputStream::new);
 
-  private static final ThreadLocal<BinaryEncoder> ENCODER = new ThreadLocal<>();
+  // buffers returned without a copy stay with the thread until its next call
+  private static final ThreadLocal<BufferOutputStream> THREAD_TEMP = ThreadLocalWithInitial
+      .of(BufferOutputStream::new);
+
+  private static final Scratch<BinaryEncoder> ENCODER = ScratchProvider.getDefault()
+      .scratch(() -> EncoderFactory.get().directBinaryEncoder(OutputStream.nullOutputStream(), null));
 
   private final boolean copyOutputBytes;
   private final DatumWriter<D> writer;
@@ -88,24 +96,38 @@ public class RawMessageEncoder<D> implements MessageEncoder<D> {
 
   @Override
   public ByteBuffer encode(D datum) throws IOException {
-    BufferOutputStream temp = TEMP.get();
-    temp.reset();
-
-    encode(datum, temp);
+    if (!copyOutputBytes) {
+      BufferOutputStream temp = THREAD_TEMP.get();
+      temp.reset();
+      encode(datum, temp);
+      return temp.toBufferWithoutCopy();
+    }
 
-    if (copyOutputBytes) {
+    BufferOutputStream temp = TEMP.acquire();
+    try {
+      temp.reset();
+      encode(datum, temp);
       return temp.toBufferWithCopy();
-    } else {
-      return temp.toBufferWithoutCopy();
+    } finally {
+      TEMP.release(temp);
     }
   }
 
   @Override
   public void encode(D datum, OutputStream stream) throws IOException {
-    BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(stream, ENCODER.get());
-    ENCODER.set(encoder);
+    BinaryEncoder encoder = ENCODER.acquire();
+    try {
+      encoder = EncoderFactory.get().directBinaryEncoder(stream, encoder);
+      writer.write(datum, encoder);
+      encoder.flush();
+    } finally {
+      ENCODER.release(encoder);
+    }
+  }
+
+  // writes a datum with an encoder set up once for a batch
+  void write(D datum, BinaryEncoder encoder) throws IOException {
     writer.write(datum, encoder);
-    encoder.flush();
   }
 
   private static class BufferOutputStream extends ByteArrayOutputStream {
@@ -20,6 +20,7 @@
 package org.apache.avro.message;
 
 import org.apache.avro.Schema;
+import org.apache.avro.SchemaInterner;
 import org.apache.avro.SchemaNormalization;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -44,6 +45,22 @@ public interface SchemaStore {
    */
   class Cache implements SchemaStore {
     private final Map<Long, Schema> schemas = new ConcurrentHashMap<>();
+    private final SchemaInterner interner;
+
+    /** Creates an empty cache. */
+    public Cache() {
+      this(null);
+    }
+
+    /**
+     * Creates an empty cache that holds the canonical instances of the schemas
+     * added.
+     *
+     * @param interner a {@link SchemaInterner}, or null to keep schemas as added
+     */
+    public Cache(SchemaInterner interner) {
+      this.interner = interner;
+    }
 
     /**
      * Adds a schema to this cache that can be retrieved using its AVRO-CRC-64
@@ -53,7 +70,7 @@ public interface SchemaStore {
      */
     public void addSchema(Schema schema) {
       long fp = SchemaNormalization.parsingFingerprint64(schema);
-      schemas.put(fp, schema);
+      schemas.put(fp, interner != null ? interner.intern(schema) : schema);
     }
 
     @Override
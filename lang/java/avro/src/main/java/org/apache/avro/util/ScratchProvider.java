@@ -0,0 +1,214 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.util;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+import org.apache.avro.util.internal.ThreadLocalWithInitial;
+
+/**
+ * Provides the scratch objects, such as buffers, encoders and decoders, that
+ * Avro reuses from one call to the next instead of allocating them each time.
+ * <p/>
+ * Three strategies are available:
+ * <ul>
+ * <li>{@link #threadLocal()}, the default, keeps one object per thread. It
+ * suits a small pool of long-lived threads, but each short-lived thread, such
+ * as a virtual thread, allocates its own objects and drops them.</li>
+ * <li>{@link #pooled(int)} keeps a bounded number of idle objects that any
+ * thread may take and give back. The number of objects then depends on the
+ * concurrency rather than on the number of threads.</li>
+ * <li>{@link #perCall()} allocates an object for each call, leaving it to
+ * escape analysis or the young generation to make that cheap.</li>
+ * </ul>
+ * Other strategies may be plugged in by extending this class.
+ * <p/>
+ * The default provider is chosen by the system property {@value #SCRATCH_PROP},
+ * set to <tt>thread-local</tt>, <tt>pooled</tt> or <tt>per-call</tt>, or by
+ * {@link #setDefault(ScratchProvider)}. Avro classes create their scratch
+ * resources when they are loaded, so the default must be set before Avro is
+ * used.
+ */
+public abstract class ScratchProvider {
+
+  /** The system property that selects the default provider. */
+  public static final String SCRATCH_PROP = "org.apache.avro.scratch";
+
+  /**
+   * Reusable objects of one kind. Each object acquired is used by one thread at
+   * a time, until it is released.
+   */
+  public interface Scratch<T> {
+    /** Returns an object for the caller's exclusive use until released. */
+    T acquire();
+
+    /** Gives back an object once the caller no longer uses it. */
+    void release(T scratch);
+  }
+
+  private static volatile ScratchProvider defaultProvider = forName(System.getProperty(SCRATCH_PROP, "thread-local"));
+
+  /** Creates the scratch resource for objects supplied by a factory. */
+  public abstract <T> Scratch<T> scratch(Supplier<? extends T> factory);
+
+  /** Returns the provider that Avro classes use. */
+  public static ScratchProvider getDefault() {
+    return defaultProvider;
+  }
+
+  /**
+   * Sets the provider that Avro classes use. Only scratch resources created
+   * afterwards use it.
+   */
+  public static void setDefault(ScratchProvider provider) {
+    if (provider == null) {
+      throw new NullPointerException("provider");
+    }
+    defaultProvider = provider;
+  }
+
+  /**
+   * Returns a provider by name: <tt>thread-local</tt>, <tt>pooled</tt> or
+   * <tt>per-call</tt>.
+   */
+  public static ScratchProvider forName(String name) {
+    switch (name.toLowerCase(Locale.ROOT)) {
+    case "thread-local":
+      return threadLocal();
+    case "pooled":
+      return pooled(2 * Runtime.getRuntime().availableProcessors());
+    case "per-call":
+      return perCall();
+    default:
+      throw new IllegalArgumentException("Unknown scratch provider: " + name);
+    }
+  }
+
+  /** Returns a provider that keeps one object per thread. */
+  public static ScratchProvider threadLocal() {
+    return ThreadLocalProvider.INSTANCE;
+  }
+
+  /**
+   * Returns a provider that keeps at most {@code maxIdle} idle objects of each
+   * kind, shared by all threads.
+   */
+  public static ScratchProvider pooled(int maxIdle) {
+    if (maxIdle < 1) {
+      throw new IllegalArgumentException("Invalid pool size: " + maxIdle);
+    }
+    return new ScratchProvider() {
+      @Override
+      public <T> Scratch<T> scratch(Supplier<? extends T> factory) {
+        return new Pool<>(factory, maxIdle);
+      }
+    };
+  }
+
+  /** Returns a provider that allocates a new object for each call. */
+  public static ScratchProvider perCall() {
+    return PerCallProvider.INSTANCE;
+  }
+
+  private static final class ThreadLocalProvider extends ScratchProvider {
+    static final ThreadLocalProvider INSTANCE = new ThreadLocalProvider();
+
+    @Override
+    public <T> Scratch<T> scratch(Supplier<? extends T> factory) {
+      ThreadLocal<T> local = ThreadLocalWithInitial.of(factory);
+      return new Scratch<T>() {
+        @Override
+        public T acquire() {
+          return local.get();
+        }
+
+        @Override
+        public void release(T scratch) {
+          // kept by the thread
+        }
+      };
+    }
+  }
+
+  private static final class PerCallProvider extends ScratchProvider {
+    static final PerCallProvider INSTANCE = new PerCallProvider();
+
+    @Override
+    public <T> Scratch<T> scratch(Supplier<? extends T> factory) {
+      return new Scratch<T>() {
+        @Override
+        public T acquire() {
+          return factory.get();
+        }
+
+        @Override
+        public void release(T scratch) {
+          // dropped
+        }
+      };
+    }
+  }
+
+  /**
+   * Idle objects in a fixed array of slots, so that acquiring and releasing
+   * allocate nothing. Threads start looking at different slots to spread
+   * contention.
+   */
+  private static final class Pool<T> implements Scratch<T> {
+    private final Supplier<? extends T> factory;
+    private final AtomicReferenceArray<T> idle;
+
+    Pool(Supplier<? extends T> factory, int maxIdle) {
+      this.factory = factory;
+      this.idle = new AtomicReferenceArray<>(maxIdle);
+    }
+
+    private int start() {
+      return (int) (Thread.currentThread().getId() % idle.length());
+    }
+
+    @Override
+    public T acquire() {
+      int start = start();
+      for (int i = 0; i < idle.length(); i++) {
+        int slot = (start + i) % idle.length();
+        if (idle.get(slot) != null) {
+          T scratch = idle.getAndSet(slot, null);
+          if (scratch != null) {
+            return scratch;
+          }
+        }
+      }
+      return factory.get();
+    }
+
+    @Override
+    public void release(T scratch) {
+      int start = start();
+      for (int i = 0; i < idle.length(); i++) {
+        int slot = (start + i) % idle.length();
+        if (idle.get(slot) == null && idle.compareAndSet(slot, null, scratch)) {
+          return;
+        }
+      }
+      // the pool is full, drop it
+    }
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+import org.apache.avro.file.CodecFactory;
+import org.apache.avro.file.DataFileReader;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.file.SeekableByteArrayInput;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.util.RandomData;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+public class TestDataFileAsyncCompression {
+  private static final int COUNT = 2000;
+  private static final long SEED = 42;
+  private static final String SCHEMA_JSON = "{\"type\": \"record\", \"name\": \"Test\", \"fields\": ["
+      + "{\"name\":\"stringField\", \"type\":\"string\"}," + "{\"name\":\"longField\", \"type\":\"long\"}]}";
+  private static final Schema SCHEMA = new Schema.Parser().parse(SCHEMA_JSON);
+
+  private static ExecutorService executor;
+
+  @TempDir
+  public File dir;
+
+  @BeforeAll
+  public static void startExecutor() {
+    executor = Executors.newFixedThreadPool(4);
+  }
+
+  @AfterAll
+  public static void stopExecutor() {
+    executor.shutdownNow();
+  }
+
+  public static Stream<CodecFactory> codecs() {
+    return Stream.of(CodecFactory.nullCodec(), CodecFactory.deflateCodec(6), CodecFactory.snappyCodec(),
+        CodecFactory.xzCodec(1), CodecFactory.zstandardCodec(3));
+  }
+
+  @ParameterizedTest
+  @MethodSource("codecs")
+  void writesBlocksInOrder(CodecFactory codec) throws IOException {
+    File file = new File(dir, "test-" + codec + ".avro");
+    List<Long> syncs = new ArrayList<>();
+    try (DataFileWriter<Object> writer = new DataFileWriter<>(new GenericDatumWriter<>()).setSyncInterval(500)) {
+      writer.setCodec(codec).setCompressionExecutor(executor, 3);
+      writer.create(SCHEMA, file);
+      int count = 0;
+      for (Object datum : new RandomData(SCHEMA, COUNT, SEED)) {
+        writer.append(datum);
+        if (++count % (COUNT / 4) == 0) {
+          syncs.add(writer.sync());
+        }
+      }
+    }
+
+    List<Object> expected = new ArrayList<>();
+    new RandomData(SCHEMA, COUNT, SEED).forEach(expected::add);
+    try (DataFileReader<Object> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+      for (Object datum : expected) {
+        assertEquals(datum, reader.next());
+      }
+      // positions returned by sync() are block boundaries once pending blocks
+      // have been written
+      for (int i = 0; i < syncs.size() - 1; i++) {
+        reader.seek(syncs.get(i));
+        assertEquals(expected.get((i + 1) * (COUNT / 4)), reader.next());
+      }
+    }
+  }
+
+  @Test
+  void flushWritesPendingBlocks() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    DataFileWriter<Object> writer = new DataFileWriter<>(new GenericDatumWriter<>()).setSyncInterval(100);
+    writer.setCodec(CodecFactory.deflateCodec(9)).setCompressionExecutor(executor, 2);
+    writer.create(SCHEMA, out);
+    for (Object datum : new RandomData(SCHEMA, COUNT, SEED)) {
+      writer.append(datum);
+    }
+    writer.flush();
+
+    int count = 0;
+    try (DataFileReader<Object> reader = new DataFileReader<>(new SeekableByteArrayInput(out.toByteArray()),
+        new GenericDatumReader<>())) {
+      while (reader.hasNext()) {
+        reader.next();
+        count++;
+      }
+    }
+    assertEquals(COUNT, count);
+    writer.close();
+  }
+
+  @Test
+  void invalidMaxPendingBlocks() {
+    DataFileWriter<Object> writer = new DataFileWriter<>(new GenericDatumWriter<>());
+    assertThrows(IllegalArgumentException.class, () -> writer.setCompressionExecutor(executor, 0));
+  }
+}
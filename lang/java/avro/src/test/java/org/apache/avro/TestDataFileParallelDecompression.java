@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.apache.avro.file.BlockBufferPool;
+import org.apache.avro.file.CodecFactory;
+import org.apache.avro.file.DataFileReader;
+import org.apache.avro.file.DataFileStream;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.util.RandomData;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+public class TestDataFileParallelDecompression {
+  private static final int COUNT = 2000;
+  private static final long SEED = 42;
+  private static final String SCHEMA_JSON = "{\"type\": \"record\", \"name\": \"Test\", \"fields\": ["
+      + "{\"name\":\"stringField\", \"type\":\"string\"}," + "{\"name\":\"longField\", \"type\":\"long\"}]}";
+  private static final Schema SCHEMA = new Schema.Parser().parse(SCHEMA_JSON);
+
+  private static ExecutorService executor;
+
+  @TempDir
+  public File dir;
+
+  @BeforeAll
+  public static void startExecutor() {
+    executor = Executors.newFixedThreadPool(4);
+  }
+
+  @AfterAll
+  public static void stopExecutor() {
+    executor.shutdownNow();
+  }
+
+  public static Stream<CodecFactory> codecs() {
+    return Stream.of(CodecFactory.nullCodec(), CodecFactory.deflateCodec(6), CodecFactory.snappyCodec(),
+        CodecFactory.xzCodec(1), CodecFactory.zstandardCodec(3));
+  }
+
+  private File write(CodecFactory codec) throws IOException {
+    File file = new File(dir, "test-" + codec + ".avro");
+    try (DataFileWriter<Object> writer = new DataFileWriter<>(new GenericDatumWriter<>()).setSyncInterval(500)) {
+      writer.setCodec(codec);
+      writer.create(SCHEMA, file);
+      for (Object datum : new RandomData(SCHEMA, COUNT, SEED)) {
+        writer.append(datum);
+      }
+    }
+    return file;
+  }
+
+  private static List<Object> expected() {
+    List<Object> expected = new ArrayList<>();
+    new RandomData(SCHEMA, COUNT, SEED).forEach(expected::add);
+    return expected;
+  }
+
+  @ParameterizedTest
+  @MethodSource("codecs")
+  void streamReadsInFileOrder(CodecFactory codec) throws IOException {
+    File file = write(codec);
+    List<Object> actual = new ArrayList<>();
+    try (DataFileStream<Object> stream = new DataFileStream<>(new FileInputStream(file), new GenericDatumReader<>())) {
+      stream.setDecompressionExecutor(executor, 8);
+      stream.forEach(actual::add);
+    }
+    assertEquals(expected(), actual);
+  }
+
+  @ParameterizedTest
+  @MethodSource("codecs")
+  void syncPointsMatchSequentialRead(CodecFactory codec) throws IOException {
+    File file = write(codec);
+    List<Long> expected = new ArrayList<>();
+    try (DataFileReader<Object> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+      while (reader.hasNext()) {
+        expected.add(reader.previousSync());
+        reader.nextBlock();
+      }
+    }
+    try (DataFileReader<Object> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+      reader.setDecompressionExecutor(executor, 4);
+      List<Long> actual = new ArrayList<>();
+      while (reader.hasNext()) {
+        actual.add(reader.previousSync());
+        reader.nextBlock();
+      }
+      assertEquals(expected, actual);
+
+      // seeking discards blocks already read ahead
+      reader.seek(expected.get(expected.size() / 2));
+      assertEquals(expected.get(expected.size() / 2), reader.previousSync());
+      int count = 0;
+      while (reader.hasNext()) {
+        reader.next();
+        count++;
+      }
+      assertEquals(COUNT - countBefore(file, expected.get(expected.size() / 2)), count);
+    }
+  }
+
+  @Test
+  void splitsCoverAllRecords() throws IOException {
+    File file = write(CodecFactory.deflateCodec(1));
+    long length = file.length();
+    int count = 0;
+    try (DataFileReader<Object> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+      reader.setDecompressionExecutor(executor, 3);
+      for (long start = 0; start < length; start += length / 7) {
+        long end = Math.min(length, start + length / 7);
+        reader.sync(start);
+        while (!reader.pastSync(end)) {
+          reader.next();
+          count++;
+        }
+      }
+    }
+    assertEquals(COUNT, count);
+  }
+
+  @Test
+  void discardedBlocksGoBackToPool() throws IOException {
+    File file = write(CodecFactory.deflateCodec(1));
+    AtomicInteger outstanding = new AtomicInteger();
+    BlockBufferPool pool = new BlockBufferPool() {
+      @Override
+      public ByteBuffer acquire(int minCapacity) {
+        outstanding.incrementAndGet();
+        return super.acquire(minCapacity);
+      }
+
+      @Override
+      public void release(ByteBuffer buffer) {
+        outstanding.decrementAndGet();
+        super.release(buffer);
+      }
+    };
+    try (DataFileReader<Object> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+      reader.setDecompressionExecutor(executor, 8);
+      reader.setBufferPool(pool);
+      reader.next();
+      long sync = reader.previousSync();
+      reader.next();
+      reader.seek(sync); // discards blocks read ahead
+      reader.next();
+    } // discards them again
+    assertEquals(0, outstanding.get());
+  }
+
+  @Test
+  void invalidPrefetch() throws IOException {
+    File file = write(CodecFactory.nullCodec());
+    try (DataFileReader<Object> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+      assertThrows(IllegalArgumentException.class, () -> reader.setDecompressionExecutor(executor, 0));
+    }
+  }
+
+  private static int countBefore(File file, long position) throws IOException {
+    int count = 0;
+    try (DataFileReader<Object> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+      while (reader.hasNext() && reader.previousSync() < position) {
+        reader.next();
+        count++;
+      }
+    }
+    return count;
+  }
+}
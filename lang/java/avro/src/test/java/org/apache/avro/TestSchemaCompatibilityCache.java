@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.avro.SchemaCompatibility.SchemaCompatibilityType;
+import org.apache.avro.SchemaCompatibility.SchemaPairCompatibility;
+import org.junit.jupiter.api.Test;
+
+public class TestSchemaCompatibilityCache {
+
+  private static final String INNER = "{\"type\":\"record\",\"name\":\"Inner\",\"fields\":["
+      + "{\"name\":\"a\",\"type\":\"int\"},{\"name\":\"b\",\"type\":{\"type\":\"array\",\"items\":\"string\"}}]}";
+
+  // version n adds field f<n> with a default
+  private static Schema version(int n) {
+    StringBuilder fields = new StringBuilder("{\"name\":\"inner\",\"type\":" + INNER + "}");
+    for (int i = 1; i <= n; i++) {
+      fields.append(",{\"name\":\"f").append(i).append("\",\"type\":\"long\",\"default\":0}");
+    }
+    return new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"Outer\",\"fields\":[" + fields + "]}");
+  }
+
+  private static Schema parse(String json) {
+    return new Schema.Parser().parse(json);
+  }
+
+  @Test
+  void sameResultsAsUncached() {
+    List<Schema> schemas = Arrays.asList(TestSchemas.INT_SCHEMA, TestSchemas.LONG_SCHEMA,
+        TestSchemas.INT_LONG_UNION_SCHEMA, TestSchemas.ENUM1_AB_SCHEMA, TestSchemas.ENUM1_ABC_SCHEMA,
+        TestSchemas.A_INT_RECORD1, TestSchemas.A_LONG_RECORD1, TestSchemas.A_DINT_RECORD1, TestSchemas.EMPTY_RECORD1,
+        version(0), version(1), version(2));
+    SchemaCompatibility.Cache cache = new SchemaCompatibility.Cache();
+    for (int pass = 0; pass < 2; pass++) {
+      for (Schema reader : schemas) {
+        for (Schema writer : schemas) {
+          SchemaPairCompatibility expected = SchemaCompatibility.checkReaderWriterCompatibility(reader, writer);
+          SchemaPairCompatibility actual = cache.check(reader, writer);
+          assertEquals(expected.getType(), actual.getType(), reader + " reading " + writer);
+          assertEquals(expected.getDescription(), actual.getDescription());
+          assertSame(reader, actual.getReader());
+          assertSame(writer, actual.getWriter());
+        }
+      }
+    }
+    assertEquals(schemas.size() * schemas.size(), cache.size());
+  }
+
+  @Test
+  void keyedByFingerprint() {
+    SchemaCompatibility.Cache cache = new SchemaCompatibility.Cache();
+    cache.check(version(2), version(1));
+    cache.check(version(2), version(1));
+    assertEquals(1, cache.size());
+
+    // the inner records of both were found compatible, wherever they came from
+    assertTrue(cache.isCompatibleRecord(parse(INNER), parse(INNER)));
+    assertFalse(cache.isCompatibleRecord(version(0), version(2)));
+
+    cache.clear();
+    assertEquals(0, cache.size());
+    assertFalse(cache.isCompatibleRecord(parse(INNER), parse(INNER)));
+  }
+
+  @Test
+  void batch() {
+    List<Schema> history = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      history.add(version(i));
+    }
+    SchemaCompatibility.Cache cache = new SchemaCompatibility.Cache();
+    // the new version can read all previous ones, which cannot read its new field
+    for (SchemaPairCompatibility pair : cache.checkReader(version(5), history)) {
+      assertEquals(SchemaCompatibilityType.COMPATIBLE, pair.getType());
+    }
+    Schema strict = parse("{\"type\":\"record\",\"name\":\"Outer\",\"fields\":[{\"name\":\"inner\",\"type\":" + INNER
+        + "},{\"name\":\"f1\",\"type\":\"long\"}]}");
+    List<SchemaPairCompatibility> pairs = cache.checkWriter(version(5), Arrays.asList(strict, version(0)));
+    assertEquals(SchemaCompatibilityType.COMPATIBLE, pairs.get(0).getType());
+    assertEquals(SchemaCompatibilityType.COMPATIBLE, pairs.get(1).getType());
+    pairs = cache.checkReader(strict, Arrays.asList(version(0), version(1)));
+    assertEquals(SchemaCompatibilityType.INCOMPATIBLE, pairs.get(0).getType());
+    assertEquals(SchemaCompatibilityType.COMPATIBLE, pairs.get(1).getType());
+  }
+
+  @Test
+  void recursionAssumptionsNotShared() {
+    // B only looks compatible while A, in progress, is assumed to be
+    Schema reader = parse("{\"type\":\"record\",\"name\":\"A\",\"fields\":["
+        + "{\"name\":\"b\",\"type\":{\"type\":\"record\",\"name\":\"B\",\"fields\":["
+        + "{\"name\":\"a\",\"type\":[\"null\",\"A\"]}]}},{\"name\":\"x\",\"type\":\"int\"}]}");
+    Schema writer = parse("{\"type\":\"record\",\"name\":\"A\",\"fields\":["
+        + "{\"name\":\"b\",\"type\":{\"type\":\"record\",\"name\":\"B\",\"fields\":["
+        + "{\"name\":\"a\",\"type\":[\"null\",\"A\"]}]}}]}");
+    SchemaCompatibility.Cache cache = new SchemaCompatibility.Cache();
+    assertEquals(SchemaCompatibilityType.INCOMPATIBLE, cache.check(reader, writer).getType());
+
+    Schema readerB = reader.getField("b").schema();
+    Schema writerB = writer.getField("b").schema();
+    assertFalse(cache.isCompatibleRecord(readerB, writerB));
+    assertEquals(SchemaCompatibility.checkReaderWriterCompatibility(readerB, writerB).getType(),
+        cache.check(readerB, writerB).getType());
+    assertEquals(SchemaCompatibilityType.INCOMPATIBLE, cache.check(readerB, writerB).getType());
+  }
+
+  @Test
+  void settledPairsKeepTheirAssumptions() {
+    String records = "{\"type\":\"record\",\"name\":\"A\",\"fields\":["
+        + "{\"name\":\"b\",\"type\":{\"type\":\"record\",\"name\":\"B\",\"fields\":["
+        + "{\"name\":\"a\",\"type\":[\"null\",\"A\"]}]}},"
+        + "{\"name\":\"c\",\"type\":{\"type\":\"record\",\"name\":\"C\",\"fields\":["
+        + "{\"name\":\"b\",\"type\":\"B\"}]}},{\"name\":\"x\",\"type\":\"%s\"}]}";
+    Schema reader = parse(String.format(records, "string"));
+    Schema writer = parse(String.format(records, "int"));
+    Schema readerC = reader.getField("c").schema();
+    Schema writerC = writer.getField("c").schema();
+    assertEquals(SchemaCompatibilityType.INCOMPATIBLE,
+        SchemaCompatibility.checkReaderWriterCompatibility(readerC, writerC).getType());
+
+    SchemaCompatibility.Cache cache = new SchemaCompatibility.Cache();
+    assertEquals(SchemaCompatibilityType.INCOMPATIBLE, cache.check(reader, writer).getType());
+    // C reaches B, which was settled assuming A compatible while A was in progress
+    assertEquals(SchemaCompatibilityType.INCOMPATIBLE, cache.check(readerC, writerC).getType());
+  }
+
+  @Test
+  void validator() throws Exception {
+    SchemaCompatibility.Cache cache = new SchemaCompatibility.Cache(100);
+    SchemaValidator validator = new SchemaValidatorBuilder().compatibilityCache(cache).canReadStrategy()
+        .validateAll();
+    List<Schema> history = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      validator.validate(version(i), history);
+      history.add(0, version(i));
+    }
+    assertEquals(6, cache.size());
+
+    Schema strict = parse("{\"type\":\"record\",\"name\":\"Outer\",\"fields\":[{\"name\":\"inner\",\"type\":" + INNER
+        + "},{\"name\":\"g\",\"type\":\"long\"}]}");
+    assertThrows(SchemaValidationException.class, () -> validator.validate(strict, history));
+    new SchemaValidatorBuilder().compatibilityCache(cache).canBeReadStrategy().validateAll().validate(strict,
+        history);
+    assertThrows(SchemaValidationException.class, () -> new SchemaValidatorBuilder().compatibilityCache(cache)
+        .mutualReadStrategy().validateLatest().validate(strict, history));
+    new SchemaValidatorBuilder().compatibilityCache(cache).canReadStrategy().validateAll().validate(strict,
+        Collections.emptyList());
+    assertThrows(IllegalArgumentException.class, () -> new SchemaCompatibility.Cache(0));
+  }
+}
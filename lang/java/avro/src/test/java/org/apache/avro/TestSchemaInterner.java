@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.avro.file.DataFileStream;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.message.SchemaStore;
+import org.junit.jupiter.api.Test;
+
+public class TestSchemaInterner {
+  private static final String JSON = "{\"type\":\"record\", \"name\":\"R\", \"doc\":\"a record\", "
+      + "\"fields\":[{\"name\":\"a\", \"type\":\"int\"}, {\"name\":\"r\", \"type\":[\"null\", \"R\"]}]}";
+
+  private static Schema parse(String json) {
+    return new Schema.Parser().parse(json);
+  }
+
+  @Test
+  void canonicalInstance() {
+    SchemaInterner interner = new SchemaInterner();
+    Schema first = parse(JSON);
+    assertSame(first, interner.intern(first));
+    assertSame(first, interner.intern(parse(JSON)));
+    assertEquals(1, interner.size());
+
+    // same parsing form, but different properties or documentation
+    Schema withProp = parse(JSON);
+    withProp.addProp("p", "v");
+    assertSame(withProp, interner.intern(withProp));
+    Schema otherDoc = parse(JSON.replace("a record", "another record"));
+    assertSame(otherDoc, interner.intern(otherDoc));
+    assertEquals(3, interner.size());
+
+    Schema other = parse(JSON.replace("\"int\"", "\"long\""));
+    assertSame(other, interner.intern(other));
+    assertSame(first, interner.intern(parse(JSON)));
+  }
+
+  @Test
+  void concurrentIntern() throws Exception {
+    SchemaInterner interner = new SchemaInterner();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Schema>> results = new ArrayList<>();
+      for (int i = 0; i < 100; i++) {
+        results.add(executor.submit(() -> interner.intern(parse(JSON))));
+      }
+      Schema canonical = results.get(0).get();
+      for (Future<Schema> result : results) {
+        assertSame(canonical, result.get());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void parserAndStore() {
+    SchemaInterner interner = new SchemaInterner();
+    Schema first = new SchemaParser().setInterner(interner).parse(JSON).mainSchema();
+    assertSame(first, new SchemaParser().setInterner(interner).parse(JSON).mainSchema());
+    assertNotSame(first, new SchemaParser().parse(JSON).mainSchema());
+
+    SchemaStore.Cache store = new SchemaStore.Cache(interner);
+    store.addSchema(parse(JSON));
+    assertSame(first, store.findByFingerprint(SchemaNormalization.parsingFingerprint64(first)));
+  }
+
+  private static byte[] writeFile(Schema schema) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (DataFileWriter<Object> writer = new DataFileWriter<>(new GenericDatumWriter<>(schema))) {
+      writer.create(schema, out);
+    }
+    return out.toByteArray();
+  }
+
+  private static Schema readSchema(byte[] file) throws IOException {
+    try (DataFileStream<Object> stream = new DataFileStream<>(new ByteArrayInputStream(file),
+        new GenericDatumReader<>())) {
+      return stream.getSchema();
+    }
+  }
+
+  @Test
+  void dataFileHeaders() throws IOException {
+    byte[] file = writeFile(parse(JSON));
+    assertNotSame(readSchema(file), readSchema(file));
+    boolean enabled = SchemaInterner.isGlobalEnabled();
+    SchemaInterner.setGlobalEnabled(true);
+    try {
+      Schema schema = readSchema(file);
+      assertSame(schema, readSchema(file));
+      assertSame(schema, SchemaInterner.global().intern(parse(JSON)));
+    } finally {
+      SchemaInterner.setGlobalEnabled(enabled);
+    }
+  }
+}
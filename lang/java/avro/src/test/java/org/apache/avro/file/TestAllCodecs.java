@@ -19,6 +19,7 @@
 package org.apache.avro.file;
 
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
@@ -97,10 +98,46 @@ public class TestAllCodecs {
     Assertions.assertEquals(inputByteBuffer, decompressedBuffer);
   }
 
+  @ParameterizedTest
+  @MethodSource("codecTypes")
+  void codecPooled(String codec, Class<? extends Codec> codecClass) throws IOException {
+    byte[] input = generateTestData(500_000);
+    ByteBuffer expected = ByteBuffer.wrap(input);
+
+    Codec codecInstance = CodecFactory.fromString(codec).createInstance();
+    for (BlockBufferPool pool : new BlockBufferPool[] { new BlockBufferPool(), new BlockBufferPool(true, 2) }) {
+      for (int i = 0; i < 3; i++) {
+        ByteBuffer compressed = codecInstance.compress(ByteBuffer.wrap(input), pool);
+        ByteBuffer heapCompressed = ByteBuffer.allocate(compressed.remaining());
+        heapCompressed.put(compressed.duplicate()).flip();
+
+        // pooled and unpooled buffers must be interchangeable
+        Assertions.assertEquals(expected, codecInstance.decompress(heapCompressed));
+        ByteBuffer decompressed = codecInstance.decompress(heapCompressed, pool);
+        Assertions.assertEquals(expected, decompressed);
+        Assertions.assertEquals(expected, codecInstance.decompress(codecInstance.compress(expected), pool));
+
+        pool.release(compressed);
+        pool.release(decompressed);
+      }
+    }
+  }
+
+  @Test
+  void lz4ForgedLength() throws IOException {
+    Codec codec = CodecFactory.lz4Codec(0).createInstance();
+    ByteBuffer compressed = codec.compress(ByteBuffer.wrap(generateTestData(1000)));
+    compressed.duplicate().putInt(compressed.position(), Integer.MAX_VALUE - 8);
+    IOException e = Assertions.assertThrows(IOException.class, () -> codec.decompress(compressed));
+    Assertions.assertTrue(e.getMessage().startsWith("Invalid LZ4 block: length "), e.getMessage());
+    Assertions.assertThrows(IOException.class, () -> codec.decompress(compressed, new BlockBufferPool()));
+  }
+
   public static Stream<Arguments> codecTypes() {
     return Stream.of(Arguments.of("bzip2", BZip2Codec.class), Arguments.of("zstandard", ZstandardCodec.class),
         Arguments.of("null", NullCodec.class), Arguments.of("xz", XZCodec.class),
-        Arguments.of("snappy", SnappyCodec.class), Arguments.of("deflate", DeflateCodec.class));
+        Arguments.of("snappy", SnappyCodec.class), Arguments.of("deflate", DeflateCodec.class),
+        Arguments.of("lz4", Lz4Codec.class));
   }
 
   // Generate some test data that will compress easily
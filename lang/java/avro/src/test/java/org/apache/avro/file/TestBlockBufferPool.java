@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.util.RandomRecords;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+public class TestBlockBufferPool {
+  private static final int COUNT = 2000;
+  private static final Schema SCHEMA = RandomRecords.STRING_BYTES;
+
+  @TempDir
+  public File dir;
+
+  @Test
+  void reusesLargestBuffer() {
+    BlockBufferPool pool = new BlockBufferPool(false, 2);
+    ByteBuffer small = pool.acquire(10);
+    ByteBuffer large = pool.acquire(100);
+    assertFalse(small.isDirect());
+    assertEquals(100, large.remaining());
+    large.position(20);
+    pool.release(small);
+    pool.release(large);
+
+    ByteBuffer reused = pool.acquire(50);
+    assertSame(large, reused);
+    assertEquals(0, reused.position());
+    assertEquals(100, reused.limit());
+    assertNotSame(small, pool.acquire(50));
+    assertSame(small, pool.acquire(5));
+  }
+
+  @Test
+  void keepsLargestIdleBuffers() {
+    BlockBufferPool pool = new BlockBufferPool(true, 1);
+    ByteBuffer small = pool.acquire(10);
+    ByteBuffer large = pool.acquire(100);
+    assertTrue(large.isDirect());
+    pool.release(large);
+    pool.release(small);
+    pool.release(ByteBuffer.allocate(1000)); // wrong kind
+    assertSame(large, pool.acquire(1));
+
+    assertThrows(IllegalArgumentException.class, () -> new BlockBufferPool(false, -1));
+  }
+
+  @Test
+  void outputStreamGrows() throws IOException {
+    BlockBufferPool pool = new BlockBufferPool();
+    BlockBufferPool.BufferOutputStream out = pool.outputStream(4);
+    byte[] bytes = new byte[1000];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = (byte) i;
+    }
+    out.write(bytes[0]);
+    out.write(bytes, 1, bytes.length - 1);
+    assertEquals(ByteBuffer.wrap(bytes), out.toByteBuffer());
+  }
+
+  public static Stream<Arguments> pools() {
+    return Stream.of("null", "deflate", "zstandard", "snappy", "lz4").flatMap(
+        codec -> Stream.of(Arguments.of(codec, false, false), Arguments.of(codec, true, true),
+            Arguments.of(codec, false, true)));
+  }
+
+  @ParameterizedTest
+  @MethodSource("pools")
+  void readAndWriteWithPool(String codec, boolean direct, boolean mapped) throws IOException {
+    List<Object> expected = RandomRecords.generate(SCHEMA, COUNT, 17);
+    BlockBufferPool pool = new BlockBufferPool(direct, 4);
+    File file = RandomRecords.write(new File(dir, "pooled.avro"), SCHEMA, expected,
+        writer -> writer.setSyncInterval(1000).setBufferPool(pool).setCodec(CodecFactory.fromString(codec)));
+
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      for (boolean prefetch : new boolean[] { false, true }) {
+        SeekableInput in = mapped ? new MappedSeekableInput(file) : new SeekableFileInput(file);
+        try (DataFileReader<Object> reader = new DataFileReader<>(in, new GenericDatumReader<>())) {
+          reader.setBufferPool(pool);
+          if (prefetch) {
+            reader.setDecompressionExecutor(executor, 3);
+          }
+          int i = 0;
+          Object datum = null;
+          while (reader.hasNext()) {
+            // bytes values may share the block's memory, so check each datum
+            // before the next block is read
+            datum = reader.next(datum);
+            assertEquals(expected.get(i++), datum);
+          }
+          assertEquals(COUNT, i);
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void zstandardCodecClosed() throws IOException {
+    ZstandardCodec codec = new ZstandardCodec(3, false, false);
+    BlockBufferPool pool = new BlockBufferPool();
+    ByteBuffer data = ByteBuffer.wrap(new byte[1000]);
+    ByteBuffer compressed = codec.compress(data, pool);
+    codec.close();
+    codec.close();
+    // usable again after close, with new contexts
+    assertEquals(data, codec.decompress(compressed, pool));
+    assertEquals(compressed, codec.compress(data, pool));
+    codec.close();
+  }
+
+  @Test
+  void lz4LeavesByteOrder() throws IOException {
+    BlockBufferPool pool = new BlockBufferPool();
+    ByteBuffer out = pool.acquire(2000).order(ByteOrder.LITTLE_ENDIAN);
+    pool.release(out);
+    ByteBuffer compressed = new Lz4Codec(0).compress(ByteBuffer.wrap(new byte[1000]), pool);
+    assertSame(out, compressed);
+    assertEquals(ByteOrder.LITTLE_ENDIAN, compressed.order());
+  }
+
+  @Test
+  void asyncCompressionWithPool() throws IOException {
+    File file = new File(dir, "async.avro");
+    List<Object> expected = RandomRecords.generate(SCHEMA, COUNT, 23);
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      RandomRecords.write(file, SCHEMA, expected, writer -> writer.setSyncInterval(1000)
+          .setCodec(CodecFactory.deflateCodec(1)).setCompressionExecutor(executor, 4));
+    } finally {
+      executor.shutdownNow();
+    }
+    List<Object> actual = new ArrayList<>();
+    try (DataFileReader<Object> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+      reader.setBufferPool(new BlockBufferPool()).forEach(actual::add);
+    }
+    assertEquals(expected, actual);
+  }
+}
@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.util.RandomRecords;
+import org.junit.jupiter.api.Test;
+
+public class TestColumnarBlockReader {
+  private static final Schema SCHEMA = RandomRecords.primitives("{\"name\":\"z\", \"type\":\"boolean\"}",
+      "{\"name\":\"e\", \"type\":{\"type\":\"enum\", \"name\":\"E\", \"symbols\":[\"A\", \"B\", \"C\"]}}",
+      "{\"name\":\"x\", \"type\":{\"type\":\"fixed\", \"name\":\"X\", \"size\":3}}",
+      "{\"name\":\"a\", \"type\":{\"type\":\"array\", \"items\":\"long\"}}",
+      "{\"name\":\"m\", \"type\":{\"type\":\"map\", \"values\":\"string\"}}",
+      "{\"name\":\"u\", \"type\":[\"long\", \"null\"]}",
+      "{\"name\":\"r\", \"type\":{\"type\":\"record\", \"name\":\"Inner\", \"fields\":["
+          + "{\"name\":\"v\", \"type\":\"int\"}, {\"name\":\"w\", \"type\":[\"null\", \"double\"]}]}}");
+
+  private static final int COUNT = 1000;
+
+  private static List<GenericRecord> data() {
+    List<GenericRecord> data = new ArrayList<>();
+    for (Object datum : RandomRecords.generate(SCHEMA, COUNT, 11L)) {
+      data.add((GenericRecord) datum);
+    }
+    return data;
+  }
+
+  private static byte[] write(List<GenericRecord> data, CodecFactory codec) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (DataFileWriter<GenericRecord> writer = new DataFileWriter<>(new GenericDatumWriter<>(SCHEMA))) {
+      writer.setCodec(codec).setSyncInterval(2048).create(SCHEMA, out);
+      for (GenericRecord datum : data) {
+        writer.append(datum);
+      }
+    }
+    return out.toByteArray();
+  }
+
+  private static ColumnarBlockReader open(byte[] file, String... fields) throws IOException {
+    return new ColumnarBlockReader(
+        new DataFileStream<>(new ByteArrayInputStream(file), new GenericDatumReader<GenericRecord>()), fields);
+  }
+
+  private static byte[] bytes(ColumnarBlockReader.Column column, int row) {
+    int[] offsets = column.getOffsets();
+    return Arrays.copyOfRange(column.getBytes(), offsets[row], offsets[row + 1]);
+  }
+
+  @Test
+  void allColumns() throws IOException {
+    List<GenericRecord> data = data();
+    byte[] file = write(data, CodecFactory.deflateCodec(1));
+    int row = 0;
+    int blocks = 0;
+    try (ColumnarBlockReader reader = open(file, "s", "b", "i", "l", "f", "d", "z", "e", "x", "u", "r.v", "r.w")) {
+      assertEquals(12, reader.getColumns().size());
+      ColumnarBlockReader.Column s = reader.getColumn("s");
+      ColumnarBlockReader.Column b = reader.getColumn("b");
+      ColumnarBlockReader.Column x = reader.getColumn("x");
+      ColumnarBlockReader.Column u = reader.getColumn("u");
+      ColumnarBlockReader.Column w = reader.getColumn("r.w");
+      assertTrue(u.isNullable());
+      assertEquals(Schema.Type.LONG, u.getSchema().getType());
+      while (reader.nextBlock()) {
+        blocks++;
+        for (int i = 0; i < reader.getRowCount(); i++, row++) {
+          GenericRecord expected = data.get(row);
+          assertEquals(expected.get("s").toString(), s.getString(i));
+          assertEquals(expected.get("b"), ByteBuffer.wrap(bytes(b, i)));
+          assertEquals(expected.get("i"), reader.getColumn("i").getInts()[i]);
+          assertEquals(expected.get("l"), reader.getColumn("l").getLongs()[i]);
+          assertEquals(expected.get("f"), reader.getColumn("f").getFloats()[i]);
+          assertEquals(expected.get("d"), reader.getColumn("d").getDoubles()[i]);
+          assertEquals(expected.get("z"), reader.getColumn("z").getBooleans()[i]);
+          assertEquals(SCHEMA.getField("e").schema().getEnumOrdinal(expected.get("e").toString()),
+              reader.getColumn("e").getInts()[i]);
+          assertArrayEquals(((GenericData.Fixed) expected.get("x")).bytes(), bytes(x, i));
+          assertEquals(expected.get("u") == null, u.getNulls()[i]);
+          if (expected.get("u") != null) {
+            assertEquals(expected.get("u"), u.getLongs()[i]);
+          }
+          GenericRecord inner = (GenericRecord) expected.get("r");
+          assertEquals(inner.get("v"), reader.getColumn("r.v").getInts()[i]);
+          assertEquals(inner.get("w") == null, w.getNulls()[i]);
+          assertEquals(inner.get("w") == null ? 0.0 : inner.get("w"), w.getDoubles()[i]);
+        }
+      }
+      assertEquals(0, reader.getRowCount());
+    }
+    assertEquals(COUNT, row);
+    assertTrue(blocks > 1);
+  }
+
+  @Test
+  void projection() throws IOException {
+    List<GenericRecord> data = data();
+    byte[] file = write(data, CodecFactory.nullCodec());
+    try (ColumnarBlockReader reader = open(file, "l")) {
+      long sum = 0;
+      long expected = 0;
+      while (reader.nextBlock()) {
+        long[] values = reader.getColumn("l").getLongs();
+        for (int i = 0; i < reader.getRowCount(); i++) {
+          sum += values[i];
+        }
+      }
+      for (GenericRecord datum : data) {
+        expected += (Long) datum.get("l");
+      }
+      assertEquals(expected, sum);
+      assertFalse(reader.nextBlock());
+      assertThrows(AvroRuntimeException.class, () -> reader.getColumn("l").getInts());
+      assertThrows(IllegalArgumentException.class, () -> reader.getColumn("i"));
+    }
+  }
+
+  @Test
+  void unsupportedFields() throws IOException {
+    byte[] file = write(data().subList(0, 1), CodecFactory.nullCodec());
+    assertThrows(IllegalArgumentException.class, () -> open(file, "a"));
+    assertThrows(IllegalArgumentException.class, () -> open(file, "r"));
+    assertThrows(IllegalArgumentException.class, () -> open(file, "missing"));
+    assertThrows(IllegalArgumentException.class, () -> open(file, "r.missing"));
+  }
+
+  @Test
+  void nullableString() throws IOException {
+    Schema schema = new Schema.Parser().parse(
+        "{\"type\": \"record\", \"name\": \"N\", \"fields\": [{\"name\":\"s\", \"type\":[\"null\", \"string\"]}]}");
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (DataFileWriter<GenericRecord> writer = new DataFileWriter<>(new GenericDatumWriter<>(schema))) {
+      writer.create(schema, out);
+      for (String value : new String[] { "a", null, "", "héllo" }) {
+        GenericData.Record record = new GenericData.Record(schema);
+        record.put("s", value);
+        writer.append(record);
+      }
+    }
+    try (ColumnarBlockReader reader = open(out.toByteArray(), "s")) {
+      assertTrue(reader.nextBlock());
+      ColumnarBlockReader.Column s = reader.getColumn("s");
+      assertEquals(4, reader.getRowCount());
+      assertEquals("a", s.getString(0));
+      assertNull(s.getString(1));
+      assertEquals("", s.getString(2));
+      assertEquals("héllo", s.getString(3));
+    }
+  }
+}
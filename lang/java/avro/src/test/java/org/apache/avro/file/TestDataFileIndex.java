@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.util.RandomRecords;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TestDataFileIndex {
+  private static final int COUNT = 1000;
+  private static final Schema SCHEMA = RandomRecords.STRING_LONG;
+
+  @TempDir
+  public File dir;
+
+  private static List<Object> expected() {
+    return RandomRecords.generate(SCHEMA, COUNT);
+  }
+
+  private File write(OutputStream indexOut) throws IOException {
+    File file = new File(dir, "test.avro");
+    try (DataFileWriter<Object> writer = new DataFileWriter<>(new GenericDatumWriter<>()).setSyncInterval(300)) {
+      writer.setCodec(CodecFactory.deflateCodec(1)).setBlockIndexOutput(indexOut);
+      writer.create(SCHEMA, file);
+      int count = 0;
+      for (Object datum : expected()) {
+        writer.append(datum);
+        if (++count == 10) {
+          writer.sync();
+          writer.sync(); // an empty sync writes no block
+        }
+      }
+    }
+    return file;
+  }
+
+  @Test
+  void seekToRecordWithWrittenIndex() throws IOException {
+    ByteArrayOutputStream indexOut = new ByteArrayOutputStream();
+    File file = write(indexOut);
+    DataFileIndex index = DataFileIndex.read(new ByteArrayInputStream(indexOut.toByteArray()));
+    assertEquals(COUNT, index.getRecordCount());
+    assertTrue(index.getBlockCount() > 10);
+    assertEquals(10, index.getRecordCount(0));
+    assertTrue(index.getUncompressedSize(1) >= 300);
+
+    List<Object> expected = expected();
+    try (DataFileReader<Object> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+      reader.setBlockIndex(index);
+      assertEquals(COUNT, reader.getRecordCount());
+      Random random = new Random(RandomRecords.SEED);
+      for (int i = 0; i < 100; i++) {
+        int record = random.nextInt(COUNT);
+        reader.seekToRecord(record);
+        assertEquals(expected.get(record), reader.next());
+      }
+      reader.seekToRecord(COUNT - 1);
+      assertEquals(expected.get(COUNT - 1), reader.next());
+      assertFalse(reader.hasNext());
+      assertThrows(IndexOutOfBoundsException.class, () -> reader.seekToRecord(COUNT));
+    }
+  }
+
+  @Test
+  void scannedIndexMatchesWrittenIndex() throws IOException {
+    ByteArrayOutputStream indexOut = new ByteArrayOutputStream();
+    File file = write(indexOut);
+    DataFileIndex written = DataFileIndex.read(new ByteArrayInputStream(indexOut.toByteArray()));
+
+    List<Object> expected = expected();
+    try (DataFileReader<Object> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+      // building the index leaves the reader where it was within its block
+      for (int i = 0; i < 5; i++) {
+        assertEquals(expected.get(i), reader.next());
+      }
+      long block = reader.previousSync();
+      DataFileIndex scanned = reader.getBlockIndex();
+      assertEquals(block, reader.previousSync());
+      assertEquals(expected.get(5), reader.next());
+
+      assertEquals(written.getBlockCount(), scanned.getBlockCount());
+      for (int i = 0; i < written.getBlockCount(); i++) {
+        assertEquals(written.getBlockOffset(i), scanned.getBlockOffset(i));
+        assertEquals(written.getFirstRecord(i), scanned.getFirstRecord(i));
+        assertEquals(-1, scanned.getUncompressedSize(i));
+      }
+      reader.seekToRecord(500);
+      assertEquals(expected.get(500), reader.next());
+    }
+  }
+
+  @Test
+  void indexOfAnotherFile() throws IOException {
+    ByteArrayOutputStream indexOut = new ByteArrayOutputStream();
+    write(indexOut);
+    File other = new File(dir, "other.avro");
+    try (DataFileWriter<Object> writer = new DataFileWriter<>(new GenericDatumWriter<>())) {
+      writer.create(SCHEMA, other);
+    }
+    DataFileIndex index = DataFileIndex.read(new ByteArrayInputStream(indexOut.toByteArray()));
+    try (DataFileReader<Object> reader = new DataFileReader<>(other, new GenericDatumReader<>())) {
+      assertThrows(IllegalArgumentException.class, () -> reader.setBlockIndex(index));
+      assertEquals(0, reader.getRecordCount());
+    }
+  }
+
+  @Test
+  void appendWithIndex() throws IOException {
+    File file = write(new ByteArrayOutputStream());
+    File indexFile = new File(dir, "test.avro.idx");
+    try (DataFileWriter<Object> writer = new DataFileWriter<>(new GenericDatumWriter<>())) {
+      writer.setBlockIndexOutput(new FileOutputStream(indexFile)).appendTo(file);
+      for (Object datum : expected()) {
+        writer.append(datum);
+      }
+    }
+    DataFileIndex index = DataFileIndex.read(new FileInputStream(indexFile));
+    assertEquals(2 * COUNT, index.getRecordCount());
+    try (DataFileReader<Object> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+      reader.setBlockIndex(index);
+      reader.seekToRecord(COUNT + 5);
+      assertEquals(expected().get(5), reader.next());
+    }
+  }
+}
@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.util.RandomRecords;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+public class TestMappedSeekableInput {
+  private static final int COUNT = 1000;
+  private static final Schema SCHEMA = RandomRecords.STRING_LONG;
+
+  @TempDir
+  public File dir;
+
+  public static Stream<CodecFactory> codecs() {
+    return Stream.of(CodecFactory.nullCodec(), CodecFactory.deflateCodec(6), CodecFactory.zstandardCodec(3));
+  }
+
+  @Test
+  void readingData() throws IOException {
+    File file = new File(dir, "data");
+    Files.write(file.toPath(), "0123456789ABCD".getBytes(StandardCharsets.UTF_8));
+    byte[] result = new byte[16];
+    try (MappedSeekableInput in = new MappedSeekableInput(file)) {
+      assertEquals(8, in.read(result, 0, 8));
+      in.seek(4);
+      assertEquals(8, in.read(result, 8, 8));
+      assertEquals(12, in.tell());
+      assertEquals(14, in.length());
+      assertEquals("01234567456789AB", new String(result, StandardCharsets.UTF_8));
+
+      ByteBuffer slice = in.slice(10, 4);
+      assertTrue(slice.isReadOnly());
+      assertEquals(12, in.tell());
+      byte[] sliced = new byte[4];
+      slice.get(sliced);
+      assertEquals("ABCD", new String(sliced, StandardCharsets.UTF_8));
+
+      in.seek(14);
+      assertEquals(-1, in.read(result, 0, 1));
+      assertThrows(EOFException.class, () -> in.seek(15));
+      assertThrows(EOFException.class, () -> in.slice(12, 4));
+      assertEquals(0, in.slice(14, 0).remaining());
+    }
+  }
+
+  @Test
+  void emptySliceAtEndOfRegion() throws IOException {
+    File file = new File(dir, "region");
+    try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+      out.setLength(MappedSeekableInput.REGION_SIZE); // sparse, so nothing is written
+    }
+    try (MappedSeekableInput in = new MappedSeekableInput(file)) {
+      assertEquals(0, in.slice(MappedSeekableInput.REGION_SIZE, 0).remaining());
+    }
+  }
+
+  @ParameterizedTest
+  @MethodSource("codecs")
+  void readDataFile(CodecFactory codec) throws IOException {
+    List<Object> data = RandomRecords.generate(SCHEMA, COUNT);
+    File file = RandomRecords.write(new File(dir, "test-" + codec + ".avro"), SCHEMA, data,
+        writer -> writer.setSyncInterval(1000).setCodec(codec));
+
+    List<Long> syncs = new ArrayList<>();
+    try (DataFileReader<Object> reader = new DataFileReader<>(new MappedSeekableInput(file),
+        new GenericDatumReader<>())) {
+      for (Object expected : data) {
+        if (syncs.isEmpty() || syncs.get(syncs.size() - 1) != reader.previousSync()) {
+          syncs.add(reader.previousSync());
+        }
+        assertEquals(expected, reader.next());
+      }
+      assertFalse(reader.hasNext());
+
+      // blocks are read in place, so seeking and splitting still line up
+      reader.sync(0);
+      assertEquals(syncs.get(0), reader.previousSync());
+      int count = 0;
+      long half = file.length() / 2;
+      while (!reader.pastSync(half)) {
+        reader.next();
+        count++;
+      }
+      reader.sync(half);
+      while (reader.hasNext()) {
+        reader.next();
+        count++;
+      }
+      assertEquals(COUNT, count);
+    }
+
+    // read ahead as well, with blocks handed to other threads
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try (DataFileReader<Object> reader = new DataFileReader<>(new MappedSeekableInput(file),
+        new GenericDatumReader<>())) {
+      reader.setDecompressionExecutor(executor, 4);
+      for (Object expected : data) {
+        assertEquals(expected, reader.next());
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void appendFromMappedFile() throws IOException {
+    List<Object> data = RandomRecords.generate(SCHEMA, COUNT);
+    File source = RandomRecords.write(new File(dir, "source.avro"), SCHEMA, data,
+        writer -> writer.setSyncInterval(1000));
+    File target = new File(dir, "target.avro");
+    try (DataFileWriter<Object> writer = new DataFileWriter<>(new GenericDatumWriter<>());
+        DataFileReader<Object> reader = new DataFileReader<>(new MappedSeekableInput(source),
+            new GenericDatumReader<>())) {
+      writer.create(SCHEMA, target);
+      writer.appendAllFrom(reader, false);
+    }
+    try (DataFileReader<Object> reader = new DataFileReader<>(target, new GenericDatumReader<>())) {
+      for (Object expected : data) {
+        assertEquals(expected, reader.next());
+      }
+    }
+  }
+}
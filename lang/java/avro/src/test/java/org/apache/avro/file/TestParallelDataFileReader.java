@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.util.RandomRecords;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TestParallelDataFileReader {
+  private static final int COUNT = 5000;
+  private static final Schema SCHEMA = RandomRecords.STRING_LONG;
+
+  @TempDir
+  public File dir;
+
+  private File file;
+  private List<Object> expected;
+
+  @BeforeEach
+  public void writeFile() throws IOException {
+    expected = RandomRecords.generate(SCHEMA, COUNT);
+    file = RandomRecords.write(new File(dir, "test.avro"), SCHEMA, expected,
+        writer -> writer.setSyncInterval(500).setCodec(CodecFactory.deflateCodec(1)));
+  }
+
+  @Test
+  void sequentialStreamKeepsFileOrder() throws IOException {
+    ParallelDataFileReader<Object> reader = new ParallelDataFileReader<>(file, GenericDatumReader::new)
+        .setSplitSize(1000);
+    try (Stream<Object> records = reader.stream()) {
+      assertEquals(expected, records.collect(Collectors.toList()));
+    }
+  }
+
+  @Test
+  void parallelStreamReadsEachRecordOnce() throws IOException {
+    ParallelDataFileReader<Object> reader = new ParallelDataFileReader<>(file, GenericDatumReader::new)
+        .setSplitSize(1000);
+    try (Stream<Object> records = reader.stream()) {
+      assertEquals(expected, records.parallel().collect(Collectors.toList()));
+    }
+    try (Stream<Object> records = reader.stream()) {
+      assertEquals(COUNT, records.parallel().count());
+    }
+  }
+
+  @Test
+  void forEachOnExecutor() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      for (long splitSize : new long[] { 100, 3000, Long.MAX_VALUE / 2 }) {
+        ConcurrentLinkedQueue<Object> records = new ConcurrentLinkedQueue<>();
+        new ParallelDataFileReader<>(file, GenericDatumReader::new).setSplitSize(splitSize)
+            .forEach(executor, records::add).get();
+        assertEquals(COUNT, records.size());
+        Set<Object> distinct = new HashSet<>(records);
+        assertEquals(new HashSet<>(expected), distinct);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void failuresCompleteTheFuture() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      ParallelDataFileReader<Object> reader = new ParallelDataFileReader<>(file, GenericDatumReader::new)
+          .setSplitSize(2000);
+      assertThrows(ExecutionException.class, () -> reader.forEach(executor, record -> {
+        throw new IllegalStateException();
+      }).get());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
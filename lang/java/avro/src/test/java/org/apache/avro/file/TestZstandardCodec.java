@@ -17,14 +17,34 @@
  */
 package org.apache.avro.file;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 public class TestZstandardCodec {
+  private static final Schema SCHEMA = Schema.create(Schema.Type.STRING);
+
+  @TempDir
+  public File DIR;
 
   @Test
   void zstandardToStringAndName() throws IOException {
@@ -33,4 +53,75 @@ public class TestZstandardCodec {
     assertEquals(codec.getName(), "zstandard");
     assertEquals(codec.toString(), "zstandard[3]");
   }
+
+  private static String value(int i) {
+    return "{\"user\": \"user-" + i + "\", \"domain\": \"example.com\", \"id\": " + i * 7 + "}";
+  }
+
+  private static byte[] train() {
+    List<byte[]> samples = new ArrayList<>();
+    for (int i = 0; i < 5000; i++) {
+      samples.add(value(i).getBytes(StandardCharsets.UTF_8));
+    }
+    return ZstandardCodec.trainDictionary(samples, 1024);
+  }
+
+  @Test
+  void dictionaryRoundTrip() throws IOException {
+    byte[] dictionary = train();
+    Codec codec = CodecFactory.zstandardCodec(3, false, dictionary).createInstance();
+    assertArrayEquals(dictionary, ((ZstandardCodec) codec).getDictionary());
+    assertEquals(codec, CodecFactory.zstandardCodec(3, false, dictionary.clone()).createInstance());
+    assertNotEquals(codec, CodecFactory.zstandardCodec(3).createInstance());
+
+    byte[] bytes = value(123456).getBytes(StandardCharsets.UTF_8);
+    ByteBuffer compressed = codec.compress(ByteBuffer.wrap(bytes));
+    ByteBuffer plain = CodecFactory.zstandardCodec(3).createInstance().compress(ByteBuffer.wrap(bytes));
+    assertTrue(compressed.remaining() < plain.remaining());
+    assertEquals(ByteBuffer.wrap(bytes), codec.decompress(compressed));
+  }
+
+  @Test
+  void trainingNeedsSamples() {
+    assertThrows(AvroRuntimeException.class,
+        () -> ZstandardCodec.trainDictionary(Collections.singletonList(new byte[] { 1 }), 1024));
+  }
+
+  private File write(String name, CodecFactory codec) throws IOException {
+    File file = new File(DIR, name);
+    try (DataFileWriter<String> writer = new DataFileWriter<>(new GenericDatumWriter<String>(SCHEMA))) {
+      writer.setCodec(codec).setSyncInterval(256).create(SCHEMA, file);
+      for (int i = 0; i < 1000; i++) {
+        writer.append(value(i));
+      }
+    }
+    return file;
+  }
+
+  @Test
+  void dataFileWithDictionary() throws IOException {
+    byte[] dictionary = train();
+    File plain = write("plain.avro", CodecFactory.zstandardCodec(3));
+    File file = write("dictionary.avro", CodecFactory.zstandardCodec(3, false, dictionary));
+    assertTrue(file.length() < plain.length());
+
+    try (DataFileReader<String> reader = new DataFileReader<>(plain, new GenericDatumReader<>())) {
+      assertNull(reader.getMeta(DataFileConstants.ZSTANDARD_DICTIONARY));
+    }
+
+    // the dictionary is taken from the header when appending
+    try (DataFileWriter<String> writer = new DataFileWriter<>(new GenericDatumWriter<String>(SCHEMA))) {
+      writer.appendTo(file);
+      writer.append(value(1000));
+    }
+
+    try (DataFileReader<Object> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+      assertNotNull(reader.getMeta(DataFileConstants.ZSTANDARD_DICTIONARY));
+      int count = 0;
+      for (Object datum : reader) {
+        assertEquals(value(count++), datum.toString());
+      }
+      assertEquals(1001, count);
+    }
+  }
 }
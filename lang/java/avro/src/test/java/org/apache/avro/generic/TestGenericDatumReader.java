@@ -18,15 +18,32 @@
 package org.apache.avro.generic;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import org.apache.avro.Schema;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.Decoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.io.FastReaderBuilder;
+import org.apache.avro.io.ResolvingDecoder;
+import org.apache.avro.util.RandomData;
 import org.junit.jupiter.api.Test;
 
 public class TestGenericDatumReader {
@@ -62,6 +79,120 @@ public class TestGenericDatumReader {
 
   }
 
+  private static final Schema WRITER = new Schema.Parser().parse("{\"type\":\"record\", \"name\":\"R\", "
+      + "\"fields\":[{\"name\":\"a\", \"type\":\"int\"}, {\"name\":\"b\", \"type\":\"string\"},"
+      + " {\"name\":\"c\", \"type\":{\"type\":\"array\", \"items\":\"long\"}}]}");
+  private static final Schema READER = new Schema.Parser().parse("{\"type\":\"record\", \"name\":\"R\", "
+      + "\"fields\":[{\"name\":\"c\", \"type\":{\"type\":\"array\", \"items\":\"double\"}},"
+      + " {\"name\":\"a\", \"type\":\"long\"}, {\"name\":\"d\", \"type\":\"int\", \"default\":7}]}");
+
+  private static byte[] encode(List<Object> data) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    GenericDatumWriter<Object> writer = new GenericDatumWriter<>(WRITER);
+    for (Object datum : new RandomData(WRITER, 50, 17L)) {
+      writer.write(datum, encoder);
+      data.add(datum);
+    }
+    encoder.flush();
+    return out.toByteArray();
+  }
+
+  // reads with a new reader in each of several threads, checking the result
+  private static void readInThreads(GenericData model) throws Exception {
+    List<Object> data = new ArrayList<>();
+    byte[] bytes = encode(data);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> results = new ArrayList<>();
+      for (int t = 0; t < 32; t++) {
+        results.add(executor.submit(() -> {
+          GenericDatumReader<GenericRecord> reader = new GenericDatumReader<>(WRITER, READER, model);
+          BinaryDecoder in = DecoderFactory.get().binaryDecoder(bytes, null);
+          for (Object datum : data) {
+            GenericRecord written = (GenericRecord) datum;
+            GenericRecord read = reader.read(null, in);
+            assertEquals(((Integer) written.get("a")).longValue(), read.get("a"));
+            assertEquals(((List<?>) written.get("c")).size(), ((List<?>) read.get("c")).size());
+            assertEquals(7, read.get("d"));
+          }
+          return null;
+        }));
+      }
+      for (Future<?> result : results) {
+        result.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void sharedResolvers() throws Exception {
+    readInThreads(new GenericData().setFastReaderEnabled(false));
+  }
+
+  @Test
+  void sharedFastReaders() throws Exception {
+    GenericData model = new GenericData().setFastReaderEnabled(true);
+    readInThreads(model);
+    FastReaderBuilder builder = model.getFastReaderBuilder();
+    assertSame(builder.createDatumReader(WRITER, READER), builder.createDatumReader(WRITER, READER));
+  }
+
+  @Test
+  void fastReadersSurviveCollection() throws Exception {
+    FastReaderBuilder builder = new GenericData().setFastReaderEnabled(true).getFastReaderBuilder();
+    WeakReference<DatumReader<?>> first = new WeakReference<>(builder.createDatumReader(WRITER, READER));
+    System.gc(); // Not guaranteed, but seems to be reliable enough
+    assertSame(first.get(), builder.createDatumReader(WRITER, READER), "unused readers should stay cached");
+  }
+
+  @Test
+  void resolversOwnedByCaller() throws Exception {
+    GenericDatumReader<Object> reader = new GenericDatumReader<Object>(WRITER, READER) {
+      @Override
+      public Object read(Object reuse, Decoder in) throws IOException {
+        return getResolver(WRITER, READER);
+      }
+    };
+    assertSame(reader.read(null, null), reader.read(null, null));
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      // other threads get their own decoder on each call
+      Future<Boolean> distinct = executor.submit(() -> reader.read(null, null) != reader.read(null, null));
+      assertTrue(distinct.get());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void sharedGrammar() throws Exception {
+    List<Object> data = new ArrayList<>();
+    byte[] bytes = encode(data);
+    Object grammar = ResolvingDecoder.resolve(WRITER, READER);
+    ResolvingDecoder first = DecoderFactory.get().resolvingDecoder(grammar, null);
+    ResolvingDecoder second = DecoderFactory.get().resolvingDecoder(grammar, null);
+    first.configure(DecoderFactory.get().binaryDecoder(bytes, null));
+    second.configure(DecoderFactory.get().binaryDecoder(bytes, null));
+    // the decoders keep their own state
+    for (Object datum : data) {
+      long expected = (Integer) ((GenericRecord) datum).get("a");
+      for (ResolvingDecoder in : Arrays.asList(first, second)) {
+        // fields come in the writer's order, then the defaults
+        in.readFieldOrder();
+        assertEquals(expected, in.readLong());
+        for (long l = in.readArrayStart(); l > 0; l = in.arrayNext()) {
+          for (long i = 0; i < l; i++) {
+            in.readDouble();
+          }
+        }
+        assertEquals(7, in.readInt());
+      }
+    }
+  }
+
   static class WithSchema {
     private final Schema schema;
 
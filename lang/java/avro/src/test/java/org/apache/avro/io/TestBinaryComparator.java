@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.util.RandomData;
+import org.apache.avro.util.Utf8;
+import org.junit.jupiter.api.Test;
+
+public class TestBinaryComparator {
+
+  private static final Schema RECORD = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"R\",\"fields\":["
+      + "{\"name\":\"i\",\"type\":{\"type\":\"enum\",\"name\":\"E\",\"symbols\":[\"A\",\"B\"]}},"
+      + "{\"name\":\"l\",\"type\":\"long\",\"order\":\"descending\"},"
+      + "{\"name\":\"ignored\",\"type\":{\"type\":\"array\",\"items\":\"string\"},\"order\":\"ignore\"},"
+      + "{\"name\":\"b\",\"type\":\"boolean\"},{\"name\":\"f\",\"type\":\"float\"},"
+      + "{\"name\":\"s\",\"type\":[\"null\",\"string\"]},"
+      + "{\"name\":\"a\",\"type\":{\"type\":\"array\",\"items\":{\"type\":\"fixed\",\"name\":\"F\",\"size\":2}}},"
+      + "{\"name\":\"n\",\"type\":[\"null\",\"R\"]},{\"name\":\"d\",\"type\":\"double\"}]}");
+
+  private static byte[] encode(Schema schema, Object datum) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    new GenericDatumWriter<>(schema).write(datum, encoder);
+    encoder.flush();
+    return out.toByteArray();
+  }
+
+  private static List<Object> data(Schema schema, int count) {
+    List<Object> data = new ArrayList<>();
+    for (Object datum : new RandomData(schema, count, 42L, true)) {
+      data.add(datum);
+    }
+    return data;
+  }
+
+  // checks compare against the generic data model, and hashCode and prefix
+  // against compare
+  private static void check(Schema schema, List<?> data) throws IOException {
+    BinaryComparator comparator = BinaryComparator.of(schema);
+    List<byte[]> encoded = new ArrayList<>();
+    for (Object datum : data) {
+      encoded.add(encode(schema, datum));
+    }
+    for (int i = 0; i < data.size(); i++) {
+      byte[] b1 = encoded.get(i);
+      for (int j = 0; j < data.size(); j++) {
+        byte[] b2 = encoded.get(j);
+        int expected = Integer.signum(GenericData.get().compare(data.get(i), data.get(j), schema));
+        assertEquals(expected, Integer.signum(comparator.compare(b1, 0, b1.length, b2, 0, b2.length)),
+            data.get(i) + " vs " + data.get(j));
+        if (expected == 0) {
+          assertEquals(comparator.hashCode(b1, 0, b1.length), comparator.hashCode(b2, 0, b2.length));
+        }
+        int prefixes = BinaryComparator.comparePrefixes(comparator.prefix(b1, 0, b1.length),
+            comparator.prefix(b2, 0, b2.length));
+        assertTrue(prefixes == 0 || Integer.signum(prefixes) == expected, data.get(i) + " vs " + data.get(j));
+      }
+    }
+  }
+
+  @Test
+  void records() throws IOException {
+    List<Object> data = data(RECORD, 60);
+    // equal records, and records equal up to the ignored field
+    data.add(data.get(0));
+    GenericData.Record copy = new GenericData.Record((GenericData.Record) data.get(1), true);
+    copy.put("ignored", Arrays.asList("x", "y"));
+    data.add(copy);
+    check(RECORD, data);
+  }
+
+  @Test
+  void prefixes() throws IOException {
+    check(Schema.create(Schema.Type.INT), Arrays.asList(Integer.MIN_VALUE, -1, 0, 1, 300, Integer.MAX_VALUE));
+    check(Schema.create(Schema.Type.LONG), Arrays.asList(Long.MIN_VALUE, -1L, 0L, 1L, Long.MAX_VALUE));
+    check(Schema.create(Schema.Type.DOUBLE), Arrays.asList(Double.NEGATIVE_INFINITY, -1.5, -0.0, 0.0, 1e-300, 2.0,
+        Double.POSITIVE_INFINITY, Double.NaN));
+    check(Schema.create(Schema.Type.FLOAT),
+        Arrays.asList(Float.NEGATIVE_INFINITY, -1.5f, -0.0f, 0.0f, 2.0f, Float.POSITIVE_INFINITY, Float.NaN));
+    check(Schema.create(Schema.Type.STRING), data(Schema.create(Schema.Type.STRING), 40));
+    Schema union = new Schema.Parser().parse("[\"null\",\"long\",\"string\"]");
+    check(union, data(union, 40));
+    Schema descending = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"D\",\"fields\":["
+        + "{\"name\":\"s\",\"type\":\"string\",\"order\":\"descending\"},{\"name\":\"i\",\"type\":\"int\"}]}");
+    check(descending, data(descending, 40));
+
+    // most of the random longs are ordered by their prefixes alone
+    BinaryComparator comparator = BinaryComparator.of(Schema.create(Schema.Type.LONG));
+    byte[] b1 = encode(Schema.create(Schema.Type.LONG), -5L);
+    byte[] b2 = encode(Schema.create(Schema.Type.LONG), 7L);
+    assertTrue(BinaryComparator.comparePrefixes(comparator.prefix(b1, 0, b1.length),
+        comparator.prefix(b2, 0, b2.length)) < 0);
+  }
+
+  @Test
+  void hashCodes() throws IOException {
+    Schema string = Schema.create(Schema.Type.STRING);
+    byte[] bytes = encode(string, "hash me");
+    assertEquals(new Utf8("hash me").hashCode(), BinaryComparator.of(string).hashCode(bytes, 0, bytes.length));
+    Schema union = new Schema.Parser().parse("[\"null\",\"int\"]");
+    bytes = encode(union, 300);
+    assertEquals(300, BinaryComparator.of(union).hashCode(bytes, 0, bytes.length));
+  }
+
+  @Test
+  void cachedAndConsistentWithBinaryData() throws IOException {
+    assertSame(BinaryComparator.of(RECORD), BinaryComparator.of(RECORD));
+    List<Object> data = data(RECORD, 10);
+    byte[] b1 = encode(RECORD, data.get(0));
+    byte[] b2 = encode(RECORD, data.get(1));
+    assertEquals(BinaryComparator.of(RECORD).compare(b1, 0, b1.length, b2, 0, b2.length),
+        BinaryData.compare(b1, 0, b2, 0, RECORD));
+    assertEquals(BinaryComparator.of(RECORD).hashCode(b1, 0, b1.length), BinaryData.hashCode(b1, 0, b1.length, RECORD));
+  }
+
+  @Test
+  void releasesUnusedSchemas() throws InterruptedException {
+    Schema schema = Schema.createRecord("Unused", null, "test", false);
+    schema.setFields(Collections.singletonList(new Schema.Field("f", Schema.create(Schema.Type.INT))));
+    BinaryData.hashCode(new byte[] { 2 }, 0, 1, schema);
+    WeakReference<Schema> unused = new WeakReference<>(schema);
+    schema = null;
+
+    // Collection is not guaranteed, so retry a few times
+    for (int i = 0; i < 50 && unused.get() != null; i++) {
+      System.gc();
+      Thread.sleep(20);
+    }
+    assertNull(unused.get(), "comparator cache should release schemas");
+  }
+
+  @Test
+  void errors() throws IOException {
+    Schema map = new Schema.Parser().parse("{\"type\":\"map\",\"values\":\"int\"}");
+    byte[] empty = new byte[] { 0 };
+    assertThrows(AvroRuntimeException.class, () -> BinaryComparator.of(map).compare(empty, 0, 1, empty, 0, 1));
+    assertThrows(AvroRuntimeException.class, () -> BinaryComparator.of(map).hashCode(empty, 0, 1));
+
+    Schema string = Schema.create(Schema.Type.STRING);
+    byte[] truncated = encode(string, "truncated");
+    assertThrows(AvroRuntimeException.class,
+        () -> BinaryComparator.of(string).compare(truncated, 0, 4, truncated, 0, truncated.length));
+  }
+}
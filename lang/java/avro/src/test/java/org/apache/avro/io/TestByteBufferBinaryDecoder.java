@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.util.RandomRecords;
+import org.apache.avro.util.Utf8;
+import org.junit.jupiter.api.Test;
+
+public class TestByteBufferBinaryDecoder {
+  private static final Schema SCHEMA = RandomRecords.primitives(
+      "{\"name\":\"a\", \"type\":{\"type\":\"array\", \"items\":\"long\"}}",
+      "{\"name\":\"m\", \"type\":{\"type\":\"map\", \"values\":\"string\"}}",
+      "{\"name\":\"u\", \"type\":[\"null\", \"boolean\"]}");
+
+  private static byte[] encodePrimitives() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    encoder.writeBoolean(true);
+    encoder.writeInt(Integer.MIN_VALUE);
+    encoder.writeLong(Long.MAX_VALUE);
+    encoder.writeFloat(1.5f);
+    encoder.writeDouble(-2.25);
+    encoder.writeString("hello");
+    encoder.writeBytes(new byte[] { 1, 2, 3 });
+    encoder.writeFixed(new byte[] { 4, 5 });
+    encoder.writeLong(42);
+    encoder.flush();
+    return out.toByteArray();
+  }
+
+  private static void checkPrimitives(BinaryDecoder decoder) throws IOException {
+    assertTrue(decoder.readBoolean());
+    assertEquals(Integer.MIN_VALUE, decoder.readInt());
+    assertEquals(Long.MAX_VALUE, decoder.readLong());
+    assertEquals(1.5f, decoder.readFloat());
+    assertEquals(-2.25, decoder.readDouble());
+    assertEquals(new Utf8("hello"), decoder.readString(null));
+    ByteBuffer bytes = decoder.readBytes(null);
+    assertEquals(ByteBuffer.wrap(new byte[] { 1, 2, 3 }), bytes);
+    byte[] fixed = new byte[2];
+    decoder.readFixed(fixed);
+    assertArrayEquals(new byte[] { 4, 5 }, fixed);
+    assertFalse(decoder.isEnd());
+    assertEquals(42, decoder.readLong());
+    assertTrue(decoder.isEnd());
+    assertThrows(EOFException.class, decoder::readInt);
+  }
+
+  private static ByteBuffer direct(byte[] bytes) {
+    ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+    buffer.put(bytes).flip();
+    return buffer;
+  }
+
+  @Test
+  void heapBuffer() throws IOException {
+    byte[] bytes = encodePrimitives();
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    checkPrimitives(DecoderFactory.get().binaryDecoder(buffer, null));
+    assertEquals(0, buffer.position());
+  }
+
+  @Test
+  void directBuffer() throws IOException {
+    checkPrimitives(DecoderFactory.get().binaryDecoder(direct(encodePrimitives()), null));
+  }
+
+  @Test
+  void valuesSpanningBuffers() throws IOException {
+    byte[] bytes = encodePrimitives();
+    // split at every position, so that every value crosses a buffer boundary
+    for (int split = 0; split <= bytes.length; split++) {
+      List<ByteBuffer> buffers = Arrays.asList(direct(Arrays.copyOfRange(bytes, 0, split)), ByteBuffer.allocate(0),
+          ByteBuffer.wrap(bytes, split, bytes.length - split).slice());
+      checkPrimitives(DecoderFactory.get().binaryDecoder(buffers, null));
+    }
+  }
+
+  @Test
+  void readBytesReturnsSlice() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    encoder.writeBytes(new byte[] { 7, 8, 9 });
+    encoder.flush();
+    ByteBuffer source = direct(out.toByteArray());
+
+    BinaryDecoder decoder = DecoderFactory.get().binaryDecoder(source, null);
+    ByteBuffer bytes = decoder.readBytes(null);
+    assertTrue(bytes.isDirect());
+    assertEquals(3, bytes.remaining());
+    source.put(1, (byte) 70);
+    assertEquals(70, bytes.get(0));
+
+    // a buffer to reuse is filled instead
+    decoder = DecoderFactory.get().binaryDecoder(source, decoder);
+    ByteBuffer old = ByteBuffer.allocate(8);
+    assertSame(old, decoder.readBytes(old));
+    assertEquals(ByteBuffer.wrap(new byte[] { 70, 8, 9 }), old);
+  }
+
+  @Test
+  void inputStream() throws IOException {
+    byte[] bytes = encodePrimitives();
+    BinaryDecoder decoder = DecoderFactory.get().binaryDecoder(Arrays.asList(direct(bytes)), null);
+    assertTrue(decoder.readBoolean());
+    assertEquals(bytes.length - 1, decoder.inputStream().available());
+    byte[] rest = new byte[bytes.length];
+    assertEquals(bytes.length - 1, decoder.inputStream().read(rest, 0, rest.length));
+    assertTrue(decoder.isEnd());
+  }
+
+  @Test
+  void records() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    GenericDatumWriter<Object> writer = new GenericDatumWriter<>(SCHEMA);
+    List<Object> expected = RandomRecords.generate(SCHEMA, 100, 7L);
+    for (Object datum : expected) {
+      writer.write(datum, encoder);
+    }
+    encoder.flush();
+
+    GenericDatumReader<Object> reader = new GenericDatumReader<>(SCHEMA);
+    BinaryDecoder decoder = DecoderFactory.get().binaryDecoder(direct(out.toByteArray()), null);
+    for (Object datum : expected) {
+      assertEquals(datum, reader.read(null, decoder));
+    }
+    assertTrue(decoder.isEnd());
+  }
+}
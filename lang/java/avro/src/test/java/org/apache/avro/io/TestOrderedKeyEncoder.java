@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.util.RandomData;
+import org.apache.avro.util.Utf8;
+import org.junit.jupiter.api.Test;
+
+public class TestOrderedKeyEncoder {
+
+  private static final Schema RECORD = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"R\",\"fields\":["
+      + "{\"name\":\"e\",\"type\":{\"type\":\"enum\",\"name\":\"E\",\"symbols\":[\"A\",\"B\",\"C\"]}},"
+      + "{\"name\":\"l\",\"type\":\"long\",\"order\":\"descending\"},"
+      + "{\"name\":\"ignored\",\"type\":{\"type\":\"array\",\"items\":\"string\"},\"order\":\"ignore\"},"
+      + "{\"name\":\"b\",\"type\":\"boolean\"},{\"name\":\"f\",\"type\":\"float\"},"
+      + "{\"name\":\"s\",\"type\":[\"null\",\"string\"],\"order\":\"descending\"},"
+      + "{\"name\":\"a\",\"type\":{\"type\":\"array\",\"items\":{\"type\":\"fixed\",\"name\":\"F\",\"size\":2}}},"
+      + "{\"name\":\"bytes\",\"type\":\"bytes\"},{\"name\":\"i\",\"type\":\"int\"},"
+      + "{\"name\":\"n\",\"type\":[\"null\",\"R\"]},{\"name\":\"d\",\"type\":\"double\"}]}");
+
+  private static List<Object> data(Schema schema, int count) {
+    List<Object> data = new ArrayList<>();
+    for (Object datum : new RandomData(schema, count, 7L, true)) {
+      data.add(datum);
+    }
+    return data;
+  }
+
+  // checks the order of keys against the generic data model, and that keys
+  // decode to equal data
+  private static void check(Schema schema, List<?> data) {
+    OrderedKeyEncoder<Object> encoder = new OrderedKeyEncoder<>(schema);
+    OrderedKeyDecoder<Object> decoder = new OrderedKeyDecoder<>(schema);
+    List<byte[]> keys = new ArrayList<>();
+    for (Object datum : data) {
+      byte[] key = encoder.encode(datum);
+      assertEquals(0, GenericData.get().compare(datum, decoder.decode(key), schema), String.valueOf(datum));
+      keys.add(key);
+    }
+    for (int i = 0; i < data.size(); i++) {
+      byte[] k1 = keys.get(i);
+      for (int j = 0; j < data.size(); j++) {
+        byte[] k2 = keys.get(j);
+        assertEquals(Integer.signum(GenericData.get().compare(data.get(i), data.get(j), schema)),
+            Integer.signum(BinaryData.compareBytes(k1, 0, k1.length, k2, 0, k2.length)),
+            data.get(i) + " vs " + data.get(j));
+      }
+    }
+  }
+
+  @Test
+  void records() {
+    List<Object> data = data(RECORD, 60);
+    data.add(data.get(0));
+    GenericData.Record copy = new GenericData.Record((GenericData.Record) data.get(1), true);
+    copy.put("ignored", Arrays.asList("x", "y"));
+    data.add(copy);
+    check(RECORD, data);
+
+    // ignored fields are not encoded, so decode to their default
+    Object decoded = new OrderedKeyDecoder<>(RECORD).decode(new OrderedKeyEncoder<>(RECORD).encode(copy));
+    assertNull(((GenericData.Record) decoded).get("ignored"));
+  }
+
+  @Test
+  void primitives() {
+    check(Schema.create(Schema.Type.INT), Arrays.asList(Integer.MIN_VALUE, -1, 0, 1, 300, Integer.MAX_VALUE));
+    check(Schema.create(Schema.Type.LONG), Arrays.asList(Long.MIN_VALUE, -1L, 0L, 1L, 1L << 40, Long.MAX_VALUE));
+    check(Schema.create(Schema.Type.DOUBLE), Arrays.asList(Double.NEGATIVE_INFINITY, -1.5, -Double.MIN_VALUE, -0.0,
+        0.0, 1e-300, 2.0, Double.POSITIVE_INFINITY, Double.NaN));
+    check(Schema.create(Schema.Type.FLOAT),
+        Arrays.asList(Float.NEGATIVE_INFINITY, -1.5f, -0.0f, 0.0f, 2.0f, Float.POSITIVE_INFINITY, Float.NaN));
+    check(Schema.create(Schema.Type.BOOLEAN), Arrays.asList(false, true));
+    check(Schema.create(Schema.Type.BYTES), Arrays.asList(ByteBuffer.wrap(new byte[] { -1 }),
+        ByteBuffer.wrap(new byte[0]), ByteBuffer.wrap(new byte[] { 0 }), ByteBuffer.wrap(new byte[] { 0, 0 }),
+        ByteBuffer.wrap(new byte[] { 1 }), ByteBuffer.wrap(new byte[] { (byte) 0x80 })));
+    Schema union = new Schema.Parser().parse("[\"null\",\"long\",\"string\"]");
+    check(union, data(union, 40));
+  }
+
+  @Test
+  void strings() {
+    // escaped zero bytes must sort before any other continuation, and
+    // terminators before any character
+    Schema schema = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"S\",\"fields\":["
+        + "{\"name\":\"s\",\"type\":\"string\"},{\"name\":\"i\",\"type\":\"int\"}]}");
+    List<Object> data = new ArrayList<>();
+    for (String s : new String[] { "", "\0", "\0\0", "a", "a\0", "a\0b", "ab", "\u00ff", "\uffff" }) {
+      for (int i : new int[] { Integer.MIN_VALUE, 0, Integer.MAX_VALUE }) {
+        GenericData.Record record = new GenericData.Record(schema);
+        record.put("s", new Utf8(s));
+        record.put("i", i);
+        data.add(record);
+      }
+    }
+    Collections.shuffle(data, new Random(1));
+    check(schema, data);
+  }
+
+  @Test
+  void stream() throws IOException {
+    OrderedKeyEncoder<Object> encoder = new OrderedKeyEncoder<>(RECORD);
+    Object datum = data(RECORD, 1).get(0);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    encoder.encode(datum, out);
+    assertArrayEquals(encoder.encode(datum), out.toByteArray());
+  }
+
+  @Test
+  void invalid() {
+    Schema map = new Schema.Parser().parse("{\"type\":\"map\",\"values\":\"int\"}");
+    assertThrows(AvroRuntimeException.class,
+        () -> new OrderedKeyEncoder<>(map).encode(Collections.singletonMap("k", 1)));
+    byte[] key = new OrderedKeyEncoder<>(RECORD).encode(data(RECORD, 1).get(0));
+    OrderedKeyDecoder<Object> decoder = new OrderedKeyDecoder<>(RECORD);
+    assertThrows(AvroRuntimeException.class, () -> decoder.decode(key, 0, key.length - 1));
+    assertThrows(AvroRuntimeException.class, () -> decoder.decode(Arrays.copyOf(key, key.length + 1)));
+  }
+}
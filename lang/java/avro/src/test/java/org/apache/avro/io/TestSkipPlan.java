@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.util.RandomData;
+import org.junit.jupiter.api.Test;
+
+public class TestSkipPlan {
+  private static final Schema SCHEMA = new Schema.Parser().parse("{\"type\":\"record\", \"name\":\"Wide\", \"fields\":["
+      + "{\"name\":\"b\", \"type\":\"boolean\"}, {\"name\":\"i\", \"type\":\"int\"},"
+      + " {\"name\":\"f\", \"type\":\"float\"}, {\"name\":\"d\", \"type\":\"double\"},"
+      + " {\"name\":\"x\", \"type\":{\"type\":\"fixed\", \"name\":\"F\", \"size\":3}},"
+      + " {\"name\":\"s\", \"type\":\"string\"}, {\"name\":\"y\", \"type\":\"bytes\"},"
+      + " {\"name\":\"e\", \"type\":{\"type\":\"enum\", \"name\":\"E\", \"symbols\":[\"A\", \"B\"]}},"
+      + " {\"name\":\"ad\", \"type\":{\"type\":\"array\", \"items\":\"double\"}},"
+      + " {\"name\":\"an\", \"type\":{\"type\":\"array\", \"items\":\"null\"}},"
+      + " {\"name\":\"ar\", \"type\":{\"type\":\"array\", \"items\":{\"type\":\"record\", \"name\":\"P\","
+      + " \"fields\":[{\"name\":\"l\", \"type\":\"long\"}, {\"name\":\"c\", \"type\":\"boolean\"}]}}},"
+      + " {\"name\":\"m\", \"type\":{\"type\":\"map\", \"values\":\"string\"}},"
+      + " {\"name\":\"u\", \"type\":[\"null\", \"float\", \"string\"]},"
+      + " {\"name\":\"n\", \"type\":{\"type\":\"record\", \"name\":\"N\", \"fields\":["
+      + "{\"name\":\"p\", \"type\":\"P\"}, {\"name\":\"g\", \"type\":\"double\"}]}},"
+      + " {\"name\":\"last\", \"type\":\"long\"}]}");
+
+  private static final Schema LIST = new Schema.Parser().parse("{\"type\":\"record\", \"name\":\"Node\", "
+      + "\"fields\":[{\"name\":\"v\", \"type\":\"long\"}, {\"name\":\"next\", \"type\":[\"null\", \"Node\"]},"
+      + " {\"name\":\"children\", \"type\":{\"type\":\"array\", \"items\":\"Node\"}}]}");
+
+  // writes each datum followed by a marker, so that skipping can be checked
+  private static byte[] write(Schema schema, Iterable<Object> data, Encoder out, ByteArrayOutputStream bytes)
+      throws IOException {
+    GenericDatumWriter<Object> writer = new GenericDatumWriter<>(schema);
+    long marker = 0;
+    for (Object datum : data) {
+      writer.write(datum, out);
+      out.writeLong(marker++);
+    }
+    out.flush();
+    return bytes.toByteArray();
+  }
+
+  private static void checkSkip(Schema schema, Iterable<Object> data, int count) throws IOException {
+    SkipPlan plan = SkipPlan.of(schema);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    byte[] plain = write(schema, data, EncoderFactory.get().binaryEncoder(bytes, null), bytes);
+    bytes = new ByteArrayOutputStream();
+    byte[] blocked = write(schema, data, EncoderFactory.get().blockingBinaryEncoder(bytes, null), bytes);
+    for (byte[] encoded : Arrays.asList(plain, blocked)) {
+      BinaryDecoder in = DecoderFactory.get().binaryDecoder(encoded, null);
+      for (long marker = 0; marker < count; marker++) {
+        plan.skip(in);
+        assertEquals(marker, in.readLong());
+      }
+      assertTrue(in.isEnd());
+    }
+  }
+
+  @Test
+  void skipWide() throws IOException {
+    checkSkip(SCHEMA, new RandomData(SCHEMA, 200, 11L), 200);
+  }
+
+  @Test
+  void skipRecursive() throws IOException {
+    checkSkip(LIST, new RandomData(LIST, 50, 3L), 50);
+  }
+
+  @Test
+  void skipLargeBlockedArrays() throws IOException {
+    // large enough that the blocking encoder writes several sized blocks
+    Schema schema = SCHEMA.getField("ar").schema();
+    List<Object> data = new ArrayList<>();
+    for (Object datum : new RandomData(SCHEMA, 5, 5L)) {
+      GenericData.Array<Object> array = new GenericData.Array<>(0, schema);
+      for (int i = 0; i < 20000; i++) {
+        array.addAll((List<?>) ((GenericRecord) datum).get("ar"));
+      }
+      data.add(array);
+    }
+    checkSkip(schema, data, data.size());
+  }
+
+  @Test
+  void fixedSize() {
+    assertEquals(1 + 4 + 8 + 3, SkipPlan.of(Arrays.asList(SCHEMA.getField("b").schema(),
+        SCHEMA.getField("f").schema(), SCHEMA.getField("d").schema(), SCHEMA.getField("x").schema())).getFixedSize());
+    assertEquals(0, SkipPlan.of(Schema.create(Schema.Type.NULL)).getFixedSize());
+    assertEquals(-1, SkipPlan.of(SCHEMA).getFixedSize());
+    assertEquals(-1, SkipPlan.of(LIST).getFixedSize());
+  }
+
+  @Test
+  void nonBinaryDecoder() throws IOException {
+    // json needs a schema for the marker too
+    Schema wrapper = Schema.createRecord("Wrapper", null, null, false,
+        Arrays.asList(new Schema.Field("w", SCHEMA), new Schema.Field("marker", Schema.create(Schema.Type.LONG))));
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    GenericDatumWriter<Object> writer = new GenericDatumWriter<>(wrapper);
+    Encoder out = EncoderFactory.get().jsonEncoder(wrapper, bytes);
+    long count = 0;
+    for (Object datum : new RandomData(SCHEMA, 20, 9L)) {
+      GenericRecord record = new GenericData.Record(wrapper);
+      record.put("w", datum);
+      record.put("marker", count++);
+      writer.write(record, out);
+    }
+    out.flush();
+
+    SkipPlan plan = SkipPlan.of(SCHEMA);
+    Decoder in = DecoderFactory.get().jsonDecoder(wrapper, new ByteArrayInputStream(bytes.toByteArray()));
+    for (long marker = 0; marker < count; marker++) {
+      plan.skip(in);
+      assertEquals(marker, in.readLong());
+    }
+  }
+
+  @Test
+  void projection() throws IOException {
+    // a reader that only reads the last field skips all others
+    Schema reader = new Schema.Parser().parse("{\"type\":\"record\", \"name\":\"Wide\", \"fields\":["
+        + "{\"name\":\"i\", \"type\":\"int\"}, {\"name\":\"last\", \"type\":\"long\"}]}");
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    List<Object> data = new ArrayList<>();
+    new RandomData(SCHEMA, 100, 13L).forEach(data::add);
+    byte[] encoded = write(SCHEMA, data, EncoderFactory.get().blockingBinaryEncoder(bytes, null), bytes);
+
+    List<DatumReader<GenericRecord>> readers = Arrays.asList(new GenericDatumReader<>(SCHEMA, reader,
+        new GenericData().setFastReaderEnabled(true)),
+        new SpecializedDatumReader<>(SCHEMA, reader, GenericData.get()));
+    for (DatumReader<GenericRecord> datumReader : readers) {
+      BinaryDecoder in = DecoderFactory.get().binaryDecoder(encoded, null);
+      for (long marker = 0; marker < data.size(); marker++) {
+        GenericRecord expected = (GenericRecord) data.get((int) marker);
+        GenericRecord actual = datumReader.read(null, in);
+        assertEquals(expected.get("i"), actual.get("i"));
+        assertEquals(expected.get("last"), actual.get("last"));
+        assertEquals(marker, in.readLong());
+      }
+    }
+  }
+}
@@ -0,0 +1,224 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.ref.WeakReference;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.generic.GenericRecordBuilder;
+import org.apache.avro.reflect.ReflectData;
+import org.apache.avro.specific.SpecificData;
+import org.apache.avro.specific.SpecificDatumWriter;
+import org.apache.avro.specific.TestRecordWithLogicalTypes;
+import org.apache.avro.util.RandomRecords;
+import org.junit.jupiter.api.Test;
+
+public class TestSpecializedDatum {
+  private static final Schema SCHEMA = RandomRecords.primitives(
+      "{\"name\":\"z\", \"type\":\"boolean\"}", "{\"name\":\"n\", \"type\":\"null\"}",
+      "{\"name\":\"e\", \"type\":{\"type\":\"enum\", \"name\":\"E\", \"symbols\":[\"A\", \"B\", \"C\"]}}",
+      "{\"name\":\"x\", \"type\":{\"type\":\"fixed\", \"name\":\"X\", \"size\":3}}",
+      "{\"name\":\"a\", \"type\":{\"type\":\"array\", \"items\":\"long\"}}",
+      "{\"name\":\"m\", \"type\":{\"type\":\"map\", \"values\":\"string\"}}",
+      "{\"name\":\"u\", \"type\":[\"null\", \"int\", \"string\"]}",
+      "{\"name\":\"r\", \"type\":{\"type\":\"record\", \"name\":\"Inner\", \"fields\":["
+          + "{\"name\":\"v\", \"type\":\"int\"}, {\"name\":\"w\", \"type\":[\"null\", \"double\"]}]}}",
+      "{\"name\":\"ra\", \"type\":{\"type\":\"array\", \"items\":\"Inner\"}}");
+
+  private static byte[] write(DatumWriter<Object> writer, Iterable<?> data) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    for (Object datum : data) {
+      writer.write(datum, encoder);
+    }
+    encoder.flush();
+    return out.toByteArray();
+  }
+
+  private static List<Object> read(DatumReader<Object> reader, byte[] bytes, int count) throws IOException {
+    BinaryDecoder decoder = DecoderFactory.get().binaryDecoder(bytes, null);
+    List<Object> data = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      data.add(reader.read(null, decoder));
+    }
+    assertTrue(decoder.isEnd());
+    return data;
+  }
+
+  @Test
+  void roundTrip() throws IOException {
+    List<Object> data = RandomRecords.generate(SCHEMA, 200);
+
+    byte[] expected = write(new GenericDatumWriter<>(SCHEMA), data);
+    assertArrayEquals(expected, write(new SpecializedDatumWriter<>(SCHEMA), data));
+
+    assertEquals(read(new GenericDatumReader<>(SCHEMA), expected, data.size()),
+        read(new SpecializedDatumReader<>(SCHEMA), expected, data.size()));
+  }
+
+  @Test
+  void reuse() throws IOException {
+    List<Object> data = RandomRecords.generate(SCHEMA, 2, 7L);
+    byte[] bytes = write(new SpecializedDatumWriter<>(SCHEMA), data);
+
+    SpecializedDatumReader<Object> reader = new SpecializedDatumReader<>(SCHEMA);
+    BinaryDecoder decoder = DecoderFactory.get().binaryDecoder(bytes, null);
+    GenericRecord first = (GenericRecord) reader.read(null, decoder);
+    Object inner = first.get("r");
+    GenericRecord second = (GenericRecord) reader.read(first, decoder);
+    assertSame(first, second);
+    assertSame(inner, second.get("r"));
+    assertEquals(data.get(1), second);
+  }
+
+  @Test
+  void schemaResolution() throws IOException {
+    Schema writer = SchemaBuilder.record("R").fields().requiredInt("id").requiredString("dropped")
+        .name("kind").type().enumeration("Kind").symbols("X", "Y", "Z").noDefault().name("value").type().unionOf()
+        .intType().and().stringType().endUnion().noDefault().endRecord();
+    Schema reader = SchemaBuilder.record("R").fields().requiredLong("id").name("kind").type().enumeration("Kind")
+        .defaultSymbol("Z").symbols("Z", "X").noDefault().name("value").type().unionOf().nullType().and().longType()
+        .and().stringType().endUnion().nullDefault().name("added").type().doubleType().doubleDefault(1.5)
+        .endRecord();
+
+    List<Object> data = new ArrayList<>();
+    GenericData.EnumSymbol y = new GenericData.EnumSymbol(writer.getField("kind").schema(), "Y");
+    GenericData.EnumSymbol x = new GenericData.EnumSymbol(writer.getField("kind").schema(), "X");
+    data.add(new GenericRecordBuilder(writer).set("id", 1).set("dropped", "a").set("kind", y)
+        .set("value", 3).build());
+    data.add(new GenericRecordBuilder(writer).set("id", 2).set("dropped", "b").set("kind", x)
+        .set("value", "s").build());
+    byte[] bytes = write(new GenericDatumWriter<>(writer), data);
+
+    List<Object> expected = read(new GenericDatumReader<>(writer, reader), bytes, 2);
+    List<Object> actual = read(new SpecializedDatumReader<>(writer, reader, GenericData.get()), bytes, 2);
+    assertEquals(expected, actual);
+    GenericRecord first = (GenericRecord) actual.get(0);
+    assertEquals(1L, first.get("id"));
+    assertEquals("Z", first.get("kind").toString());
+    assertEquals(3L, first.get("value"));
+    assertEquals(1.5, first.get("added"));
+    assertNull(first.getSchema().getField("dropped"));
+  }
+
+  @Test
+  void recursive() throws IOException {
+    Schema list = new Schema.Parser().parse("{\"type\":\"record\", \"name\":\"Node\", \"fields\":["
+        + "{\"name\":\"value\", \"type\":\"int\"}, {\"name\":\"next\", \"type\":[\"null\", \"Node\"]}]}");
+    GenericData.Record head = null;
+    for (int i = 0; i < 10; i++) {
+      GenericData.Record node = new GenericData.Record(list);
+      node.put("value", i);
+      node.put("next", head);
+      head = node;
+    }
+    List<Object> data = new ArrayList<>();
+    data.add(head);
+
+    byte[] bytes = write(new SpecializedDatumWriter<>(list), data);
+    assertArrayEquals(write(new GenericDatumWriter<>(list), data), bytes);
+    assertEquals(data, read(new SpecializedDatumReader<>(list), bytes, 1));
+  }
+
+  @Test
+  void wideRecord() throws IOException {
+    SchemaBuilder.FieldAssembler<Schema> fields = SchemaBuilder.record("Wide").fields();
+    for (int i = 0; i < 500; i++) {
+      fields = fields.requiredLong("f" + i);
+    }
+    Schema wide = fields.endRecord();
+    GenericData.Record record = new GenericData.Record(wide);
+    for (int i = 0; i < 500; i++) {
+      record.put(i, (long) i * i);
+    }
+    List<Object> data = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      data.add(record);
+    }
+
+    byte[] bytes = write(new SpecializedDatumWriter<>(wide), data);
+    assertArrayEquals(write(new GenericDatumWriter<>(wide), data), bytes);
+    assertEquals(data, read(new SpecializedDatumReader<>(wide), bytes, data.size()));
+  }
+
+  @Test
+  void specificWithLogicalTypes() throws IOException {
+    TestRecordWithLogicalTypes record = new TestRecordWithLogicalTypes(true, 34, 35L, 3.14F, 3019.34, "s",
+        LocalDate.now(), LocalTime.now().truncatedTo(ChronoUnit.MILLIS),
+        Instant.now().truncatedTo(ChronoUnit.MILLIS), new BigDecimal("123.45"), new BigDecimal("-23.456562323"));
+    List<Object> data = new ArrayList<>();
+    data.add(record);
+    Schema schema = TestRecordWithLogicalTypes.getClassSchema();
+    SpecificData model = new SpecificData();
+
+    byte[] bytes = write(new SpecializedDatumWriter<>(schema, model), data);
+    assertArrayEquals(write(new SpecificDatumWriter<>(schema, model), data), bytes);
+    List<Object> copy = read(new SpecializedDatumReader<>(schema, schema, model), bytes, 1);
+    assertEquals(TestRecordWithLogicalTypes.class, copy.get(0).getClass());
+    assertEquals(data, copy);
+  }
+
+  @Test
+  void writeErrorNamesField() {
+    GenericData.Record record = new GenericData.Record(SCHEMA);
+    List<Object> data = new ArrayList<>();
+    data.add(record);
+    NullPointerException e = assertThrows(NullPointerException.class,
+        () -> write(new SpecializedDatumWriter<>(SCHEMA), data));
+    assertTrue(e.getMessage().contains("in field s"), e.getMessage());
+  }
+
+  @Test
+  void unusedHandlesStayCached() {
+    GenericData model = new GenericData();
+    WeakReference<DatumSpecializer> specializer = new WeakReference<>(DatumSpecializer.get(model));
+    WeakReference<MethodHandle> reader = new WeakReference<>(DatumSpecializer.get(model).reader(SCHEMA, SCHEMA));
+    WeakReference<MethodHandle> writer = new WeakReference<>(DatumSpecializer.get(model).writer(SCHEMA));
+    System.gc(); // Not guaranteed, but seems to be reliable enough
+    assertSame(specializer.get(), DatumSpecializer.get(model), "unused specializers should stay cached");
+    assertSame(reader.get(), DatumSpecializer.get(model).reader(SCHEMA, SCHEMA), "unused readers should stay cached");
+    assertSame(writer.get(), DatumSpecializer.get(model).writer(SCHEMA), "unused writers should stay cached");
+  }
+
+  @Test
+  void unsupportedData() {
+    assertThrows(IllegalArgumentException.class, () -> new SpecializedDatumWriter<>(SCHEMA, ReflectData.get()));
+  }
+}
@@ -21,15 +21,21 @@ package org.apache.avro.message;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Supplier;
 import org.apache.avro.AvroRuntimeException;
 import org.apache.avro.Schema;
 import org.apache.avro.SchemaBuilder;
+import org.apache.avro.file.Codec;
+import org.apache.avro.file.ZstandardCodec;
 import org.apache.avro.generic.GenericData;
 import org.apache.avro.generic.GenericData.Record;
 import org.apache.avro.generic.GenericRecordBuilder;
@@ -67,6 +73,38 @@ public class TestBinaryMessageEncoding {
     assertEquals(V2_RECORDS.get(0), copy, "Record should be identical after round-trip");
   }
 
+  private static String logLine(int i) {
+    return "GET /api/v1/users/" + i + "/profile HTTP/1.1 200 served by frontend-" + i % 4 + ".example.com";
+  }
+
+  @Test
+  void compressedRoundTrip() throws Exception {
+    List<byte[]> samples = new ArrayList<>();
+    MessageEncoder<Record> plain = new BinaryMessageEncoder<>(GenericData.get(), SCHEMA_V2);
+    for (int i = 0; i < 2000; i++) {
+      Record record = V2_BUILDER.set("id", (long) i).set("message", logLine(i)).set("data", i / 3.0).build();
+      ByteBuffer buffer = plain.encode(record);
+      byte[] sample = new byte[buffer.remaining()];
+      buffer.get(sample);
+      samples.add(sample);
+    }
+    byte[] dictionary = ZstandardCodec.trainDictionary(samples, 1024);
+
+    Supplier<Codec> codecs = () -> new ZstandardCodec(3, false, false, dictionary);
+    MessageEncoder<Record> encoder = new BinaryMessageEncoder<>(GenericData.get(), SCHEMA_V2, true, codecs);
+    MessageDecoder<Record> decoder = new BinaryMessageDecoder<>(GenericData.get(), SCHEMA_V2, null, codecs);
+
+    Record record = V2_BUILDER.set("id", 12345L).set("message", logLine(12345)).set("data", 4115.0).build();
+    ByteBuffer compressed = encoder.encode(record);
+    assertTrue(compressed.remaining() < plain.encode(record).remaining());
+
+    assertEquals(record, decoder.decode(compressed));
+
+    // the header is unchanged, so unknown schemas are still reported
+    MessageDecoder<Record> unknown = new BinaryMessageDecoder<>(GenericData.get(), SCHEMA_V1, null, codecs);
+    assertThrows(MissingSchemaException.class, () -> unknown.decode(encoder.encode(record)));
+  }
+
   @Test
   void schemaEvolution() throws Exception {
     List<ByteBuffer> buffers = new ArrayList<>();
@@ -258,4 +296,90 @@ public class TestBinaryMessageEncoding {
       decoder.decode(buffer);
     });
   }
+
+  private static List<ByteBuffer> split(ByteBuffer batch, int[] offsets) {
+    List<ByteBuffer> messages = new ArrayList<>();
+    for (int i = 0; i + 1 < offsets.length; i++) {
+      ByteBuffer message = batch.duplicate();
+      message.limit(offsets[i + 1]).position(offsets[i]);
+      messages.add(message.slice());
+    }
+    return messages;
+  }
+
+  @Test
+  void batchRoundTrip() throws Exception {
+    BinaryMessageEncoder<Record> v1 = new BinaryMessageEncoder<>(GenericData.get(), SCHEMA_V1);
+    BinaryMessageEncoder<Record> v2 = new BinaryMessageEncoder<>(GenericData.get(), SCHEMA_V2);
+    BinaryMessageDecoder<Record> decoder = new BinaryMessageDecoder<>(GenericData.get(), SCHEMA_V2);
+    decoder.addSchema(SCHEMA_V1);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    int[] offsets = v2.encodeAll(V2_RECORDS, out);
+    assertEquals(V2_RECORDS.size() + 1, offsets.length);
+    assertEquals(out.size(), offsets[V2_RECORDS.size()]);
+    List<ByteBuffer> messages = split(ByteBuffer.wrap(out.toByteArray()), offsets);
+    for (int i = 0; i < messages.size(); i++) {
+      // each message is the same as one encoded alone
+      assertEquals(v2.encode(V2_RECORDS.get(i)), messages.get(i));
+    }
+
+    // messages written with different schemas, into a buffer with some data
+    ByteBuffer buffer = ByteBuffer.allocate(1024);
+    buffer.put((byte) 1);
+    int[] v1Offsets = v1.encodeAll(V1_RECORDS, buffer);
+    assertEquals(1, v1Offsets[0]);
+    assertEquals(buffer.position(), v1Offsets[V1_RECORDS.size()]);
+    messages.addAll(split(buffer, v1Offsets));
+
+    List<Record> decoded = decoder.decodeAll(messages, null);
+    assertEquals(V2_RECORDS, decoded.subList(0, V2_RECORDS.size()));
+    for (int i = 0; i < V1_RECORDS.size(); i++) {
+      assertEquals(decoder.decode(v1.encode(V1_RECORDS.get(i))), decoded.get(V2_RECORDS.size() + i));
+    }
+
+    // datums are reused
+    List<Record> again = decoder.decodeAll(messages, decoded);
+    for (int i = 0; i < decoded.size(); i++) {
+      assertSame(decoded.get(i), again.get(i));
+    }
+  }
+
+  @Test
+  void batchOverflow() throws Exception {
+    BinaryMessageEncoder<Record> encoder = new BinaryMessageEncoder<>(GenericData.get(), SCHEMA_V2);
+    ByteBuffer buffer = ByteBuffer.allocate(20);
+    assertThrows(BufferOverflowException.class, () -> encoder.encodeAll(V2_RECORDS, buffer));
+    assertEquals(0, buffer.position());
+    assertArrayEquals(new int[] { 0 }, encoder.encodeAll(Collections.emptyList(), buffer));
+  }
+
+  @Test
+  void batchHeaders() throws Exception {
+    BinaryMessageEncoder<Record> encoder = new BinaryMessageEncoder<>(GenericData.get(), SCHEMA_V2);
+    BinaryMessageDecoder<Record> decoder = new BinaryMessageDecoder<>(GenericData.get(), SCHEMA_V2);
+    ByteBuffer bad = encoder.encode(V2_RECORDS.get(0));
+    bad.array()[1] = 0x00;
+    assertThrows(BadHeaderException.class,
+        () -> decoder.decodeAll(Arrays.asList(encoder.encode(V2_RECORDS.get(0)), bad), null));
+    assertThrows(BadHeaderException.class, () -> decoder.decodeAll(Arrays.asList(ByteBuffer.allocate(4)), null));
+    ByteBuffer unknown = encoder.encode(V2_RECORDS.get(0));
+    unknown.array()[4] = 0x00;
+    assertThrows(MissingSchemaException.class, () -> decoder.decodeAll(Arrays.asList(unknown), null));
+  }
+
+  @Test
+  void compressedBatch() throws Exception {
+    Supplier<Codec> codecs = () -> new ZstandardCodec(3, false, false, null);
+    BinaryMessageEncoder<Record> encoder = new BinaryMessageEncoder<>(GenericData.get(), SCHEMA_V2, true, codecs);
+    BinaryMessageDecoder<Record> decoder = new BinaryMessageDecoder<>(GenericData.get(), SCHEMA_V2, null, codecs);
+
+    ByteBuffer buffer = ByteBuffer.allocateDirect(1024);
+    int[] offsets = encoder.encodeAll(V2_RECORDS, buffer);
+    List<ByteBuffer> messages = split(buffer, offsets);
+    for (int i = 0; i < messages.size(); i++) {
+      assertEquals(V2_RECORDS.get(i), decoder.decode(messages.get(i).duplicate()));
+    }
+    assertEquals(V2_RECORDS, decoder.decodeAll(messages, null));
+  }
 }
@@ -0,0 +1,232 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.message;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.SchemaNormalization;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericData.Record;
+import org.apache.avro.generic.GenericRecordBuilder;
+import org.junit.jupiter.api.Test;
+
+public class TestCachingSchemaStore {
+  private static final Schema[] SCHEMAS = new Schema[3];
+  private static final long[] FINGERPRINTS = new long[SCHEMAS.length];
+  static {
+    for (int i = 0; i < SCHEMAS.length; i++) {
+      SCHEMAS[i] = SchemaBuilder.record("R" + i).fields().requiredInt("id").endRecord();
+      FINGERPRINTS[i] = SchemaNormalization.parsingFingerprint64(SCHEMAS[i]);
+    }
+  }
+
+  /** A store that counts lookups. */
+  private static class CountingStore implements SchemaStore {
+    final SchemaStore.Cache schemas = new SchemaStore.Cache();
+    final AtomicInteger lookups = new AtomicInteger();
+
+    CountingStore() {
+      for (Schema schema : SCHEMAS) {
+        schemas.addSchema(schema);
+      }
+    }
+
+    @Override
+    public Schema findByFingerprint(long fingerprint) {
+      lookups.incrementAndGet();
+      return schemas.findByFingerprint(fingerprint);
+    }
+  }
+
+  @Test
+  void hitsAndMisses() {
+    CountingStore store = new CountingStore();
+    CachingSchemaStore cache = CachingSchemaStore.builder(store).build();
+    for (int i = 0; i < 3; i++) {
+      assertSame(SCHEMAS[0], cache.findByFingerprint(FINGERPRINTS[0]));
+    }
+    assertEquals(1, store.lookups.get());
+    CachingSchemaStore.Stats stats = cache.getStats();
+    assertEquals(2, stats.getHitCount());
+    assertEquals(1, stats.getMissCount());
+    assertEquals(1, stats.getLoadCount());
+    assertEquals(0, stats.getEvictionCount());
+
+    // missing schemas are not cached by default
+    assertNull(cache.findByFingerprint(42L));
+    assertNull(cache.findByFingerprint(42L));
+    assertEquals(3, store.lookups.get());
+    assertEquals(1, cache.size());
+  }
+
+  @Test
+  void maximumSize() {
+    CountingStore store = new CountingStore();
+    AtomicLong time = new AtomicLong();
+    CachingSchemaStore cache = CachingSchemaStore.builder(store).maximumSize(2).ticker(time::incrementAndGet).build();
+    cache.findByFingerprint(FINGERPRINTS[0]);
+    cache.findByFingerprint(FINGERPRINTS[1]);
+    cache.findByFingerprint(FINGERPRINTS[0]);
+    // evicts the least recently used schema
+    cache.findByFingerprint(FINGERPRINTS[2]);
+    assertEquals(2, cache.size());
+    assertEquals(1, cache.getStats().getEvictionCount());
+    assertEquals(3, store.lookups.get());
+    cache.findByFingerprint(FINGERPRINTS[0]);
+    assertEquals(3, store.lookups.get());
+    cache.findByFingerprint(FINGERPRINTS[1]);
+    assertEquals(4, store.lookups.get());
+  }
+
+  @Test
+  void expireAfterWrite() {
+    CountingStore store = new CountingStore();
+    AtomicLong time = new AtomicLong();
+    CachingSchemaStore cache = CachingSchemaStore.builder(store).expireAfterWrite(Duration.ofNanos(10))
+        .ticker(time::get).build();
+    cache.findByFingerprint(FINGERPRINTS[0]);
+    time.set(9);
+    cache.findByFingerprint(FINGERPRINTS[0]);
+    assertEquals(1, store.lookups.get());
+    time.set(10);
+    assertSame(SCHEMAS[0], cache.findByFingerprint(FINGERPRINTS[0]));
+    assertEquals(2, store.lookups.get());
+    assertEquals(1, cache.getStats().getEvictionCount());
+  }
+
+  @Test
+  void cacheMissing() {
+    CountingStore store = new CountingStore();
+    AtomicLong time = new AtomicLong();
+    CachingSchemaStore cache = CachingSchemaStore.builder(store).cacheMissing(Duration.ofNanos(10))
+        .ticker(time::get).build();
+    assertNull(cache.findByFingerprint(42L));
+    assertNull(cache.findByFingerprint(42L));
+    assertEquals(1, store.lookups.get());
+    time.set(10);
+    assertNull(cache.findByFingerprint(42L));
+    assertEquals(2, store.lookups.get());
+
+    // a schema added to the store is found once invalidated
+    cache.invalidate(42L);
+    assertNull(cache.findByFingerprint(42L));
+    assertEquals(3, store.lookups.get());
+  }
+
+  @Test
+  void refreshAfterWrite() {
+    Schema[] current = { SCHEMAS[0] };
+    AtomicLong time = new AtomicLong();
+    List<Runnable> tasks = new ArrayList<>();
+    CachingSchemaStore cache = CachingSchemaStore.builder(fp -> current[0]).refreshAfterWrite(Duration.ofNanos(10))
+        .executor(tasks::add).ticker(time::get).build();
+    assertSame(SCHEMAS[0], cache.findByFingerprint(1L));
+    current[0] = SCHEMAS[1];
+    time.set(10);
+    // the cached schema is used until the refresh completes
+    assertSame(SCHEMAS[0], cache.findByFingerprint(1L));
+    assertSame(SCHEMAS[0], cache.findByFingerprint(1L));
+    assertEquals(1, tasks.size());
+    tasks.get(0).run();
+    assertSame(SCHEMAS[1], cache.findByFingerprint(1L));
+    assertEquals(2, cache.getStats().getLoadCount());
+  }
+
+  @Test
+  void singleFlight() throws Exception {
+    CountDownLatch loading = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger lookups = new AtomicInteger();
+    CachingSchemaStore cache = CachingSchemaStore.builder(fp -> {
+      lookups.incrementAndGet();
+      loading.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return SCHEMAS[0];
+    }).build();
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Schema>> results = new ArrayList<>();
+      results.add(executor.submit(() -> cache.findByFingerprint(FINGERPRINTS[0])));
+      loading.await();
+      for (int i = 0; i < 3; i++) {
+        results.add(executor.submit(() -> cache.findByFingerprint(FINGERPRINTS[0])));
+      }
+      release.countDown();
+      for (Future<Schema> result : results) {
+        assertSame(SCHEMAS[0], result.get());
+      }
+    } finally {
+      executor.shutdown();
+    }
+    assertEquals(1, lookups.get());
+  }
+
+  @Test
+  void failedLoad() {
+    CachingSchemaStore cache = CachingSchemaStore.builder(fp -> {
+      throw new IllegalStateException("unavailable");
+    }).build();
+    assertThrows(IllegalStateException.class, () -> cache.findByFingerprint(1L));
+    assertEquals(1, cache.getStats().getLoadFailureCount());
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  void boundedMessageDecoder() throws Exception {
+    CountingStore store = new CountingStore();
+    CachingSchemaStore cache = CachingSchemaStore.builder(store).maximumSize(1).build();
+    BinaryMessageDecoder<Record> decoder = new BinaryMessageDecoder<>(GenericData.get(), null, cache);
+
+    List<ByteBuffer> messages = new ArrayList<>();
+    for (Schema schema : SCHEMAS) {
+      messages.add(new BinaryMessageEncoder<Record>(GenericData.get(), schema)
+          .encode(new GenericRecordBuilder(schema).set("id", 1).build()));
+    }
+    for (int round = 0; round < 2; round++) {
+      for (int i = 0; i < SCHEMAS.length; i++) {
+        assertEquals(SCHEMAS[i], decoder.decode(messages.get(i).duplicate()).getSchema());
+      }
+    }
+    // each message needs a schema the decoder evicted
+    assertEquals(6, store.lookups.get());
+    Schema other = SchemaBuilder.record("Other").fields().endRecord();
+    ByteBuffer unknown = new BinaryMessageEncoder<Record>(GenericData.get(), other).encode(new Record(other));
+    assertThrows(MissingSchemaException.class, () -> decoder.decode(unknown));
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.apache.avro.Schema;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericDatumWriter;
+
+/**
+ * Record schemas and random data shared by the tests of readers and writers.
+ */
+public final class RandomRecords {
+  public static final long SEED = 42;
+
+  /** Records of a string <i>s</i> and a long <i>l</i>. */
+  public static final Schema STRING_LONG = record("{\"name\":\"s\", \"type\":\"string\"}",
+      "{\"name\":\"l\", \"type\":\"long\"}");
+
+  /** Records of a string <i>s</i> and bytes <i>b</i>. */
+  public static final Schema STRING_BYTES = record("{\"name\":\"s\", \"type\":\"string\"}",
+      "{\"name\":\"b\", \"type\":\"bytes\"}");
+
+  private RandomRecords() {
+  }
+
+  /**
+   * Returns a record schema named Test with a field of each primitive type but
+   * boolean and null, <i>s</i>, <i>b</i>, <i>i</i>, <i>l</i>, <i>f</i> and
+   * <i>d</i>, followed by fields given as JSON.
+   */
+  public static Schema primitives(String... fields) {
+    String[] all = new String[6 + fields.length];
+    all[0] = "{\"name\":\"s\", \"type\":\"string\"}";
+    all[1] = "{\"name\":\"b\", \"type\":\"bytes\"}";
+    all[2] = "{\"name\":\"i\", \"type\":\"int\"}";
+    all[3] = "{\"name\":\"l\", \"type\":\"long\"}";
+    all[4] = "{\"name\":\"f\", \"type\":\"float\"}";
+    all[5] = "{\"name\":\"d\", \"type\":\"double\"}";
+    System.arraycopy(fields, 0, all, 6, fields.length);
+    return record(all);
+  }
+
+  /** Returns a record schema named Test with fields given as JSON. */
+  public static Schema record(String... fields) {
+    return new Schema.Parser()
+        .parse("{\"type\": \"record\", \"name\": \"Test\", \"fields\": [" + String.join(", ", fields) + "]}");
+  }
+
+  /** Returns count random data of a schema, generated from {@link #SEED}. */
+  public static List<Object> generate(Schema schema, int count) {
+    return generate(schema, count, SEED);
+  }
+
+  public static List<Object> generate(Schema schema, int count, long seed) {
+    List<Object> data = new ArrayList<>(count);
+    new RandomData(schema, count, seed).forEach(data::add);
+    return data;
+  }
+
+  /** Writes data to a file, with a writer configured by <i>setup</i>. */
+  public static File write(File file, Schema schema, Iterable<?> data, Consumer<DataFileWriter<Object>> setup)
+      throws IOException {
+    try (DataFileWriter<Object> writer = new DataFileWriter<>(new GenericDatumWriter<>())) {
+      setup.accept(writer);
+      writer.create(schema, file);
+      for (Object datum : data) {
+        writer.append(datum);
+      }
+    }
+    return file;
+  }
+}
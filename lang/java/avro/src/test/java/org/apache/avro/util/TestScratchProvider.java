@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.avro.util.ScratchProvider.Scratch;
+import org.junit.jupiter.api.Test;
+
+public class TestScratchProvider {
+
+  @Test
+  void threadLocal() throws Exception {
+    Scratch<StringBuilder> scratch = ScratchProvider.threadLocal().scratch(StringBuilder::new);
+    StringBuilder first = scratch.acquire();
+    scratch.release(first);
+    assertSame(first, scratch.acquire());
+
+    StringBuilder[] other = new StringBuilder[1];
+    Thread thread = new Thread(() -> other[0] = scratch.acquire());
+    thread.start();
+    thread.join();
+    assertNotSame(first, other[0]);
+  }
+
+  @Test
+  void pooled() {
+    AtomicInteger created = new AtomicInteger();
+    Scratch<StringBuilder> scratch = ScratchProvider.pooled(2).scratch(() -> {
+      created.incrementAndGet();
+      return new StringBuilder();
+    });
+    StringBuilder first = scratch.acquire();
+    scratch.release(first);
+    assertSame(first, scratch.acquire());
+    assertEquals(1, created.get());
+
+    // objects in use are never handed out twice
+    StringBuilder second = scratch.acquire();
+    StringBuilder third = scratch.acquire();
+    assertNotSame(first, second);
+    assertNotSame(second, third);
+    assertEquals(3, created.get());
+
+    // only two are kept
+    scratch.release(first);
+    scratch.release(second);
+    scratch.release(third);
+    scratch.acquire();
+    scratch.acquire();
+    assertEquals(3, created.get());
+    scratch.acquire();
+    assertEquals(4, created.get());
+  }
+
+  @Test
+  void pooledAcrossThreads() throws Exception {
+    Scratch<StringBuilder> scratch = ScratchProvider.pooled(1).scratch(StringBuilder::new);
+    StringBuilder[] released = new StringBuilder[1];
+    Thread thread = new Thread(() -> {
+      released[0] = scratch.acquire();
+      scratch.release(released[0]);
+    });
+    thread.start();
+    thread.join();
+    assertSame(released[0], scratch.acquire());
+  }
+
+  @Test
+  void perCall() {
+    Scratch<StringBuilder> scratch = ScratchProvider.perCall().scratch(StringBuilder::new);
+    StringBuilder first = scratch.acquire();
+    scratch.release(first);
+    assertNotSame(first, scratch.acquire());
+  }
+
+  @Test
+  void forName() {
+    assertSame(ScratchProvider.threadLocal(), ScratchProvider.forName("thread-local"));
+    assertSame(ScratchProvider.perCall(), ScratchProvider.forName("PER-CALL"));
+    Scratch<StringBuilder> pooled = ScratchProvider.forName("pooled").scratch(StringBuilder::new);
+    StringBuilder first = pooled.acquire();
+    pooled.release(first);
+    assertSame(first, pooled.acquire());
+
+    assertThrows(IllegalArgumentException.class, () -> ScratchProvider.forName("none"));
+    assertThrows(IllegalArgumentException.class, () -> ScratchProvider.pooled(0));
+    assertThrows(NullPointerException.class, () -> ScratchProvider.setDefault(null));
+  }
+}
@@ -30,12 +30,13 @@ import org.apache.avro.Schema;
 import org.apache.avro.generic.GenericData;
 import org.apache.avro.generic.GenericRecord;
 import org.apache.avro.specific.SpecificData;
+import org.apache.avro.io.BinaryData;
 import org.apache.avro.io.DatumReader;
 import org.apache.avro.io.DatumWriter;
+import org.apache.avro.io.OrderedKeyEncoder;
 import org.apache.avro.file.CodecFactory;
 import org.apache.avro.file.DataFileReader;
 import org.apache.avro.file.DataFileWriter;
-import org.apache.avro.hadoop.util.AvroCharSequenceComparator;
 import org.apache.avro.hadoop.io.AvroKeyValue;
 import org.apache.avro.mapred.FsInput;
 import org.apache.hadoop.conf.Configuration;
@@ -85,8 +86,14 @@ public class SortedKeyValueFile {
    * @param <V> The value type.
    */
   public static class Reader<K, V> implements Closeable, Iterable<AvroKeyValue<K, V>> {
-    /** The index from key to its byte offset into the data file. */
-    private final NavigableMap<K, Long> mIndex;
+    /**
+     * The index from the ordered key encoding of a key to its byte offset into the
+     * data file.
+     */
+    private final NavigableMap<byte[], Long> mIndex;
+
+    /** The encoder of keys into the ordered bytes of the index. */
+    private final OrderedKeyEncoder<K> mKeyEncoder;
 
     /** The reader for the data file. */
     private final DataFileReader<GenericRecord> mDataFileReader;
@@ -216,6 +223,7 @@ public class SortedKeyValueFile {
     public Reader(Options options) throws IOException {
       mKeySchema = options.getKeySchema();
       this.model = options.getDataModel();
+      mKeyEncoder = new OrderedKeyEncoder<>(model, mKeySchema);
 
       // Load the whole index file into memory.
       Path indexFilePath = new Path(options.getPath(), INDEX_FILENAME);
@@ -246,7 +254,7 @@ public class SortedKeyValueFile {
     public V get(K key) throws IOException {
       // Look up the entry in the index.
       LOG.debug("Looking up key {} in the index", key);
-      Map.Entry<K, Long> indexEntry = mIndex.floorEntry(key);
+      Map.Entry<byte[], Long> indexEntry = mIndex.floorEntry(mKeyEncoder.encode(key));
       if (null == indexEntry) {
         LOG.debug("Key {} was not found in the index (it is before the first entry)", key);
         return null;
@@ -309,28 +317,20 @@ public class SortedKeyValueFile {
      * @param keySchema The reader schema for the key.
      * @throws IOException If there is an error.
      */
-    private <K> NavigableMap<K, Long> loadIndexFile(Configuration conf, Path path, Schema keySchema)
+    private NavigableMap<byte[], Long> loadIndexFile(Configuration conf, Path path, Schema keySchema)
         throws IOException {
       DatumReader<GenericRecord> datumReader = model
           .createDatumReader(AvroKeyValue.getSchema(keySchema, Schema.create(Schema.Type.LONG)));
 
-      NavigableMap<K, Long> index = new TreeMap<>();
+      // Keys are held in their ordered encoding, whose byte order is that of the
+      // key schema, so that keys of any schema and representation (e.g.
+      // java.lang.String vs Utf8 strings) are found without being Comparable.
+      NavigableMap<byte[], Long> index = new TreeMap<>(
+          (a, b) -> BinaryData.compareBytes(a, 0, a.length, b, 0, b.length));
       try (DataFileReader<GenericRecord> fileReader = new DataFileReader<>(new FsInput(path, conf), datumReader)) {
-        if (Schema.create(Schema.Type.STRING).equals(keySchema)) {
-          // Because Avro STRING types are mapped to the Java CharSequence class that does
-          // not
-          // mandate the implementation of Comparable, we need to specify a special
-          // CharSequence comparator if the key type is a string. This hack only fixes the
-          // problem for primitive string types. If, for example, you tried to use a
-          // record
-          // type as the key, any string fields inside of it would not be compared
-          // correctly
-          // against java.lang.Strings.
-          index = new TreeMap<>(new AvroCharSequenceComparator<>());
-        }
         for (GenericRecord genericRecord : fileReader) {
           AvroKeyValue<K, Long> indexRecord = new AvroKeyValue<>(genericRecord);
-          index.put(indexRecord.getKey(), indexRecord.getValue());
+          index.put(mKeyEncoder.encode(indexRecord.getKey()), indexRecord.getValue());
         }
       }
       return index;
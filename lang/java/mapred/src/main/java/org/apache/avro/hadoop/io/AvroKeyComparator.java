@@ -20,7 +20,7 @@ package org.apache.avro.hadoop.io;
 
 import org.apache.avro.Schema;
 import org.apache.avro.generic.GenericData;
-import org.apache.avro.io.BinaryData;
+import org.apache.avro.io.BinaryComparator;
 import org.apache.avro.mapred.AvroKey;
 import org.apache.avro.mapreduce.AvroJob;
 import org.apache.hadoop.conf.Configuration;
@@ -38,6 +38,8 @@ import org.apache.hadoop.io.RawComparator;
 public class AvroKeyComparator<T> extends Configured implements RawComparator<AvroKey<T>> {
   /** The schema of the Avro data in the key to compare. */
   private Schema mSchema;
+  /** Compares the serialized keys without decoding them. */
+  private BinaryComparator mBinaryComparator;
   private GenericData mDataModel;
 
   /** {@inheritDoc} */
@@ -49,6 +51,7 @@ public class AvroKeyComparator<T> extends Configured implements RawComparator<Av
       // output from the map phase, so use the schema defined for the map output key
       // and the data model non-raw compare() implementation.
       mSchema = AvroJob.getMapOutputKeySchema(conf);
+      mBinaryComparator = BinaryComparator.of(mSchema);
       mDataModel = AvroSerialization.createDataModel(conf);
     }
   }
@@ -56,7 +59,7 @@ public class AvroKeyComparator<T> extends Configured implements RawComparator<Av
   /** {@inheritDoc} */
   @Override
   public int compare(byte[] b1, int s1, int l1, byte[] b2, int s2, int l2) {
-    return BinaryData.compare(b1, s1, b2, s2, mSchema);
+    return mBinaryComparator.compare(b1, s1, l1, b2, s2, l2);
   }
 
   /** {@inheritDoc} */
@@ -51,6 +51,9 @@ public final class Perf {
     options.addOption(
         Option.builder().argName("test").longOpt("test").hasArg().desc("The performance tests to run").build());
 
+    options.addOption(Option.builder().argName("profiler").longOpt("prof").hasArg()
+        .desc("A JMH profiler to run, such as gc for allocation rates").build());
+
     options.addOption(Option.builder().argName("help").longOpt("help").desc("Print the help menu").build());
 
     final CommandLine cmd = new DefaultParser().parse(options, args);
@@ -83,6 +86,13 @@ public final class Perf {
       runOpt.include(test);
     }
 
+    final String[] profilers = cmd.getOptionValues("prof");
+    if (profilers != null) {
+      for (final String profiler : profilers) {
+        runOpt.addProfiler(profiler);
+      }
+    }
+
     new Runner(runOpt.build()).run();
   }
 }
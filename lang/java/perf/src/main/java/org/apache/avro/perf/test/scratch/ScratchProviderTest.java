@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.perf.test.scratch;
+
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.message.BinaryMessageDecoder;
+import org.apache.avro.message.BinaryMessageEncoder;
+import org.apache.avro.perf.test.BasicState;
+import org.apache.avro.util.ScratchProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Encodes and decodes single-object messages from many short tasks, each on
+ * its own virtual thread or on a fixed pool of platform threads, with each
+ * {@link ScratchProvider}. Run with <tt>--prof gc</tt> to compare the
+ * allocation rate too.
+ */
+public class ScratchProviderTest {
+
+  private static final int TASKS = 1000;
+
+  private static final String RECORD_SCHEMA = "{ \"type\": \"record\", \"name\": \"R\", \"fields\": [\n"
+      + "{ \"name\": \"f1\", \"type\": \"double\" },\n" + "{ \"name\": \"f2\", \"type\": \"long\" },\n"
+      + "{ \"name\": \"f3\", \"type\": \"string\" },\n" + "{ \"name\": \"f4\", \"type\": \"int\" }\n" + "] }";
+
+  // the same record with a field added, so that reading resolves the schemas
+  private static final String READER_SCHEMA = "{ \"type\": \"record\", \"name\": \"R\", \"fields\": [\n"
+      + "{ \"name\": \"f1\", \"type\": \"double\" },\n" + "{ \"name\": \"f2\", \"type\": \"long\" },\n"
+      + "{ \"name\": \"f3\", \"type\": \"string\" },\n" + "{ \"name\": \"f4\", \"type\": \"int\" },\n"
+      + "{ \"name\": \"f5\", \"type\": \"int\", \"default\": 0 }\n" + "] }";
+
+  @Benchmark
+  @OperationsPerInvocation(TASKS)
+  public void roundTrip(final Blackhole blackhole, final TestState state) throws Exception {
+    final List<Future<Object>> results = new ArrayList<>(TASKS);
+    for (int i = 0; i < TASKS; i++) {
+      final GenericRecord record = state.testData[i % state.testData.length];
+      results.add(state.executor.submit(() -> state.decoder.decode(state.encoder.encode(record))));
+    }
+    for (Future<Object> result : results) {
+      blackhole.consume(result.get());
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class TestState extends BasicState {
+
+    @Param({ "thread-local", "pooled", "per-call" })
+    public String provider;
+
+    @Param({ "virtual", "platform" })
+    public String threads;
+
+    private final Schema schema;
+    private final Schema readerSchema;
+
+    private ExecutorService executor;
+    private BinaryMessageEncoder<GenericRecord> encoder;
+    private BinaryMessageDecoder<Object> decoder;
+    private GenericRecord[] testData;
+
+    public TestState() {
+      super();
+      this.schema = new Schema.Parser().parse(RECORD_SCHEMA);
+      this.readerSchema = new Schema.Parser().parse(READER_SCHEMA);
+    }
+
+    @Setup(Level.Trial)
+    public void doSetupTrial() throws Exception {
+      // before the message classes load, as they create their scratch objects then
+      ScratchProvider.setDefault(ScratchProvider.forName(provider));
+
+      this.executor = "virtual".equals(threads) ? newVirtualThreadPerTaskExecutor()
+          : Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+      this.encoder = new BinaryMessageEncoder<>(GenericData.get(), schema);
+      this.decoder = new BinaryMessageDecoder<>(GenericData.get(), readerSchema);
+      decoder.addSchema(schema);
+
+      final Random r = super.getRandom();
+      this.testData = new GenericRecord[100];
+      for (int i = 0; i < testData.length; i++) {
+        final GenericRecord rec = new GenericData.Record(schema);
+        rec.put(0, r.nextDouble());
+        rec.put(1, r.nextLong());
+        rec.put(2, "value-" + r.nextInt());
+        rec.put(3, r.nextInt());
+        testData[i] = rec;
+      }
+      // check the round trip before measuring it
+      ByteBuffer encoded = encoder.encode(testData[0]);
+      decoder.decode(encoded);
+    }
+
+    @TearDown(Level.Trial)
+    public void doTearDownTrial() throws InterruptedException {
+      executor.shutdown();
+      executor.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    // virtual threads need Java 21, this module may be built for an older release
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+      try {
+        Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        return (ExecutorService) factory.invoke(null);
+      } catch (ReflectiveOperationException e) {
+        throw new UnsupportedOperationException("Virtual threads need Java 21 or later", e);
+      }
+    }
+  }
+}
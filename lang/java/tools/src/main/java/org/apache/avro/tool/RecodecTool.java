@@ -17,23 +17,29 @@
  */
 package org.apache.avro.tool;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintStream;
+import java.util.ArrayList;
 import java.util.List;
 
 import joptsimple.OptionParser;
 import joptsimple.OptionSet;
 import joptsimple.OptionSpec;
 
+import org.apache.avro.AvroRuntimeException;
 import org.apache.avro.Schema;
 import org.apache.avro.file.CodecFactory;
 import org.apache.avro.file.DataFileConstants;
 import org.apache.avro.file.DataFileStream;
 import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.file.ZstandardCodec;
 import org.apache.avro.generic.GenericDatumReader;
 import org.apache.avro.generic.GenericDatumWriter;
-import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.EncoderFactory;
 
 /** Tool to alter the codec of an Avro data file. */
 public class RecodecTool implements Tool {
@@ -43,6 +49,10 @@ public class RecodecTool implements Tool {
     OptionParser optParser = new OptionParser();
     OptionSpec<String> codecOpt = Util.compressionCodecOptionWithDefault(optParser, DataFileConstants.NULL_CODEC);
     OptionSpec<Integer> levelOpt = Util.compressionLevelOption(optParser);
+    OptionSpec<Integer> dictionaryOpt = optParser
+        .accepts("dictionary-size",
+            "Train a zstandard dictionary of this many bytes from the leading records and store it in the file.")
+        .withRequiredArg().ofType(Integer.class);
     OptionSet opts = optParser.parse(args.toArray(new String[0]));
 
     List<String> nargs = (List<String>) opts.nonOptionArguments();
@@ -64,11 +74,31 @@ public class RecodecTool implements Tool {
       outputNeedsClosing = true;
     }
 
-    DataFileStream<GenericRecord> reader = new DataFileStream<>(input, new GenericDatumReader<>());
+    String codecName = opts.valueOf(codecOpt);
+    if (opts.has(dictionaryOpt) && !DataFileConstants.ZSTANDARD_CODEC.equals(codecName)) {
+      err.println("A dictionary can only be trained for the " + DataFileConstants.ZSTANDARD_CODEC + " codec.");
+      optParser.printHelpOn(err);
+      return 1;
+    }
+
+    DataFileStream<Object> reader = new DataFileStream<>(input, new GenericDatumReader<>());
     Schema schema = reader.getSchema();
-    DataFileWriter<GenericRecord> writer = new DataFileWriter<>(new GenericDatumWriter<>());
+    DataFileWriter<Object> writer = new DataFileWriter<>(new GenericDatumWriter<>());
     // unlike the other Avro tools, we default to a null codec, not deflate
     CodecFactory codec = Util.codecFactory(opts, codecOpt, levelOpt, DataFileConstants.NULL_CODEC);
+    List<Object> leading = new ArrayList<>();
+    if (opts.has(dictionaryOpt)) {
+      int dictionarySize = opts.valueOf(dictionaryOpt);
+      byte[] dictionary;
+      try {
+        dictionary = trainDictionary(reader, schema, dictionarySize, leading);
+      } catch (AvroRuntimeException e) {
+        err.println(e.getMessage());
+        return 1;
+      }
+      int level = opts.has(levelOpt) ? opts.valueOf(levelOpt) : CodecFactory.DEFAULT_ZSTANDARD_LEVEL;
+      codec = CodecFactory.zstandardCodec(level, false, dictionary);
+    }
     writer.setCodec(codec);
     for (String key : reader.getMetaKeys()) {
       if (!DataFileWriter.isReservedMeta(key)) {
@@ -77,7 +107,17 @@ public class RecodecTool implements Tool {
     }
     writer.create(schema, output);
 
-    writer.appendAllFrom(reader, true);
+    if (opts.has(dictionaryOpt)) {
+      // training read past block boundaries, so records are appended one by one
+      for (Object datum : leading) {
+        writer.append(datum);
+      }
+      for (Object datum : reader) {
+        writer.append(datum);
+      }
+    } else {
+      writer.appendAllFrom(reader, true);
+    }
     writer.flush();
 
     if (inputNeedsClosing) {
@@ -90,6 +130,32 @@ public class RecodecTool implements Tool {
     return 0;
   }
 
+  /**
+   * Trains a dictionary on the encoded data read from the start of a file, up
+   * to a hundred times the size of the dictionary. The data read are added to
+   * <i>leading</i>.
+   */
+  private static byte[] trainDictionary(DataFileStream<Object> reader, Schema schema, int dictionarySize,
+      List<Object> leading) throws IOException {
+    GenericDatumWriter<Object> datumWriter = new GenericDatumWriter<>(schema);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    BinaryEncoder encoder = null;
+    List<byte[]> samples = new ArrayList<>();
+    long sampled = 0;
+    long limit = 100L * dictionarySize;
+    while (sampled < limit && reader.hasNext()) {
+      Object datum = reader.next();
+      leading.add(datum);
+      bytes.reset();
+      encoder = EncoderFactory.get().binaryEncoder(bytes, encoder);
+      datumWriter.write(datum, encoder);
+      encoder.flush();
+      samples.add(bytes.toByteArray());
+      sampled += bytes.size();
+    }
+    return ZstandardCodec.trainDictionary(samples, dictionarySize);
+  }
+
   @Override
   public String getName() {
     return "recodec";
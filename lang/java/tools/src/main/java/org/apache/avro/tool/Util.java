@@ -260,7 +260,7 @@ class Util {
   }
 
   static OptionSpec<Integer> compressionLevelOption(OptionParser optParser) {
-    return optParser.accepts("level", "Compression level (only applies to deflate, xz, and zstandard)")
+    return optParser.accepts("level", "Compression level (only applies to deflate, xz, zstandard and lz4)")
         .withRequiredArg().ofType(Integer.class).defaultsTo(Deflater.DEFAULT_COMPRESSION);
   }
 
@@ -277,6 +277,8 @@ class Util {
       return CodecFactory.xzCodec(level.value(opts));
     } else if (codecName.equals(DataFileConstants.ZSTANDARD_CODEC)) {
       return CodecFactory.zstandardCodec(level.value(opts));
+    } else if (codecName.equals(DataFileConstants.LZ4_CODEC)) {
+      return CodecFactory.lz4Codec(level.value(opts));
     } else {
       return CodecFactory.fromString(codec.value(opts));
     }
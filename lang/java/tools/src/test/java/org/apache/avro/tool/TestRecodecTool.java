@@ -19,8 +19,11 @@ package org.apache.avro.tool;
 
 import static java.util.Arrays.asList;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.PrintStream;
@@ -29,6 +32,7 @@ import java.util.Collections;
 
 import org.apache.avro.Schema;
 import org.apache.avro.Schema.Type;
+import org.apache.avro.file.DataFileConstants;
 import org.apache.avro.file.DataFileReader;
 import org.apache.avro.file.DataFileWriter;
 import org.apache.avro.generic.GenericDatumReader;
@@ -64,6 +68,8 @@ public class TestRecodecTool {
     File deflateDefaultOutputFile = new File(DIR, "deflate-default-output.avro");
     File deflate1OutputFile = new File(DIR, "deflate-1-output.avro");
     File deflate9OutputFile = new File(DIR, "deflate-9-output.avro");
+    File lz4OutputFile = new File(DIR, "lz4-output.avro");
+    File lz4HcOutputFile = new File(DIR, "lz4-hc-output.avro");
 
     new RecodecTool().run(new FileInputStream(inputFile), new PrintStream(defaultOutputFile), null, new ArrayList<>());
     new RecodecTool().run(new FileInputStream(inputFile), new PrintStream(nullOutputFile), null,
@@ -74,6 +80,10 @@ public class TestRecodecTool {
         asList("--codec=deflate", "--level=1"));
     new RecodecTool().run(new FileInputStream(inputFile), new PrintStream(deflate9OutputFile), null,
         asList("--codec=deflate", "--level=9"));
+    new RecodecTool().run(new FileInputStream(inputFile), new PrintStream(lz4OutputFile), null,
+        Collections.singletonList("--codec=lz4"));
+    new RecodecTool().run(new FileInputStream(inputFile), new PrintStream(lz4HcOutputFile), null,
+        asList("--codec=lz4", "--level=9"));
 
     // We assume that metadata copying is orthogonal to codec selection, and
     // so only test it for a single file.
@@ -91,6 +101,53 @@ public class TestRecodecTool {
 
     // The "level 9" file should be smaller than the "level 1" file.
     assertLessThan(deflate9OutputFile.length(), deflate1OutputFile.length());
+
+    // Both LZ4 files should be smaller than the null file.
+    assertLessThan(lz4OutputFile.length(), nullOutputFile.length());
+    assertLessThan(lz4HcOutputFile.length(), nullOutputFile.length());
+    try (DataFileReader<Object> reader = new DataFileReader<>(lz4HcOutputFile, new GenericDatumReader<>())) {
+      assertEquals("lz4", reader.getMetaString("avro.codec"));
+      int count = 0;
+      for (Object datum : reader) {
+        assertEquals("" + count++ % 100, datum.toString());
+      }
+      assertEquals(100000, count);
+    }
+  }
+
+  @Test
+  void recodecWithDictionary() throws Exception {
+    File inputFile = new File(DIR, "input.avro");
+    Schema schema = Schema.create(Type.STRING);
+    try (DataFileWriter<String> writer = new DataFileWriter<>(new GenericDatumWriter<String>(schema))) {
+      writer.create(schema, inputFile);
+      for (int i = 0; i < 20000; i++) {
+        writer.append("{\"user\": \"user-" + i + "\", \"domain\": \"example.com\", \"id\": " + i * 7 + "}");
+      }
+    }
+
+    File outputFile = new File(DIR, "zstandard-dictionary-output.avro");
+    int result = new RecodecTool().run(new FileInputStream(inputFile), new PrintStream(outputFile), null,
+        asList("--codec=zstandard", "--dictionary-size=1024"));
+    assertEquals(0, result);
+
+    try (DataFileReader<Object> reader = new DataFileReader<>(outputFile, new GenericDatumReader<>())) {
+      assertEquals("zstandard", reader.getMetaString("avro.codec"));
+      assertNotNull(reader.getMeta(DataFileConstants.ZSTANDARD_DICTIONARY));
+      int count = 0;
+      for (Object datum : reader) {
+        assertEquals("{\"user\": \"user-" + count + "\", \"domain\": \"example.com\", \"id\": " + count * 7 + "}",
+            datum.toString());
+        count++;
+      }
+      assertEquals(20000, count);
+    }
+
+    ByteArrayOutputStream err = new ByteArrayOutputStream();
+    result = new RecodecTool().run(new FileInputStream(inputFile), new PrintStream(new ByteArrayOutputStream()),
+        new PrintStream(err), asList("--codec=deflate", "--dictionary-size=1024"));
+    assertEquals(1, result);
+    assertTrue(err.toString().contains("zstandard"));
   }
 
   private static void assertLessThan(long less, long more) {
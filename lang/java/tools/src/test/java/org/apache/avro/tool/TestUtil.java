@@ -25,6 +25,7 @@ import joptsimple.OptionSet;
 import joptsimple.OptionSpec;
 import org.apache.avro.file.Codec;
 import org.apache.avro.file.CodecFactory;
+import org.apache.avro.file.Lz4Codec;
 import org.apache.avro.file.ZstandardCodec;
 import org.junit.Rule;
 import org.junit.jupiter.api.Test;
@@ -48,6 +49,27 @@ public class TestUtil {
     assertEquals(String.format("zstandard[%d]", level), codec.toString());
   }
 
+  private void lz4CompressionLevel(int level, int expected) throws Exception {
+    OptionParser optParser = new OptionParser();
+    OptionSpec<String> codecOpt = Util.compressionCodecOption(optParser);
+    OptionSpec<Integer> levelOpt = Util.compressionLevelOption(optParser);
+
+    OptionSet opts = optParser.parse(new String[] { "--codec", "lz4", "--level", String.valueOf(level) });
+    CodecFactory codecFactory = Util.codecFactory(opts, codecOpt, levelOpt);
+    Method createInstance = CodecFactory.class.getDeclaredMethod("createInstance");
+    createInstance.setAccessible(true);
+    Codec codec = (Lz4Codec) createInstance.invoke(codecFactory);
+    assertEquals(String.format("lz4[%d]", expected), codec.toString());
+  }
+
+  @Test
+  void codecFactoryLz4CompressionLevel() throws Exception {
+    lz4CompressionLevel(CodecFactory.DEFAULT_LZ4_LEVEL, 0);
+    lz4CompressionLevel(-1, 0);
+    lz4CompressionLevel(9, 9);
+    lz4CompressionLevel(30, Lz4Codec.MAX_COMPRESSION);
+  }
+
   @Test
   void codecFactoryZstandardCompressionLevel() throws Exception {
     zstandardCompressionLevel(1);
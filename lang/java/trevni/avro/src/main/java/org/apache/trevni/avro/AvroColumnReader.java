@@ -26,12 +26,16 @@ import java.util.Iterator;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Executor;
 
 import org.apache.trevni.ColumnMetaData;
 import org.apache.trevni.ColumnFileReader;
+import org.apache.trevni.ColumnPredicate;
 import org.apache.trevni.ColumnValues;
 import org.apache.trevni.Input;
 import org.apache.trevni.InputFile;
+import org.apache.trevni.RowFilter;
 import org.apache.trevni.TrevniRuntimeException;
 
 import org.apache.avro.Schema;
@@ -43,7 +47,8 @@ import static org.apache.trevni.avro.AvroColumnator.isSimple;
 /**
  * Read files written with {@link AvroColumnWriter}. A subset of the schema used
  * for writing may be specified when reading. In this case only columns of the
- * subset schema are read.
+ * subset schema are read. A predicate may also be specified, in which case only
+ * the rows that match it are read.
  */
 public class AvroColumnReader<D> implements Iterator<D>, Iterable<D>, Closeable {
 
@@ -56,6 +61,11 @@ public class AvroColumnReader<D> implements Iterator<D>, Iterable<D>, Closeable
   private int[] arrayWidths;
   private int column; // current index in values
 
+  private RowFilter filter;
+  private boolean seekable; // whether values may seek to any row
+  private long row; // the row values are positioned at
+  private long match = -1; // the next row matched by filter, if found
+
   private Map<String, Map<String, Object>> defaults = new HashMap<>();
 
   /** Parameters for reading an Avro column file. */
@@ -63,6 +73,8 @@ public class AvroColumnReader<D> implements Iterator<D>, Iterable<D>, Closeable
     Input input;
     Schema schema;
     GenericData model = GenericData.get();
+    ColumnPredicate predicate;
+    Executor executor;
 
     /** Construct reading from a file. */
     public Params(File file) throws IOException {
@@ -85,6 +97,28 @@ public class AvroColumnReader<D> implements Iterator<D>, Iterable<D>, Closeable
       this.model = model;
       return this;
     }
+
+    /**
+     * Set a predicate that rows must match to be read. Columns are named by their
+     * path in the file's schema, e.g. <tt>address#city</tt> for the field
+     * <tt>city</tt> of the record in the field <tt>address</tt>, and values are
+     * compared as stored, e.g. the ordinals of enum symbols.
+     */
+    public Params setPredicate(ColumnPredicate predicate) {
+      this.predicate = predicate;
+      return this;
+    }
+
+    /**
+     * Set an executor that reads, decompresses and decodes the next block of each
+     * column while rows are read from the current blocks, so that the columns
+     * read are decoded in parallel. The executor is not shut down when the
+     * reader is closed.
+     */
+    public Params setExecutor(Executor executor) {
+      this.executor = executor;
+      return this;
+    }
   }
 
   /** Construct a reader for a file. */
@@ -94,6 +128,12 @@ public class AvroColumnReader<D> implements Iterator<D>, Iterable<D>, Closeable
     this.fileSchema = new Schema.Parser().parse(reader.getMetaData().getString(AvroColumnWriter.SCHEMA_KEY));
     this.readSchema = params.schema == null ? fileSchema : params.schema;
     initialize();
+    if (params.executor != null)
+      for (ColumnValues value : values)
+        if (value != null)
+          value.setExecutor(params.executor);
+    if (params.predicate != null)
+      this.filter = reader.filter(params.predicate);
   }
 
   /** Return the schema for data in this file. */
@@ -114,10 +154,13 @@ public class AvroColumnReader<D> implements Iterator<D>, Iterable<D>, Closeable
     ColumnMetaData[] readColumns = readColumnator.getColumns();
     this.values = new ColumnValues[readColumns.length];
     int j = 0;
+    this.seekable = true;
     for (ColumnMetaData c : readColumns) {
       Integer n = fileColumnNumbers.get(c.getName());
-      if (n != null)
+      if (n != null) {
         values[j++] = reader.getValues(n);
+        seekable &= reader.getColumnMetaData(n).getParent() == null;
+      }
     }
     findDefaults(readSchema, fileSchema);
   }
@@ -179,7 +222,15 @@ public class AvroColumnReader<D> implements Iterator<D>, Iterable<D>, Closeable
 
   @Override
   public boolean hasNext() {
-    return values[0].hasNext();
+    if (filter == null)
+      return values[0].hasNext();
+    try {
+      if (match < 0)
+        match = filter.nextRow();
+      return match < reader.getRowCount();
+    } catch (IOException e) {
+      throw new TrevniRuntimeException(e);
+    }
   }
 
   /** Return the number of rows in this file. */
@@ -190,16 +241,39 @@ public class AvroColumnReader<D> implements Iterator<D>, Iterable<D>, Closeable
   @Override
   public D next() {
     try {
-      for (ColumnValues value : values)
-        if (value != null)
-          value.startRow();
-      this.column = 0;
-      return (D) read(readSchema);
+      if (filter != null) {
+        if (!hasNext())
+          throw new NoSuchElementException();
+        skipTo(match);
+        match = -1;
+      }
+      return readRow();
     } catch (IOException e) {
       throw new TrevniRuntimeException(e);
     }
   }
 
+  private D readRow() throws IOException {
+    for (ColumnValues value : values)
+      if (value != null)
+        value.startRow();
+    this.column = 0;
+    row++;
+    return (D) read(readSchema);
+  }
+
+  // skip rows that did not match, reading them when a column cannot seek
+  private void skipTo(long target) throws IOException {
+    if (seekable && target > row) {
+      for (ColumnValues value : values)
+        if (value != null)
+          value.seek(target);
+      row = target;
+    }
+    while (row < target)
+      readRow();
+  }
+
   private Object read(Schema s) throws IOException {
     if (isSimple(s))
       return nextValue(s, column++);
@@ -280,6 +354,9 @@ public class AvroColumnReader<D> implements Iterator<D>, Iterable<D>, Closeable
 
   @Override
   public void close() throws IOException {
+    for (ColumnValues value : values)
+      if (value != null)
+        value.cancelLoading();
     reader.close();
   }
 
@@ -17,6 +17,7 @@
  */
 package org.apache.trevni.avro;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.File;
 import java.io.OutputStream;
@@ -44,9 +45,11 @@ import static org.apache.trevni.avro.AvroColumnator.isSimple;
  * <p>
  * Output is buffered until {@link #writeTo(OutputStream)} is called. The
  * {@link #sizeEstimate()} indicates both the amount of data buffered and the
- * size of the file that will be written.
+ * size of the file that will be written. Given a spill directory, buffered
+ * blocks are held in a temporary file rather than in memory, and the writer must
+ * be closed to delete it.
  */
-public class AvroColumnWriter<D> {
+public class AvroColumnWriter<D> implements Closeable {
   private Schema schema;
   private GenericData model;
   private ColumnFileWriter writer;
@@ -59,10 +62,19 @@ public class AvroColumnWriter<D> {
   }
 
   public AvroColumnWriter(Schema s, ColumnFileMetaData meta, GenericData model) throws IOException {
+    this(s, meta, model, null);
+  }
+
+  /**
+   * Construct a writer that spills buffered blocks to a temporary file in the
+   * named directory, or holds them in memory if it is null.
+   */
+  public AvroColumnWriter(Schema s, ColumnFileMetaData meta, GenericData model, File spillDirectory)
+      throws IOException {
     this.schema = s;
     AvroColumnator columnator = new AvroColumnator(s);
     meta.set(SCHEMA_KEY, s.toString()); // save schema in file
-    this.writer = new ColumnFileWriter(meta, columnator.getColumns());
+    this.writer = new ColumnFileWriter(meta, spillDirectory, columnator.getColumns());
     this.arrayWidths = columnator.getArrayWidths();
     this.model = model;
   }
@@ -87,6 +99,12 @@ public class AvroColumnWriter<D> {
     writer.writeTo(file);
   }
 
+  /** Delete the spill file, if any. */
+  @Override
+  public void close() throws IOException {
+    writer.close();
+  }
+
   /** Add a row to the file. */
   public void write(D value) throws IOException {
     writer.startRow();
@@ -18,6 +18,7 @@
 
 package org.apache.trevni.avro;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
@@ -47,7 +48,8 @@ import org.apache.trevni.ColumnFileMetaData;
  * Writes a directory of files per task, each comprising a single filesystem
  * block. To reduce the number of files, increase the default filesystem block
  * size for the job. Each task also requires enough memory to buffer a
- * filesystem block.
+ * filesystem block, unless a spill directory is set with
+ * {@link #setSpillDirectory(JobConf, String)}.
  */
 public class AvroTrevniOutputFormat<T> extends FileOutputFormat<AvroWrapper<T>, NullWritable> {
 
@@ -56,6 +58,17 @@ public class AvroTrevniOutputFormat<T> extends FileOutputFormat<AvroWrapper<T>,
 
   public static final String META_PREFIX = "trevni.meta.";
 
+  /** The job property naming the local directory to spill blocks to. */
+  public static final String SPILL_DIR = "trevni.spill.dir";
+
+  /**
+   * Spill the blocks of files being written to temporary files in a local
+   * directory, rather than buffering them in memory.
+   */
+  public static void setSpillDirectory(JobConf job, String directory) {
+    job.set(SPILL_DIR, directory);
+  }
+
   /** Add metadata to job output files. */
   public static void setMeta(JobConf job, String key, String value) {
     job.set(META_PREFIX + key, value);
@@ -75,17 +88,24 @@ public class AvroTrevniOutputFormat<T> extends FileOutputFormat<AvroWrapper<T>,
     if (!fs.mkdirs(dir))
       throw new IOException("Failed to create directory: " + dir);
     final long blockSize = fs.getDefaultBlockSize(dir);
+    final String spillDir = job.get(SPILL_DIR);
+    final File spillDirectory = spillDir == null ? null : new File(spillDir);
 
     return new RecordWriter<AvroWrapper<T>, NullWritable>() {
       private int part = 0;
 
-      private AvroColumnWriter<T> writer = new AvroColumnWriter<>(schema, meta, ReflectData.get());
+      private AvroColumnWriter<T> writer = newWriter();
+
+      private AvroColumnWriter<T> newWriter() throws IOException {
+        return new AvroColumnWriter<>(schema, meta, ReflectData.get(), spillDirectory);
+      }
 
       private void flush() throws IOException {
-        try (OutputStream out = fs.create(new Path(dir, "part-" + (part++) + EXT))) {
-          writer.writeTo(out);
+        try (AvroColumnWriter<T> full = writer;
+            OutputStream out = fs.create(new Path(dir, "part-" + (part++) + EXT))) {
+          full.writeTo(out);
         }
-        writer = new AvroColumnWriter<>(schema, meta, ReflectData.get());
+        writer = newWriter();
       }
 
       @Override
@@ -97,6 +117,7 @@ public class AvroTrevniOutputFormat<T> extends FileOutputFormat<AvroWrapper<T>,
 
       public void close(Reporter reporter) throws IOException {
         flush();
+        writer.close();
       }
     };
   }
@@ -18,6 +18,7 @@
 
 package org.apache.trevni.avro.mapreduce;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
@@ -33,6 +34,7 @@ import org.apache.hadoop.mapreduce.TaskAttemptContext;
 import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
 import org.apache.trevni.ColumnFileMetaData;
 import org.apache.trevni.avro.AvroColumnWriter;
+import org.apache.trevni.avro.AvroTrevniOutputFormat;
 
 /**
  * Abstract base class for <code>RecordWriter</code>s that writes Trevni
@@ -75,6 +77,9 @@ public abstract class AvroTrevniRecordWriterBase<K, V, T> extends RecordWriter<K
   /** meta data to be stored in the output file. */
   protected ColumnFileMetaData meta;
 
+  /** Local directory to spill blocks to, or null to buffer them in memory */
+  protected File spillDirectory;
+
   /**
    * Constructor.
    * 
@@ -85,7 +90,9 @@ public abstract class AvroTrevniRecordWriterBase<K, V, T> extends RecordWriter<K
 
     schema = initSchema(context);
     meta = filterMetadata(context.getConfiguration());
-    writer = new AvroColumnWriter<>(schema, meta, ReflectData.get());
+    String spillDir = context.getConfiguration().get(AvroTrevniOutputFormat.SPILL_DIR);
+    spillDirectory = spillDir == null ? null : new File(spillDir);
+    writer = new AvroColumnWriter<>(schema, meta, ReflectData.get(), spillDirectory);
 
     Path outputPath = FileOutputFormat.getOutputPath(context);
 
@@ -110,16 +117,17 @@ public abstract class AvroTrevniRecordWriterBase<K, V, T> extends RecordWriter<K
    * @throws IOException
    */
   public void flush() throws IOException {
-    try (OutputStream out = fs.create(new Path(dirPath, "part-" + (part++) + EXT))) {
-      writer.writeTo(out);
+    try (AvroColumnWriter<T> full = writer; OutputStream out = fs.create(new Path(dirPath, "part-" + (part++) + EXT))) {
+      full.writeTo(out);
     }
-    writer = new AvroColumnWriter<>(schema, meta, ReflectData.get());
+    writer = new AvroColumnWriter<>(schema, meta, ReflectData.get(), spillDirectory);
   }
 
   /** {@inheritDoc} */
   @Override
   public void close(TaskAttemptContext arg0) throws IOException, InterruptedException {
     flush();
+    writer.close();
   }
 
   static ColumnFileMetaData filterMetadata(final Configuration configuration) {
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.trevni.avro;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.util.Utf8;
+import org.apache.trevni.ColumnFileMetaData;
+import org.apache.trevni.ColumnPredicate;
+import org.apache.trevni.avro.AvroColumnReader.Params;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+public class TestPredicatePushdown {
+  private static final File FILE = new File("target", "predicates.trv");
+  private static final int COUNT = 20000;
+
+  private static final Schema SCHEMA = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"R\",\"fields\":["
+      + "{\"name\":\"id\",\"type\":\"long\"},{\"name\":\"name\",\"type\":\"string\"},"
+      + "{\"name\":\"score\",\"type\":[\"null\",\"double\"]},"
+      + "{\"name\":\"tags\",\"type\":{\"type\":\"array\",\"items\":\"string\"}},"
+      + "{\"name\":\"attrs\",\"type\":{\"type\":\"map\",\"values\":\"int\"}}]}");
+  private static final Schema IDS = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"R\",\"fields\":["
+      + "{\"name\":\"id\",\"type\":\"long\"},{\"name\":\"tags\",\"type\":{\"type\":\"array\",\"items\":\"string\"}}]}");
+
+  private static final List<GenericRecord> RECORDS = new ArrayList<>();
+
+  @BeforeAll
+  public static void write() throws IOException {
+    Random random = new Random(42);
+    AvroColumnWriter<GenericRecord> writer = new AvroColumnWriter<>(SCHEMA,
+        new ColumnFileMetaData().setCodec("deflate").setStatistics(true));
+    for (int i = 0; i < COUNT; i++) {
+      GenericRecord record = new GenericData.Record(SCHEMA);
+      record.put("id", (long) i);
+      record.put("name", "name" + random.nextInt(COUNT));
+      record.put("score", random.nextBoolean() ? null : (double) random.nextInt(1000));
+      record.put("tags", i % 100 == 0 ? Collections.singletonList("rare") : Arrays.asList("x", "y"));
+      record.put("attrs", Collections.singletonMap("k", i));
+      writer.write(record);
+      RECORDS.add(record);
+    }
+    writer.writeTo(FILE);
+  }
+
+  private static void check(Schema schema, ColumnPredicate predicate, Predicate<GenericRecord> expected)
+      throws IOException {
+    List<GenericRecord> matches = new ArrayList<>();
+    for (GenericRecord record : RECORDS)
+      if (expected.test(record))
+        matches.add(project(record, schema));
+    Params params = new Params(FILE).setSchema(schema).setPredicate(predicate);
+    List<GenericRecord> read = new ArrayList<>();
+    try (AvroColumnReader<GenericRecord> reader = new AvroColumnReader<>(params)) {
+      for (GenericRecord record : reader)
+        read.add(record);
+    }
+    assertEquals(matches, read, predicate.toString());
+  }
+
+  private static GenericRecord project(GenericRecord record, Schema schema) {
+    GenericRecord result = new GenericData.Record(schema);
+    for (Schema.Field field : schema.getFields())
+      result.put(field.name(), record.get(field.name()));
+    return result;
+  }
+
+  @Test
+  void range() throws IOException {
+    check(SCHEMA, ColumnPredicate.range("id", 1000L, 1099L),
+        r -> (Long) r.get("id") >= 1000 && (Long) r.get("id") <= 1099);
+    check(IDS, ColumnPredicate.range("id", COUNT - 10L, null), r -> (Long) r.get("id") >= COUNT - 10);
+  }
+
+  @Test
+  void nullableAndArrays() throws IOException {
+    check(IDS, ColumnPredicate.eq("score/double", 500.0), r -> Double.valueOf(500.0).equals(r.get("score")));
+    check(SCHEMA, ColumnPredicate.and(ColumnPredicate.eq("tags[]", "rare"), ColumnPredicate.range("id", null, 5000L)),
+        r -> (Long) r.get("id") % 100 == 0 && (Long) r.get("id") <= 5000);
+  }
+
+  @Test
+  void in() throws IOException {
+    Object name = RECORDS.get(123).get("name");
+    ColumnPredicate predicate = ColumnPredicate.or(ColumnPredicate.in("name", new Utf8(name.toString())),
+        ColumnPredicate.eq("id", 7L));
+    check(SCHEMA, predicate, r -> r.get("name").equals(name) || (Long) r.get("id") == 7);
+  }
+}
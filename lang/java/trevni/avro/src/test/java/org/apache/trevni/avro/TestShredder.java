@@ -19,16 +19,26 @@ package org.apache.trevni.avro;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.trevni.ValueType;
+import org.apache.trevni.ColumnEncoding;
 import org.apache.trevni.ColumnMetaData;
 import org.apache.trevni.ColumnFileMetaData;
+import org.apache.trevni.ColumnPredicate;
 import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericRecord;
 import org.apache.avro.util.RandomData;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class TestShredder {
   private static final long SEED = System.currentTimeMillis();
@@ -189,6 +199,61 @@ public class TestShredder {
         new ColumnMetaData(">value#y", ValueType.STRING).setParent(p));
   }
 
+  @Test
+  void parallel() throws Exception {
+    Schema s = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"R\",\"fields\":[" + SIMPLE_FIELDS
+        + ",{\"name\":\"a\",\"type\":{\"type\":\"array\",\"items\":" + SIMPLE_RECORD.replace("\"R\"", "\"S\"")
+        + "}},{\"name\":\"m\",\"type\":{\"type\":\"map\",\"values\":\"long\"}},"
+        + "{\"name\":\"u\",\"type\":[\"null\",\"double\"]}]}");
+    int count = COUNT * 200; // many blocks
+    List<Object> data = new ArrayList<>();
+    AvroColumnWriter<Object> writer = new AvroColumnWriter<>(s,
+        new ColumnFileMetaData().setCodec("deflate").setStatistics(true).setEncoding(ColumnEncoding.AUTO));
+    for (Object datum : new RandomData(s, count, SEED)) {
+      writer.write(datum);
+      data.add(datum);
+    }
+    writer.writeTo(FILE);
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      try (AvroColumnReader<Object> reader = new AvroColumnReader<>(
+          new AvroColumnReader.Params(FILE).setSchema(s).setExecutor(executor))) {
+        for (Object expected : data)
+          assertEquals(expected, reader.next());
+        assertFalse(reader.hasNext());
+      }
+
+      // seeking past blocks being loaded ahead
+      Schema simple = new Schema.Parser().parse(SIMPLE_RECORD);
+      ColumnPredicate predicate = ColumnPredicate.range("x", Integer.MAX_VALUE - (Integer.MAX_VALUE >> 6), null);
+      try (AvroColumnReader<GenericRecord> reader = new AvroColumnReader<>(
+          new AvroColumnReader.Params(FILE).setSchema(simple).setPredicate(predicate).setExecutor(executor))) {
+        for (Object datum : data) {
+          GenericRecord expected = (GenericRecord) datum;
+          if ((Integer) expected.get("x") >= Integer.MAX_VALUE - (Integer.MAX_VALUE >> 6)) {
+            GenericRecord actual = reader.next();
+            assertEquals(expected.get("x"), actual.get("x"));
+            assertEquals(expected.get("y"), actual.get("y"));
+          }
+        }
+        assertFalse(reader.hasNext());
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    // loads that have not started when the reader is closed are cancelled
+    List<Runnable> queued = new ArrayList<>();
+    try (AvroColumnReader<Object> reader = new AvroColumnReader<>(
+        new AvroColumnReader.Params(FILE).setSchema(s).setExecutor(queued::add))) {
+      assertEquals(count, reader.getRowCount());
+      assertFalse(queued.isEmpty());
+    }
+    for (Runnable task : queued)
+      assertTrue(((Future<?>) task).isCancelled());
+  }
+
   private void check(Schema s, ColumnMetaData... expected) throws Exception {
     ColumnMetaData[] shredded = new AvroColumnator(s).getColumns();
     assertEquals(expected.length, shredded.length);
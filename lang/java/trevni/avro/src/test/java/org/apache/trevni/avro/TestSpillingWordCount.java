@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.trevni.avro;
+
+import java.io.File;
+
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapred.JobClient;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.FileInputFormat;
+import org.apache.hadoop.mapred.FileOutputFormat;
+
+import org.apache.avro.mapred.AvroJob;
+import org.apache.avro.mapred.Pair;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/** Runs the word count of {@link TestWordCount} spilling blocks to disk. */
+public class TestSpillingWordCount {
+
+  @Test
+  void spilledOutputFormat() throws Exception {
+    JobConf job = new JobConf();
+
+    WordCountUtil wordCountUtil = new WordCountUtil("trevniMapredSpillTest");
+
+    wordCountUtil.writeLinesFile();
+
+    AvroJob.setInputSchema(job, TestWordCount.STRING);
+    AvroJob.setOutputSchema(job, Pair.getPairSchema(TestWordCount.STRING, TestWordCount.LONG));
+
+    AvroJob.setMapperClass(job, TestWordCount.MapImpl.class);
+    AvroJob.setCombinerClass(job, TestWordCount.ReduceImpl.class);
+    AvroJob.setReducerClass(job, TestWordCount.ReduceImpl.class);
+
+    FileInputFormat.setInputPaths(job, new Path(wordCountUtil.getDir().toString() + "/in"));
+    FileOutputFormat.setOutputPath(job, new Path(wordCountUtil.getDir().toString() + "/out"));
+    FileOutputFormat.setCompressOutput(job, true);
+
+    job.setOutputFormat(AvroTrevniOutputFormat.class);
+    File spill = new File(wordCountUtil.getDir(), "spill");
+    AvroTrevniOutputFormat.setSpillDirectory(job, spill.toString());
+
+    JobClient.runJob(job);
+
+    wordCountUtil.validateCountsFile();
+    assertArrayEquals(new String[0], spill.list(), "spill files should be deleted");
+  }
+
+}
@@ -59,6 +59,7 @@ class ArrayColumnOutputBuffer extends ColumnOutputBuffer {
       flushRun();
       getBuffer().writeValue(value, getMeta().getType());
     }
+    updateStatistics(value);
     length -= 1;
   }
 
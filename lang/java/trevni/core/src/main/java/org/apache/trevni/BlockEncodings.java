@@ -0,0 +1,273 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.trevni;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes and reads the values of blocks of columns with encodings other than
+ * {@link ColumnEncoding#PLAIN}. Each such block starts with the ordinal of the
+ * encoding used and the count of values.
+ */
+class BlockEncodings {
+
+  private static final ColumnEncoding[] CANDIDATES = { ColumnEncoding.DICTIONARY, ColumnEncoding.RLE,
+      ColumnEncoding.DELTA };
+
+  private BlockEncodings() {
+  }
+
+  /**
+   * Write values with an encoding. {@link ColumnEncoding#AUTO} writes them with
+   * that which is smallest.
+   */
+  static void encode(ColumnEncoding encoding, List<Object> values, int plainSize, ValueType type, OutputBuffer out)
+      throws IOException {
+    if (encoding == ColumnEncoding.AUTO) {
+      encoding = ColumnEncoding.PLAIN;
+      long best = plainSize;
+      for (ColumnEncoding candidate : CANDIDATES) {
+        if (!candidate.supports(type))
+          continue;
+        long size = size(candidate, values, type);
+        if (size < best) {
+          encoding = candidate;
+          best = size;
+        }
+      }
+    }
+    out.writeInt(encoding.ordinal());
+    out.writeInt(values.size());
+    switch (encoding) {
+    case PLAIN:
+      for (Object value : values)
+        out.writeValue(value, type);
+      break;
+    case DICTIONARY:
+      Map<Object, Integer> ids = new HashMap<>();
+      List<Object> dictionary = new ArrayList<>();
+      long[] indexes = new long[values.size()];
+      for (int i = 0; i < indexes.length; i++) {
+        Object value = values.get(i);
+        Integer id = ids.get(value);
+        if (id == null) {
+          ids.put(value, id = dictionary.size());
+          dictionary.add(value);
+        }
+        indexes[i] = id;
+      }
+      out.writeInt(dictionary.size());
+      for (Object value : dictionary)
+        out.writeValue(value, type);
+      writePacked(indexes, indexes.length, 0, out);
+      break;
+    case RLE:
+      for (int i = 0; i < values.size();) {
+        Object value = values.get(i);
+        int run = 1;
+        while (i + run < values.size() && value.equals(values.get(i + run)))
+          run++;
+        out.writeInt(run);
+        out.writeValue(value, type);
+        i += run;
+      }
+      break;
+    case DELTA:
+      if (values.isEmpty())
+        break;
+      long[] deltas = deltas(values);
+      out.writeLong(((Number) values.get(0)).longValue());
+      long minDelta = deltas.length > 1 ? deltas[deltas.length - 1] : 0;
+      out.writeLong(minDelta);
+      writePacked(deltas, deltas.length - 1, minDelta, out);
+      break;
+    default:
+      throw new TrevniRuntimeException("Unknown encoding: " + encoding);
+    }
+  }
+
+  /** Read the values of a block. */
+  static BlockValues decode(InputBuffer in, ValueType type) throws IOException {
+    int ordinal = in.readInt();
+    if (ordinal < 0 || ordinal >= ColumnEncoding.AUTO.ordinal())
+      throw new TrevniRuntimeException("Unknown block encoding: " + ordinal);
+    ColumnEncoding encoding = ColumnEncoding.values()[ordinal];
+    int count = in.readInt();
+    switch (encoding) {
+    case PLAIN:
+      return BlockValues.read(in, type, count);
+    case DICTIONARY:
+      int size = in.readInt();
+      BlockValues.Array dictionary = BlockValues.read(in, type, size);
+      long[] indexes = new long[count];
+      readPacked(in, indexes, 0, 0);
+      int[] ids = new int[count];
+      for (int i = 0; i < count; i++) {
+        if (indexes[i] >= size)
+          throw new TrevniRuntimeException("Invalid dictionary id: " + indexes[i]);
+        ids[i] = (int) indexes[i];
+      }
+      return new BlockValues.Dictionary(dictionary, ids);
+    case RLE:
+      BlockValues.Array values = BlockValues.allocate(type, 16);
+      int[] ends = new int[16];
+      int runs = 0;
+      for (int i = 0; i < count; runs++) {
+        int run = in.readInt();
+        if (run <= 0 || run > count - i)
+          throw new TrevniRuntimeException("Invalid run length: " + run);
+        if (runs == ends.length) {
+          values = values.copyOf(runs * 2);
+          ends = Arrays.copyOf(ends, runs * 2);
+        }
+        values.read(runs, in);
+        ends[runs] = i += run;
+      }
+      return new BlockValues.Runs(values, Arrays.copyOf(ends, runs));
+    case DELTA:
+      long[] longs = new long[count];
+      if (count > 0) {
+        longs[0] = in.readLong();
+        long minDelta = in.readLong();
+        readPacked(in, longs, 1, minDelta);
+        for (int i = 1; i < count; i++)
+          longs[i] += longs[i - 1];
+      }
+      if (type == ValueType.LONG || type == ValueType.FIXED64)
+        return new BlockValues.Longs(longs, type);
+      int[] ints = new int[count];
+      for (int i = 0; i < count; i++)
+        ints[i] = (int) longs[i];
+      return new BlockValues.Ints(ints, type);
+    default:
+      throw new TrevniRuntimeException("Unknown encoding: " + encoding);
+    }
+  }
+
+  // differences between consecutive values, with their minimum appended
+  private static long[] deltas(List<Object> values) {
+    long[] deltas = new long[values.size()];
+    long previous = ((Number) values.get(0)).longValue();
+    long min = Long.MAX_VALUE;
+    for (int i = 1; i < deltas.length; i++) {
+      long value = ((Number) values.get(i)).longValue();
+      deltas[i - 1] = value - previous;
+      min = Math.min(min, deltas[i - 1]);
+      previous = value;
+    }
+    deltas[deltas.length - 1] = min;
+    return deltas;
+  }
+
+  /** Return the size of values written with an encoding. */
+  private static long size(ColumnEncoding encoding, List<Object> values, ValueType type) {
+    long size = 2 + OutputBuffer.size(values.size());
+    switch (encoding) {
+    case DICTIONARY:
+      Map<Object, Integer> ids = new HashMap<>();
+      for (Object value : values)
+        if (ids.putIfAbsent(value, ids.size()) == null)
+          size += OutputBuffer.size(value, type);
+      return size + OutputBuffer.size(ids.size()) + packedSize(values.size(), bitWidth(ids.size() - 1));
+    case RLE:
+      for (int i = 0; i < values.size();) {
+        Object value = values.get(i);
+        int run = 1;
+        while (i + run < values.size() && value.equals(values.get(i + run)))
+          run++;
+        size += OutputBuffer.size(run) + OutputBuffer.size(value, type);
+        i += run;
+      }
+      return size;
+    case DELTA:
+      if (values.isEmpty())
+        return size;
+      long[] deltas = deltas(values);
+      long minDelta = deltas.length > 1 ? deltas[deltas.length - 1] : 0;
+      long bits = 0;
+      for (int i = 0; i < deltas.length - 1; i++)
+        bits |= deltas[i] - minDelta;
+      return size + 20 + packedSize(deltas.length - 1, bitWidth(bits));
+    default:
+      throw new TrevniRuntimeException("Unknown encoding: " + encoding);
+    }
+  }
+
+  private static int bitWidth(long bits) {
+    return 64 - Long.numberOfLeadingZeros(bits);
+  }
+
+  private static long packedSize(long count, int width) {
+    return 1 + (count * width + 7) / 8;
+  }
+
+  // write count values less base, in the fewest bits that hold them all
+  private static void writePacked(long[] values, int count, long base, OutputBuffer out) {
+    long bits = 0;
+    for (int i = 0; i < count; i++)
+      bits |= values[i] - base;
+    int width = bitWidth(bits);
+    out.write(width);
+    int current = 0; // bits not yet written
+    int used = 0; // count of bits in current
+    for (int i = 0; i < count; i++) {
+      long value = values[i] - base;
+      for (int remaining = width; remaining > 0;) {
+        int n = Math.min(remaining, 8 - used);
+        current |= (int) (value & ((1 << n) - 1)) << used;
+        value >>>= n;
+        remaining -= n;
+        used += n;
+        if (used == 8) {
+          out.write(current);
+          current = 0;
+          used = 0;
+        }
+      }
+    }
+    if (used > 0)
+      out.write(current);
+  }
+
+  // read the values of an array after from, each plus base
+  private static void readPacked(InputBuffer in, long[] values, int from, long base) throws IOException {
+    int width = in.read();
+    int current = 0;
+    int available = 0; // count of bits unread in current
+    for (int i = from; i < values.length; i++) {
+      long value = 0;
+      for (int read = 0; read < width;) {
+        if (available == 0) {
+          current = in.read();
+          available = 8;
+        }
+        int n = Math.min(width - read, available);
+        value |= (long) ((current >>> (8 - available)) & ((1 << n) - 1)) << read;
+        read += n;
+        available -= n;
+      }
+      values[i] = value + base;
+    }
+  }
+
+}
@@ -0,0 +1,431 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.trevni;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The values of a block, decoded into arrays of their type so that they may be
+ * read in batches without boxing. Values encoded with
+ * {@link ColumnEncoding#DICTIONARY} or {@link ColumnEncoding#RLE} are held as
+ * encoded, and are only expanded as they are read.
+ */
+abstract class BlockValues {
+
+  /** Return the value at an index, boxed. */
+  abstract Object get(int i);
+
+  int getInt(int i) {
+    throw new TrevniRuntimeException("Not int values: " + getClass().getSimpleName());
+  }
+
+  long getLong(int i) {
+    throw new TrevniRuntimeException("Not long values: " + getClass().getSimpleName());
+  }
+
+  float getFloat(int i) {
+    throw new TrevniRuntimeException("Not float values: " + getClass().getSimpleName());
+  }
+
+  double getDouble(int i) {
+    throw new TrevniRuntimeException("Not double values: " + getClass().getSimpleName());
+  }
+
+  /** Copy <tt>n</tt> values starting at <tt>from</tt> into an array. */
+  void getInts(int from, int[] to, int offset, int n) {
+    for (int i = 0; i < n; i++)
+      to[offset + i] = getInt(from + i);
+  }
+
+  void getLongs(int from, long[] to, int offset, int n) {
+    for (int i = 0; i < n; i++)
+      to[offset + i] = getLong(from + i);
+  }
+
+  void getFloats(int from, float[] to, int offset, int n) {
+    for (int i = 0; i < n; i++)
+      to[offset + i] = getFloat(from + i);
+  }
+
+  void getDoubles(int from, double[] to, int offset, int n) {
+    for (int i = 0; i < n; i++)
+      to[offset + i] = getDouble(from + i);
+  }
+
+  void getObjects(int from, Object[] to, int offset, int n) {
+    for (int i = 0; i < n; i++)
+      to[offset + i] = get(from + i);
+  }
+
+  /** Return an array for a count of values of a type. */
+  static Array allocate(ValueType type, int count) {
+    switch (type) {
+    case INT:
+    case FIXED32:
+      return new Ints(new int[count], type);
+    case LONG:
+    case FIXED64:
+      return new Longs(new long[count], type);
+    case FLOAT:
+      return new Floats(new float[count]);
+    case DOUBLE:
+      return new Doubles(new double[count]);
+    default:
+      return new Objects(new Object[count], type);
+    }
+  }
+
+  /** Read a count of values of a type. */
+  static Array read(InputBuffer in, ValueType type, int count) throws IOException {
+    Array values = allocate(type, count);
+    for (int i = 0; i < count; i++)
+      values.read(i, in);
+    return values;
+  }
+
+  /** Values held in an array, that are read into it one at a time. */
+  abstract static class Array extends BlockValues {
+    /** Return the count of values this can hold. */
+    abstract int length();
+
+    /** Read the value at an index from a buffer. */
+    abstract void read(int i, InputBuffer in) throws IOException;
+
+    /** Return a copy of these values, truncated or padded to a length. */
+    abstract Array copyOf(int length);
+  }
+
+  static class Ints extends Array {
+    private final int[] values;
+    private final ValueType type;
+
+    Ints(int[] values, ValueType type) {
+      this.values = values;
+      this.type = type;
+    }
+
+    @Override
+    Object get(int i) {
+      return values[i];
+    }
+
+    @Override
+    int getInt(int i) {
+      return values[i];
+    }
+
+    @Override
+    void getInts(int from, int[] to, int offset, int n) {
+      System.arraycopy(values, from, to, offset, n);
+    }
+
+    @Override
+    int length() {
+      return values.length;
+    }
+
+    @Override
+    void read(int i, InputBuffer in) throws IOException {
+      values[i] = type == ValueType.INT ? in.readInt() : in.readFixed32();
+    }
+
+    @Override
+    Array copyOf(int length) {
+      return new Ints(Arrays.copyOf(values, length), type);
+    }
+  }
+
+  static class Longs extends Array {
+    private final long[] values;
+    private final ValueType type;
+
+    Longs(long[] values, ValueType type) {
+      this.values = values;
+      this.type = type;
+    }
+
+    @Override
+    Object get(int i) {
+      return values[i];
+    }
+
+    @Override
+    long getLong(int i) {
+      return values[i];
+    }
+
+    @Override
+    void getLongs(int from, long[] to, int offset, int n) {
+      System.arraycopy(values, from, to, offset, n);
+    }
+
+    @Override
+    int length() {
+      return values.length;
+    }
+
+    @Override
+    void read(int i, InputBuffer in) throws IOException {
+      values[i] = type == ValueType.LONG ? in.readLong() : in.readFixed64();
+    }
+
+    @Override
+    Array copyOf(int length) {
+      return new Longs(Arrays.copyOf(values, length), type);
+    }
+  }
+
+  static class Floats extends Array {
+    private final float[] values;
+
+    Floats(float[] values) {
+      this.values = values;
+    }
+
+    @Override
+    Object get(int i) {
+      return values[i];
+    }
+
+    @Override
+    float getFloat(int i) {
+      return values[i];
+    }
+
+    @Override
+    void getFloats(int from, float[] to, int offset, int n) {
+      System.arraycopy(values, from, to, offset, n);
+    }
+
+    @Override
+    int length() {
+      return values.length;
+    }
+
+    @Override
+    void read(int i, InputBuffer in) throws IOException {
+      values[i] = in.readFloat();
+    }
+
+    @Override
+    Array copyOf(int length) {
+      return new Floats(Arrays.copyOf(values, length));
+    }
+  }
+
+  static class Doubles extends Array {
+    private final double[] values;
+
+    Doubles(double[] values) {
+      this.values = values;
+    }
+
+    @Override
+    Object get(int i) {
+      return values[i];
+    }
+
+    @Override
+    double getDouble(int i) {
+      return values[i];
+    }
+
+    @Override
+    void getDoubles(int from, double[] to, int offset, int n) {
+      System.arraycopy(values, from, to, offset, n);
+    }
+
+    @Override
+    int length() {
+      return values.length;
+    }
+
+    @Override
+    void read(int i, InputBuffer in) throws IOException {
+      values[i] = in.readDouble();
+    }
+
+    @Override
+    Array copyOf(int length) {
+      return new Doubles(Arrays.copyOf(values, length));
+    }
+  }
+
+  /** Strings and bytes. */
+  static class Objects extends Array {
+    private final Object[] values;
+    private final ValueType type;
+
+    Objects(Object[] values, ValueType type) {
+      this.values = values;
+      this.type = type;
+    }
+
+    @Override
+    Object get(int i) {
+      Object value = values[i];
+      if (value instanceof ByteBuffer) // may be read more than once
+        value = ((ByteBuffer) value).duplicate();
+      return value;
+    }
+
+    @Override
+    int length() {
+      return values.length;
+    }
+
+    @Override
+    void read(int i, InputBuffer in) throws IOException {
+      values[i] = in.readValue(type);
+    }
+
+    @Override
+    Array copyOf(int length) {
+      return new Objects(Arrays.copyOf(values, length), type);
+    }
+  }
+
+  /** Values encoded as ids in a dictionary of the distinct values. */
+  static class Dictionary extends BlockValues {
+    private final BlockValues dictionary;
+    private final int[] ids;
+
+    Dictionary(BlockValues dictionary, int[] ids) {
+      this.dictionary = dictionary;
+      this.ids = ids;
+    }
+
+    @Override
+    Object get(int i) {
+      return dictionary.get(ids[i]);
+    }
+
+    @Override
+    int getInt(int i) {
+      return dictionary.getInt(ids[i]);
+    }
+
+    @Override
+    long getLong(int i) {
+      return dictionary.getLong(ids[i]);
+    }
+
+    @Override
+    float getFloat(int i) {
+      return dictionary.getFloat(ids[i]);
+    }
+
+    @Override
+    double getDouble(int i) {
+      return dictionary.getDouble(ids[i]);
+    }
+  }
+
+  /** Values encoded as runs of a repeated value. */
+  static class Runs extends BlockValues {
+    private final BlockValues values; // of each run
+    private final int[] ends; // index after the last value of each run
+    private int run; // holding the value last read
+
+    Runs(BlockValues values, int[] ends) {
+      this.values = values;
+      this.ends = ends;
+    }
+
+    // return the run holding a value, which is usually that last read or next
+    private int find(int i) {
+      if (i >= ends[run] || (run > 0 && i < ends[run - 1])) {
+        if (run + 1 < ends.length && i >= ends[run] && i < ends[run + 1]) {
+          run++;
+        } else {
+          int found = Arrays.binarySearch(ends, i);
+          run = found >= 0 ? found + 1 : -found - 1;
+        }
+      }
+      return run;
+    }
+
+    @Override
+    Object get(int i) {
+      return values.get(find(i));
+    }
+
+    @Override
+    int getInt(int i) {
+      return values.getInt(find(i));
+    }
+
+    @Override
+    long getLong(int i) {
+      return values.getLong(find(i));
+    }
+
+    @Override
+    float getFloat(int i) {
+      return values.getFloat(find(i));
+    }
+
+    @Override
+    double getDouble(int i) {
+      return values.getDouble(find(i));
+    }
+
+    @Override
+    void getInts(int from, int[] to, int offset, int n) {
+      for (int i = from, end = from + n; i < end;) {
+        int r = find(i);
+        int next = Math.min(ends[r], end);
+        Arrays.fill(to, offset + i - from, offset + next - from, values.getInt(r));
+        i = next;
+      }
+    }
+
+    @Override
+    void getLongs(int from, long[] to, int offset, int n) {
+      for (int i = from, end = from + n; i < end;) {
+        int r = find(i);
+        int next = Math.min(ends[r], end);
+        Arrays.fill(to, offset + i - from, offset + next - from, values.getLong(r));
+        i = next;
+      }
+    }
+
+    @Override
+    void getFloats(int from, float[] to, int offset, int n) {
+      for (int i = from, end = from + n; i < end;) {
+        int r = find(i);
+        int next = Math.min(ends[r], end);
+        Arrays.fill(to, offset + i - from, offset + next - from, values.getFloat(r));
+        i = next;
+      }
+    }
+
+    @Override
+    void getDoubles(int from, double[] to, int offset, int n) {
+      for (int i = from, end = from + n; i < end;) {
+        int r = find(i);
+        int next = Math.min(ends[r], end);
+        Arrays.fill(to, offset + i - from, offset + next - from, values.getDouble(r));
+        i = next;
+      }
+    }
+  }
+
+}
@@ -33,6 +33,8 @@ abstract class Codec {
       return new SnappyCodec();
     else if ("bzip2".equals(name))
       return new BZip2Codec();
+    else if ("lz4".equals(name))
+      return new Lz4Codec();
     else
       throw new TrevniRuntimeException("Unknown codec: " + name);
   }
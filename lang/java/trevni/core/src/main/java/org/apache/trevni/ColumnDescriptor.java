@@ -34,6 +34,10 @@ class ColumnDescriptor<T extends Comparable> {
   long[] firstRows; // for binary searches
   T[] firstValues; // for binary searches
 
+  int[] nullCounts; // statistics, if stored
+  T[] minValues; // null when a block has no values
+  T[] maxValues;
+
   public ColumnDescriptor(Input file, ColumnMetaData metaData) {
     this.file = file;
     this.metaData = metaData;
@@ -57,6 +61,11 @@ class ColumnDescriptor<T extends Comparable> {
     return blocks.length;
   }
 
+  /** Return true if this column stores statistics for each block. */
+  public boolean hasStatistics() {
+    return nullCounts != null;
+  }
+
   public long lastRow(int block) {
     if (blocks.length == 0 || block < 0)
       return 0;
@@ -94,7 +103,26 @@ class ColumnDescriptor<T extends Comparable> {
       startPosition += b.compressedSize + checksum.size();
       row += b.rowCount;
     }
+    readStatistics(blocks);
     this.blocks = blocks;
   }
 
+  private void readStatistics(BlockDescriptor[] blocks) throws IOException {
+    byte[] bytes = metaData.get(ColumnMetaData.BLOCK_STATS_KEY);
+    if (bytes == null)
+      return;
+    InputBuffer in = new InputBuffer(new InputBytes(bytes));
+    int blockCount = blocks.length;
+    nullCounts = new int[blockCount];
+    minValues = (T[]) new Comparable[blockCount];
+    maxValues = (T[]) new Comparable[blockCount];
+    for (int i = 0; i < blockCount; i++) {
+      nullCounts[i] = in.readInt();
+      if (nullCounts[i] < blocks[i].rowCount) { // some rows have values
+        minValues[i] = in.readValue(metaData.getType());
+        maxValues[i] = in.readValue(metaData.getType());
+      }
+    }
+  }
+
 }
@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.trevni;
+
+/**
+ * The encodings of the values of a column. Encodings other than
+ * {@link #PLAIN} apply to columns that are not arrays and hold neither null
+ * nor boolean values.
+ *
+ * @see ColumnMetaData#setEncoding(ColumnEncoding)
+ */
+public enum ColumnEncoding {
+  /** Each value is written in full. */
+  PLAIN,
+  /**
+   * The distinct values of each block are written once, followed by the index
+   * of each value among them, bit-packed. Suits columns with few distinct
+   * values.
+   */
+  DICTIONARY,
+  /** Runs of equal values are written as a count followed by the value. */
+  RLE,
+  /**
+   * Each integer is written as its difference from the previous one,
+   * bit-packed. Suits sorted or slowly changing int and long columns.
+   */
+  DELTA,
+  /** The encoding of each block is chosen as that which writes the fewest bytes. */
+  AUTO;
+
+  private final String name;
+
+  private ColumnEncoding() {
+    this.name = this.name().toLowerCase();
+  }
+
+  /** Return the name of this encoding. */
+  public String getName() {
+    return name;
+  }
+
+  /** Return an encoding given its name. */
+  public static ColumnEncoding forName(String name) {
+    for (ColumnEncoding encoding : values())
+      if (encoding.name.equalsIgnoreCase(name))
+        return encoding;
+    throw new TrevniRuntimeException("Unknown encoding: " + name);
+  }
+
+  /** Return true if this encoding may be used for values of a type. */
+  public boolean supports(ValueType type) {
+    switch (this) {
+    case PLAIN:
+      return true;
+    case DELTA:
+      return type == ValueType.INT || type == ValueType.LONG || type == ValueType.FIXED32
+          || type == ValueType.FIXED64;
+    default:
+      return type != ValueType.NULL && type != ValueType.BOOLEAN;
+    }
+  }
+
+}
@@ -22,6 +22,35 @@ import java.io.IOException;
 /** File-level metadata. */
 public class ColumnFileMetaData extends MetaData<ColumnFileMetaData> {
 
+  /**
+   * Set whether to store statistics for each block of every column.
+   *
+   * @see ColumnMetaData#hasStatistics(boolean)
+   */
+  public ColumnFileMetaData setStatistics(boolean statistics) {
+    return setReservedBoolean(STATS_KEY, statistics);
+  }
+
+  /** Get whether statistics are stored for each block of every column. */
+  public boolean hasStatistics() {
+    return getBoolean(STATS_KEY);
+  }
+
+  /**
+   * Set the encoding of every column that supports it.
+   *
+   * @see ColumnMetaData#setEncoding(ColumnEncoding)
+   */
+  public ColumnFileMetaData setEncoding(ColumnEncoding encoding) {
+    return setReserved(ENCODING_KEY, encoding.getName());
+  }
+
+  /** Get the encoding of every column that supports it. */
+  public ColumnEncoding getEncoding() {
+    String name = getString(ENCODING_KEY);
+    return name == null ? ColumnEncoding.PLAIN : ColumnEncoding.forName(name);
+  }
+
   static ColumnFileMetaData read(InputBuffer in) throws IOException {
     ColumnFileMetaData result = new ColumnFileMetaData();
     MetaData.read(in, result);
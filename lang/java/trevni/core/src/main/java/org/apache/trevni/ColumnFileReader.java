@@ -89,7 +89,7 @@ public class ColumnFileReader implements Closeable {
     return getColumn(name).metaData;
   }
 
-  private <T extends Comparable> ColumnDescriptor<T> getColumn(String name) {
+  <T extends Comparable> ColumnDescriptor<T> getColumn(String name) {
     ColumnDescriptor column = columnsByName.get(name);
     if (column == null)
       throw new TrevniRuntimeException("No column named: " + name);
@@ -125,6 +125,7 @@ public class ColumnFileReader implements Closeable {
     for (int i = 0; i < columnCount; i++) {
       ColumnMetaData meta = ColumnMetaData.read(in, this);
       meta.setDefaults(this.metaData);
+      meta.getEncoding(); // reject unknown encodings
       ColumnDescriptor column = new ColumnDescriptor(file, meta);
       columns[i] = column;
       meta.setNumber(i);
@@ -147,6 +148,23 @@ public class ColumnFileReader implements Closeable {
     return new ColumnValues<>(columns[column]);
   }
 
+  /**
+   * Return the numbers of the rows that match a predicate, skipping blocks that
+   * hold no matches without reading them.
+   */
+  public RowFilter filter(ColumnPredicate predicate) throws IOException {
+    return new RowFilter(this, predicate);
+  }
+
+  /**
+   * Return a reader of the named columns a batch of rows at a time.
+   *
+   * @param batchSize the maximum number of rows in each batch
+   */
+  public RowBatchReader batches(int batchSize, String... columns) throws IOException {
+    return new RowBatchReader(this, batchSize, columns);
+  }
+
   @Override
   public void close() throws IOException {
     file.close();
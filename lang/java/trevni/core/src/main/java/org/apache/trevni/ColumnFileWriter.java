@@ -17,6 +17,7 @@
  */
 package org.apache.trevni;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.File;
 import java.io.FileOutputStream;
@@ -26,9 +27,12 @@ import java.util.HashSet;
 
 /**
  * Writes data to a column file. All data is buffered until
- * {@link #writeTo(File)} is called.
+ * {@link #writeTo(File)} is called, in memory or, if a spill directory is
+ * given, in a temporary file, so that memory use is bounded by the size of a
+ * block in each column rather than by the size of the file. A writer with a
+ * spill directory must be closed to delete its temporary file.
  */
-public class ColumnFileWriter {
+public class ColumnFileWriter implements Closeable {
 
   static final byte[] MAGIC_0 = new byte[] { 'T', 'r', 'v', 0 };
   static final byte[] MAGIC_1 = new byte[] { 'T', 'r', 'v', 1 };
@@ -40,10 +44,23 @@ public class ColumnFileWriter {
   private long rowCount;
   private int columnCount;
   private long size;
+  private SpillFile spill;
 
   /** Construct given metadata for each column in the file. */
   public ColumnFileWriter(ColumnFileMetaData fileMeta, ColumnMetaData... columnMeta) throws IOException {
+    this(fileMeta, null, columnMeta);
+  }
+
+  /**
+   * Construct given metadata for each column in the file, spilling finished
+   * blocks to a temporary file in the named directory. If the directory is null,
+   * blocks are held in memory.
+   */
+  public ColumnFileWriter(ColumnFileMetaData fileMeta, File spillDirectory, ColumnMetaData... columnMeta)
+      throws IOException {
     checkColumns(columnMeta);
+    if (spillDirectory != null)
+      this.spill = new SpillFile(spillDirectory);
     this.metaData = fileMeta;
     this.columnCount = columnMeta.length;
     this.columns = new ColumnOutputBuffer[columnCount];
@@ -68,15 +85,19 @@ public class ColumnFileWriter {
     }
   }
 
+  SpillFile getSpillFile() {
+    return spill;
+  }
+
   void incrementSize(int n) {
     size += n;
   }
 
   /**
    * Return the approximate size of the file that will be written. Tries to
-   * slightly over-estimate. Indicates both the size in memory of the buffered
-   * data as well as the size of the file that will be written by
-   * {@link #writeTo(OutputStream)}.
+   * slightly over-estimate. Indicates both the size of the buffered data, in
+   * memory unless spilled, as well as the size of the file that will be written
+   * by {@link #writeTo(OutputStream)}.
    */
   public long sizeEstimate() {
     return size;
@@ -146,6 +167,13 @@ public class ColumnFileWriter {
       columns[column].writeTo(out);
   }
 
+  /** Delete the spill file, if any, after which nothing more may be written. */
+  @Override
+  public void close() throws IOException {
+    if (spill != null)
+      spill.close();
+  }
+
   private void writeHeader(OutputStream out) throws IOException {
     OutputBuffer header = new OutputBuffer();
 
@@ -158,7 +186,7 @@ public class ColumnFileWriter {
     metaData.write(header); // file metadata
 
     for (ColumnOutputBuffer column : columns)
-      column.getMeta().write(header); // column metadata
+      column.finish().write(header); // column metadata
 
     for (long start : computeStarts(header.size()))
       header.writeFixed64(start); // column starts
@@ -29,6 +29,7 @@ public class ColumnMetaData extends MetaData<ColumnMetaData> {
   static final String VALUES_KEY = RESERVED_KEY_PREFIX + "values";
   static final String PARENT_KEY = RESERVED_KEY_PREFIX + "parent";
   static final String ARRAY_KEY = RESERVED_KEY_PREFIX + "array";
+  static final String BLOCK_STATS_KEY = RESERVED_KEY_PREFIX + "blockStats";
 
   // cache these values for better performance
   private String name;
@@ -115,6 +116,42 @@ public class ColumnMetaData extends MetaData<ColumnMetaData> {
     return setReservedBoolean(ARRAY_KEY, isArray);
   }
 
+  /**
+   * Set whether to store the minimum and maximum value and the count of rows
+   * without a value of each block of this column, so that blocks may be skipped
+   * by a {@link ColumnPredicate}. May also be set for all columns of a file with
+   * {@link ColumnFileMetaData#setStatistics(boolean)}. Columns of null and
+   * boolean values have no statistics.
+   */
+  public ColumnMetaData hasStatistics(boolean statistics) {
+    return setReservedBoolean(STATS_KEY, statistics);
+  }
+
+  /** Get whether this column stores statistics for each block. */
+  public boolean hasStatistics() {
+    return getString(STATS_KEY) != null && type != ValueType.NULL && type != ValueType.BOOLEAN;
+  }
+
+  /**
+   * Set the encoding of this column's values. May also be set for all columns
+   * of a file with {@link ColumnFileMetaData#setEncoding(ColumnEncoding)}. Array
+   * columns are always {@link ColumnEncoding#PLAIN}.
+   */
+  public ColumnMetaData setEncoding(ColumnEncoding encoding) {
+    if (!encoding.supports(type))
+      throw new TrevniRuntimeException("Encoding " + encoding.getName() + " does not support column: " + this);
+    return setReserved(ENCODING_KEY, encoding.getName());
+  }
+
+  /** Get the encoding of this column's values. */
+  public ColumnEncoding getEncoding() {
+    String name = getString(ENCODING_KEY);
+    if (name == null)
+      return ColumnEncoding.PLAIN;
+    ColumnEncoding encoding = ColumnEncoding.forName(name);
+    return !isArray && encoding.supports(type) ? encoding : ColumnEncoding.PLAIN;
+  }
+
   /** Get whether this column has an index of blocks by value. */
   public boolean hasIndexValues() {
     return getBoolean(VALUES_KEY);
@@ -21,6 +21,7 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 class ColumnOutputBuffer {
@@ -29,9 +30,18 @@ class ColumnOutputBuffer {
   private Codec codec;
   private Checksum checksum;
   private OutputBuffer buffer;
+  private ColumnEncoding encoding;
+  private List<Object> blockValues; // when not plain
+  private int plainSize; // of blockValues
   private List<BlockDescriptor> blockDescriptors;
-  private List<byte[]> blockData;
+  private List<byte[]> blockData; // when not spilling
+  private SpillFile spill;
+  private long[] blockOffsets; // in the spill file
   private List<byte[]> firstValues;
+  private OutputBuffer statistics; // of each block, when stored
+  private Comparable min, max; // of the current block
+  private int nullCount; // rows without a value in the current block
+  private boolean rowHasValue;
   private int rowCount;
   private long size = 4; // room for block count
 
@@ -41,10 +51,19 @@ class ColumnOutputBuffer {
     this.codec = Codec.get(meta);
     this.checksum = Checksum.get(meta);
     this.buffer = new OutputBuffer();
+    this.encoding = meta.getEncoding();
+    if (encoding != ColumnEncoding.PLAIN)
+      this.blockValues = new ArrayList<>();
     this.blockDescriptors = new ArrayList<>();
-    this.blockData = new ArrayList<>();
+    this.spill = writer.getSpillFile();
+    if (spill == null)
+      this.blockData = new ArrayList<>();
+    else
+      this.blockOffsets = new long[16];
     if (meta.hasIndexValues())
       this.firstValues = new ArrayList<>();
+    if (meta.hasStatistics())
+      this.statistics = new OutputBuffer(64);
   }
 
   public ColumnMetaData getMeta() {
@@ -56,7 +75,7 @@ class ColumnOutputBuffer {
   }
 
   public void startRow() throws IOException {
-    if (buffer.isFull())
+    if (blockValues != null ? plainSize >= OutputBuffer.BLOCK_SIZE : buffer.isFull())
       flushBuffer();
   }
 
@@ -65,18 +84,66 @@ class ColumnOutputBuffer {
   }
 
   public void writeValue(Object value) throws IOException {
+    if (blockValues != null) {
+      writeEncodedValue(value);
+      return;
+    }
     buffer.writeValue(value, meta.getType());
+    updateStatistics(value);
     if (meta.hasIndexValues() && rowCount == 0)
       firstValues.add(buffer.toByteArray());
   }
 
+  // hold values until the block is flushed, then encode them together
+  private void writeEncodedValue(Object value) throws IOException {
+    if (value instanceof byte[])
+      value = ByteBuffer.wrap((byte[]) value);
+    value = copy((Comparable) value);
+    blockValues.add(value);
+    plainSize += OutputBuffer.size(value, meta.getType());
+    updateStatistics(value);
+    if (meta.hasIndexValues() && rowCount == 0) {
+      OutputBuffer first = new OutputBuffer(32);
+      first.writeValue(value, meta.getType());
+      firstValues.add(first.toByteArray());
+    }
+  }
+
   public void endRow() throws IOException {
+    if (!rowHasValue)
+      nullCount++;
+    rowHasValue = false;
     rowCount++;
   }
 
+  void updateStatistics(Object value) {
+    rowHasValue = true;
+    if (statistics == null)
+      return;
+    Comparable c = value instanceof byte[] ? ByteBuffer.wrap((byte[]) value) : (Comparable) value;
+    if (min == null || min.compareTo(c) > 0)
+      min = copy(c);
+    if (max == null || max.compareTo(c) < 0)
+      max = copy(c);
+  }
+
+  private static Comparable copy(Comparable value) {
+    if (!(value instanceof ByteBuffer))
+      return value;
+    ByteBuffer buffer = (ByteBuffer) value;
+    ByteBuffer copy = ByteBuffer.allocate(buffer.remaining());
+    copy.put(buffer.duplicate()).flip();
+    return copy;
+  }
+
   void flushBuffer() throws IOException {
     if (rowCount == 0)
       return;
+    if (blockValues != null) {
+      BlockEncodings.encode(encoding, blockValues, plainSize, meta.getType(), buffer);
+      blockValues.clear();
+      plainSize = 0;
+    }
     ByteBuffer raw = buffer.asByteBuffer();
     ByteBuffer c = codec.compress(raw);
 
@@ -85,19 +152,46 @@ class ColumnOutputBuffer {
     ByteBuffer data = ByteBuffer.allocate(c.remaining() + checksum.size());
     data.put(c);
     data.put(checksum.compute(raw));
-    blockData.add(data.array());
+    if (spill == null) {
+      blockData.add(data.array());
+    } else {
+      int block = blockDescriptors.size() - 1;
+      if (block == blockOffsets.length)
+        blockOffsets = Arrays.copyOf(blockOffsets, block * 2);
+      blockOffsets[block] = spill.append((ByteBuffer) data.flip());
+    }
 
     int sizeIncrement = (4 * 3) // descriptor
         + (firstValues != null // firstValue
             ? firstValues.get(firstValues.size() - 1).length
             : 0)
-        + data.position(); // data
+        + data.limit(); // data
 
     writer.incrementSize(sizeIncrement);
     size += sizeIncrement;
 
+    if (statistics != null) { // written with the column's metadata
+      int start = statistics.size();
+      statistics.writeInt(nullCount);
+      if (min != null) {
+        statistics.writeValue(min, meta.getType());
+        statistics.writeValue(max, meta.getType());
+      }
+      writer.incrementSize(statistics.size() - start);
+    }
+
     buffer = new OutputBuffer();
     rowCount = 0;
+    nullCount = 0;
+    min = max = null;
+  }
+
+  /** Flush and return this column's metadata, with statistics if stored. */
+  ColumnMetaData finish() throws IOException {
+    flushBuffer();
+    if (statistics != null)
+      meta.put(ColumnMetaData.BLOCK_STATS_KEY, statistics.toByteArray());
+    return meta;
   }
 
   public long size() throws IOException {
@@ -115,8 +209,13 @@ class ColumnOutputBuffer {
     }
     header.writeTo(out);
 
-    for (byte[] data : blockData)
-      out.write(data);
+    if (spill == null) {
+      for (byte[] data : blockData)
+        out.write(data);
+    } else {
+      for (int i = 0; i < blockDescriptors.size(); i++)
+        spill.copyTo(blockOffsets[i], blockDescriptors.get(i).compressedSize + checksum.size(), out);
+    }
   }
 
 }
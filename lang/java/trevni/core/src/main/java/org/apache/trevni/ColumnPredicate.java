@@ -0,0 +1,256 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.trevni;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * A predicate over the values of columns that selects rows of a file. Blocks
+ * of columns that store statistics (see
+ * {@link ColumnMetaData#hasStatistics(boolean)}) and hold no value that could
+ * match are skipped without being read.
+ *
+ * <p>
+ * Values are compared with {@link Comparable#compareTo(Object)}, so must be of
+ * the class read from the column: Integer for int and fixed32 columns, Long for
+ * long and fixed64 columns, Float, Double, String and ByteBuffer. A row matches
+ * a comparison if any of its values in the column does; rows without a value
+ * never match. Only columns without a parent may be compared.
+ *
+ * @see ColumnFileReader#filter(ColumnPredicate)
+ */
+public abstract class ColumnPredicate {
+
+  ColumnPredicate() {
+  }
+
+  /** Match rows whose value in a column equals a value. */
+  public static ColumnPredicate eq(String column, Comparable value) {
+    return range(column, value, value);
+  }
+
+  /**
+   * Match rows whose value in a column lies between two values, inclusive. A
+   * null bound leaves the range open on that side.
+   */
+  public static ColumnPredicate range(String column, Comparable min, Comparable max) {
+    return new Range(column, normalize(min), normalize(max));
+  }
+
+  /** Match rows whose value in a column is one of a set of values. */
+  public static ColumnPredicate in(String column, Comparable... values) {
+    NavigableSet<Comparable> set = new TreeSet<>();
+    for (Comparable value : values)
+      set.add(normalize(value));
+    return new In(column, set);
+  }
+
+  /** Match rows matched by all of a set of predicates. */
+  public static ColumnPredicate and(ColumnPredicate... predicates) {
+    return new And(predicates);
+  }
+
+  /** Match rows matched by any of a set of predicates. */
+  public static ColumnPredicate or(ColumnPredicate... predicates) {
+    return new Or(predicates);
+  }
+
+  private static Comparable normalize(Object value) {
+    if (value instanceof CharSequence) // e.g., Avro's Utf8
+      return value.toString();
+    if (value instanceof byte[])
+      return ByteBuffer.wrap((byte[]) value);
+    return (Comparable) value;
+  }
+
+  /** Add the names of the columns compared to a set. */
+  abstract void addColumns(Set<String> columns);
+
+  /** Return the rows of blocks that may hold matches. */
+  abstract RowRanges select(ColumnFileReader reader) throws IOException;
+
+  /** Return true if a row with the given values of each column matches. */
+  abstract boolean test(Map<String, List<Comparable>> values);
+
+  private abstract static class Leaf extends ColumnPredicate {
+    final String column;
+
+    Leaf(String column) {
+      this.column = column;
+    }
+
+    /** Return true if a block with these bounds may hold a match. */
+    abstract boolean mayMatch(Comparable min, Comparable max);
+
+    abstract boolean matches(Comparable value);
+
+    @Override
+    void addColumns(Set<String> columns) {
+      columns.add(column);
+    }
+
+    @Override
+    RowRanges select(ColumnFileReader reader) throws IOException {
+      ColumnDescriptor<?> c = reader.getColumn(column);
+      c.ensureBlocksRead();
+      if (!c.hasStatistics())
+        return RowRanges.all(reader.getRowCount());
+      RowRanges.Builder result = new RowRanges.Builder();
+      for (int i = 0; i < c.blockCount(); i++)
+        if (c.minValues[i] != null && mayMatch(c.minValues[i], c.maxValues[i]))
+          result.add(c.firstRows[i], c.lastRow(i));
+      return result.build();
+    }
+
+    @Override
+    boolean test(Map<String, List<Comparable>> values) {
+      for (Comparable value : values.get(column))
+        if (value != null && matches(value))
+          return true;
+      return false;
+    }
+  }
+
+  private static class Range extends Leaf {
+    private final Comparable min, max;
+
+    Range(String column, Comparable min, Comparable max) {
+      super(column);
+      this.min = min;
+      this.max = max;
+    }
+
+    @Override
+    boolean mayMatch(Comparable blockMin, Comparable blockMax) {
+      return (min == null || blockMax.compareTo(min) >= 0) && (max == null || blockMin.compareTo(max) <= 0);
+    }
+
+    @Override
+    boolean matches(Comparable value) {
+      return (min == null || value.compareTo(min) >= 0) && (max == null || value.compareTo(max) <= 0);
+    }
+
+    @Override
+    public String toString() {
+      return min != null && min.equals(max) ? column + " = " + min : column + " in [" + min + ", " + max + "]";
+    }
+  }
+
+  private static class In extends Leaf {
+    private final NavigableSet<Comparable> values;
+
+    In(String column, NavigableSet<Comparable> values) {
+      super(column);
+      this.values = values;
+    }
+
+    @Override
+    boolean mayMatch(Comparable blockMin, Comparable blockMax) {
+      Comparable least = values.ceiling(blockMin);
+      return least != null && least.compareTo(blockMax) <= 0;
+    }
+
+    @Override
+    boolean matches(Comparable value) {
+      return values.contains(value);
+    }
+
+    @Override
+    public String toString() {
+      return column + " in " + values;
+    }
+  }
+
+  private abstract static class Compound extends ColumnPredicate {
+    final ColumnPredicate[] predicates;
+
+    Compound(ColumnPredicate[] predicates) {
+      if (predicates.length == 0)
+        throw new TrevniRuntimeException("No predicates given");
+      this.predicates = predicates.clone();
+    }
+
+    @Override
+    void addColumns(Set<String> columns) {
+      for (ColumnPredicate p : predicates)
+        p.addColumns(columns);
+    }
+  }
+
+  private static class And extends Compound {
+    And(ColumnPredicate[] predicates) {
+      super(predicates);
+    }
+
+    @Override
+    RowRanges select(ColumnFileReader reader) throws IOException {
+      RowRanges result = predicates[0].select(reader);
+      for (int i = 1; i < predicates.length && result.count() > 0; i++)
+        result = result.and(predicates[i].select(reader));
+      return result;
+    }
+
+    @Override
+    boolean test(Map<String, List<Comparable>> values) {
+      for (ColumnPredicate p : predicates)
+        if (!p.test(values))
+          return false;
+      return true;
+    }
+
+    @Override
+    public String toString() {
+      return "and" + Arrays.toString(predicates);
+    }
+  }
+
+  private static class Or extends Compound {
+    Or(ColumnPredicate[] predicates) {
+      super(predicates);
+    }
+
+    @Override
+    RowRanges select(ColumnFileReader reader) throws IOException {
+      RowRanges result = predicates[0].select(reader);
+      for (int i = 1; i < predicates.length; i++)
+        result = result.or(predicates[i].select(reader));
+      return result;
+    }
+
+    @Override
+    boolean test(Map<String, List<Comparable>> values) {
+      for (ColumnPredicate p : predicates)
+        if (p.test(values))
+          return true;
+      return false;
+    }
+
+    @Override
+    public String toString() {
+      return "or" + Arrays.toString(predicates);
+    }
+  }
+
+}
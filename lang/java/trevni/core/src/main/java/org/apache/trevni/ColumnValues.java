@@ -20,6 +20,9 @@ package org.apache.trevni;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.Iterator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 
 /** An iterator over column values. */
 public class ColumnValues<T extends Comparable> implements Iterator<T>, Iterable<T> {
@@ -31,6 +34,13 @@ public class ColumnValues<T extends Comparable> implements Iterator<T>, Iterable
   private final InputBuffer in;
 
   private InputBuffer values;
+  private final boolean encoded;
+  private BlockValues decoded; // values of the current block, when decoded
+  private int index; // of the next decoded value
+
+  private Executor executor;
+  private FutureTask<Block> pending; // loading the block after the current
+  private int pendingBlock;
   private int block = -1;
   private long row = 0;
   private T previous;
@@ -43,10 +53,39 @@ public class ColumnValues<T extends Comparable> implements Iterator<T>, Iterable
     this.codec = Codec.get(column.metaData);
     this.checksum = Checksum.get(column.metaData);
     this.in = new InputBuffer(column.file);
+    this.encoded = column.metaData.getEncoding() != ColumnEncoding.PLAIN;
 
     column.ensureBlocksRead();
   }
 
+  /**
+   * Expert: Read, decompress and decode each block with an executor while the
+   * values of the block before it are used, so that the blocks of many columns
+   * may be decoded in parallel. At most one block is loaded ahead.
+   */
+  public void setExecutor(Executor executor) {
+    this.executor = executor;
+    if (block < 0)
+      loadAhead(0);
+  }
+
+  /**
+   * Expert: Stop loading blocks ahead, cancelling the load of a block that has
+   * not started yet. Called before the file is closed, so that no block is read
+   * from it afterwards.
+   */
+  public void cancelLoading() {
+    executor = null;
+    if (pending != null)
+      pending.cancel(false);
+    pending = null;
+  }
+
+  /** Return true if this column holds a count of values for each row. */
+  boolean isArray() {
+    return column.metaData.isArray();
+  }
+
   /** Return the current row number within this file. */
   public long getRow() {
     return row;
@@ -56,10 +95,20 @@ public class ColumnValues<T extends Comparable> implements Iterator<T>, Iterable
   public void seek(long r) throws IOException {
     if (r < row || r >= column.lastRow(block)) // not in current block
       startBlock(column.findBlock(r)); // seek to block start
+    if (r > row && column.metaData.getParent() != null)
+      throw new TrevniRuntimeException("Cannot seek within a block of a column with a parent: "
+          + column.metaData.getName());
     while (r > row && hasNext()) { // skip within block
-      values.skipValue(type);
+      if (column.metaData.isArray())
+        for (int length = values.readLength(); length > 0; length--)
+          values.skipValue(type);
+      else if (decoded != null)
+        index++;
+      else
+        values.skipValue(type);
       row++;
     }
+    arrayLength = 0;
     previous = null;
   }
 
@@ -74,10 +123,13 @@ public class ColumnValues<T extends Comparable> implements Iterator<T>, Iterable
       startBlock(column.findBlock(v)); // seek to block start
 
     while (hasNext()) { // scan block
-      long savedPosition = values.tell();
+      long savedPosition = decoded != null ? index : values.tell();
       T savedPrevious = previous;
       if (next().compareTo(v) >= 0) {
-        values.seek(savedPosition);
+        if (decoded != null)
+          index = (int) savedPosition;
+        else
+          values.seek(savedPosition);
         previous = savedPrevious;
         row--;
         return;
@@ -89,6 +141,27 @@ public class ColumnValues<T extends Comparable> implements Iterator<T>, Iterable
     this.block = block;
     this.row = column.firstRows[block];
 
+    Block loaded = awaitPending(block);
+    if (loaded == null)
+      loaded = load(block, in, false);
+    values = loaded.values;
+    decoded = loaded.decoded;
+    index = 0;
+    loadAhead(block + 1);
+  }
+
+  /** A block read and decompressed, with its values if decoded. */
+  private static class Block {
+    final InputBuffer values;
+    final BlockValues decoded;
+
+    Block(InputBuffer values, BlockValues decoded) {
+      this.values = values;
+      this.decoded = decoded;
+    }
+  }
+
+  private Block load(int block, InputBuffer in, boolean ahead) throws IOException {
     in.seek(column.blockStarts[block]);
     int end = column.blocks[block].compressedSize;
     byte[] raw = new byte[end + checksum.size()];
@@ -96,7 +169,48 @@ public class ColumnValues<T extends Comparable> implements Iterator<T>, Iterable
     ByteBuffer data = codec.decompress(ByteBuffer.wrap(raw, 0, end));
     if (!checksum.compute(data).equals(ByteBuffer.wrap(raw, end, checksum.size())))
       throw new IOException("Checksums mismatch.");
-    values = new InputBuffer(new InputBytes(data));
+    InputBuffer values = new InputBuffer(new InputBytes(data));
+    if (encoded)
+      return new Block(values, BlockEncodings.decode(values, type));
+    if (!ahead || column.metaData.isArray() || type == ValueType.NULL || type == ValueType.BOOLEAN)
+      return new Block(values, null);
+    BlockValues.Array decoded = BlockValues.allocate(type, 16);
+    for (int count = 0; values.tell() < values.length(); count++) {
+      if (count == decoded.length())
+        decoded = decoded.copyOf(count * 2);
+      decoded.read(count, values);
+    }
+    return new Block(values, decoded);
+  }
+
+  // start loading a block with the executor, if any
+  private void loadAhead(int block) {
+    if (executor == null || block >= column.blockCount())
+      return;
+    pendingBlock = block;
+    pending = new FutureTask<>(() -> load(block, new InputBuffer(column.file), true));
+    executor.execute(pending);
+  }
+
+  // wait for any block being loaded, returning it if it is the one named
+  private Block awaitPending(int block) throws IOException {
+    if (pending == null)
+      return null;
+    FutureTask<Block> task = pending;
+    pending = null;
+    try {
+      Block loaded = task.get();
+      return pendingBlock == block ? loaded : null;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new TrevniRuntimeException(e);
+    } catch (ExecutionException e) {
+      if (pendingBlock != block) // not the block wanted, which is loaded again
+        return null;
+      if (e.getCause() instanceof IOException)
+        throw (IOException) e.getCause();
+      throw new TrevniRuntimeException(e.getCause());
+    }
   }
 
   @Override
@@ -145,9 +259,124 @@ public class ColumnValues<T extends Comparable> implements Iterator<T>, Iterable
   /** Expert: Returns the next value in a column. */
   public T nextValue() throws IOException {
     arrayLength--;
+    if (decoded != null)
+      return previous = (T) decoded.get(index++);
     return previous = values.readValue(type);
   }
 
+  /**
+   * Read the values of up to <tt>max</tt> rows of an int or fixed32 column into
+   * an array, returning the count read, or zero at the end of the column.
+   */
+  public int readBatch(int max, int[] batch) throws IOException {
+    checkBatch(ValueType.INT, ValueType.FIXED32);
+    int count = 0;
+    for (int n; (n = startBatch(max - count)) > 0; count += n)
+      if (decoded != null) {
+        decoded.getInts(index, batch, count, n);
+        index += n;
+      } else if (type == ValueType.INT)
+        for (int i = count; i < count + n; i++)
+          batch[i] = values.readInt();
+      else
+        for (int i = count; i < count + n; i++)
+          batch[i] = values.readFixed32();
+    return count;
+  }
+
+  /** Read the values of up to <tt>max</tt> rows of a long or fixed64 column. */
+  public int readBatch(int max, long[] batch) throws IOException {
+    checkBatch(ValueType.LONG, ValueType.FIXED64);
+    int count = 0;
+    for (int n; (n = startBatch(max - count)) > 0; count += n)
+      if (decoded != null) {
+        decoded.getLongs(index, batch, count, n);
+        index += n;
+      } else if (type == ValueType.LONG)
+        for (int i = count; i < count + n; i++)
+          batch[i] = values.readLong();
+      else
+        for (int i = count; i < count + n; i++)
+          batch[i] = values.readFixed64();
+    return count;
+  }
+
+  /** Read the values of up to <tt>max</tt> rows of a float column. */
+  public int readBatch(int max, float[] batch) throws IOException {
+    checkBatch(ValueType.FLOAT);
+    int count = 0;
+    for (int n; (n = startBatch(max - count)) > 0; count += n)
+      if (decoded != null) {
+        decoded.getFloats(index, batch, count, n);
+        index += n;
+      } else
+        for (int i = count; i < count + n; i++)
+          batch[i] = values.readFloat();
+    return count;
+  }
+
+  /** Read the values of up to <tt>max</tt> rows of a double column. */
+  public int readBatch(int max, double[] batch) throws IOException {
+    checkBatch(ValueType.DOUBLE);
+    int count = 0;
+    for (int n; (n = startBatch(max - count)) > 0; count += n)
+      if (decoded != null) {
+        decoded.getDoubles(index, batch, count, n);
+        index += n;
+      } else
+        for (int i = count; i < count + n; i++)
+          batch[i] = values.readDouble();
+    return count;
+  }
+
+  /** Read the values of up to <tt>max</tt> rows of a boolean column. */
+  public int readBatch(int max, boolean[] batch) throws IOException {
+    checkBatch(ValueType.BOOLEAN);
+    int count = 0;
+    for (int n; (n = startBatch(max - count)) > 0; count += n)
+      for (int i = count; i < count + n; i++)
+        batch[i] = values.readBoolean();
+    return count;
+  }
+
+  /** Read the values of up to <tt>max</tt> rows of a column of any type. */
+  public int readBatch(int max, Object[] batch) throws IOException {
+    checkBatch(ValueType.values());
+    int count = 0;
+    for (int n; (n = startBatch(max - count)) > 0; count += n)
+      if (decoded != null) {
+        decoded.getObjects(index, batch, count, n);
+        index += n;
+      } else
+        for (int i = count; i < count + n; i++)
+          batch[i] = values.readValue(type);
+    return count;
+  }
+
+  private void checkBatch(ValueType... types) {
+    if (column.metaData.isArray() || column.metaData.getParent() != null)
+      throw new TrevniRuntimeException("Column is array: " + column.metaData.getName());
+    for (ValueType t : types)
+      if (t == type)
+        return;
+    throw new TrevniRuntimeException("Column is " + type.getName() + ": " + column.metaData.getName());
+  }
+
+  // advance past the rows of a batch within a block, returning their count
+  private int startBatch(int max) throws IOException {
+    if (max <= 0)
+      return 0;
+    if (row >= column.lastRow(block)) {
+      if (!hasNext())
+        return 0;
+      startBlock(block + 1);
+    }
+    int n = (int) Math.min(max, column.lastRow(block) - row);
+    row += n;
+    previous = null;
+    return n;
+  }
+
   @Override
   public void remove() {
     throw new UnsupportedOperationException();
@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.trevni;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+
+/**
+ * Implements <a href="https://lz4.org/">LZ4</a> codec. Compressed data starts
+ * with the 4-byte, big-endian length of the uncompressed data, followed by a
+ * single LZ4 block.
+ */
+final class Lz4Codec extends Codec {
+  private final LZ4Compressor compressor = LZ4Factory.fastestInstance().fastCompressor();
+  private final LZ4SafeDecompressor decompressor = LZ4Factory.fastestInstance().safeDecompressor();
+
+  @Override
+  ByteBuffer compress(ByteBuffer in) throws IOException {
+    int length = in.remaining();
+    ByteBuffer out = ByteBuffer.allocate(compressor.maxCompressedLength(length) + 4);
+    int size = compressor.compress(in, in.position(), length, out, 4, out.capacity() - 4);
+    out.putInt(0, length);
+    ((Buffer) out).limit(size + 4);
+    return out;
+  }
+
+  @Override
+  ByteBuffer decompress(ByteBuffer in) throws IOException {
+    if (in.remaining() < 4) {
+      throw new IOException("Invalid LZ4 block: too short");
+    }
+    int length = in.duplicate().order(ByteOrder.BIG_ENDIAN).getInt(in.position());
+    if (length < 0) {
+      throw new IOException("Invalid LZ4 block: negative length " + length);
+    }
+    ByteBuffer out = ByteBuffer.allocate(length);
+    int size;
+    try {
+      size = decompressor.decompress(in, in.position() + 4, in.remaining() - 4, out, 0, length);
+    } catch (LZ4Exception e) {
+      throw new IOException("Invalid LZ4 block", e);
+    }
+    if (size != length) {
+      throw new IOException("Invalid LZ4 block: expected " + length + " bytes, got " + size);
+    }
+    ((Buffer) out).limit(size);
+    return out;
+  }
+
+}
@@ -29,6 +29,8 @@ public class MetaData<T extends MetaData> extends LinkedHashMap<String, byte[]>
 
   static final String CODEC_KEY = RESERVED_KEY_PREFIX + "codec";
   static final String CHECKSUM_KEY = RESERVED_KEY_PREFIX + "checksum";
+  static final String STATS_KEY = RESERVED_KEY_PREFIX + "stats";
+  static final String ENCODING_KEY = RESERVED_KEY_PREFIX + "encoding";
 
   private MetaData<?> defaults;
 
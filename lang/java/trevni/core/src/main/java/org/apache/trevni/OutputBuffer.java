@@ -251,38 +251,12 @@ class OutputBuffer extends ByteArrayOutputStream {
 
   public static int size(int n) {
     n = (n << 1) ^ (n >> 31); // move sign to low-order bit
-    if (n <= (1 << (7 * 1)) - 1)
-      return 1;
-    if (n <= (1 << (7 * 2)) - 1)
-      return 2;
-    if (n <= (1 << (7 * 3)) - 1)
-      return 3;
-    if (n <= (1 << (7 * 4)) - 1)
-      return 4;
-    return 5;
+    return (32 - Integer.numberOfLeadingZeros(n | 1) + 6) / 7; // unsigned
   }
 
   public static int size(long n) {
     n = (n << 1) ^ (n >> 63); // move sign to low-order bit
-    if (n <= (1 << (7 * 1)) - 1)
-      return 1;
-    if (n <= (1 << (7 * 2)) - 1)
-      return 2;
-    if (n <= (1 << (7 * 3)) - 1)
-      return 3;
-    if (n <= (1 << (7 * 4)) - 1)
-      return 4;
-    if (n <= (1 << (7 * 5)) - 1)
-      return 5;
-    if (n <= (1 << (7 * 6)) - 1)
-      return 6;
-    if (n <= (1 << (7 * 7)) - 1)
-      return 7;
-    if (n <= (1 << (7 * 8)) - 1)
-      return 8;
-    if (n <= (1 << (7 * 9)) - 1)
-      return 9;
-    return 10;
+    return (64 - Long.numberOfLeadingZeros(n | 1) + 6) / 7; // unsigned
   }
 
   public static int size(ByteBuffer bytes) {
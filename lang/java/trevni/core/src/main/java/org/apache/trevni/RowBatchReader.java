@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.trevni;
+
+import java.io.IOException;
+
+/**
+ * Reads columns of a file a batch of rows at a time into arrays, of primitives
+ * where a column's type permits, so that values may be processed in tight
+ * loops without boxing. Only columns that are not arrays and have no parent may
+ * be read in batches.
+ * <p>
+ * Int and fixed32 columns are read into <tt>int[]</tt>, long and fixed64 into
+ * <tt>long[]</tt>, float into <tt>float[]</tt>, double into <tt>double[]</tt>,
+ * boolean into <tt>boolean[]</tt> and others into <tt>Object[]</tt>. The arrays
+ * are reused by each call to {@link #next()}.
+ *
+ * @see ColumnFileReader#batches(int, String...)
+ */
+public class RowBatchReader {
+  private final String[] names;
+  private final ColumnValues[] columns;
+  private final Object[] batches;
+  private final int capacity;
+  private long row = 0;
+  private int size = 0;
+
+  RowBatchReader(ColumnFileReader reader, int capacity, String... names) throws IOException {
+    if (capacity <= 0)
+      throw new TrevniRuntimeException("Batch size must be positive: " + capacity);
+    this.names = names;
+    this.capacity = capacity;
+    this.columns = new ColumnValues[names.length];
+    this.batches = new Object[names.length];
+    for (int i = 0; i < names.length; i++) {
+      ColumnMetaData meta = reader.getColumnMetaData(names[i]);
+      if (meta.isArray() || meta.getParent() != null)
+        throw new TrevniRuntimeException("Cannot read a batch of an array column: " + names[i]);
+      columns[i] = reader.getValues(names[i]);
+      batches[i] = newBatch(meta.getType(), capacity);
+    }
+  }
+
+  private static Object newBatch(ValueType type, int capacity) {
+    switch (type) {
+    case INT:
+    case FIXED32:
+      return new int[capacity];
+    case LONG:
+    case FIXED64:
+      return new long[capacity];
+    case FLOAT:
+      return new float[capacity];
+    case DOUBLE:
+      return new double[capacity];
+    case BOOLEAN:
+      return new boolean[capacity];
+    default:
+      return new Object[capacity];
+    }
+  }
+
+  /** Read the next batch of rows, returning false at the end of the file. */
+  public boolean next() throws IOException {
+    row += size;
+    size = 0;
+    for (int i = 0; i < columns.length; i++) {
+      int n = read(columns[i], batches[i]);
+      if (i > 0 && n != size)
+        throw new TrevniRuntimeException("Column " + names[i] + " has " + n + " rows, not " + size);
+      size = n;
+    }
+    return size > 0;
+  }
+
+  private int read(ColumnValues values, Object batch) throws IOException {
+    if (batch instanceof int[])
+      return values.readBatch(capacity, (int[]) batch);
+    if (batch instanceof long[])
+      return values.readBatch(capacity, (long[]) batch);
+    if (batch instanceof float[])
+      return values.readBatch(capacity, (float[]) batch);
+    if (batch instanceof double[])
+      return values.readBatch(capacity, (double[]) batch);
+    if (batch instanceof boolean[])
+      return values.readBatch(capacity, (boolean[]) batch);
+    return values.readBatch(capacity, (Object[]) batch);
+  }
+
+  /** Return the number of the first row of the current batch. */
+  public long getRow() {
+    return row;
+  }
+
+  /** Return the number of rows in the current batch. */
+  public int size() {
+    return size;
+  }
+
+  /** Return the values of an int or fixed32 column in the current batch. */
+  public int[] getInts(int column) {
+    return batch(column, int[].class);
+  }
+
+  /** Return the values of a long or fixed64 column in the current batch. */
+  public long[] getLongs(int column) {
+    return batch(column, long[].class);
+  }
+
+  /** Return the values of a float column in the current batch. */
+  public float[] getFloats(int column) {
+    return batch(column, float[].class);
+  }
+
+  /** Return the values of a double column in the current batch. */
+  public double[] getDoubles(int column) {
+    return batch(column, double[].class);
+  }
+
+  /** Return the values of a boolean column in the current batch. */
+  public boolean[] getBooleans(int column) {
+    return batch(column, boolean[].class);
+  }
+
+  /** Return the values of a string, bytes or null column in the current batch. */
+  public Object[] getValues(int column) {
+    return batch(column, Object[].class);
+  }
+
+  private <T> T batch(int column, Class<T> type) {
+    if (!type.isInstance(batches[column]))
+      throw new TrevniRuntimeException("Column " + names[column] + " is not read into " + type.getSimpleName());
+    return type.cast(batches[column]);
+  }
+
+}
@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.trevni;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Iterates over the numbers of the rows of a file that match a
+ * {@link ColumnPredicate}. Only the columns compared by the predicate are read,
+ * and only their blocks that may hold matches.
+ *
+ * @see ColumnFileReader#filter(ColumnPredicate)
+ */
+public class RowFilter {
+  private final ColumnPredicate predicate;
+  private final long rowCount;
+  private final RowRanges ranges;
+  private final ColumnValues[] columns;
+  private final List<Comparable>[] columnValues;
+  private final Map<String, List<Comparable>> rowValues = new HashMap<>();
+
+  private int range;
+  private long row;
+
+  RowFilter(ColumnFileReader reader, ColumnPredicate predicate) throws IOException {
+    this.predicate = predicate;
+    this.rowCount = reader.getRowCount();
+    Set<String> names = new LinkedHashSet<>();
+    predicate.addColumns(names);
+    this.columns = new ColumnValues[names.size()];
+    this.columnValues = new List[names.size()];
+    int i = 0;
+    for (String name : names) {
+      if (reader.getColumnMetaData(name).getParent() != null)
+        throw new TrevniRuntimeException("Cannot filter on a column with a parent: " + name);
+      columns[i] = reader.getValues(name);
+      columnValues[i] = new ArrayList<>(1);
+      rowValues.put(name, columnValues[i++]);
+    }
+    this.ranges = predicate.select(reader);
+  }
+
+  /**
+   * Return the number of the next matching row, or the file's row count if no
+   * more rows match.
+   */
+  public long nextRow() throws IOException {
+    for (; range < ranges.count(); range++) {
+      row = Math.max(row, ranges.start(range));
+      while (row < ranges.end(range)) {
+        long r = row++;
+        readRow(r);
+        if (predicate.test(rowValues))
+          return r;
+      }
+    }
+    return rowCount;
+  }
+
+  private void readRow(long r) throws IOException {
+    for (int i = 0; i < columns.length; i++) {
+      ColumnValues column = columns[i];
+      List<Comparable> values = columnValues[i];
+      values.clear();
+      column.seek(r);
+      column.startRow();
+      if (column.isArray())
+        for (int length = column.nextLength(); length > 0; length--)
+          values.add(column.nextValue());
+      else
+        values.add(column.nextValue());
+    }
+  }
+
+}
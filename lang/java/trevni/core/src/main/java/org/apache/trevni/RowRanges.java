@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.trevni;
+
+import java.util.Arrays;
+
+/** An immutable, sorted set of disjoint ranges of rows. */
+class RowRanges {
+  private final long[] starts;
+  private final long[] ends; // exclusive
+  private final int count;
+
+  static final RowRanges NONE = new RowRanges(new long[0], new long[0], 0);
+
+  private RowRanges(long[] starts, long[] ends, int count) {
+    this.starts = starts;
+    this.ends = ends;
+    this.count = count;
+  }
+
+  /** Return the ranges holding all rows before <tt>end</tt>. */
+  static RowRanges all(long end) {
+    return end <= 0 ? NONE : new RowRanges(new long[] { 0 }, new long[] { end }, 1);
+  }
+
+  int count() {
+    return count;
+  }
+
+  long start(int range) {
+    return starts[range];
+  }
+
+  long end(int range) {
+    return ends[range];
+  }
+
+  /** Return the rows in both this and another set. */
+  RowRanges and(RowRanges that) {
+    Builder result = new Builder();
+    int i = 0, j = 0;
+    while (i < count && j < that.count) {
+      long start = Math.max(starts[i], that.starts[j]);
+      long end = Math.min(ends[i], that.ends[j]);
+      if (start < end)
+        result.add(start, end);
+      if (ends[i] < that.ends[j])
+        i++;
+      else
+        j++;
+    }
+    return result.build();
+  }
+
+  /** Return the rows in either this or another set. */
+  RowRanges or(RowRanges that) {
+    Builder result = new Builder();
+    int i = 0, j = 0;
+    while (i < count || j < that.count) {
+      if (j == that.count || (i < count && starts[i] <= that.starts[j])) {
+        result.add(starts[i], ends[i]);
+        i++;
+      } else {
+        result.add(that.starts[j], that.ends[j]);
+        j++;
+      }
+    }
+    return result.build();
+  }
+
+  /** Builds ranges added in order of their start, merging those that touch. */
+  static class Builder {
+    private long[] starts = new long[8];
+    private long[] ends = new long[8];
+    private int count;
+
+    Builder add(long start, long end) {
+      if (count > 0 && start <= ends[count - 1]) {
+        ends[count - 1] = Math.max(ends[count - 1], end);
+        return this;
+      }
+      if (count == starts.length) {
+        starts = Arrays.copyOf(starts, count * 2);
+        ends = Arrays.copyOf(ends, count * 2);
+      }
+      starts[count] = start;
+      ends[count++] = end;
+      return this;
+    }
+
+    RowRanges build() {
+      return count == 0 ? NONE : new RowRanges(starts, ends, count);
+    }
+  }
+
+}
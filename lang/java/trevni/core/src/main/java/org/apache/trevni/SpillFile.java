@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.trevni;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A temporary file holding the finished blocks of all columns of a file being
+ * written, until they are copied into the file. The file is deleted when
+ * closed.
+ */
+class SpillFile implements Closeable {
+  private final FileChannel channel;
+  private long length;
+  private final ByteBuffer copyBuffer = ByteBuffer.allocate(OutputBuffer.BLOCK_SIZE);
+
+  SpillFile(File directory) throws IOException {
+    Files.createDirectories(directory.toPath());
+    Path path = Files.createTempFile(directory.toPath(), "trevni-", ".spill");
+    this.channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE,
+        StandardOpenOption.DELETE_ON_CLOSE);
+  }
+
+  /** Appends data, returning the offset at which it was written. */
+  long append(ByteBuffer data) throws IOException {
+    long offset = length;
+    while (data.hasRemaining())
+      length += channel.write(data, length);
+    return offset;
+  }
+
+  /** Copies data previously appended to a stream. */
+  void copyTo(long offset, int size, OutputStream out) throws IOException {
+    while (size > 0) {
+      copyBuffer.clear();
+      copyBuffer.limit(Math.min(size, copyBuffer.capacity()));
+      while (copyBuffer.hasRemaining()) {
+        int n = channel.read(copyBuffer, offset + copyBuffer.position());
+        if (n < 0)
+          throw new TrevniRuntimeException("Spill file truncated at: " + (offset + copyBuffer.position()));
+      }
+      out.write(copyBuffer.array(), 0, copyBuffer.limit());
+      offset += copyBuffer.limit();
+      size -= copyBuffer.limit();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+}
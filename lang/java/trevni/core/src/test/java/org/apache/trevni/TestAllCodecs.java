@@ -37,7 +37,7 @@ public class TestAllCodecs {
   }
 
   @ParameterizedTest
-  @ValueSource(strings = { "bzip2", "null", "snappy", "deflate" })
+  @ValueSource(strings = { "bzip2", "null", "snappy", "deflate", "lz4" })
   public void testCodec(String codec) throws IOException {
     int inputSize = 500_000;
 
@@ -67,7 +67,7 @@ public class TestAllCodecs {
   }
 
   @ParameterizedTest
-  @ValueSource(strings = { "bzip2", "null", "snappy", "deflate" })
+  @ValueSource(strings = { "bzip2", "null", "snappy", "deflate", "lz4" })
   public void testCodecSlice(String codec) throws IOException {
     int inputSize = 500_000;
     byte[] input = generateTestData(inputSize);
@@ -17,15 +17,21 @@
  */
 package org.apache.trevni;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Random;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.function.IntPredicate;
 import java.util.stream.Stream;
 
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
@@ -39,7 +45,7 @@ public class TestColumnFile {
   @Parameters
   public static Stream<Arguments> codecs() {
     return Stream.of(Arguments.of(createFileMeta("null", "null")), Arguments.of(createFileMeta("snappy", "crc32")),
-        Arguments.of(createFileMeta("deflate", "crc32")));
+        Arguments.of(createFileMeta("deflate", "crc32")), Arguments.of(createFileMeta("lz4", "crc32")));
   }
 
   private static ColumnFileMetaData createFileMeta(String codec, String checksum) {
@@ -250,4 +256,271 @@ public class TestColumnFile {
 
   }
 
+  @ParameterizedTest
+  @MethodSource("codecs")
+  void spilled(ColumnFileMetaData fileMeta) throws Exception {
+    File dir = new File("target", "spill");
+    dir.mkdirs();
+    ColumnMetaData[] columns = { new ColumnMetaData("a", ValueType.FIXED32),
+        new ColumnMetaData("b", ValueType.STRING).hasIndexValues(true), new ColumnMetaData("c", ValueType.LONG) };
+    ColumnFileWriter buffered = new ColumnFileWriter(fileMeta, columns);
+    ColumnFileWriter spilled = new ColumnFileWriter(fileMeta, dir, columns);
+    Random random = TestUtil.createRandom();
+    for (int i = 0; i < COUNT; i++) {
+      Object[] row = { random.nextInt(), TestUtil.randomString(random), random.nextLong() };
+      buffered.writeRow(row);
+      spilled.writeRow(row);
+    }
+    Assertions.assertEquals(buffered.sizeEstimate(), spilled.sizeEstimate());
+
+    // spilled blocks are written as they would have been from memory
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    buffered.writeTo(expected);
+    ByteArrayOutputStream actual = new ByteArrayOutputStream();
+    spilled.writeTo(actual);
+    Assertions.assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+
+    spilled.close();
+    Assertions.assertEquals(0, dir.list().length);
+  }
+
+  @ParameterizedTest
+  @MethodSource("codecs")
+  void filter(ColumnFileMetaData fileMeta) throws Exception {
+    FILE.delete();
+    fileMeta.setStatistics(true);
+    ColumnMetaData array = new ColumnMetaData("c", ValueType.INT).isArray(true);
+    ColumnFileWriter out = new ColumnFileWriter(fileMeta, new ColumnMetaData("a", ValueType.LONG),
+        new ColumnMetaData("b", ValueType.STRING), array);
+    Random random = TestUtil.createRandom();
+    long[] a = new long[COUNT];
+    String[] b = new String[COUNT];
+    int[][] c = new int[COUNT][];
+    for (int i = 0; i < COUNT; i++) {
+      a[i] = i * 1000L + random.nextInt(1000); // sorted
+      b[i] = TestUtil.randomString(random);
+      c[i] = new int[random.nextInt(3)];
+      out.startRow();
+      out.writeValue(a[i], 0);
+      out.writeValue(b[i], 1);
+      out.writeLength(c[i].length, 2);
+      for (int j = 0; j < c[i].length; j++)
+        out.writeValue(c[i][j] = random.nextInt(100) + (i < COUNT / 2 ? 0 : 100), 2);
+      out.endRow();
+    }
+    out.writeTo(FILE);
+    fileMeta.setStatistics(false);
+
+    long lo = a[COUNT / 3], hi = a[COUNT / 3 + 100];
+    checkFilter(ColumnPredicate.range("a", lo, hi), i -> a[i] >= lo && a[i] <= hi);
+    checkFilter(ColumnPredicate.eq("b", b[7]), i -> b[i].equals(b[7]));
+    checkFilter(ColumnPredicate.in("a", a[5], a[COUNT - 1], -1L), i -> i == 5 || i == COUNT - 1);
+    checkFilter(ColumnPredicate.or(ColumnPredicate.eq("c", 150), ColumnPredicate.range("a", null, a[10])),
+        i -> i <= 10 || Arrays.stream(c[i]).anyMatch(v -> v == 150));
+    checkFilter(ColumnPredicate.and(ColumnPredicate.range("c", 0, 10), ColumnPredicate.range("b", "a", "c")),
+        i -> Arrays.stream(c[i]).anyMatch(v -> v <= 10) && b[i].compareTo("a") >= 0 && b[i].compareTo("c") <= 0);
+
+    // only the blocks of a that may hold matches are read
+    long[] bytesRead = new long[1];
+    InputFile file = new InputFile(FILE) {
+      @Override
+      public int read(long position, byte[] bytes, int start, int len) throws IOException {
+        int n = super.read(position, bytes, start, len);
+        bytesRead[0] += n;
+        return n;
+      }
+    };
+    try (ColumnFileReader in = new ColumnFileReader(file)) {
+      RowFilter filter = in.filter(ColumnPredicate.range("a", lo, hi));
+      while (filter.nextRow() < COUNT) {
+        // read through the matches
+      }
+      Assertions.assertTrue(bytesRead[0] < FILE.length() / 4, bytesRead[0] + " of " + FILE.length());
+    }
+  }
+
+  @ParameterizedTest
+  @MethodSource("codecs")
+  void encodings(ColumnFileMetaData fileMeta) throws Exception {
+    Random random = TestUtil.createRandom();
+    String[] s = new String[COUNT];
+    long[] l = new long[COUNT];
+    int[] r = new int[COUNT];
+    double[] d = new double[COUNT];
+    byte[][] b = new byte[COUNT][];
+    for (int i = 0; i < COUNT; i++) {
+      s[i] = "key" + (i * 10 / COUNT); // sorted, few distinct
+      l[i] = Long.MIN_VALUE + i * 3L + random.nextInt(3);
+      r[i] = (i / 100) % 3 - 1; // runs
+      d[i] = random.nextDouble();
+      b[i] = new byte[] { (byte) random.nextInt(4) };
+    }
+
+    long plainLength = 0;
+    for (ColumnEncoding encoding : ColumnEncoding.values()) {
+      FILE.delete();
+      ColumnMetaData[] columns = { new ColumnMetaData("s", ValueType.STRING).hasIndexValues(true),
+          new ColumnMetaData("l", ValueType.LONG), new ColumnMetaData("r", ValueType.FIXED32),
+          new ColumnMetaData("d", ValueType.DOUBLE), new ColumnMetaData("b", ValueType.BYTES) };
+      for (ColumnMetaData column : columns)
+        if (encoding.supports(column.getType()))
+          column.setEncoding(encoding);
+      fileMeta.setStatistics(true);
+      ColumnFileWriter out = new ColumnFileWriter(fileMeta, columns);
+      fileMeta.setStatistics(false);
+      for (int i = 0; i < COUNT; i++)
+        out.writeRow(s[i], l[i], r[i], d[i], b[i]);
+      out.writeTo(FILE);
+      if (encoding == ColumnEncoding.PLAIN)
+        plainLength = FILE.length();
+      else if (encoding == ColumnEncoding.AUTO)
+        Assertions.assertTrue(FILE.length() < plainLength, FILE.length() + " of " + plainLength);
+
+      try (ColumnFileReader in = new ColumnFileReader(FILE)) {
+        Assertions.assertEquals(encoding.supports(ValueType.STRING) ? encoding : ColumnEncoding.PLAIN,
+            in.getColumnMetaData("s").getEncoding());
+        ColumnValues<String> sv = in.getValues("s");
+        ColumnValues<Long> lv = in.getValues("l");
+        ColumnValues<Integer> rv = in.getValues("r");
+        ColumnValues<Double> dv = in.getValues("d");
+        ColumnValues<ByteBuffer> bv = in.getValues("b");
+        for (int i = 0; i < COUNT; i++) {
+          Assertions.assertEquals(s[i], sv.next());
+          Assertions.assertEquals(l[i], lv.next());
+          Assertions.assertEquals(r[i], rv.next());
+          Assertions.assertEquals(d[i], dv.next());
+          Assertions.assertEquals(ByteBuffer.wrap(b[i]), bv.next());
+        }
+        Assertions.assertFalse(lv.hasNext());
+
+        lv.seek(COUNT / 3 + 7);
+        Assertions.assertEquals(l[COUNT / 3 + 7], lv.next());
+        sv.seek("key7");
+        Assertions.assertEquals(7 * COUNT / 10 + (7 * COUNT % 10 == 0 ? 0 : 1), sv.getRow());
+        Assertions.assertEquals("key7", sv.next());
+
+        RowFilter filter = in.filter(ColumnPredicate.and(ColumnPredicate.eq("s", "key3"),
+            ColumnPredicate.range("l", l[COUNT / 3 + 5], l[COUNT / 3 + 20])));
+        for (int i = 0; i < COUNT; i++)
+          if (s[i].equals("key3") && l[i] >= l[COUNT / 3 + 5] && l[i] <= l[COUNT / 3 + 20])
+            Assertions.assertEquals(i, filter.nextRow());
+        Assertions.assertEquals(COUNT, filter.nextRow());
+      }
+    }
+  }
+
+  @Test
+  void unknownEncoding() throws Exception {
+    FILE.delete();
+    ColumnFileWriter out = new ColumnFileWriter(new ColumnFileMetaData(),
+        new ColumnMetaData("test", ValueType.INT).setEncoding(ColumnEncoding.RLE));
+    out.writeRow(1);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    out.writeTo(bytes);
+    String file = new String(bytes.toByteArray(), StandardCharsets.ISO_8859_1);
+    byte[] unknown = file.replace("rle", "xyz").getBytes(StandardCharsets.ISO_8859_1);
+    TrevniRuntimeException e = Assertions.assertThrows(TrevniRuntimeException.class,
+        () -> new ColumnFileReader(new InputBytes(unknown)));
+    Assertions.assertEquals("Unknown encoding: xyz", e.getMessage());
+  }
+
+  @ParameterizedTest
+  @MethodSource("codecs")
+  void batches(ColumnFileMetaData fileMeta) throws Exception {
+    Random random = TestUtil.createRandom();
+    int[] i32 = new int[COUNT];
+    long[] i64 = new long[COUNT];
+    float[] f = new float[COUNT];
+    double[] d = new double[COUNT];
+    boolean[] b = new boolean[COUNT];
+    String[] s = new String[COUNT];
+    for (int i = 0; i < COUNT; i++) {
+      i32[i] = random.nextInt(100);
+      i64[i] = i * 7L;
+      f[i] = random.nextFloat();
+      d[i] = random.nextInt(10) / 4.0;
+      b[i] = random.nextBoolean();
+      s[i] = TestUtil.randomString(random);
+    }
+    String[] names = { "int", "fixed32", "long", "fixed64", "float", "double", "boolean", "string" };
+
+    for (ColumnEncoding encoding : ColumnEncoding.values()) {
+      FILE.delete();
+      fileMeta.setEncoding(encoding);
+      ColumnFileWriter out = new ColumnFileWriter(fileMeta, new ColumnMetaData("int", ValueType.INT),
+          new ColumnMetaData("fixed32", ValueType.FIXED32), new ColumnMetaData("long", ValueType.LONG),
+          new ColumnMetaData("fixed64", ValueType.FIXED64), new ColumnMetaData("float", ValueType.FLOAT),
+          new ColumnMetaData("double", ValueType.DOUBLE), new ColumnMetaData("boolean", ValueType.BOOLEAN),
+          new ColumnMetaData("string", ValueType.STRING));
+      for (int i = 0; i < COUNT; i++)
+        out.writeRow(i32[i], i32[i], i64[i], i64[i], f[i], d[i], b[i], s[i]);
+      out.writeTo(FILE);
+      fileMeta.setEncoding(ColumnEncoding.PLAIN);
+
+      try (ColumnFileReader in = new ColumnFileReader(FILE)) {
+        RowBatchReader batches = in.batches(1000, names);
+        long row = 0;
+        while (batches.next()) {
+          Assertions.assertEquals(row, batches.getRow());
+          for (int i = 0; i < batches.size(); i++) {
+            int r = (int) row + i;
+            Assertions.assertEquals(i32[r], batches.getInts(0)[i]);
+            Assertions.assertEquals(i32[r], batches.getInts(1)[i]);
+            Assertions.assertEquals(i64[r], batches.getLongs(2)[i]);
+            Assertions.assertEquals(i64[r], batches.getLongs(3)[i]);
+            Assertions.assertEquals(f[r], batches.getFloats(4)[i]);
+            Assertions.assertEquals(d[r], batches.getDoubles(5)[i]);
+            Assertions.assertEquals(b[r], batches.getBooleans(6)[i]);
+            Assertions.assertEquals(s[r], batches.getValues(7)[i]);
+          }
+          row += batches.size();
+        }
+        Assertions.assertEquals(COUNT, row);
+        Assertions.assertThrows(TrevniRuntimeException.class, () -> batches.getDoubles(0));
+
+        // batches mixed with single values and seeks
+        ColumnValues<Long> values = in.getValues("long");
+        Assertions.assertEquals(i64[0], values.next());
+        long[] batch = new long[COUNT];
+        Assertions.assertEquals(COUNT / 2, values.readBatch(COUNT / 2, batch));
+        Assertions.assertEquals(i64[COUNT / 2], batch[COUNT / 2 - 1]);
+        Assertions.assertEquals(i64[COUNT / 2 + 1], values.next());
+        values.seek(COUNT - 10);
+        Assertions.assertEquals(10, values.readBatch(COUNT, batch));
+        Assertions.assertEquals(i64[COUNT - 1], batch[9]);
+        Assertions.assertEquals(0, values.readBatch(COUNT, batch));
+        Assertions.assertThrows(TrevniRuntimeException.class, () -> values.readBatch(1, new int[1]));
+
+        // blocks loaded ahead
+        ColumnValues<Integer> ints = in.getValues("int");
+        ints.setExecutor(Runnable::run);
+        int[] intBatch = new int[COUNT];
+        Assertions.assertEquals(COUNT, ints.readBatch(COUNT, intBatch));
+        Assertions.assertArrayEquals(i32, intBatch);
+        ColumnValues<Double> doubles = in.getValues("double");
+        doubles.setExecutor(Runnable::run);
+        Assertions.assertEquals(d[0], doubles.next());
+        double[] doubleBatch = new double[COUNT];
+        Assertions.assertEquals(COUNT - 1, doubles.readBatch(COUNT, doubleBatch));
+        Assertions.assertEquals(d[COUNT - 1], doubleBatch[COUNT - 2]);
+      }
+    }
+  }
+
+  private static void checkFilter(ColumnPredicate predicate, IntPredicate expected)
+      throws Exception {
+    try (ColumnFileReader in = new ColumnFileReader(FILE)) {
+      RowFilter filter = in.filter(predicate);
+      int matches = 0;
+      for (int i = 0; i < COUNT; i++) {
+        if (expected.test(i)) {
+          Assertions.assertEquals(i, filter.nextRow(), predicate.toString());
+          matches++;
+        }
+      }
+      Assertions.assertEquals(COUNT, filter.nextRow(), predicate.toString());
+      Assertions.assertTrue(matches > 0, predicate.toString());
+    }
+  }
+
 }
@@ -53,6 +53,24 @@ public class TestIOBuffers {
     out.close();
   }
 
+  @Test
+  void sizes() throws Exception {
+    long[] longs = { 0, -1, 63, -64, 64, Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE };
+    for (long n : longs) {
+      OutputBuffer out = new OutputBuffer();
+      out.writeLong(n);
+      assertEquals(out.size(), OutputBuffer.size(n), "size of " + n);
+      out.close();
+    }
+    int[] ints = { 0, -1, 63, -64, 64, Integer.MAX_VALUE, Integer.MIN_VALUE };
+    for (int n : ints) {
+      OutputBuffer out = new OutputBuffer();
+      out.writeInt(n);
+      assertEquals(out.size(), OutputBuffer.size(n), "size of " + n);
+      out.close();
+    }
+  }
+
   @Test
   void testBoolean() throws Exception {
     Random random = TestUtil.createRandom();